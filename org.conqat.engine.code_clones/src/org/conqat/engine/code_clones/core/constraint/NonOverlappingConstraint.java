@@ -16,6 +16,7 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.code_clones.core.constraint;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.conqat.engine.code_clones.core.Clone;
@@ -41,36 +42,40 @@ public class NonOverlappingConstraint extends ConstraintBase {
 	@Override
 	public boolean satisfied(CloneClass cloneClass) {
 		ListMap<String, Region> cloneRegions = new ListMap<String, Region>();
-
-		// look for overlaps
 		for (Clone clone : cloneClass.getClones()) {
-			String uniformPath = clone.getUniformPath();
 			TextRegionLocation location = clone.getLocation();
-			Region cloneRegion = new Region(location.getRawStartOffset(),
-					location.getRawEndOffset());
+			cloneRegions.add(clone.getUniformPath(), new Region(
+					location.getRawStartOffset(), location.getRawEndOffset()));
+		}
 
-			if (overlaps(cloneRegion, cloneRegions.getCollection(uniformPath))) {
+		// look for overlaps
+		for (String uniformPath : cloneRegions.getKeys()) {
+			if (containsOverlap(cloneRegions.getCollection(uniformPath))) {
 				return false;
 			}
-			cloneRegions.add(uniformPath, cloneRegion);
 		}
 
 		// if code reaches here, no overlap was found
 		return true;
 	}
 
-	/** Checks whether a region overlaps with any region in a list of regions */
-	private boolean overlaps(Region cloneRegion, List<Region> regionsInSameFile) {
-		if (regionsInSameFile == null) {
-			return false;
-		}
+	/**
+	 * Checks whether any two regions in a list of regions overlap. After
+	 * sorting the regions by their start, a region overlaps one of its
+	 * predecessors iff it starts before the maximal end of the predecessors.
+	 * This avoids comparing all pairs of regions, which is quadratic for clone
+	 * classes with many clones in the same file (e.g. in generated code).
+	 */
+	private static boolean containsOverlap(List<Region> regionsInSameFile) {
+		Collections.sort(regionsInSameFile);
 
+		int maxEnd = Integer.MIN_VALUE;
 		for (Region region : regionsInSameFile) {
-			if (region.overlaps(cloneRegion)) {
+			if (region.getStart() <= maxEnd) {
 				return true;
 			}
+			maxEnd = Math.max(maxEnd, region.getEnd());
 		}
 		return false;
 	}
-
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.core.report;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.conqat.engine.code_clones.core.KeyValueStoreBase;
+import org.conqat.lib.commons.assertion.CCSMAssert;
+import org.conqat.lib.commons.reflect.TypeConversionException;
+
+/**
+ * Constants and encoding helpers for the binary clone report format written by
+ * {@link BinaryCloneReportWriter} and read by {@link BinaryCloneReportReader}.
+ * <p>
+ * A report consists of the following sections:
+ * <ul>
+ * <li>the header with magic number and version, the system date, the root
+ * values, and the source element descriptors,</li>
+ * <li>one record per clone class, written in a streaming fashion,</li>
+ * <li>the string table, as all strings (paths, fingerprints, values) are
+ * interned and referenced by their index,</li>
+ * <li>the clone class index storing the offsets of all clone class records,
+ * which allows random access,</li>
+ * <li>the trailer of fixed size with the offsets of string table and index.</li>
+ * </ul>
+ * All integers except the ones in the trailer are stored as variable length
+ * integers. Signed values are zig-zag encoded and locations of clones are
+ * stored relative to their start.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */final class BinaryCloneReportFormat {
+
+	/** Magic number at the start and end of each binary report ("CQCR"). */
+	/* package */static final int MAGIC = 0x43514352;
+
+	/** The version of the format. */
+	/* package */static final int VERSION = 1;
+
+	/** The size of the header prefix (magic number and version). */
+	/* package */static final int PREFIX_SIZE = 8;
+
+	/**
+	 * The size of the trailer (string table offset, index offset, magic
+	 * number).
+	 */
+	/* package */static final int TRAILER_SIZE = 20;
+
+	/** Utility class. */
+	private BinaryCloneReportFormat() {
+		// prevent instantiation
+	}
+
+	/** Writes a non-negative variable length integer. */
+	/* package */static void writeUnsigned(DataOutput out, long value)
+			throws IOException {
+		CCSMAssert.isTrue(value >= 0, "Only non-negative values allowed.");
+		while ((value & ~0x7fL) != 0) {
+			out.writeByte((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/** Reads a non-negative variable length integer. */
+	/* package */static long readUnsigned(DataInput in) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.readByte();
+			result |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Invalid variable length integer!");
+	}
+
+	/** Reads a non-negative variable length integer that fits an int. */
+	/* package */static int readUnsignedInt(DataInput in) throws IOException {
+		long value = readUnsigned(in);
+		if (value > Integer.MAX_VALUE) {
+			throw new IOException("Integer value out of range: " + value);
+		}
+		return (int) value;
+	}
+
+	/** Writes a signed variable length integer using zig-zag encoding. */
+	/* package */static void writeSigned(DataOutput out, long value)
+			throws IOException {
+		writeUnsigned(out, (value << 1) ^ (value >> 63));
+	}
+
+	/** Reads a signed variable length integer using zig-zag encoding. */
+	/* package */static long readSigned(DataInput in) throws IOException {
+		long value = readUnsigned(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/** Reads a signed variable length integer that fits an int. */
+	/* package */static int readSignedInt(DataInput in) throws IOException {
+		long value = readSigned(in);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new IOException("Integer value out of range: " + value);
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Returns the non-transient entries of the given store as triples of key,
+	 * value string and type name.
+	 */
+	/* package */static List<String[]> getPersistentValues(
+			KeyValueStoreBase store) {
+		List<String[]> result = new ArrayList<String[]>();
+		for (String key : store.getKeyList()) {
+			if (store.getTransient(key)) {
+				continue;
+			}
+			Object value = store.getValue(key);
+			CCSMAssert.isNotNull(value, "Value stored under key " + key
+					+ " is null");
+			result.add(new String[] { key, String.valueOf(value),
+					value.getClass().getName() });
+		}
+		return result;
+	}
+
+	/** Sets a value read from a report in the given store. */
+	/* package */static void setValue(KeyValueStoreBase store, String key,
+			String value, String type) throws IOException {
+		try {
+			store.setValue(key, value, type);
+		} catch (TypeConversionException e) {
+			throw new IOException("Could not parse value for key " + key
+					+ ": " + e.getMessage());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Could not parse value for key " + key
+					+ ": " + e.getMessage());
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,340 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.core.report;
+
+import static org.conqat.engine.code_clones.core.report.BinaryCloneReportFormat.readSigned;
+import static org.conqat.engine.code_clones.core.report.BinaryCloneReportFormat.readSignedInt;
+import static org.conqat.engine.code_clones.core.report.BinaryCloneReportFormat.readUnsignedInt;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.code_clones.core.KeyValueStoreBase;
+import org.conqat.engine.commons.findings.location.TextRegionLocation;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+
+/**
+ * Lazy reader for binary clone reports (see {@link BinaryCloneReportFormat}
+ * for the layout). On construction only the header, the string table and the
+ * clone class index are read. Clone classes are read on demand, either one by
+ * one via {@link #getCloneClass(int)} or all at once via
+ * {@link #getCloneClasses()}. The reader must be closed after use.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class BinaryCloneReportReader {
+
+	/** The report file. */
+	private final File report;
+
+	/** The file the report is read from. */
+	private final RandomAccessFile file;
+
+	/** The interned strings. */
+	private final String[] strings;
+
+	/** Offsets of the clone class records. */
+	private final long[] cloneClassOffsets;
+
+	/** The offset of the string table (which follows the last record). */
+	private final long stringTableOffset;
+
+	/** Descriptors for all source elements on which detection was performed. */
+	private final List<SourceElementDescriptor> sourceElementDescriptors = new ArrayList<SourceElementDescriptor>();
+
+	/** Maps source element ids to their descriptors. */
+	private final Map<Long, SourceElementDescriptor> sourceElementDescriptorsById = new HashMap<Long, SourceElementDescriptor>();
+
+	/** Date denoting the system version on which clone detection was performed. */
+	private Date systemDate;
+
+	/** The root values storing key/value for the entire report. */
+	private final RootValues rootValues = new RootValues();
+
+	/**
+	 * Opens the clone report.
+	 * 
+	 * @throws ConQATException
+	 *             if the report could not be read
+	 */
+	public BinaryCloneReportReader(File report) throws ConQATException {
+		this.report = report;
+		try {
+			file = new RandomAccessFile(report, "r");
+		} catch (IOException e) {
+			throw new ConQATException("Could not read file: " + e.getMessage(),
+					e);
+		}
+
+		try {
+			long fileLength = file.length();
+			if (fileLength < BinaryCloneReportFormat.PREFIX_SIZE
+					+ BinaryCloneReportFormat.TRAILER_SIZE) {
+				throw new IOException("File too short for a binary report");
+			}
+
+			file.seek(fileLength - BinaryCloneReportFormat.TRAILER_SIZE);
+			stringTableOffset = file.readLong();
+			long indexOffset = file.readLong();
+			if (file.readInt() != BinaryCloneReportFormat.MAGIC) {
+				throw new IOException("Invalid trailer in binary report");
+			}
+
+			DataInput stringTable = readSection(stringTableOffset,
+					indexOffset);
+			strings = new String[readUnsignedInt(stringTable)];
+			for (int i = 0; i < strings.length; ++i) {
+				byte[] bytes = new byte[readUnsignedInt(stringTable)];
+				stringTable.readFully(bytes);
+				strings[i] = new String(bytes, FileSystemUtils.UTF8_ENCODING);
+			}
+
+			DataInput index = readSection(indexOffset, fileLength
+					- BinaryCloneReportFormat.TRAILER_SIZE);
+			cloneClassOffsets = new long[readUnsignedInt(index)];
+			long offset = 0;
+			for (int i = 0; i < cloneClassOffsets.length; ++i) {
+				offset += BinaryCloneReportFormat.readUnsigned(index);
+				cloneClassOffsets[i] = offset;
+			}
+
+			long headerEnd = stringTableOffset;
+			if (cloneClassOffsets.length > 0) {
+				headerEnd = cloneClassOffsets[0];
+			}
+			readHeader(readSection(0, headerEnd));
+		} catch (IOException e) {
+			close();
+			throw new ConQATException("Could not read binary report '"
+					+ report + "': " + e.getMessage(), e);
+		}
+	}
+
+	/** Returns whether the given file starts like a binary clone report. */
+	public static boolean isBinaryReport(File report) throws ConQATException {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(report));
+			return report.length() >= BinaryCloneReportFormat.PREFIX_SIZE
+					&& in.readInt() == BinaryCloneReportFormat.MAGIC;
+		} catch (IOException e) {
+			throw new ConQATException("Could not read file: " + e.getMessage(),
+					e);
+		} finally {
+			FileSystemUtils.close(in);
+		}
+	}
+
+	/** Reads the bytes between the given offsets. */
+	private DataInput readSection(long start, long end) throws IOException {
+		if (start < 0 || end < start || end > file.length()) {
+			throw new IOException("Invalid section offsets: " + start + "-"
+					+ end);
+		}
+		byte[] data = new byte[(int) (end - start)];
+		file.seek(start);
+		file.readFully(data);
+		return new DataInputStream(new ByteArrayInputStream(data));
+	}
+
+	/** Reads the header. */
+	private void readHeader(DataInput in) throws IOException {
+		if (in.readInt() != BinaryCloneReportFormat.MAGIC) {
+			throw new IOException("Not a binary clone report");
+		}
+		int version = in.readInt();
+		if (version != BinaryCloneReportFormat.VERSION) {
+			throw new IOException("Unsupported report version " + version);
+		}
+
+		if (in.readBoolean()) {
+			systemDate = new Date(in.readLong());
+		}
+		readValues(in, rootValues);
+
+		int count = readUnsignedInt(in);
+		for (int i = 0; i < count; ++i) {
+			SourceElementDescriptor descriptor = new SourceElementDescriptor(
+					readSignedInt(in), readString(in), readString(in),
+					readSignedInt(in), readString(in));
+			readValues(in, descriptor);
+			sourceElementDescriptors.add(descriptor);
+			sourceElementDescriptorsById.put(descriptor.getId(), descriptor);
+		}
+	}
+
+	/**
+	 * Reads the given number of values from the input and stores them in the
+	 * store.
+	 */
+	private void readValues(DataInput in, KeyValueStoreBase store)
+			throws IOException {
+		int count = readUnsignedInt(in);
+		for (int i = 0; i < count; ++i) {
+			BinaryCloneReportFormat.setValue(store, readString(in),
+					readString(in), readString(in));
+		}
+	}
+
+	/** Reads a reference into the string table. */
+	private String readString(DataInput in) throws IOException {
+		int index = readUnsignedInt(in);
+		if (index == 0) {
+			return null;
+		}
+		if (index > strings.length) {
+			throw new IOException("Invalid string reference: " + index);
+		}
+		return strings[index - 1];
+	}
+
+	/** Get list of {@link SourceElementDescriptor}s contained in report */
+	public List<SourceElementDescriptor> getSourceElementDescriptors() {
+		return sourceElementDescriptors;
+	}
+
+	/**
+	 * Get the date denoting the system version on which clone detection was
+	 * performed
+	 */
+	public Date getSystemDate() {
+		return systemDate;
+	}
+
+	/**
+	 * Returns an object that represents the key/value pairs stored at the
+	 * report's root.
+	 */
+	public RootValues getRootValues() {
+		return rootValues;
+	}
+
+	/** Returns the number of clone classes in the report. */
+	public int getCloneClassCount() {
+		return cloneClassOffsets.length;
+	}
+
+	/** Reads the clone class with the given index. */
+	public CloneClass getCloneClass(int index) throws ConQATException {
+		long end = stringTableOffset;
+		if (index + 1 < cloneClassOffsets.length) {
+			end = cloneClassOffsets[index + 1];
+		}
+
+		try {
+			return readCloneClass(readSection(cloneClassOffsets[index], end));
+		} catch (IOException e) {
+			throw new ConQATException("Could not read clone class " + index
+					+ ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads all clone classes contained in report. In contrast to
+	 * {@link #getCloneClass(int)}, the records are streamed sequentially
+	 * through a buffer.
+	 */
+	public List<CloneClass> getCloneClasses() throws ConQATException {
+		List<CloneClass> cloneClasses = new ArrayList<CloneClass>(
+				cloneClassOffsets.length);
+		if (cloneClassOffsets.length == 0) {
+			return cloneClasses;
+		}
+
+		DataInputStream in = null;
+		try {
+			FileInputStream fileStream = new FileInputStream(report);
+			fileStream.getChannel().position(cloneClassOffsets[0]);
+			in = new DataInputStream(new BufferedInputStream(fileStream));
+			for (int i = 0; i < cloneClassOffsets.length; ++i) {
+				cloneClasses.add(readCloneClass(in));
+			}
+		} catch (IOException e) {
+			throw new ConQATException("Could not read clone classes: "
+					+ e.getMessage(), e);
+		} finally {
+			FileSystemUtils.close(in);
+		}
+		return cloneClasses;
+	}
+
+	/** Reads a clone class record. */
+	private CloneClass readCloneClass(DataInput in) throws IOException {
+		long id = readSigned(in);
+		CloneClass cloneClass = new CloneClass(readSignedInt(in), id);
+		readValues(in, cloneClass);
+
+		int count = readUnsignedInt(in);
+		long previousId = id;
+		for (int i = 0; i < count; ++i) {
+			previousId = readClone(in, cloneClass, previousId).getId();
+		}
+		return cloneClass;
+	}
+
+	/** Reads a clone record and adds the clone to the clone class. */
+	private Clone readClone(DataInput in, CloneClass cloneClass,
+			long previousId) throws IOException {
+		long id = previousId + readSigned(in);
+		String fingerprint = readString(in);
+		long sourceElementId = readSigned(in);
+		SourceElementDescriptor descriptor = sourceElementDescriptorsById
+				.get(sourceElementId);
+		if (descriptor == null) {
+			throw new IOException(
+					"Inconsistent clone report: source element id unknown");
+		}
+
+		int rawStartLine = readSignedInt(in);
+		int rawEndLine = rawStartLine + readSignedInt(in);
+		int rawStartOffset = readSignedInt(in);
+		int rawEndOffset = rawStartOffset + readSignedInt(in);
+		TextRegionLocation location = new TextRegionLocation(
+				descriptor.getLocation(), descriptor.getUniformPath(),
+				rawStartOffset, rawEndOffset, rawStartLine, rawEndLine);
+
+		int startUnitIndexInFile = readSignedInt(in);
+		int lengthInUnits = readSignedInt(in);
+		int deltaInUnits = readSignedInt(in);
+		Clone clone = new Clone(id, cloneClass, location,
+				startUnitIndexInFile, lengthInUnits, fingerprint, deltaInUnits);
+		ReportUtils.parseGapOffsetString(clone, readString(in));
+		readValues(in, clone);
+		return clone;
+	}
+
+	/** Closes the underlying file. */
+	public void close() {
+		FileSystemUtils.close(file);
+	}
+}
\ No newline at end of file
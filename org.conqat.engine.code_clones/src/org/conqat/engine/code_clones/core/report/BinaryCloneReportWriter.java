@@ -0,0 +1,343 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.core.report;
+
+import static org.conqat.engine.code_clones.core.report.BinaryCloneReportFormat.writeSigned;
+import static org.conqat.engine.code_clones.core.report.BinaryCloneReportFormat.writeUnsigned;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.code_clones.core.KeyValueStoreBase;
+import org.conqat.engine.code_clones.core.utils.StableCloneClassComparator;
+import org.conqat.engine.code_clones.core.utils.StableCloneComparator;
+import org.conqat.engine.commons.findings.location.TextRegionLocation;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.lib.commons.assertion.CCSMAssert;
+import org.conqat.lib.commons.collections.CollectionUtils;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+
+/**
+ * Streaming writer for binary clone reports (see
+ * {@link BinaryCloneReportFormat} for the layout). The header is written on
+ * construction, clone classes are written one at a time using
+ * {@link #writeCloneClass(CloneClass)}, and {@link #close()} writes the string
+ * table and the clone class index. Only the string table and the offsets of
+ * the clone classes are kept in memory.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class BinaryCloneReportWriter {
+
+	/** The stream used for counting the bytes written. */
+	private final CountingOutputStream countingStream;
+
+	/** The stream written to. */
+	private final DataOutputStream out;
+
+	/** Maps uniform paths to their descriptors. */
+	private final Map<String, SourceElementDescriptor> descriptorsByPath = new HashMap<String, SourceElementDescriptor>();
+
+	/** Maps the interned strings to their index in the string table. */
+	private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+
+	/** The interned strings in the order of their indexes. */
+	private final List<String> strings = new ArrayList<String>();
+
+	/** Offsets of the clone class records. */
+	private final List<Long> cloneClassOffsets = new ArrayList<Long>();
+
+	/** Comparator used to sort clones within clone classes. */
+	private final StableCloneComparator comparator;
+
+	/**
+	 * Constructor. This writes the header of the report.
+	 * 
+	 * @param systemDate
+	 *            the system date of the report. May be null.
+	 * @param rootValues
+	 *            key/values stored at the report's root. May be null.
+	 * @param lenient
+	 *            whether the lenient clone comparator should be used for
+	 *            sorting the clones within a clone class.
+	 */
+	public BinaryCloneReportWriter(File targetFile, Date systemDate,
+			RootValues rootValues,
+			Collection<SourceElementDescriptor> sourceElementDescriptors,
+			boolean lenient) throws IOException {
+		if (lenient) {
+			comparator = StableCloneComparator.LENIENT_INSTANCE;
+		} else {
+			comparator = StableCloneComparator.INSTANCE;
+		}
+
+		FileSystemUtils.ensureParentDirectoryExists(targetFile);
+		countingStream = new CountingOutputStream(new BufferedOutputStream(
+				new FileOutputStream(targetFile)));
+		out = new DataOutputStream(countingStream);
+
+		boolean success = false;
+		try {
+			writeHeader(systemDate, rootValues, sourceElementDescriptors);
+			success = true;
+		} finally {
+			if (!success) {
+				abort();
+			}
+		}
+	}
+
+	/** Writes the header of the report. */
+	private void writeHeader(Date systemDate, RootValues rootValues,
+			Collection<SourceElementDescriptor> sourceElementDescriptors)
+			throws IOException {
+		out.writeInt(BinaryCloneReportFormat.MAGIC);
+		out.writeInt(BinaryCloneReportFormat.VERSION);
+
+		out.writeBoolean(systemDate != null);
+		if (systemDate != null) {
+			out.writeLong(systemDate.getTime());
+		}
+
+		if (rootValues == null) {
+			writeUnsigned(out, 0);
+		} else {
+			writeValues(rootValues);
+		}
+
+		writeUnsigned(out, sourceElementDescriptors.size());
+		for (SourceElementDescriptor descriptor : sourceElementDescriptors) {
+			descriptorsByPath.put(descriptor.getUniformPath(), descriptor);
+			writeSigned(out, descriptor.getId());
+			writeString(descriptor.getUniformPath());
+			writeString(descriptor.getLocation());
+			writeSigned(out, descriptor.getLength());
+			writeString(descriptor.getFingerprint());
+			writeValues(descriptor);
+		}
+	}
+
+	/**
+	 * Writes a complete binary clone report. Clone classes are sorted in the
+	 * same way as by the {@link CloneReportWriter}. If writing fails, the
+	 * partially written report file is deleted.
+	 * 
+	 * @param rootValues
+	 *            key/values stored at the report's root. May be null.
+	 * @throws ConQATException
+	 *             If report creation fails.
+	 */
+	public static void writeReport(List<CloneClass> cloneClasses,
+			Map<String, SourceElementDescriptor> sourceFileDescriptorsMap,
+			RootValues rootValues, Date systemDate, File targetFile,
+			boolean lenient) throws ConQATException {
+		BinaryCloneReportWriter writer = null;
+		boolean success = false;
+		try {
+			writer = new BinaryCloneReportWriter(targetFile, systemDate,
+					rootValues,
+					sortByUniformPath(sourceFileDescriptorsMap.values()),
+					lenient);
+			Collections
+					.sort(cloneClasses, StableCloneClassComparator.INSTANCE);
+			for (CloneClass cloneClass : cloneClasses) {
+				writer.writeCloneClass(cloneClass);
+			}
+			writer.close();
+			success = true;
+		} catch (IOException e) {
+			throw new ConQATException("Could not write report: "
+					+ e.getMessage(), e);
+		} finally {
+			if (!success) {
+				if (writer != null) {
+					writer.abort();
+				}
+				targetFile.delete();
+			}
+		}
+	}
+
+	/** Sorts the descriptors by uniform path to obtain a stable report. */
+	private static List<SourceElementDescriptor> sortByUniformPath(
+			Collection<SourceElementDescriptor> descriptors) {
+		List<SourceElementDescriptor> result = new ArrayList<SourceElementDescriptor>(
+				descriptors);
+		Collections.sort(result, SourceElementDescriptor.UNIFORM_PATH_COMPARATOR);
+		return result;
+	}
+
+	/** Writes a clone class record. */
+	public void writeCloneClass(CloneClass cloneClass) throws IOException {
+		cloneClassOffsets.add(countingStream.getCount());
+
+		writeSigned(out, cloneClass.getId());
+		writeSigned(out, cloneClass.getNormalizedLength());
+		writeValues(cloneClass);
+
+		List<Clone> clones = CollectionUtils.sort(cloneClass.getClones(),
+				comparator);
+		writeUnsigned(out, clones.size());
+		long previousId = cloneClass.getId();
+		for (Clone clone : clones) {
+			writeClone(clone, previousId);
+			previousId = clone.getId();
+		}
+	}
+
+	/**
+	 * Writes a clone. The ID is stored relative to the previous one, as IDs
+	 * are typically assigned consecutively.
+	 */
+	private void writeClone(Clone clone, long previousId) throws IOException {
+		SourceElementDescriptor descriptor = descriptorsByPath.get(clone
+				.getUniformPath());
+		CCSMAssert.isNotNull(descriptor, "Inconsistent clone data: origin "
+				+ clone.getUniformPath() + " unknown.");
+
+		writeSigned(out, clone.getId() - previousId);
+		writeString(clone.getFingerprint());
+		writeSigned(out, descriptor.getId());
+
+		TextRegionLocation location = clone.getLocation();
+		writeSigned(out, location.getRawStartLine());
+		writeSigned(out, location.getRawEndLine() - location.getRawStartLine());
+		writeSigned(out, location.getRawStartOffset());
+		writeSigned(out,
+				location.getRawEndOffset() - location.getRawStartOffset());
+
+		writeSigned(out, clone.getStartUnitIndexInElement());
+		writeSigned(out, clone.getLengthInUnits());
+		writeSigned(out, clone.getDeltaInUnits());
+		writeString(ReportUtils.createGapOffsetString(clone));
+		writeValues(clone);
+	}
+
+	/** Writes the non-transient values of the given store. */
+	private void writeValues(KeyValueStoreBase store) throws IOException {
+		List<String[]> values = BinaryCloneReportFormat
+				.getPersistentValues(store);
+		writeUnsigned(out, values.size());
+		for (String[] value : values) {
+			for (String part : value) {
+				writeString(part);
+			}
+		}
+	}
+
+	/**
+	 * Writes a reference to the given string into the string table. References
+	 * are shifted by one, as 0 is used to denote null.
+	 */
+	private void writeString(String string) throws IOException {
+		if (string == null) {
+			writeUnsigned(out, 0);
+			return;
+		}
+
+		Integer index = stringIndexes.get(string);
+		if (index == null) {
+			index = strings.size();
+			stringIndexes.put(string, index);
+			strings.add(string);
+		}
+		writeUnsigned(out, index + 1);
+	}
+
+	/**
+	 * Writes string table, clone class index and trailer and closes the
+	 * report.
+	 */
+	public void close() throws IOException {
+		long stringTableOffset = countingStream.getCount();
+		writeUnsigned(out, strings.size());
+		for (String string : strings) {
+			byte[] bytes = string.getBytes(FileSystemUtils.UTF8_ENCODING);
+			writeUnsigned(out, bytes.length);
+			out.write(bytes);
+		}
+
+		long indexOffset = countingStream.getCount();
+		writeUnsigned(out, cloneClassOffsets.size());
+		long previousOffset = 0;
+		for (long offset : cloneClassOffsets) {
+			writeUnsigned(out, offset - previousOffset);
+			previousOffset = offset;
+		}
+
+		out.writeLong(stringTableOffset);
+		out.writeLong(indexOffset);
+		out.writeInt(BinaryCloneReportFormat.MAGIC);
+		out.close();
+	}
+
+	/**
+	 * Closes the underlying stream without completing the report. The
+	 * resulting file is not a valid report. This may be called after a
+	 * failure (also of {@link #close()}).
+	 */
+	public void abort() {
+		FileSystemUtils.close(out);
+	}
+
+	/** Output stream that counts the number of bytes written. */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		/** The number of bytes written. */
+		private long count = 0;
+
+		/** Constructor. */
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count += 1;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		/** Returns the number of bytes written. */
+		public long getCount() {
+			return count;
+		}
+	}
+}
\ No newline at end of file
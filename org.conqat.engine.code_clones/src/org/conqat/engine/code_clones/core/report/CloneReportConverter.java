@@ -0,0 +1,83 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.core.report;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.engine.core.core.ConQATException;
+
+/**
+ * Converts clone reports between the XML format (see {@link CloneReportWriter})
+ * and the binary format (see {@link BinaryCloneReportWriter}).
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CloneReportConverter {
+
+	/** Converts an XML clone report to a binary one. */
+	public static void convertXmlToBinary(File xmlReport, File binaryReport)
+			throws ConQATException {
+		CloneReportReader reader = new CloneReportReader(xmlReport);
+		BinaryCloneReportWriter.writeReport(reader.getCloneClasses(),
+				createDescriptorMap(reader.getSourceElementDescriptors()),
+				reader.getRootValues(), reader.getSystemDate(), binaryReport,
+				true);
+	}
+
+	/** Converts a binary clone report to an XML one. */
+	public static void convertBinaryToXml(File binaryReport, File xmlReport)
+			throws ConQATException {
+		BinaryCloneReportReader reader = new BinaryCloneReportReader(
+				binaryReport);
+		try {
+			CloneReportWriter.writeReport(reader.getCloneClasses(),
+					createDescriptorMap(reader.getSourceElementDescriptors()),
+					reader.getRootValues(), reader.getSystemDate(), xmlReport,
+					true);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Converts the given report to the respective other format. The format of
+	 * the input is determined from its content.
+	 */
+	public static void convert(File sourceReport, File targetReport)
+			throws ConQATException {
+		if (BinaryCloneReportReader.isBinaryReport(sourceReport)) {
+			convertBinaryToXml(sourceReport, targetReport);
+		} else {
+			convertXmlToBinary(sourceReport, targetReport);
+		}
+	}
+
+	/** Creates a map from uniform paths to the descriptors. */
+	private static Map<String, SourceElementDescriptor> createDescriptorMap(
+			List<SourceElementDescriptor> descriptors) {
+		Map<String, SourceElementDescriptor> descriptorMap = new HashMap<String, SourceElementDescriptor>();
+		for (SourceElementDescriptor descriptor : descriptors) {
+			descriptorMap.put(descriptor.getUniformPath(), descriptor);
+		}
+		return descriptorMap;
+	}
+}
\ No newline at end of file
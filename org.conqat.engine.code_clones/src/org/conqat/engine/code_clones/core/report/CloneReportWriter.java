@@ -43,7 +43,6 @@ import java.io.PrintStream;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -313,15 +312,6 @@ public class CloneReportWriter {
 	private Collection<SourceElementDescriptor> sortByUniformPath(
 			Collection<SourceElementDescriptor> sourceFileDescriptors) {
 		return CollectionUtils.sort(sourceFileDescriptors,
-				new Comparator<SourceElementDescriptor>() {
-
-					/** {@inheritDoc} */
-					@Override
-					public int compare(SourceElementDescriptor e1,
-							SourceElementDescriptor e2) {
-						return e1.getUniformPath().compareTo(
-								e2.getUniformPath());
-					}
-				});
+				SourceElementDescriptor.UNIFORM_PATH_COMPARATOR);
 	}
 }
\ No newline at end of file
@@ -16,6 +16,8 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.code_clones.core.report;
 
+import java.util.Comparator;
+
 import org.conqat.engine.code_clones.core.KeyValueStoreBase;
 
 /**
@@ -28,6 +30,16 @@ import org.conqat.engine.code_clones.core.KeyValueStoreBase;
  */
 public final class SourceElementDescriptor extends KeyValueStoreBase {
 
+	/** Comparator that sorts descriptors by their uniform path. */
+	public static final Comparator<SourceElementDescriptor> UNIFORM_PATH_COMPARATOR = new Comparator<SourceElementDescriptor>() {
+		/** {@inheritDoc} */
+		@Override
+		public int compare(SourceElementDescriptor e1,
+				SourceElementDescriptor e2) {
+			return e1.getUniformPath().compareTo(e2.getUniformPath());
+		}
+	};
+
 	/** The location. */
 	private final String location;
 
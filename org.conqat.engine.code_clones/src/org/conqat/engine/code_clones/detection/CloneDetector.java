@@ -22,29 +22,35 @@ import java.util.List;
 
 import org.conqat.engine.code_clones.core.CloneClass;
 import org.conqat.engine.code_clones.core.Unit;
+import org.conqat.engine.code_clones.detection.suffixtree.CloneDetectingSuffixArray;
 import org.conqat.engine.code_clones.detection.suffixtree.CloneDetectingSuffixTree;
 import org.conqat.engine.core.core.AConQATAttribute;
 import org.conqat.engine.core.core.AConQATParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.lib.commons.collections.CounterSet;
 import org.conqat.lib.commons.digest.Digester;
 import org.conqat.lib.commons.digest.MD5Digest;
 
 /**
- * Exact clone detection based on suffix trees. Does not find approximate
- * (a.k.a. gapped) clones.
+ * Exact clone detection based on suffix trees (or alternatively suffix arrays).
+ * Does not find approximate (a.k.a. gapped) clones.
  * 
  * @author $Author: juergens $
  * @version $Rev: 34670 $
  * @ConQAT.Rating GREEN Hash: 8D598522181ED686A457286160078C1B
  */
 @AConQATProcessor(description = "Suffix tree based exact clone detector.")
+@AThreadSafeProcessor
 public class CloneDetector extends CloneDetectorBase {
 
 	/** Use the (safe) unit trimming heuristic. */
 	private boolean isTrimUnits = true;
 
+	/** The data structure used for detection. */
+	private ECloneDetectionEngine engine = ECloneDetectionEngine.SUFFIX_TREE;
+
 	/** MD5 digester used for unit trimming. */
 	private final MessageDigest md5 = Digester.getMD5();
 
@@ -56,6 +62,14 @@ public class CloneDetector extends CloneDetectorBase {
 		isTrimUnits = value;
 	}
 
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "engine", maxOccurrences = 1, description = "The data structure used for finding the clones. "
+			+ "The suffix array finds the same clones as the suffix tree but requires considerably less memory.")
+	public void setEngine(
+			@AConQATAttribute(name = "type", description = "The default is SUFFIX_TREE.") ECloneDetectionEngine engine) {
+		this.engine = engine;
+	}
+
 	/** Performs detection of non-gapped clones */
 	@Override
 	protected List<CloneClass> detectClones() throws ConQATException {
@@ -63,6 +77,10 @@ public class CloneDetector extends CloneDetectorBase {
 			trimUnits();
 		}
 
+		if (engine == ECloneDetectionEngine.SUFFIX_ARRAY) {
+			return detectClonesWithSuffixArray();
+		}
+
 		long start = System.currentTimeMillis();
 		CloneDetectingSuffixTree cdstree = new CloneDetectingSuffixTree(units);
 		long treeConstruction = System.currentTimeMillis() - start;
@@ -79,6 +97,26 @@ public class CloneDetector extends CloneDetectorBase {
 		return cloneConsumer.getCloneClasses();
 	}
 
+	/** Performs detection of non-gapped clones using a suffix array. */
+	private List<CloneClass> detectClonesWithSuffixArray()
+			throws ConQATException {
+		long start = System.currentTimeMillis();
+		CloneDetectingSuffixArray suffixArray = new CloneDetectingSuffixArray(
+				units);
+		long construction = System.currentTimeMillis() - start;
+		getLogger().debug("Suffix array created. Detecting clones...");
+		getLogger().info("Suffix array construction: " + construction + " ms");
+
+		start = System.currentTimeMillis();
+		CloneConsumer cloneConsumer = new CloneConsumer();
+		suffixArray.findClones(minLength, cloneConsumer);
+		long detection = System.currentTimeMillis() - start;
+		getLogger().debug("Clone detection finished!");
+		getLogger().info("Suffix array clone detection: " + detection + " ms");
+
+		return cloneConsumer.getCloneClasses();
+	}
+
 	/**
 	 * Applies unit trimming to the {@link CloneDetectorBase#units} list. The
 	 * goal is to conservatively remove units which will not appear in a clone
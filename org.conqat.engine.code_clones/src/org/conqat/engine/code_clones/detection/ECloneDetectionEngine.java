@@ -0,0 +1,37 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.detection;
+
+/**
+ * The data structures that can be used by the {@link CloneDetector} for
+ * finding exact clones.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public enum ECloneDetectionEngine {
+
+	/** Uses the suffix tree. This is the fastest variant. */
+	SUFFIX_TREE,
+
+	/**
+	 * Uses the suffix array with LCP array. This requires about a third of the
+	 * memory of the suffix tree.
+	 */
+	SUFFIX_ARRAY
+}
\ No newline at end of file
@@ -25,6 +25,7 @@ import org.conqat.engine.code_clones.detection.suffixtree.ApproximateCloneDetect
 import org.conqat.engine.core.core.AConQATAttribute;
 import org.conqat.engine.core.core.AConQATParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.resource.text.ITextElement;
 import org.conqat.lib.commons.algo.Diff;
@@ -41,6 +42,7 @@ import org.conqat.lib.commons.region.Region;
 @AConQATProcessor(description = "Approximate clone detection based on suffix trees. Does find approximate (aka"
 		+ "gapped) clones. Internally the {@link ApproximateCloneDetectingSuffixTree} is"
 		+ "used.")
+@AThreadSafeProcessor
 public class GappedCloneDetector extends CloneDetectorBase {
 
 	/** The maximal number of errors we are allowed. */
@@ -124,11 +126,10 @@ public class GappedCloneDetector extends CloneDetectorBase {
 			// get clone without gap information
 			Clone clone = super.addClone(globalPosition, length);
 
-			Delta<Unit> delta = Diff.computeDelta(
-					units.subList(firstPos, firstPos + firstLength),
-					units.subList(globalPosition, globalPosition + length));
-
 			if (firstClone != null) {
+				Delta<Unit> delta = Diff.computeDelta(
+						units.subList(firstPos, firstPos + firstLength),
+						units.subList(globalPosition, globalPosition + length));
 				clone.setDeltaInUnits(delta.getSize());
 				ITextElement element = resolveElement(clone.getUniformPath());
 				fillGaps(clone, delta, globalPosition, element);
@@ -16,6 +16,8 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.code_clones.detection;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.conqat.engine.code_clones.core.TokenUnit;
 import org.conqat.lib.scanner.ETokenType;
 
@@ -36,13 +38,16 @@ public class SentinelUnit extends TokenUnit {
 	/** String used to depict sentinels */
 	private static final String SENTINEL_STRING = "$s";
 
-	/** Used to create unique ids for sentinels */
-	private static int idcounter = 0;
+	/**
+	 * Used to create unique ids for sentinels. This is atomic, as sentinels
+	 * are created concurrently during parallel unit draining.
+	 */
+	private static final AtomicInteger idcounter = new AtomicInteger();
 
 	/** Constructor */
 	public SentinelUnit(String elementUniformPath) {
-		super(SENTINEL_STRING + idcounter++, 0, 0, elementUniformPath,
-				ETokenType.SENTINEL, 0);
+		super(SENTINEL_STRING + idcounter.getAndIncrement(), 0, 0,
+				elementUniformPath, ETokenType.SENTINEL, 0);
 	}
 
 	/** Sentinel units are not equal to any other unit except themselves */
@@ -25,6 +25,7 @@ import org.conqat.engine.core.core.AConQATAttribute;
 import org.conqat.engine.core.core.AConQATFieldParameter;
 import org.conqat.engine.core.core.AConQATParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.APipelineSource;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.resource.text.ITextResource;
@@ -37,6 +38,7 @@ import org.conqat.engine.resource.text.ITextResource;
  * @ConQAT.Rating GREEN Hash: 9E0B4DE46648FEE3105E0D38B815556F
  */
 @AConQATProcessor(description = "Counts units and stores their count in each element. Units are discarded.")
+@AThreadSafeProcessor
 public class UnitCounter extends UnitProcessorBase {
 
 	/** {@ConQAT.Doc} */
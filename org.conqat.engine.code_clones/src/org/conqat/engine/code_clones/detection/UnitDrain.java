@@ -18,16 +18,21 @@ package org.conqat.engine.code_clones.detection;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.conqat.engine.code_clones.core.CloneDetectionException;
 import org.conqat.engine.code_clones.core.Unit;
 import org.conqat.engine.code_clones.normalization.provider.IUnitProvider;
 import org.conqat.engine.commons.node.NodeUtils;
 import org.conqat.engine.commons.sorting.NodeIdComparator;
+import org.conqat.engine.commons.util.ParallelExecutionUtils;
 import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.core.IConQATProcessorInfo;
 import org.conqat.engine.core.driver.instance.ConQATStringPool;
 import org.conqat.engine.core.logging.IConQATLogger;
 import org.conqat.engine.resource.text.ITextElement;
@@ -39,6 +44,7 @@ import org.conqat.lib.commons.assertion.CCSMAssert;
 import org.conqat.lib.commons.collections.ListMap;
 import org.conqat.lib.commons.filesystem.CanonicalFile;
 import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.io.SerializationUtils;
 import org.conqat.lib.commons.string.StringUtils;
 
 /**
@@ -74,18 +80,34 @@ import org.conqat.lib.commons.string.StringUtils;
 	/** Keeps track of processed elements */
 	private int elementCount = 0;
 
+	/** Info of the processor that executes the {@link UnitDrain}. */
+	private final IConQATProcessorInfo processorInfo;
+
+	/**
+	 * The number of workers used for draining. If this is more than 1, the
+	 * elements are normalized in parallel, each worker using its own copy of
+	 * the unit provider.
+	 */
+	private final int workers;
+
 	/**
 	 * Constructor
 	 * 
-	 * @param logger
-	 *            logger of the processor that executes the {@link UnitDrain}.
+	 * @param processorInfo
+	 *            info of the processor that executes the {@link UnitDrain}.
+	 * @param workers
+	 *            the number of workers used for normalizing the elements in
+	 *            parallel (1 for sequential draining).
 	 */
-	/* package */UnitDrain(IConQATLogger logger, String debugFileExtension,
-			String ignoreKey, boolean clearStringPoolAfterElement) {
-		this.logger = logger;
+	/* package */UnitDrain(IConQATProcessorInfo processorInfo,
+			String debugFileExtension, String ignoreKey,
+			boolean clearStringPoolAfterElement, int workers) {
+		this.processorInfo = processorInfo;
+		this.logger = processorInfo.getLogger();
 		this.debugFileExtension = debugFileExtension;
 		this.ignoreKey = ignoreKey;
 		this.clearStringPoolAfterElement = clearStringPoolAfterElement;
+		this.workers = workers;
 
 		if (clearStringPoolAfterElement) {
 			logger.info("Clearing StringPool after each element");
@@ -101,12 +123,23 @@ import org.conqat.lib.commons.string.StringUtils;
 	public void drainUnits(ITextResource input,
 			IUnitProvider<ITextResource, Unit> unitProvider, List<Unit> units)
 			throws ConQATException {
-		// include sentinelizer
-		unitProvider = new Sentinelizer(unitProvider);
+		List<ITextElement> elements = ResourceTraversalUtils
+				.listNonIgnoredElements(input, ignoreKey, ITextElement.class);
+		// sort to make processing order stable
+		Collections.sort(elements, NodeIdComparator.INSTANCE);
 
 		// read units from unit provider
 		logger.debug("Before unit drain...");
-		int unitCount = drainUnitProvider(input, unitProvider, units);
+		int unitCount;
+		List<IUnitProvider<ITextResource, Unit>> workerProviders = copyUnitProvider(unitProvider);
+		if (workerProviders == null) {
+			// include sentinelizer
+			unitCount = drainUnitProvider(elements, new Sentinelizer(
+					unitProvider), units);
+		} else {
+			unitCount = drainUnitProviderInParallel(elements, workerProviders,
+					units);
+		}
 		logger.debug("Units drained:" + unitCount);
 
 		// write debug files
@@ -208,6 +241,42 @@ import org.conqat.lib.commons.string.StringUtils;
 		}
 	}
 
+	/**
+	 * Creates a copy of the unit provider for each worker using serialization.
+	 * Returns null if draining should be performed sequentially.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<IUnitProvider<ITextResource, Unit>> copyUnitProvider(
+			IUnitProvider<ITextResource, Unit> unitProvider) {
+		if (workers <= 1) {
+			return null;
+		}
+		if (clearStringPoolAfterElement) {
+			logger.info("Draining units sequentially, as the StringPool is cleared after each element");
+			return null;
+		}
+
+		List<IUnitProvider<ITextResource, Unit>> copies = new ArrayList<IUnitProvider<ITextResource, Unit>>();
+		try {
+			byte[] serializedProvider = SerializationUtils
+					.serializeToByteArray(unitProvider);
+			for (int i = 0; i < workers; ++i) {
+				copies.add((IUnitProvider<ITextResource, Unit>) SerializationUtils
+						.deserializeFromByteArray(serializedProvider,
+								unitProvider.getClass().getClassLoader()));
+			}
+		} catch (IOException e) {
+			logger.warn("Draining units sequentially, as the normalization could not be copied: "
+					+ e.getMessage());
+			return null;
+		} catch (ClassNotFoundException e) {
+			logger.warn("Draining units sequentially, as the normalization could not be copied: "
+					+ e.getMessage());
+			return null;
+		}
+		return copies;
+	}
+
 	/**
 	 * Retrieves all units from the unitProvider and stores them in a list
 	 * <p>
@@ -220,15 +289,9 @@ import org.conqat.lib.commons.string.StringUtils;
 	 * 
 	 * @return Number of units drained
 	 */
-	private int drainUnitProvider(ITextResource input,
+	private int drainUnitProvider(List<ITextElement> elements,
 			IUnitProvider<ITextResource, Unit> unitProvider, List<Unit> units)
 			throws ConQATException {
-
-		List<ITextElement> elements = ResourceTraversalUtils
-				.listNonIgnoredElements(input, ignoreKey, ITextElement.class);
-		// sort to make processing order stable
-		Collections.sort(elements, NodeIdComparator.INSTANCE);
-
 		int unitsInElementsCount = 0;
 		for (ITextElement fileElement : elements) {
 			// initialize lazy pipeline with leaf
@@ -242,6 +305,70 @@ import org.conqat.lib.commons.string.StringUtils;
 		return unitsInElementsCount;
 	}
 
+	/**
+	 * Retrieves all units in the same way as
+	 * {@link #drainUnitProvider(List, IUnitProvider, List)}, but normalizes
+	 * the elements in parallel. Each worker takes the next unprocessed element
+	 * and drains its units using its own unit provider. Finally, the units are
+	 * concatenated in the order of the elements, so the result is the same as
+	 * for sequential draining. This requires that the providers do not carry
+	 * state from one element to the next, which holds for the providers of
+	 * this bundle as well as the {@link Sentinelizer}.
+	 * 
+	 * @param units
+	 *            List to add units to. If null, units are discarded.
+	 * 
+	 * @return Number of units drained
+	 */
+	private int drainUnitProviderInParallel(final List<ITextElement> elements,
+			List<IUnitProvider<ITextResource, Unit>> workerProviders,
+			final List<Unit> units) throws ConQATException {
+		final List<List<Unit>> elementUnits = new ArrayList<List<Unit>>(
+				Collections.nCopies(elements.size(), (List<Unit>) null));
+		final AtomicInteger nextElement = new AtomicInteger();
+		final AtomicInteger unitsInElementsCount = new AtomicInteger();
+
+		List<Callable<ConQATException>> tasks = new ArrayList<Callable<ConQATException>>();
+		for (IUnitProvider<ITextResource, Unit> workerProvider : workerProviders) {
+			// include sentinelizer
+			final IUnitProvider<ITextResource, Unit> unitProvider = new Sentinelizer(
+					workerProvider);
+			tasks.add(new Callable<ConQATException>() {
+				@Override
+				public ConQATException call() {
+					try {
+						int index = nextElement.getAndIncrement();
+						while (index < elements.size()) {
+							List<Unit> unitsInElement = null;
+							if (units != null) {
+								unitsInElement = new ArrayList<Unit>();
+							}
+							unitsInElementsCount.addAndGet(drainUnitProvider(
+									elements.subList(index, index + 1),
+									unitProvider, unitsInElement));
+							elementUnits.set(index, unitsInElement);
+							index = nextElement.getAndIncrement();
+						}
+					} catch (ConQATException e) {
+						// make other workers stop
+						nextElement.set(elements.size());
+						return e;
+					}
+					return null;
+				}
+			});
+		}
+
+		ParallelExecutionUtils.executeAll(processorInfo, tasks);
+
+		if (units != null) {
+			for (List<Unit> unitsInElement : elementUnits) {
+				units.addAll(unitsInElement);
+			}
+		}
+		return unitsInElementsCount.get();
+	}
+
 	/** Drain units from element */
 	private int drainUnitsFromElement(ITextElement input,
 			IUnitProvider<ITextResource, Unit> unitProvider, List<Unit> units)
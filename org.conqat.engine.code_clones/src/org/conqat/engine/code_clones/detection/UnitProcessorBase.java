@@ -63,6 +63,9 @@ public abstract class UnitProcessorBase extends
 	/** Flag that determines whether the units are stored in clones */
 	protected boolean storeUnits = false;
 
+	/** The number of workers used for draining the units. */
+	private int drainWorkers = 1;
+
 	/** ConQAT Parameter */
 	@AConQATParameter(name = "debug", minOccurrences = 0, maxOccurrences = 1, description = ""
 			+ "If this string is set to a non-empty value, a debug file is written for each input element")
@@ -106,12 +109,26 @@ public abstract class UnitProcessorBase extends
 		this.storeUnits = storeUnits;
 	}
 
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "drain", minOccurrences = 0, maxOccurrences = 1, description = ""
+			+ "The number of workers used for normalizing the elements. Each worker uses its own copy of the normalization. "
+			+ "The workers run in parallel only if ConQAT runs with multiple threads. "
+			+ "The resulting units are the same as for a single worker.")
+	public void setDrainWorkers(
+			@AConQATAttribute(name = "workers", description = "Number of workers (must be positive). Default is 1.") int drainWorkers)
+			throws ConQATException {
+		if (drainWorkers < 1) {
+			throw new ConQATException("Number of workers must be positive!");
+		}
+		this.drainWorkers = drainWorkers;
+	}
+
 	/** Create list of units */
 	protected void drainUnits(List<Unit> units,
 			boolean clearStringPoolAfterElement) throws ConQATException {
 		long start = System.currentTimeMillis();
-		UnitDrain drain = new UnitDrain(getLogger(), debugFileExtension,
-				ignoreKey, clearStringPoolAfterElement);
+		UnitDrain drain = new UnitDrain(getProcessorInfo(), debugFileExtension,
+				ignoreKey, clearStringPoolAfterElement, drainWorkers);
 		drain.drainUnits(input, iUnitProvider, units);
 		long duration = System.currentTimeMillis() - start;
 		getLogger().info("Unit drain: " + duration + " ms");
@@ -59,6 +59,13 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 	/** Number of units that must be equal at the start of a clone */
 	private int headEquality;
 
+	/**
+	 * Stores for each symbol whether {@link #mayNotMatch(Object)} holds for the
+	 * corresponding characters. Filled on each call to
+	 * {@link #findClones(int, int, int, ICloneReporter)}.
+	 */
+	private boolean[] symbolMayNotMatch;
+
 	/**
 	 * Create a new suffix tree from a given word. The word given as parameter
 	 * is used internally and should not be modified anymore, so copy it before
@@ -108,10 +115,11 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 		this.consumer = consumer;
 		this.headEquality = headEquality;
 		cloneInfos.clear();
+		initSymbolMayNotMatch();
 
 		for (int i = 0; i < word.size(); ++i) {
 			// Do quick start, as first character has to match anyway.
-			int node = nextNode.get(0, word.get(i));
+			int node = nextNode.get(0, symbols[i]);
 			if (node < 0 || leafCount[node] <= 1) {
 				continue;
 			}
@@ -132,6 +140,22 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 		}
 	}
 
+	/** Initializes the {@link #symbolMayNotMatch} array. */
+	private void initSymbolMayNotMatch() {
+		int maxSymbol = -1;
+		for (int symbol : symbols) {
+			maxSymbol = Math.max(maxSymbol, symbol);
+		}
+		symbolMayNotMatch = new boolean[maxSymbol + 1];
+		int i = 0;
+		for (Object character : word) {
+			if (mayNotMatch(character)) {
+				symbolMayNotMatch[symbols[i]] = true;
+			}
+			++i;
+		}
+	}
+
 	/**
 	 * Performs the approximative matching between the input word and the tree.
 	 * 
@@ -176,11 +200,12 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 			reportBufferShortage(nodeWordBegin[node], currentNodeWordLength);
 		}
 
-		// calculate cheapest match
+		// calculate cheapest match; cells farther than maxErrors from the
+		// diagonal cannot be cheapest (see calculateMaxLength())
 		int best = maxErrors + 42;
 		int iBest = 0;
 		int jBest = 0;
-		for (int k = 0; k <= currentLength; ++k) {
+		for (int k = 0; k <= Math.min(currentLength, maxErrors); ++k) {
 			int i = currentLength - k;
 			int j = currentLength;
 			if (edBuffer[i][j] < best) {
@@ -202,8 +227,8 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 				&& jBest < currentNodeWordLength
 				&& word.get(wordPosition + iBest) != word
 						.get(nodeWordBegin[node] + jBest)
-				&& word.get(wordPosition + iBest).equals(
-						word.get(nodeWordBegin[node] + jBest))) {
+				&& symbols[wordPosition + iBest] == symbols[nodeWordBegin[node]
+						+ jBest]) {
 			++iBest;
 			++jBest;
 		}
@@ -229,16 +254,16 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 		// disallow tail changes
 		while (iBest > 0
 				&& jBest > 0
-				&& !word.get(wordPosition + iBest - 1).equals(
-						word.get(nodeWordBegin[node] + jBest - 1))) {
+				&& symbols[wordPosition + iBest - 1] != symbols[nodeWordBegin[node]
+						+ jBest - 1]) {
 
 			if (iBest > 1
-					&& word.get(wordPosition + iBest - 2).equals(
-							word.get(nodeWordBegin[node] + jBest - 1))) {
+					&& symbols[wordPosition + iBest - 2] == symbols[nodeWordBegin[node]
+							+ jBest - 1]) {
 				--iBest;
 			} else if (jBest > 1
-					&& word.get(wordPosition + iBest - 1).equals(
-							word.get(nodeWordBegin[node] + jBest - 2))) {
+					&& symbols[wordPosition + iBest - 1] == symbols[nodeWordBegin[node]
+							+ jBest - 2]) {
 				--jBest;
 			} else {
 				--iBest;
@@ -258,7 +283,14 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 
 	/**
 	 * Calculates the maximum length we may take along the word to the current
-	 * node (respecting the number of errors to make). *
+	 * node (respecting the number of errors to make).
+	 * <p>
+	 * Only the band of the {@link #edBuffer} with distance at most
+	 * <code>maxErrors</code> from the diagonal is filled, as the edit distance
+	 * of a cell is at least its distance from the diagonal. Hence all cells
+	 * with a distance of at most <code>maxErrors</code> are exact, while all
+	 * other cells are known to exceed <code>maxErrors</code>. This reduces the
+	 * effort from quadratic in the clone length to linear.
 	 * 
 	 * @param wordStart
 	 *            the start position of the currently matched word (position in
@@ -289,20 +321,26 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 			}
 
 			// deal with case that character may not be matched (sentinel!)
-			Object iChar = word.get(wordPosition + currentLength - 1);
-			Object jChar = word.get(nodeWordBegin[node] + currentLength - 1);
-			if (mayNotMatch(iChar) || mayNotMatch(jChar)) {
+			int iChar = symbols[wordPosition + currentLength - 1];
+			int jChar = symbols[nodeWordBegin[node] + currentLength - 1];
+			if (symbolMayNotMatch[iChar] || symbolMayNotMatch[jChar]) {
 				break;
 			}
 
-			// usual matrix completion for edit distance
-			for (int k = 1; k < currentLength; ++k) {
+			// banded matrix completion for edit distance; the cells just
+			// outside the band are set to a value exceeding maxErrors
+			int bandStart = Math.max(1, currentLength - maxErrors);
+			if (bandStart > 1) {
+				edBuffer[bandStart - 1][currentLength] = maxErrors + 1;
+				edBuffer[currentLength][bandStart - 1] = maxErrors + 1;
+			}
+			for (int k = bandStart; k < currentLength; ++k) {
 				best = Math.min(
 						best,
 						fillEDBuffer(k, currentLength, wordPosition,
 								nodeWordBegin[node]));
 			}
-			for (int k = 1; k < currentLength; ++k) {
+			for (int k = bandStart; k < currentLength; ++k) {
 				best = Math.min(
 						best,
 						fillEDBuffer(currentLength, k, wordPosition,
@@ -337,11 +375,11 @@ public abstract class ApproximateCloneDetectingSuffixTree extends SuffixTree {
 	 * @return the value inserted into the buffer.
 	 */
 	private int fillEDBuffer(int i, int j, int iOffset, int jOffset) {
-		Object iChar = word.get(iOffset + i - 1);
-		Object jChar = word.get(jOffset + j - 1);
+		int iChar = symbols[iOffset + i - 1];
+		int jChar = symbols[jOffset + j - 1];
 
 		int insertDelete = 1 + Math.min(edBuffer[i - 1][j], edBuffer[i][j - 1]);
-		int change = edBuffer[i - 1][j - 1] + (iChar.equals(jChar) ? 0 : 1);
+		int change = edBuffer[i - 1][j - 1] + (iChar == jChar ? 0 : 1);
 		return edBuffer[i][j] = Math.min(insertDelete, change);
 	}
 
@@ -0,0 +1,203 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.detection.suffixtree;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.conqat.engine.core.core.ConQATException;
+
+/**
+ * An extension of the suffix array adding an algorithm for finding clones,
+ * i.e. repeated substrings. This reports the same clone classes as the
+ * {@link CloneDetectingSuffixTree} (although in a different order), but
+ * requires considerably less memory.
+ * <p>
+ * The inner nodes of the suffix tree correspond to the LCP intervals of the
+ * suffix array, which are enumerated bottom up using a stack (M. I.
+ * Abouelhoda, S. Kurtz, E. Ohlebusch: "Replacing suffix trees with enhanced
+ * suffix arrays"). An interval is reported as clone class, if its string is
+ * left maximal, i.e. not all of its occurrences are preceded by the same
+ * character. Otherwise it is only a suffix of a longer clone class.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CloneDetectingSuffixArray extends SuffixArray {
+
+	/**
+	 * Marker for the preceding character of an interval for which no position
+	 * has been seen yet.
+	 */
+	private static final int NO_PRECEDING = -1;
+
+	/**
+	 * Marker for the preceding character of an interval whose positions are
+	 * not all preceded by the same character (i.e. which is left maximal).
+	 */
+	private static final int DIVERSE_PRECEDING = -2;
+
+	/** The LCP values of the intervals on the stack. */
+	private int[] stackLcp;
+
+	/** The left bounds of the intervals on the stack. */
+	private int[] stackLeftBound;
+
+	/**
+	 * The common preceding character of the intervals on the stack, or one of
+	 * {@link #NO_PRECEDING} and {@link #DIVERSE_PRECEDING}.
+	 */
+	private int[] stackPreceding;
+
+	/** The number of intervals on the stack. */
+	private int stackSize;
+
+	/**
+	 * Create a new suffix array from a given word. The word given as parameter
+	 * is used internally and should not be modified anymore, so copy it before
+	 * if required.
+	 * <p>
+	 * Just as for the {@link CloneDetectingSuffixTree}, the word should be
+	 * closed using a sentinel character.
+	 */
+	public CloneDetectingSuffixArray(List<?> word) {
+		super(word);
+	}
+
+	/**
+	 * Finds all clones in the string (List) used in the constructor.
+	 * 
+	 * @param minLength
+	 *            the minimal length of clones to return (must be positive).
+	 *            This can be used to get rid of clones which are too short.
+	 * @param consumer
+	 *            the class to which the result are reported.
+	 */
+	public void findClones(int minLength, ICloneReporter consumer)
+			throws ConQATException {
+		if (minLength <= 0) {
+			throw new IllegalArgumentException("minLength must be positive.");
+		}
+
+		int n = suffixArray.length;
+		stackLcp = new int[16];
+		stackLeftBound = new int[16];
+		stackPreceding = new int[16];
+		stackSize = 0;
+		push(0, 0, NO_PRECEDING);
+
+		for (int i = 1; i <= n; ++i) {
+			int currentLcp = 0;
+			if (i < n) {
+				currentLcp = lcp[i];
+			}
+			int leafPreceding = precedingSymbol(suffixArray[i - 1]);
+
+			// the leaf i-1 belongs to the deepest interval containing it
+			if (currentLcp <= stackLcp[stackSize - 1]) {
+				mergePreceding(stackSize - 1, leafPreceding);
+			}
+
+			int leftBound = i - 1;
+			int childPreceding = NO_PRECEDING;
+			while (currentLcp < stackLcp[stackSize - 1]) {
+				stackSize -= 1;
+				leftBound = stackLeftBound[stackSize];
+				childPreceding = stackPreceding[stackSize];
+				reportInterval(stackLcp[stackSize], leftBound, i - 1,
+						childPreceding, minLength, consumer);
+
+				if (currentLcp <= stackLcp[stackSize - 1]) {
+					mergePreceding(stackSize - 1, childPreceding);
+					childPreceding = NO_PRECEDING;
+				}
+			}
+
+			if (currentLcp > stackLcp[stackSize - 1]) {
+				push(currentLcp, leftBound, childPreceding);
+				if (leftBound == i - 1) {
+					mergePreceding(stackSize - 1, leafPreceding);
+				}
+			}
+		}
+
+		stackLcp = null;
+		stackLeftBound = null;
+		stackPreceding = null;
+	}
+
+	/**
+	 * Reports the interval [leftBound, rightBound] of the suffix array with the
+	 * given LCP value as clone class, if it is long enough and left maximal.
+	 */
+	private void reportInterval(int intervalLcp, int leftBound,
+			int rightBound, int preceding, int minLength,
+			ICloneReporter consumer) throws ConQATException {
+		if (intervalLcp < minLength || preceding != DIVERSE_PRECEDING) {
+			return;
+		}
+
+		consumer.startCloneClass(intervalLcp);
+		for (int i = leftBound; i <= rightBound; ++i) {
+			consumer.addClone(suffixArray[i], intervalLcp);
+		}
+		consumer.completeCloneClass();
+	}
+
+	/**
+	 * Returns the symbol preceding the given position. For the first position,
+	 * {@link #DIVERSE_PRECEDING} is returned, as no other occurrence can have
+	 * the same (missing) preceding character.
+	 */
+	private int precedingSymbol(int position) {
+		if (position == 0) {
+			return DIVERSE_PRECEDING;
+		}
+		return symbols[position - 1];
+	}
+
+	/**
+	 * Merges the given preceding character into the preceding character of the
+	 * stack entry at the given index.
+	 */
+	private void mergePreceding(int stackIndex, int preceding) {
+		int current = stackPreceding[stackIndex];
+		if (preceding == NO_PRECEDING || current == preceding) {
+			return;
+		}
+		if (current == NO_PRECEDING) {
+			stackPreceding[stackIndex] = preceding;
+		} else {
+			stackPreceding[stackIndex] = DIVERSE_PRECEDING;
+		}
+	}
+
+	/** Pushes an interval onto the stack. */
+	private void push(int intervalLcp, int leftBound, int preceding) {
+		if (stackSize == stackLcp.length) {
+			int newSize = 2 * stackSize;
+			stackLcp = Arrays.copyOf(stackLcp, newSize);
+			stackLeftBound = Arrays.copyOf(stackLeftBound, newSize);
+			stackPreceding = Arrays.copyOf(stackPreceding, newSize);
+		}
+		stackLcp[stackSize] = intervalLcp;
+		stackLeftBound[stackSize] = leftBound;
+		stackPreceding[stackSize] = preceding;
+		stackSize += 1;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,320 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.detection.suffixtree;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A suffix array with longest common prefix (LCP) array for a word. This is a
+ * more memory efficient alternative to the {@link SuffixTree}: besides the
+ * word, it only requires about three integers per character, while the suffix
+ * tree requires more than ten.
+ * <p>
+ * Just as the {@link SuffixTree}, the characters of the word are first mapped
+ * to a dense integer alphabet, where equal characters receive the same
+ * symbol. The suffix array is then constructed in linear time using the SA-IS
+ * algorithm (G. Nong, S. Zhang, W. H. Chan: "Linear Suffix Array Construction
+ * by Almost Pure Induced-Sorting") and the LCP array using the algorithm of
+ * Kasai et al. ("Linear-Time Longest-Common-Prefix Computation in Suffix
+ * Arrays and Its Applications").
+ * <p>
+ * Everything but the construction itself is protected to simplify increasing
+ * its functionality by subclassing.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class SuffixArray {
+
+	/** The word we are working on. */
+	protected final List<?> word;
+
+	/**
+	 * The word mapped to the integer alphabet. Equal characters of
+	 * {@link #word} are mapped to the same non-negative symbol and different
+	 * characters to different symbols.
+	 */
+	protected final int[] symbols;
+
+	/**
+	 * The suffix array, i.e. the start positions of all suffixes of the word
+	 * in lexicographical order of the suffixes (with respect to the symbols).
+	 */
+	protected final int[] suffixArray;
+
+	/**
+	 * The LCP array. Entry <em>i</em> is the length of the longest common
+	 * prefix of the suffixes starting at <code>suffixArray[i-1]</code> and
+	 * <code>suffixArray[i]</code>. The first entry is 0.
+	 */
+	protected final int[] lcp;
+
+	/**
+	 * Create a new suffix array from a given word. The word given as parameter
+	 * is used internally and should not be modified anymore, so copy it before
+	 * if required.
+	 */
+	public SuffixArray(List<?> word) {
+		this.word = word;
+
+		symbols = SuffixTree.mapToSymbols(word);
+
+		int maxSymbol = -1;
+		for (int symbol : symbols) {
+			maxSymbol = Math.max(maxSymbol, symbol);
+		}
+
+		suffixArray = constructSuffixArray(symbols, maxSymbol);
+		lcp = constructLcpArray(symbols, suffixArray);
+	}
+
+	/**
+	 * Constructs the suffix array for the given string using the SA-IS
+	 * algorithm. All values of the string must be from the range [0, maxValue].
+	 */
+	/* package */static int[] constructSuffixArray(int[] s, int maxValue) {
+		int n = s.length;
+		if (n == 0) {
+			return new int[0];
+		}
+		if (n == 1) {
+			return new int[] { 0 };
+		}
+		if (n == 2) {
+			if (s[0] < s[1]) {
+				return new int[] { 0, 1 };
+			}
+			return new int[] { 1, 0 };
+		}
+
+		// classify positions into S-type (true) and L-type (false)
+		boolean[] sType = new boolean[n];
+		for (int i = n - 2; i >= 0; --i) {
+			if (s[i] == s[i + 1]) {
+				sType[i] = sType[i + 1];
+			} else {
+				sType[i] = s[i] < s[i + 1];
+			}
+		}
+
+		// bucket starts for L-type and S-type positions
+		int[] bucketL = new int[maxValue + 1];
+		int[] bucketS = new int[maxValue + 1];
+		for (int i = 0; i < n; ++i) {
+			if (sType[i]) {
+				if (s[i] < maxValue) {
+					bucketL[s[i] + 1] += 1;
+				}
+			} else {
+				bucketS[s[i]] += 1;
+			}
+		}
+		for (int i = 0; i <= maxValue; ++i) {
+			bucketS[i] += bucketL[i];
+			if (i < maxValue) {
+				bucketL[i + 1] += bucketS[i];
+			}
+		}
+
+		// find the LMS (leftmost S-type) positions
+		int[] lmsIndex = new int[n];
+		int numLms = 0;
+		for (int i = 1; i < n; ++i) {
+			if (!sType[i - 1] && sType[i]) {
+				lmsIndex[i] = numLms++;
+			} else {
+				lmsIndex[i] = -1;
+			}
+		}
+		lmsIndex[0] = -1;
+		int[] lms = new int[numLms];
+		for (int i = 1, j = 0; i < n; ++i) {
+			if (lmsIndex[i] >= 0) {
+				lms[j++] = i;
+			}
+		}
+
+		int[] sa = new int[n];
+		induceSort(s, sType, lms, bucketL, bucketS, sa);
+
+		if (numLms > 0) {
+			int[] sortedLms = new int[numLms];
+			for (int i = 0, j = 0; i < n; ++i) {
+				if (lmsIndex[sa[i]] >= 0) {
+					sortedLms[j++] = sa[i];
+				}
+			}
+
+			// name the LMS substrings and sort them recursively
+			int[] reduced = new int[numLms];
+			int maxName = 0;
+			reduced[lmsIndex[sortedLms[0]]] = 0;
+			for (int i = 1; i < numLms; ++i) {
+				if (!equalLmsSubstrings(s, lms, lmsIndex, sortedLms[i - 1],
+						sortedLms[i])) {
+					maxName += 1;
+				}
+				reduced[lmsIndex[sortedLms[i]]] = maxName;
+			}
+
+			int[] reducedSa = constructSuffixArray(reduced, maxName);
+			for (int i = 0; i < numLms; ++i) {
+				sortedLms[i] = lms[reducedSa[i]];
+			}
+			induceSort(s, sType, sortedLms, bucketL, bucketS, sa);
+		}
+		return sa;
+	}
+
+	/**
+	 * Returns whether the LMS substrings starting at the given LMS positions
+	 * are equal.
+	 */
+	private static boolean equalLmsSubstrings(int[] s, int[] lms,
+			int[] lmsIndex, int left, int right) {
+		int n = s.length;
+		int endLeft = n;
+		if (lmsIndex[left] + 1 < lms.length) {
+			endLeft = lms[lmsIndex[left] + 1];
+		}
+		int endRight = n;
+		if (lmsIndex[right] + 1 < lms.length) {
+			endRight = lms[lmsIndex[right] + 1];
+		}
+
+		if (endLeft - left != endRight - right) {
+			return false;
+		}
+		while (left < endLeft) {
+			if (s[left] != s[right]) {
+				return false;
+			}
+			left += 1;
+			right += 1;
+		}
+		return left != n && s[left] == s[right];
+	}
+
+	/**
+	 * Performs the induced sorting step of SA-IS, i.e. places the LMS
+	 * positions in the order given and then induces the order of the L-type
+	 * and S-type positions from them.
+	 */
+	private static void induceSort(int[] s, boolean[] sType, int[] lms,
+			int[] bucketL, int[] bucketS, int[] sa) {
+		int n = s.length;
+		Arrays.fill(sa, -1);
+
+		int[] bucket = bucketS.clone();
+		for (int position : lms) {
+			sa[bucket[s[position]]++] = position;
+		}
+
+		bucket = bucketL.clone();
+		sa[bucket[s[n - 1]]++] = n - 1;
+		for (int i = 0; i < n; ++i) {
+			int position = sa[i] - 1;
+			if (position >= 0 && !sType[position]) {
+				sa[bucket[s[position]]++] = position;
+			}
+		}
+
+		bucket = bucketL.clone();
+		for (int i = n - 1; i >= 0; --i) {
+			int position = sa[i] - 1;
+			if (position >= 0 && sType[position]) {
+				sa[--bucket[s[position] + 1]] = position;
+			}
+		}
+	}
+
+	/**
+	 * Constructs the LCP array for the given string and its suffix array using
+	 * Kasai's algorithm.
+	 */
+	/* package */static int[] constructLcpArray(int[] s, int[] sa) {
+		int n = s.length;
+		int[] rank = new int[n];
+		for (int i = 0; i < n; ++i) {
+			rank[sa[i]] = i;
+		}
+
+		int[] lcp = new int[n];
+		int length = 0;
+		for (int i = 0; i < n; ++i) {
+			if (length > 0) {
+				length -= 1;
+			}
+			if (rank[i] == 0) {
+				length = 0;
+				continue;
+			}
+			int j = sa[rank[i] - 1];
+			while (i + length < n && j + length < n
+					&& s[i + length] == s[j + length]) {
+				length += 1;
+			}
+			lcp[rank[i]] = length;
+		}
+		return lcp;
+	}
+
+	/**
+	 * Returns whether the given word is contained in the string given at
+	 * construction time. This performs a binary search on the suffix array.
+	 */
+	public boolean containsWord(List<?> find) {
+		int[] findSymbols = SuffixTree.lookupSymbols(find, word, symbols);
+		if (findSymbols == null) {
+			// character not contained in the word at all
+			return false;
+		}
+
+		// find the first suffix which is not smaller than the searched word
+		int low = 0;
+		int high = suffixArray.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareSuffix(suffixArray[middle], findSymbols) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low < suffixArray.length
+				&& compareSuffix(suffixArray[low], findSymbols) == 0;
+	}
+
+	/**
+	 * Compares the suffix starting at the given position with the given
+	 * symbols. Returns 0 if the symbols are a prefix of the suffix, and a
+	 * negative (positive) value if the suffix is smaller (larger).
+	 */
+	private int compareSuffix(int start, int[] findSymbols) {
+		for (int i = 0; i < findSymbols.length; ++i) {
+			if (start + i >= symbols.length) {
+				return -1;
+			}
+			if (symbols[start + i] != findSymbols[i]) {
+				return symbols[start + i] - findSymbols[i];
+			}
+		}
+		return 0;
+	}
+}
\ No newline at end of file
@@ -16,7 +16,9 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.code_clones.detection.suffixtree;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Efficient linear time constructible suffix tree using Ukkonen's online
@@ -40,6 +42,13 @@ import java.util.List;
  * <p>
  * Everything but the construction itself is protected to simplify increasing
  * its functionality by subclassing but without introducing new method calls.
+ * <p>
+ * Before construction, the characters of the word are mapped to a dense
+ * integer alphabet (see {@link #symbols}), where two characters receive the
+ * same symbol iff they are equal. The tree and its hash table work on these
+ * symbols only, so the expensive {@link Object#hashCode()} and
+ * {@link Object#equals(Object)} of the characters are called exactly once per
+ * character.
  * 
  * @author Benjamin Hummel
  * @author $Author: kinnen $
@@ -55,6 +64,14 @@ public class SuffixTree {
 	/** The word we are working on. */
 	protected final List<?> word;
 
+	/**
+	 * The word mapped to the integer alphabet. Equal characters of
+	 * {@link #word} are mapped to the same non-negative symbol and different
+	 * characters to different symbols. As {@link Sentinel}s are only equal to
+	 * themselves, each of them receives its own symbol.
+	 */
+	protected final int[] symbols;
+
 	/** The number of nodes created so far. */
 	protected int numNodes = 0;
 
@@ -121,7 +138,7 @@ public class SuffixTree {
 
 	/**
 	 * This is the new (or old) explicit state as returned by
-	 * {@link #testAndSplit(int, Object)}. Ukkonen calls this <em>r</em>.
+	 * {@link #testAndSplit(int, int)}. Ukkonen calls this <em>r</em>.
 	 */
 	private int explicitNode;
 
@@ -134,6 +151,7 @@ public class SuffixTree {
 		this.word = word;
 		int size = word.size();
 		INFTY = size;
+		symbols = mapToSymbols(word);
 
 		int expectedNodes = 2 * size;
 		nodeWordBegin = new int[expectedNodes];
@@ -149,6 +167,46 @@ public class SuffixTree {
 		}
 	}
 
+	/**
+	 * Maps the given word to the integer alphabet. The symbols are assigned
+	 * consecutively starting from 0 in the order of first occurrence. The map
+	 * used for this is only needed during construction and not kept.
+	 */
+	/* package */static int[] mapToSymbols(List<?> word) {
+		Map<Object, Integer> symbolIds = new HashMap<Object, Integer>();
+		int[] result = new int[word.size()];
+		int i = 0;
+		for (Object character : word) {
+			Integer symbol = symbolIds.get(character);
+			if (symbol == null) {
+				symbol = symbolIds.size();
+				symbolIds.put(character, symbol);
+			}
+			result[i++] = symbol;
+		}
+		return result;
+	}
+
+	/**
+	 * Maps the characters of the searched word to the symbols they have in the
+	 * given word (which was mapped to the given symbols). Returns null if a
+	 * character does not occur in the word at all. As the symbol map is not
+	 * kept after construction, this searches the word linearly for each
+	 * character, which is fine for the occasional lookup.
+	 */
+	/* package */static int[] lookupSymbols(List<?> find, List<?> word,
+			int[] symbols) {
+		int[] result = new int[find.size()];
+		for (int i = 0; i < result.length; ++i) {
+			int position = word.indexOf(find.get(i));
+			if (position < 0) {
+				return null;
+			}
+			result[i] = symbols[position];
+		}
+		return result;
+	}
+
 	/** Creates the root node. */
 	private void createRootNode() {
 		numNodes = 1;
@@ -164,11 +222,11 @@ public class SuffixTree {
 	 */
 	private void update(int charPos) {
 		int lastNode = 0;
-		while (!testAndSplit(charPos, word.get(charPos))) {
+		while (!testAndSplit(charPos, symbols[charPos])) {
 			int newNode = numNodes++;
 			nodeWordBegin[newNode] = charPos;
 			nodeWordEnd[newNode] = INFTY;
-			nextNode.put(explicitNode, word.get(charPos), newNode);
+			nextNode.put(explicitNode, symbols[charPos], newNode);
 
 			if (lastNode != 0) {
 				suffixLink[lastNode] = explicitNode;
@@ -192,7 +250,7 @@ public class SuffixTree {
 	 * true if the end-point was reached. The newly created (or reached)
 	 * explicit node is returned in the "global" variable.
 	 */
-	private boolean testAndSplit(int refWordEnd, Object nextCharacter) {
+	private boolean testAndSplit(int refWordEnd, int nextCharacter) {
 		if (currentNode < 0) {
 			// trap state is always end state
 			return true;
@@ -206,9 +264,9 @@ public class SuffixTree {
 			return true;
 		}
 
-		int next = nextNode.get(currentNode, word.get(refWordBegin));
-		if (nextCharacter.equals(word.get(nodeWordBegin[next] + refWordEnd
-				- refWordBegin))) {
+		int next = nextNode.get(currentNode, symbols[refWordBegin]);
+		if (nextCharacter == symbols[nodeWordBegin[next] + refWordEnd
+				- refWordBegin]) {
 			return true;
 		}
 
@@ -217,10 +275,10 @@ public class SuffixTree {
 		nodeWordBegin[explicitNode] = nodeWordBegin[next];
 		nodeWordEnd[explicitNode] = nodeWordBegin[next] + refWordEnd
 				- refWordBegin;
-		nextNode.put(currentNode, word.get(refWordBegin), explicitNode);
+		nextNode.put(currentNode, symbols[refWordBegin], explicitNode);
 
 		nodeWordBegin[next] += refWordEnd - refWordBegin;
-		nextNode.put(explicitNode, word.get(nodeWordBegin[next]), next);
+		nextNode.put(explicitNode, symbols[nodeWordBegin[next]], next);
 		return false;
 	}
 
@@ -246,13 +304,13 @@ public class SuffixTree {
 			return;
 		}
 
-		int next = nextNode.get(currentNode, word.get(refWordBegin));
+		int next = nextNode.get(currentNode, symbols[refWordBegin]);
 		while (nodeWordEnd[next] - nodeWordBegin[next] <= refWordEnd
 				- refWordBegin) {
 			refWordBegin += nodeWordEnd[next] - nodeWordBegin[next];
 			currentNode = next;
 			if (refWordEnd > refWordBegin) {
-				next = nextNode.get(currentNode, word.get(refWordBegin));
+				next = nextNode.get(currentNode, symbols[refWordBegin]);
 			} else {
 				break;
 			}
@@ -328,16 +386,23 @@ public class SuffixTree {
 	 * construction time.
 	 */
 	public boolean containsWord(List<?> find) {
+		int[] findSymbols = lookupSymbols(find, word, symbols);
+		if (findSymbols == null) {
+			// character not contained in the word at all
+			return false;
+		}
+
 		int node = 0;
 		int findSize = find.size();
+
 		for (int i = 0; i < findSize;) {
-			int next = nextNode.get(node, find.get(i));
+			int next = nextNode.get(node, findSymbols[i]);
 			if (next < 0) {
 				return false;
 			}
 			for (int j = nodeWordBegin[next]; j < nodeWordEnd[next]
 					&& i < findSize; ++i, ++j) {
-				if (!word.get(j).equals(find.get(i))) {
+				if (symbols[j] != findSymbols[i]) {
 					return false;
 				}
 			}
@@ -24,8 +24,8 @@ import java.util.Arrays;
  * use for any other application.
  * <p>
  * It hashes from (node, character) pairs to the next node, where nodes are
- * represented by integers and the type of characters is determined by the
- * generic parameter.
+ * represented by integers and characters are the non-negative symbols of the
+ * integer alphabet used by the {@link SuffixTree}.
  * 
  * @author Benjamin Hummel
  * @author $Author: juergens $
@@ -44,14 +44,26 @@ import java.util.Arrays;
 			1572869, 3145739, 6291469, 12582917, 25165843, 50331653, 100663319,
 			201326611, 402653189, 805306457, 1610612741 };
 
+	/** Marker for empty slots in {@link #keyChars}. */
+	private static final int EMPTY = -1;
+
+	/**
+	 * Multiplier used for spreading the dense symbols over the hash range
+	 * (golden ratio).
+	 */
+	private static final int SYMBOL_HASH_MULTIPLIER = 0x9E3779B9;
+
 	/** The size of the hash table. */
 	private final int tableSize;
 
 	/** Storage space for the node part of the key */
 	private final int[] keyNodes;
 
-	/** Storage space for the character part of the key. */
-	private final Object[] keyChars;
+	/**
+	 * Storage space for the character part of the key. Empty slots are marked
+	 * by {@link #EMPTY}.
+	 */
+	private final int[] keyChars;
 
 	/** Storage space for the result node. */
 	private final int[] resultNodes;
@@ -79,7 +91,8 @@ import java.util.Arrays;
 		tableSize = allowedSizes[sizeIndex];
 
 		keyNodes = new int[tableSize];
-		keyChars = new Object[tableSize];
+		keyChars = new int[tableSize];
+		Arrays.fill(keyChars, EMPTY);
 		resultNodes = new int[tableSize];
 	}
 
@@ -87,13 +100,13 @@ import java.util.Arrays;
 	 * Returns the position of the (node,char) key in the hash map or the
 	 * position to insert it into if it is not yet in.
 	 */
-	private int hashFind(int keyNode, Object keyChar) {
+	private int hashFind(int keyNode, int keyChar) {
 		++_numFind;
-		int hash = keyChar.hashCode();
+		int hash = keyChar * SYMBOL_HASH_MULTIPLIER;
 		int pos = posMod(primaryHash(keyNode, hash));
 		int secondary = secondaryHash(keyNode, hash);
-		while (keyChars[pos] != null) {
-			if (keyNodes[pos] == keyNode && keyChar.equals(keyChars[pos])) {
+		while (keyChars[pos] != EMPTY) {
+			if (keyNodes[pos] == keyNode && keyChars[pos] == keyChar) {
 				break;
 			}
 			++_numColl;
@@ -106,18 +119,18 @@ import java.util.Arrays;
 	 * Returns the next node for the given (node, character) key pair or a
 	 * negative value if no next node is stored for this key.
 	 */
-	public int get(int keyNode, Object keyChar) {
+	public int get(int keyNode, int keyChar) {
 		int pos = hashFind(keyNode, keyChar);
-		if (keyChars[pos] == null) {
+		if (keyChars[pos] == EMPTY) {
 			return -1;
 		}
 		return resultNodes[pos];
 	}
 
 	/** Inserts the given result node for the (node, character) key pair. */
-	public void put(int keyNode, Object keyChar, int resultNode) {
+	public void put(int keyNode, int keyChar, int resultNode) {
 		int pos = hashFind(keyNode, keyChar);
-		if (keyChars[pos] == null) {
+		if (keyChars[pos] == EMPTY) {
 			++_numStoredNodes;
 			keyChars[pos] = keyChar;
 			keyNodes[pos] = keyNode;
@@ -178,7 +191,7 @@ import java.util.Arrays;
 		Arrays.fill(nodeFirstIndex, -1);
 		int free = 0;
 		for (int i = 0; i < tableSize; ++i) {
-			if (keyChars[i] != null) {
+			if (keyChars[i] != EMPTY) {
 				// insert keyNodes[i] -> resultNodes[i]
 				nodeChild[free] = resultNodes[i];
 				nodeNextIndex[free] = nodeFirstIndex[keyNodes[i]];
@@ -18,6 +18,7 @@ package org.conqat.engine.code_clones.index;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.conqat.engine.code_clones.core.Unit;
 import org.conqat.engine.code_clones.index.report.ICloneClassReporter;
@@ -34,6 +35,10 @@ import org.conqat.lib.scanner.ELanguage;
 /**
  * An index used to store cloning information. This class supports both querying
  * the index and modifying it.
+ * <p>
+ * The query methods may be called concurrently from multiple threads as long
+ * as the underlying {@link ICloneIndexStore} supports concurrent reads and no
+ * modifications are performed at the same time.
  * 
  * @author $Author: hummelb $
  * @version $Rev: 45617 $
@@ -51,16 +56,16 @@ public class CloneIndex {
 	private final IConQATLogger logger;
 
 	/** Milliseconds used for reading access to the store. */
-	private long readMilliSeconds = 0;
+	private final AtomicLong readMilliSeconds = new AtomicLong();
 
 	/** Milliseconds used for processing of read data. */
-	private long readProcessMilliSeconds = 0;
+	private final AtomicLong readProcessMilliSeconds = new AtomicLong();
 
 	/** Milliseconds used for writing data into the store. */
-	private long writeMilliSeconds = 0;
+	private final AtomicLong writeMilliSeconds = new AtomicLong();
 
 	/** Milliseconds used for preparing the data for writing. */
-	private long writeProcessMilliSeconds = 0;
+	private final AtomicLong writeProcessMilliSeconds = new AtomicLong();
 
 	/** Constructor. */
 	public CloneIndex(ICloneIndexStore store, IConQATLogger logger) {
@@ -120,7 +125,7 @@ public class CloneIndex {
 
 		List<ChunkList> orderedChunks = ChunkUtils.obtainOrderedChunks(store,
 				chunks);
-		readMilliSeconds += System.currentTimeMillis() - startTime;
+		readMilliSeconds.addAndGet(System.currentTimeMillis() - startTime);
 
 		startTime = System.currentTimeMillis();
 		if (allowGaps) {
@@ -132,7 +137,8 @@ public class CloneIndex {
 					minLength, orderedChunks, options.getChunkLength())
 					.reportClones();
 		}
-		readProcessMilliSeconds += System.currentTimeMillis() - startTime;
+		readProcessMilliSeconds.addAndGet(System.currentTimeMillis()
+				- startTime);
 
 		return true;
 	}
@@ -165,6 +171,18 @@ public class CloneIndex {
 		store.removeChunks(element.getUniformPath());
 	}
 
+	/**
+	 * Removes all chunks of the given origin from the underlying store. In
+	 * contrast to {@link #removeFile(ITextElement)}, this does not require the
+	 * element to exist any more and is a no-op for origins that are not
+	 * contained in the store.
+	 */
+	public void removeOrigin(String originId) throws StorageException {
+		if (store.getChunksByOrigin(originId) != null) {
+			store.removeChunks(originId);
+		}
+	}
+
 	/**
 	 * Inserts a file into the index.
 	 * 
@@ -193,11 +211,12 @@ public class CloneIndex {
 
 		List<Chunk> chunks = ChunkUtils.calculateChunks(units,
 				options.getChunkLength(), element, unitCount);
-		writeProcessMilliSeconds += System.currentTimeMillis() - start;
+		writeProcessMilliSeconds.addAndGet(System.currentTimeMillis()
+				- start);
 
 		start = System.currentTimeMillis();
 		store.batchInsertChunks(chunks);
-		writeMilliSeconds += System.currentTimeMillis() - start;
+		writeMilliSeconds.addAndGet(System.currentTimeMillis() - start);
 
 		return unitCount;
 	}
@@ -216,10 +235,12 @@ public class CloneIndex {
 
 	/** Returns a string which summarizes current performance characteristics. */
 	public String getPerformanceInfo() {
-		return "read from store: " + readMilliSeconds / 1000.
-				+ " sec, read postprocessing: " + readProcessMilliSeconds
-				/ 1000. + " sec, write preprocessing: "
-				+ writeProcessMilliSeconds / 1000. + " sec, write to store: "
-				+ writeMilliSeconds / 1000. + " sec";
+		return "read from store: " + readMilliSeconds.get() / 1000.
+				+ " sec, read postprocessing: "
+				+ readProcessMilliSeconds.get() / 1000.
+				+ " sec, write preprocessing: "
+				+ writeProcessMilliSeconds.get() / 1000.
+				+ " sec, write to store: " + writeMilliSeconds.get() / 1000.
+				+ " sec";
 	}
 }
\ No newline at end of file
@@ -30,6 +30,7 @@ import org.conqat.engine.core.core.AConQATParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.core.driver.instance.ConQATStringPool;
+import org.conqat.engine.core.logging.IConQATLogger;
 import org.conqat.engine.persistence.store.StorageException;
 import org.conqat.engine.resource.text.ITextElement;
 import org.conqat.engine.resource.util.ResourceTraversalUtils;
@@ -162,12 +163,22 @@ public class CloneIndexBuilder extends TokenElementProcessorBase {
 
 	/** Sets the options used for the store. */
 	private void setOptions() throws StorageException {
+		setOptions(store, normalizations, chunkLength, getLogger());
+	}
+
+	/**
+	 * Sets the normalizations and the chunk length for the given store. Already
+	 * persisted normalizations are reused, while conflicting values cause a
+	 * {@link StorageException}.
+	 */
+	/* package */static void setOptions(ICloneIndexStore store,
+			Map<ELanguage, IUnitProvider<ITokenResource, Unit>> normalizations,
+			int chunkLength, IConQATLogger logger) throws StorageException {
 		PersistedOptions options = new PersistedOptions(store);
 		for (ELanguage language : normalizations.keySet()) {
 			if (options.getNormalization(language) != null) {
-				getLogger().info(
-						"Reusing existing normalization for language "
-								+ language);
+				logger.info("Reusing existing normalization for language "
+						+ language);
 			} else {
 				PersistedOptions.setNormalization(store, language,
 						normalizations.get(language));
@@ -16,16 +16,24 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.code_clones.index;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import org.conqat.engine.code_clones.core.constraint.ConstraintList;
 import org.conqat.engine.code_clones.core.constraint.ICloneClassConstraint;
 import org.conqat.engine.code_clones.detection.CloneDetectionResultElement;
+import org.conqat.engine.code_clones.index.report.BufferingCloneClassReporter;
 import org.conqat.engine.code_clones.index.report.ConstraintAwareCollectingCloneClassReporter;
+import org.conqat.engine.code_clones.index.report.ICloneClassReporter;
 import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
 import org.conqat.engine.commons.ConQATParamDoc;
 import org.conqat.engine.commons.util.ConQATInputProcessorBase;
+import org.conqat.engine.commons.util.ParallelExecutionUtils;
 import org.conqat.engine.core.core.AConQATAttribute;
 import org.conqat.engine.core.core.AConQATParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.resource.text.ITextElement;
 import org.conqat.engine.resource.text.ITextResource;
@@ -39,7 +47,10 @@ import org.conqat.engine.resource.util.ResourceTraversalUtils;
  * @ConQAT.Rating GREEN Hash: AF93E0478390C4B1AF53D90500C5DC50
  */
 @AConQATProcessor(description = "Performs clone detection on an existing clone index. "
-		+ "The index must already be filled.")
+		+ "The index must already be filled. The elements can be split into "
+		+ "shards that are searched in parallel if ConQAT runs with multiple "
+		+ "threads. The result is the same as for sequential detection.")
+@AThreadSafeProcessor
 public class CloneIndexCloneDetector extends
 		ConQATInputProcessorBase<ITextResource> {
 
@@ -55,6 +66,9 @@ public class CloneIndexCloneDetector extends
 	/** List of constraints that all detected clone classes must satisfy */
 	private final ConstraintList constraints = new ConstraintList();
 
+	/** The number of shards the elements are split into. */
+	private int shards = 1;
+
 	/** {@ConQAT.Doc} */
 	@AConQATParameter(name = "store", description = "The store factory used to access and persist the clone index.", minOccurrences = 1, maxOccurrences = 1)
 	public void setStoreFactory(
@@ -79,6 +93,19 @@ public class CloneIndexCloneDetector extends
 		this.minLength = minLength;
 	}
 
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "shards", description = "The number of shards the elements are split into. "
+			+ "The shards are searched independently and in parallel, if ConQAT runs with multiple threads. "
+			+ "The store used must support concurrent reads. Default is 1, i.e. sequential search.", minOccurrences = 0, maxOccurrences = 1)
+	public void setShards(
+			@AConQATAttribute(name = "count", description = "Number of shards (must be positive)") int shards)
+			throws ConQATException {
+		if (shards < 1) {
+			throw new ConQATException("Number of shards must be positive!");
+		}
+		this.shards = shards;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public CloneDetectionResultElement process() throws ConQATException {
@@ -97,10 +124,12 @@ public class CloneIndexCloneDetector extends
 		ConstraintAwareCollectingCloneClassReporter reporter = new ConstraintAwareCollectingCloneClassReporter(
 				minLength, constraints);
 
-		for (ITextElement element : ResourceTraversalUtils
-				.listTextElements(input)) {
-			index.reportClones(element.getUniformPath(), reporter, true,
-					minLength);
+		List<ITextElement> elements = ResourceTraversalUtils
+				.listTextElements(input);
+		if (shards == 1) {
+			reportClones(index, elements, reporter);
+		} else {
+			reportClonesSharded(index, elements, reporter);
 		}
 
 		getLogger().info("Overall performance: " + index.getPerformanceInfo());
@@ -108,4 +137,53 @@ public class CloneIndexCloneDetector extends
 		return new CloneDetectionResultElement(reporter.getBirthDate(), input,
 				reporter.getCloneClasses(), null);
 	}
+
+	/** Reports the clones for all given elements to the reporter. */
+	private void reportClones(CloneIndex index, List<ITextElement> elements,
+			ICloneClassReporter reporter) throws ConQATException {
+		for (ITextElement element : elements) {
+			index.reportClones(element.getUniformPath(), reporter, true,
+					minLength);
+		}
+	}
+
+	/**
+	 * Splits the elements into consecutive shards, searches each shard with a
+	 * separate {@link BufferingCloneClassReporter} and merges the results in
+	 * shard order. This ensures that the IDs and the order of the reported
+	 * clone classes are the same as for {@link #reportClones}.
+	 */
+	private void reportClonesSharded(final CloneIndex index,
+			List<ITextElement> elements, ICloneClassReporter reporter)
+			throws ConQATException {
+		List<BufferingCloneClassReporter> shardReporters = new ArrayList<BufferingCloneClassReporter>();
+		List<Callable<ConQATException>> tasks = new ArrayList<Callable<ConQATException>>();
+
+		int shardSize = (elements.size() + shards - 1) / shards;
+		for (int start = 0; start < elements.size(); start += shardSize) {
+			final List<ITextElement> shard = elements.subList(start,
+					Math.min(elements.size(), start + shardSize));
+			final BufferingCloneClassReporter shardReporter = new BufferingCloneClassReporter();
+			shardReporters.add(shardReporter);
+			tasks.add(new Callable<ConQATException>() {
+				@Override
+				public ConQATException call() {
+					try {
+						reportClones(index, shard, shardReporter);
+					} catch (ConQATException e) {
+						return e;
+					}
+					return null;
+				}
+			});
+		}
+
+		ParallelExecutionUtils.executeAll(getProcessorInfo(), tasks);
+
+		long idOffset = 0;
+		for (BufferingCloneClassReporter shardReporter : shardReporters) {
+			shardReporter.replay(reporter, idOffset);
+			idOffset += shardReporter.getProvidedIdCount();
+		}
+	}
 }
\ No newline at end of file
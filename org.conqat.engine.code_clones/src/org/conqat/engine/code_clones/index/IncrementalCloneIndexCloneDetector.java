@@ -0,0 +1,352 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.code_clones.core.Unit;
+import org.conqat.engine.code_clones.core.constraint.ConstraintList;
+import org.conqat.engine.code_clones.core.constraint.ICloneClassConstraint;
+import org.conqat.engine.code_clones.detection.CloneDetectionResultElement;
+import org.conqat.engine.code_clones.detection.UnitProcessorBase;
+import org.conqat.engine.code_clones.index.report.ConstraintAwareCollectingCloneClassReporter;
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.code_clones.index.store.mem.InMemoryCloneIndexStore;
+import org.conqat.engine.code_clones.normalization.provider.IUnitProvider;
+import org.conqat.engine.commons.ConQATParamDoc;
+import org.conqat.engine.commons.util.ConQATInputProcessorBase;
+import org.conqat.engine.core.core.AConQATAttribute;
+import org.conqat.engine.core.core.AConQATParameter;
+import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.driver.instance.ConQATStringPool;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.resource.util.ResourceTraversalUtils;
+import org.conqat.engine.sourcecode.resource.ITokenElement;
+import org.conqat.engine.sourcecode.resource.ITokenResource;
+import org.conqat.lib.commons.digest.Digester;
+import org.conqat.lib.scanner.ELanguage;
+
+/**
+ * {@ConQAT.Doc}
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = "Performs incremental clone detection based on "
+		+ "a persistent clone index. For each element, the digest of its content "
+		+ "is stored in the index. In consecutive runs only elements whose "
+		+ "content changed, new elements, and deleted elements are updated in "
+		+ "the index, while all other elements are not normalized again. The "
+		+ "clones are then searched in the updated index, which yields the same "
+		+ "result as a full clone detection on the index. Optionally, the result "
+		+ "can be validated against a full rebuild of the index for a sample of "
+		+ "the elements.")
+public class IncrementalCloneIndexCloneDetector extends
+		ConQATInputProcessorBase<ITokenResource> {
+
+	/** The option key used for storing the information on indexed origins. */
+	/* package */static final String INDEXED_ORIGINS_KEY = "INCREMENTAL_INDEXED_ORIGINS";
+
+	/** The store. */
+	private ICloneIndexStore store;
+
+	/** Normalizations used. */
+	private final Map<ELanguage, IUnitProvider<ITokenResource, Unit>> normalizations = new EnumMap<ELanguage, IUnitProvider<ITokenResource, Unit>>(
+			ELanguage.class);
+
+	/** The chunk length used for the index. */
+	private int chunkLength = CloneIndexBuilder.DEFAULT_CHUNK_LENGTH;
+
+	/**
+	 * Number of units that a clone must at least comprise. If it has less, it
+	 * gets filtered out.
+	 */
+	private int minLength = -1;
+
+	/** List of constraints that all detected clone classes must satisfy */
+	private final ConstraintList constraints = new ConstraintList();
+
+	/** Key that contains flag that determines whether elements get ignored. */
+	private String ignoreKey;
+
+	/** The number of elements used for validation (0 for no validation). */
+	private int validationSampleSize = 0;
+
+	/** The number of elements that were (re)inserted into the index. */
+	private int insertedCount = 0;
+
+	/** The number of origins that were removed from the index. */
+	private int removedCount = 0;
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "store", description = "The clone index store used to access and persist the clone index. "
+			+ "This should be a persistent store, as otherwise each run is a full run.", minOccurrences = 1, maxOccurrences = 1)
+	public void setStore(
+			@AConQATAttribute(name = ConQATParamDoc.INPUT_REF_NAME, description = ConQATParamDoc.INPUT_REF_DESC) ICloneIndexStore store) {
+		this.store = store;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "chunk", minOccurrences = 0, maxOccurrences = 1, description = ""
+			+ "Allows to set the chunk length used. If this is not used, a default chunk length of "
+			+ CloneIndexBuilder.DEFAULT_CHUNK_LENGTH + " is used.")
+	public void setChunkLength(
+			@AConQATAttribute(name = "length", description = "The chunk length used for the index (must be positive).") int chunkLength)
+			throws ConQATException {
+		if (chunkLength <= 0) {
+			throw new ConQATException("Chunk index must be positive!");
+		}
+		this.chunkLength = chunkLength;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "normalization", description = "Sets the normalization used for a given language.", minOccurrences = 1)
+	public void setNormalization(
+			@AConQATAttribute(name = "language", description = "The language for which the normalization applies.") ELanguage language,
+			@AConQATAttribute(name = ConQATParamDoc.INPUT_REF_NAME, description = ConQATParamDoc.INPUT_REF_DESC) IUnitProvider<ITokenResource, Unit> normalization)
+			throws ConQATException {
+		if (normalizations.put(language, normalization) != null) {
+			throw new ConQATException(
+					"Duplicate normalization applied for language " + language);
+		}
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "constraint", minOccurrences = 0, maxOccurrences = -1, description = ""
+			+ "Adds a constraint that each detected clone class must satisfy")
+	public void addConstraint(
+			@AConQATAttribute(name = "type", description = "Clone classes that do not match the constraint are filtered") ICloneClassConstraint constraint) {
+		constraints.add(constraint);
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "clonelength", description = "Minimal length of Clone. If none is set, all clones will be reported (limited by chunk size of the index).", minOccurrences = 0, maxOccurrences = 1)
+	public void setMinLength(
+			@AConQATAttribute(name = "min", description = "Minimal length of Clone") int minLength) {
+		this.minLength = minLength;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = ConQATParamDoc.IGNORE_NAME, minOccurrences = 0, maxOccurrences = 1, description = ConQATParamDoc.IGNORE_DESC)
+	public void setIgnoreKey(
+			@AConQATAttribute(name = ConQATParamDoc.IGNORE_KEY_NAME, description = ConQATParamDoc.IGNORE_KEY_DESC) String ignoreKey) {
+		this.ignoreKey = ignoreKey;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "validation", description = "If set, the clones of a sample of the elements "
+			+ "are compared with the clones found in a freshly built index containing all elements. "
+			+ "As this requires normalization of all elements, this should only be used for testing.", minOccurrences = 0, maxOccurrences = 1)
+	public void setValidationSampleSize(
+			@AConQATAttribute(name = "sample", description = "The number of elements to validate (must be positive).") int validationSampleSize)
+			throws ConQATException {
+		if (validationSampleSize <= 0) {
+			throw new ConQATException("Sample size must be positive!");
+		}
+		this.validationSampleSize = validationSampleSize;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public CloneDetectionResultElement process() throws ConQATException {
+		CloneIndexBuilder.setOptions(store, normalizations, chunkLength,
+				getLogger());
+		if (minLength < 0) {
+			minLength = chunkLength;
+		}
+		if (minLength < chunkLength) {
+			throw new ConQATException("The minimal clone length of "
+					+ minLength + " is smaller than the chunk length of "
+					+ chunkLength + ", which is not supported.");
+		}
+
+		List<ITokenElement> elements = ResourceTraversalUtils
+				.listNonIgnoredElements(input, ignoreKey, ITokenElement.class);
+
+		CloneIndex index = new CloneIndex(store, getLogger());
+		updateIndex(index, elements);
+
+		ConstraintAwareCollectingCloneClassReporter reporter = new ConstraintAwareCollectingCloneClassReporter(
+				minLength, constraints);
+		for (ITokenElement element : ResourceTraversalUtils
+				.listElements(input, ITokenElement.class)) {
+			index.reportClones(element.getUniformPath(), reporter, true,
+					minLength);
+		}
+
+		getLogger().info(
+				"Updated " + insertedCount + " and removed " + removedCount
+						+ " of " + elements.size() + " elements. "
+						+ "Overall performance: " + index.getPerformanceInfo());
+
+		if (validationSampleSize > 0) {
+			validate(index, elements);
+		}
+
+		return new CloneDetectionResultElement(reporter.getBirthDate(), input,
+				reporter.getCloneClasses(), null);
+	}
+
+	/**
+	 * Brings the index up to date with the given elements by comparing the
+	 * content digests with those stored during the last run. The digests are
+	 * persisted after the index has been updated, so an interrupted run only
+	 * causes redundant work in the next run.
+	 */
+	private void updateIndex(CloneIndex index, List<ITokenElement> elements)
+			throws ConQATException {
+		Map<String, IndexedOrigin> previousOrigins = readIndexedOrigins();
+		HashMap<String, IndexedOrigin> origins = new HashMap<String, IndexedOrigin>();
+
+		for (ITokenElement element : elements) {
+			String uniformPath = element.getUniformPath();
+			String digest = Digester.createMD5Digest(element.getTextContent());
+			IndexedOrigin origin = previousOrigins.get(uniformPath);
+
+			if (origin == null || !origin.digest.equals(digest)) {
+				index.removeOrigin(uniformPath);
+				origin = new IndexedOrigin(digest, index.insertFile(element));
+				insertedCount += 1;
+
+				// Clear the string pool, as done in the CloneIndexBuilder
+				ConQATStringPool.clear();
+			}
+
+			element.setValue(UnitProcessorBase.UNITS_KEY, origin.unitCount);
+			origins.put(uniformPath, origin);
+		}
+
+		for (String uniformPath : previousOrigins.keySet()) {
+			if (!origins.containsKey(uniformPath)) {
+				index.removeOrigin(uniformPath);
+				removedCount += 1;
+			}
+		}
+
+		store.setOption(INDEXED_ORIGINS_KEY, origins);
+	}
+
+	/** Reads the information on the origins indexed during the last run. */
+	@SuppressWarnings("unchecked")
+	private Map<String, IndexedOrigin> readIndexedOrigins()
+			throws StorageException {
+		Map<String, IndexedOrigin> origins = (Map<String, IndexedOrigin>) store
+				.getOption(INDEXED_ORIGINS_KEY);
+		if (origins == null) {
+			return Collections.emptyMap();
+		}
+		return origins;
+	}
+
+	/**
+	 * Builds a fresh in-memory index for all elements and compares the clones
+	 * reported for a sample of the elements with those of the incrementally
+	 * updated index.
+	 */
+	private void validate(CloneIndex index, List<ITokenElement> elements)
+			throws ConQATException {
+		InMemoryCloneIndexStore fullStore = new InMemoryCloneIndexStore();
+		CloneIndexBuilder.setOptions(fullStore, normalizations, chunkLength,
+				getLogger());
+		CloneIndex fullIndex = new CloneIndex(fullStore, getLogger());
+		for (ITokenElement element : elements) {
+			fullIndex.insertFile(element);
+			ConQATStringPool.clear();
+		}
+
+		int step = Math.max(1, elements.size() / validationSampleSize);
+		int validated = 0;
+		for (int i = 0; i < elements.size() && validated < validationSampleSize; i += step, ++validated) {
+			String uniformPath = elements.get(i).getUniformPath();
+			if (!describeClones(index, uniformPath).equals(
+					describeClones(fullIndex, uniformPath))) {
+				throw new ConQATException(
+						"Incremental clone detection differs from full clone detection for "
+								+ uniformPath);
+			}
+		}
+		getLogger().info(
+				"Validated incremental clone detection for " + validated
+						+ " elements.");
+	}
+
+	/**
+	 * Returns the set of all clone classes involving the given origin. Each
+	 * clone class is described by its length and the unit positions of its
+	 * clones, as the IDs differ between indexes.
+	 */
+	private Set<String> describeClones(CloneIndex index, String uniformPath)
+			throws ConQATException {
+		ConstraintAwareCollectingCloneClassReporter reporter = new ConstraintAwareCollectingCloneClassReporter(
+				minLength, constraints);
+		index.reportClones(uniformPath, reporter, false, minLength);
+
+		Set<String> descriptions = new HashSet<String>();
+		for (CloneClass cloneClass : reporter.getCloneClasses()) {
+			List<String> clones = new ArrayList<String>();
+			for (Clone clone : cloneClass.getClones()) {
+				clones.add(clone.getUniformPath() + ":"
+						+ clone.getStartUnitIndexInElement() + "+"
+						+ clone.getLengthInUnits());
+			}
+			Collections.sort(clones);
+			descriptions.add(cloneClass.getNormalizedLength() + " " + clones);
+		}
+		return descriptions;
+	}
+
+	/** Returns the number of elements (re)inserted during the last run. */
+	/* package */int getInsertedCount() {
+		return insertedCount;
+	}
+
+	/** Returns the number of origins removed during the last run. */
+	/* package */int getRemovedCount() {
+		return removedCount;
+	}
+
+	/** Information stored in the index for each indexed origin. */
+	private static class IndexedOrigin implements Serializable {
+
+		/** Version used for serialization. */
+		private static final long serialVersionUID = 1;
+
+		/** The MD5 digest of the text content. */
+		private final String digest;
+
+		/** The number of units of the origin. */
+		private final int unitCount;
+
+		/** Constructor. */
+		public IndexedOrigin(String digest, int unitCount) {
+			this.digest = digest;
+			this.unitCount = unitCount;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.code_clones.core.KeyValueStoreBase;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.lib.commons.region.Region;
+
+/**
+ * A reporter that buffers all reported clone classes and later replays them to
+ * another reporter. This is used for running clone searches on separate shards
+ * of the index in parallel. Each shard uses its own buffering reporter, which
+ * hands out IDs starting from 0. During replay, the IDs are shifted by a given
+ * offset. When replaying the shards in order using the accumulated number of
+ * provided IDs as offset, the results are exactly the same as for a single
+ * reporter used sequentially for all shards.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class BufferingCloneClassReporter extends CloneClassReporterBase {
+
+	/** The buffered clone classes. */
+	private final List<CloneClass> cloneClasses = new ArrayList<CloneClass>();
+
+	/** The number of IDs provided so far. */
+	private long providedIds = 0;
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unused")
+	@Override
+	public void report(CloneClass cloneClass) throws ConQATException {
+		cloneClasses.add(cloneClass);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long provideId() {
+		providedIds += 1;
+		return super.provideId();
+	}
+
+	/** Returns the number of IDs provided by this reporter so far. */
+	public long getProvidedIdCount() {
+		return providedIds;
+	}
+
+	/**
+	 * Reports all buffered clone classes to the given reporter in the order
+	 * they were reported to this reporter. The IDs of all clone classes and
+	 * clones are shifted by the given offset. The reported objects are copies,
+	 * and the buffer is cleared afterwards.
+	 */
+	public void replay(ICloneClassReporter reporter, long idOffset)
+			throws ConQATException {
+		for (CloneClass cloneClass : cloneClasses) {
+			reporter.report(copy(cloneClass, idOffset));
+		}
+		cloneClasses.clear();
+	}
+
+	/** Creates a copy of the clone class with all IDs shifted by the offset. */
+	private static CloneClass copy(CloneClass cloneClass, long idOffset) {
+		CloneClass copy = new CloneClass(cloneClass.getNormalizedLength(),
+				cloneClass.getId() + idOffset);
+		copyValues(cloneClass, copy);
+
+		for (Clone clone : cloneClass.getClones()) {
+			Clone cloneCopy = new Clone(clone.getId() + idOffset, copy,
+					clone.getLocation(), clone.getStartUnitIndexInElement(),
+					clone.getLengthInUnits(), clone.getFingerprint(),
+					clone.getDeltaInUnits());
+			for (Region gap : clone.getGapPositions()) {
+				cloneCopy.addGap(gap);
+			}
+			copyValues(clone, cloneCopy);
+		}
+		return copy;
+	}
+
+	/** Copies all values and transient flags from source to target. */
+	private static void copyValues(KeyValueStoreBase source,
+			KeyValueStoreBase target) {
+		for (String key : source.getKeyList()) {
+			target.setValue(key, source.getValue(key));
+			target.setTransient(key, source.getTransient(key));
+		}
+	}
+}
\ No newline at end of file
@@ -28,6 +28,13 @@ import org.conqat.lib.commons.digest.MD5Digest;
 /**
  * Interface for a clone index store. A clone index store is used to persist
  * chunk information collected and used during index-based clone detection.
+ * <p>
+ * Thread-safety: implementations must support concurrent calls to the reading
+ * methods ({@link #getOption(String)}, {@link #getChunksByOrigin(String)} and
+ * {@link #getChunksByHashes(Set)}) from multiple threads, as long as no
+ * modifying method is called at the same time. Modifications may not be
+ * performed concurrently with any other operation. The lists returned by the
+ * reading methods must not be modified by the caller.
  * 
  * @author $Author: juergens $
  * @version $Rev: 34670 $
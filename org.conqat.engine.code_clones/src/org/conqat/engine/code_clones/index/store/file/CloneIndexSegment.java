@@ -0,0 +1,272 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.store.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.engine.code_clones.index.Chunk;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.util.StorageUtils;
+import org.conqat.lib.commons.digest.MD5Digest;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+
+/**
+ * An immutable segment of the {@link FileCloneIndexStore}, which is accessed
+ * via a {@link MappedByteBuffer}. Lookups by hash are performed as binary
+ * search directly on the mapped file. As only absolute reads are performed
+ * on the buffer, a segment may be read concurrently.
+ * <p>
+ * The file format (all numbers big endian) is:
+ * <ul>
+ * <li>Header: magic number (int), version (int), generation (long), number of
+ * chunks (int), number of origins (int).</li>
+ * <li>Chunk records sorted by hash: hash as two longs, origin ID (int) and
+ * {@link #CHUNK_INTS} ints of positional data.</li>
+ * <li>Origin directory: start index and count (ints) for each origin in the
+ * following list of record indices.</li>
+ * <li>Record indices grouped by origin (ints).</li>
+ * <li>Origin names as length (int) and UTF-8 bytes.</li>
+ * </ul>
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */class CloneIndexSegment {
+
+	/** Magic number at the start of each segment file. */
+	/* package */static final int MAGIC = 0x43514349;
+
+	/** Version of the file format. */
+	/* package */static final int VERSION = 1;
+
+	/**
+	 * Number of ints used for the positional data of a chunk. These are the
+	 * unit index, first raw line, last raw line, start raw offset, end raw
+	 * offset and the number of units in the element.
+	 */
+	/* package */static final int CHUNK_INTS = 6;
+
+	/**
+	 * Maximal number of chunks in a segment. This ensures that the file can be
+	 * mapped as a single buffer.
+	 */
+	/* package */static final int MAX_CHUNKS = 30000000;
+
+	/** Size of the header in bytes. */
+	private static final int HEADER_BYTES = 24;
+
+	/** Size of a chunk record in bytes. */
+	private static final int RECORD_BYTES = 2 * 8 + 4 + CHUNK_INTS * 4;
+
+	/** The file of this segment. */
+	private final File file;
+
+	/** The mapped content of the file. */
+	private final MappedByteBuffer buffer;
+
+	/** The generation of this segment. */
+	private final long generation;
+
+	/** The number of chunks. */
+	private final int chunkCount;
+
+	/** The origin names indexed by origin ID. */
+	private final String[] originNames;
+
+	/** Maps origin names to their IDs. */
+	private final Map<String, Integer> originIds = new HashMap<String, Integer>();
+
+	/** Offset of the origin directory in the file. */
+	private final int directoryOffset;
+
+	/** Offset of the list of record indices in the file. */
+	private final int recordIndicesOffset;
+
+	/** Opens the segment stored in the given file. */
+	public CloneIndexSegment(File file) throws StorageException {
+		this.file = file;
+		buffer = map(file);
+
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+				|| buffer.getInt(4) != VERSION) {
+			throw new StorageException("Invalid clone index segment: " + file);
+		}
+		generation = buffer.getLong(8);
+		chunkCount = buffer.getInt(16);
+		originNames = new String[buffer.getInt(20)];
+
+		directoryOffset = HEADER_BYTES + chunkCount * RECORD_BYTES;
+		recordIndicesOffset = directoryOffset + originNames.length * 8;
+		readOriginNames(recordIndicesOffset + chunkCount * 4);
+	}
+
+	/** Maps the given file into memory. */
+	private static MappedByteBuffer map(File file) throws StorageException {
+		RandomAccessFile randomAccessFile = null;
+		try {
+			// the mapping stays valid after closing the file
+			randomAccessFile = new RandomAccessFile(file, "r");
+			return randomAccessFile.getChannel().map(MapMode.READ_ONLY, 0,
+					randomAccessFile.length());
+		} catch (IOException e) {
+			throw new StorageException("Could not map segment " + file, e);
+		} finally {
+			FileSystemUtils.close(randomAccessFile);
+		}
+	}
+
+	/** Reads the origin names starting from the given offset. */
+	private void readOriginNames(int offset) {
+		for (int i = 0; i < originNames.length; ++i) {
+			byte[] bytes = new byte[buffer.getInt(offset)];
+			offset += 4;
+			for (int j = 0; j < bytes.length; ++j) {
+				bytes[j] = buffer.get(offset++);
+			}
+			originNames[i] = new String(bytes, FileSystemUtils.UTF8_CHARSET);
+			originIds.put(originNames[i], i);
+		}
+	}
+
+	/** Returns the file of this segment. */
+	public File getFile() {
+		return file;
+	}
+
+	/** Returns the generation of this segment. */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/** Returns the number of chunks stored. */
+	public int getChunkCount() {
+		return chunkCount;
+	}
+
+	/** Returns whether this segment contains chunks of the given origin. */
+	public boolean containsOrigin(String originId) {
+		return originIds.containsKey(originId);
+	}
+
+	/** Adds all chunks of the given origin to the result list. */
+	public void addChunksForOrigin(String originId, List<Chunk> result) {
+		Integer id = originIds.get(originId);
+		if (id == null) {
+			return;
+		}
+
+		int start = buffer.getInt(directoryOffset + 8 * id);
+		int count = buffer.getInt(directoryOffset + 8 * id + 4);
+		for (int i = start; i < start + count; ++i) {
+			result.add(extractChunk(buffer.getInt(recordIndicesOffset + 4 * i)));
+		}
+	}
+
+	/** Adds all chunks with the given hash to the result list. */
+	public void addChunksForHash(long high, long low, List<Chunk> result) {
+		int lower = 0;
+		int upper = chunkCount;
+		while (lower < upper) {
+			int mid = lower + upper >>> 1;
+			if (compareHashes(high(mid), low(mid), high, low) < 0) {
+				lower = mid + 1;
+			} else {
+				upper = mid;
+			}
+		}
+
+		for (int index = lower; index < chunkCount && high(index) == high
+				&& low(index) == low; ++index) {
+			result.add(extractChunk(index));
+		}
+	}
+
+	/**
+	 * Adds all records for which the given store reports the origin as live to
+	 * the builder.
+	 */
+	public void addLiveRecords(CloneIndexSegmentBuilder builder,
+			FileCloneIndexStore store) {
+		int[] values = new int[CHUNK_INTS];
+		for (int index = 0; index < chunkCount; ++index) {
+			String originId = originNames[origin(index)];
+			if (store.isLive(originId, generation)) {
+				readValues(index, values);
+				builder.add(high(index), low(index), originId, values);
+			}
+		}
+	}
+
+	/** Returns the upper 64 bits of the hash of a record. */
+	private long high(int index) {
+		return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES);
+	}
+
+	/** Returns the lower 64 bits of the hash of a record. */
+	private long low(int index) {
+		return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES + 8);
+	}
+
+	/** Returns the origin ID of a record. */
+	private int origin(int index) {
+		return buffer.getInt(HEADER_BYTES + index * RECORD_BYTES + 16);
+	}
+
+	/** Reads the positional data of a record into the given array. */
+	private void readValues(int index, int[] values) {
+		int offset = HEADER_BYTES + index * RECORD_BYTES + 20;
+		for (int k = 0; k < CHUNK_INTS; ++k, offset += 4) {
+			values[k] = buffer.getInt(offset);
+		}
+	}
+
+	/** Creates the chunk for a record. */
+	private Chunk extractChunk(int index) {
+		byte[] hash = new byte[MD5Digest.MD5_BYTES];
+		StorageUtils.insertLong(high(index), hash, 0);
+		StorageUtils.insertLong(low(index), hash, 8);
+
+		int[] values = new int[CHUNK_INTS];
+		readValues(index, values);
+		return new Chunk(originNames[origin(index)], new MD5Digest(hash),
+				values[0], values[1], values[2], values[3], values[4],
+				values[5]);
+	}
+
+	/**
+	 * Compares two hashes given as pairs of longs. The order is the same as
+	 * the lexicographical order of the signed hash longs.
+	 */
+	/* package */static int compareHashes(long high1, long low1, long high2,
+			long low2) {
+		if (high1 != high2) {
+			return high1 < high2 ? -1 : 1;
+		}
+		if (low1 != low2) {
+			return low1 < low2 ? -1 : 1;
+		}
+		return 0;
+	}
+}
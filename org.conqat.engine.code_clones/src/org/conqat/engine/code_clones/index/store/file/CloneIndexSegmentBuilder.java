@@ -0,0 +1,293 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.store.file;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.engine.code_clones.index.Chunk;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.util.StorageUtils;
+import org.conqat.lib.commons.collections.ISortableData;
+import org.conqat.lib.commons.collections.SortableDataUtils;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+
+/**
+ * Collects chunk records in packed arrays and writes them as a
+ * {@link CloneIndexSegment} file. The format is described there. The records
+ * of each origin are listed in the order of their unit index.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */class CloneIndexSegmentBuilder implements ISortableData {
+
+	/** Initial number of records that can be stored. */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** The number of records. */
+	private int size = 0;
+
+	/** The upper 64 bits of the chunk hashes. */
+	private long[] hashHigh = new long[INITIAL_CAPACITY];
+
+	/** The lower 64 bits of the chunk hashes. */
+	private long[] hashLow = new long[INITIAL_CAPACITY];
+
+	/** The origin IDs of the records. */
+	private int[] origins = new int[INITIAL_CAPACITY];
+
+	/** The positional data using {@link CloneIndexSegment#CHUNK_INTS} each. */
+	private int[] data = new int[INITIAL_CAPACITY
+			* CloneIndexSegment.CHUNK_INTS];
+
+	/** Maps origin names to their IDs. */
+	private final Map<String, Integer> originIds = new HashMap<String, Integer>();
+
+	/** The origin names indexed by ID. */
+	private final List<String> originNames = new ArrayList<String>();
+
+	/** Returns the number of records. */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/** Adds a chunk. */
+	public void add(Chunk chunk) {
+		byte[] hash = chunk.getChunkHash().getBytes();
+		int offset = addRecord(StorageUtils.extractLong(hash, 0),
+				StorageUtils.extractLong(hash, 8), chunk.getOriginId());
+		data[offset++] = chunk.getFirstUnitIndex();
+		data[offset++] = chunk.getFirstRawLineNumber();
+		data[offset++] = chunk.getLastRawLineNumber();
+		data[offset++] = chunk.getRawStartOffset();
+		data[offset++] = chunk.getRawEndOffset();
+		data[offset] = chunk.getElementUnits();
+	}
+
+	/**
+	 * Adds a record with the given hash and origin. The positional data is
+	 * copied from the given array (starting at index 0).
+	 */
+	public void add(long high, long low, String originId, int[] values) {
+		int offset = addRecord(high, low, originId);
+		System.arraycopy(values, 0, data, offset, CloneIndexSegment.CHUNK_INTS);
+	}
+
+	/**
+	 * Appends a record and returns the offset of its positional data in the
+	 * {@link #data} array.
+	 */
+	private int addRecord(long high, long low, String originId) {
+		if (size >= hashHigh.length) {
+			int capacity = 2 * hashHigh.length;
+			hashHigh = Arrays.copyOf(hashHigh, capacity);
+			hashLow = Arrays.copyOf(hashLow, capacity);
+			origins = Arrays.copyOf(origins, capacity);
+			data = Arrays.copyOf(data, capacity * CloneIndexSegment.CHUNK_INTS);
+		}
+
+		Integer id = originIds.get(originId);
+		if (id == null) {
+			id = originNames.size();
+			originNames.add(originId);
+			originIds.put(originId, id);
+		}
+
+		hashHigh[size] = high;
+		hashLow[size] = low;
+		origins[size] = id;
+		return CloneIndexSegment.CHUNK_INTS * size++;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isLess(int i, int j) {
+		return CloneIndexSegment.compareHashes(hashHigh[i], hashLow[i],
+				hashHigh[j], hashLow[j]) < 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void swap(int i, int j) {
+		long tmpLong = hashHigh[i];
+		hashHigh[i] = hashHigh[j];
+		hashHigh[j] = tmpLong;
+
+		tmpLong = hashLow[i];
+		hashLow[i] = hashLow[j];
+		hashLow[j] = tmpLong;
+
+		int tmp = origins[i];
+		origins[i] = origins[j];
+		origins[j] = tmp;
+
+		i *= CloneIndexSegment.CHUNK_INTS;
+		j *= CloneIndexSegment.CHUNK_INTS;
+		for (int k = 0; k < CloneIndexSegment.CHUNK_INTS; ++k, ++i, ++j) {
+			tmp = data[i];
+			data[i] = data[j];
+			data[j] = tmp;
+		}
+	}
+
+	/**
+	 * Sorts the records by hash and writes them to the given file as a segment
+	 * of the given generation.
+	 */
+	public void write(File file, long generation) throws StorageException {
+		if (size > CloneIndexSegment.MAX_CHUNKS) {
+			throw new StorageException("Segment with " + size
+					+ " chunks exceeds maximal size of "
+					+ CloneIndexSegment.MAX_CHUNKS + " chunks.");
+		}
+
+		SortableDataUtils.sort(this);
+
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			out.writeInt(CloneIndexSegment.MAGIC);
+			out.writeInt(CloneIndexSegment.VERSION);
+			out.writeLong(generation);
+			out.writeInt(size);
+			out.writeInt(originNames.size());
+
+			writeRecords(out);
+			writeOriginDirectory(out);
+
+			for (String name : originNames) {
+				byte[] bytes = name.getBytes(FileSystemUtils.UTF8_CHARSET);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		} catch (IOException e) {
+			throw new StorageException("Could not write segment " + file, e);
+		} finally {
+			FileSystemUtils.close(out);
+		}
+	}
+
+	/** Writes the records. */
+	private void writeRecords(DataOutputStream out) throws IOException {
+		for (int i = 0; i < size; ++i) {
+			out.writeLong(hashHigh[i]);
+			out.writeLong(hashLow[i]);
+			out.writeInt(origins[i]);
+			int offset = i * CloneIndexSegment.CHUNK_INTS;
+			for (int k = 0; k < CloneIndexSegment.CHUNK_INTS; ++k) {
+				out.writeInt(data[offset + k]);
+			}
+		}
+	}
+
+	/**
+	 * Writes the origin directory, i.e. the start and count for each origin in
+	 * the list of record indices, followed by this list.
+	 */
+	private void writeOriginDirectory(DataOutputStream out) throws IOException {
+		int[] counts = new int[originNames.size()];
+		for (int i = 0; i < size; ++i) {
+			counts[origins[i]] += 1;
+		}
+
+		int[] starts = new int[originNames.size()];
+		int start = 0;
+		for (int origin = 0; origin < counts.length; ++origin) {
+			starts[origin] = start;
+			out.writeInt(start);
+			out.writeInt(counts[origin]);
+			start += counts[origin];
+		}
+
+		int[] recordIndices = new int[size];
+		for (int i = 0; i < size; ++i) {
+			recordIndices[starts[origins[i]]++] = i;
+		}
+
+		start = 0;
+		for (int count : counts) {
+			SortableDataUtils.sort(new UnitIndexSortableData(recordIndices,
+					start, count));
+			start += count;
+		}
+
+		for (int index : recordIndices) {
+			out.writeInt(index);
+		}
+	}
+
+	/**
+	 * Sortable data for sorting a range of record indices by the unit index of
+	 * the records.
+	 */
+	private class UnitIndexSortableData implements ISortableData {
+
+		/** The record indices. */
+		private final int[] recordIndices;
+
+		/** The start of the range. */
+		private final int start;
+
+		/** The size of the range. */
+		private final int count;
+
+		/** Constructor. */
+		public UnitIndexSortableData(int[] recordIndices, int start, int count) {
+			this.recordIndices = recordIndices;
+			this.start = start;
+			this.count = count;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return count;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean isLess(int i, int j) {
+			return unitIndex(i) < unitIndex(j);
+		}
+
+		/** Returns the unit index of the record at the given position. */
+		private int unitIndex(int i) {
+			return data[recordIndices[start + i]
+					* CloneIndexSegment.CHUNK_INTS];
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void swap(int i, int j) {
+			int tmp = recordIndices[start + i];
+			recordIndices[start + i] = recordIndices[start + j];
+			recordIndices[start + j] = tmp;
+		}
+	}
+}
@@ -0,0 +1,466 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.store.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.conqat.engine.code_clones.index.Chunk;
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.code_clones.index.store.mem.InMemoryCloneIndexStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.util.StorageUtils;
+import org.conqat.lib.commons.collections.CollectionUtils;
+import org.conqat.lib.commons.collections.UnmodifiableList;
+import org.conqat.lib.commons.digest.MD5Digest;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.io.SerializationUtils;
+
+/**
+ * A clone index store that persists the index in a directory of append-only
+ * segment files. Each segment is sorted by chunk hash and contains a directory
+ * of its origins. Segments are accessed via memory-mapped files (see
+ * {@link CloneIndexSegment}), so opening an existing index is cheap and
+ * lookups by hash are binary searches on the mapped data.
+ * <p>
+ * Inserted chunks are collected in memory and written as a new segment when
+ * their number exceeds a threshold or when the store is flushed or closed.
+ * Removing an origin stores a tombstone that hides the chunks of the origin
+ * in all existing segments. When the number of segments exceeds a
+ * threshold, all segments are merged into one, dropping all hidden chunks.
+ * The list of segments, the tombstones and the options are stored in a
+ * manifest file, which is written on each flush. Changes not flushed are lost
+ * if the store is not closed.
+ * <p>
+ * The reading methods may be called concurrently (see {@link ICloneIndexStore}
+ * ).
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class FileCloneIndexStore implements ICloneIndexStore {
+
+	/** Default number of chunks collected in memory before writing a segment. */
+	public static final int DEFAULT_FLUSH_CHUNKS = 1000000;
+
+	/** Default number of segments that triggers a compaction. */
+	public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+	/** Name of the manifest file. */
+	private static final String MANIFEST_NAME = "manifest";
+
+	/** Prefix of the segment file names. */
+	private static final String SEGMENT_PREFIX = "segment-";
+
+	/** Extension of the segment file names. */
+	private static final String SEGMENT_EXTENSION = ".cis";
+
+	/** Magic number at the start of the manifest. */
+	private static final int MANIFEST_MAGIC = 0x4351434D;
+
+	/** Version of the manifest format. */
+	private static final int MANIFEST_VERSION = 1;
+
+	/** The directory containing the files. */
+	private final File directory;
+
+	/** Number of chunks collected in memory before writing a segment. */
+	private final int flushChunks;
+
+	/** Number of segments that triggers a compaction. */
+	private final int maxSegments;
+
+	/** The segments ordered by generation. */
+	private final List<CloneIndexSegment> segments = new ArrayList<CloneIndexSegment>();
+
+	/**
+	 * Tombstones mapping from origin to the generation in which it was
+	 * removed. Chunks of the origin in segments of older generations are
+	 * hidden.
+	 */
+	private final Map<String, Long> tombstones = new HashMap<String, Long>();
+
+	/** The serialized options. */
+	private final Map<String, byte[]> options = new HashMap<String, byte[]>();
+
+	/** Chunks that have not been written to a segment yet. */
+	private InMemoryCloneIndexStore pending = new InMemoryCloneIndexStore();
+
+	/** Number of chunks in {@link #pending}. */
+	private int pendingChunks = 0;
+
+	/**
+	 * The generation of the next segment to be written. Pending chunks belong
+	 * to this generation.
+	 */
+	private long nextGeneration = 0;
+
+	/** Opens the store in the given directory using default parameters. */
+	public FileCloneIndexStore(File directory) throws StorageException {
+		this(directory, DEFAULT_FLUSH_CHUNKS, DEFAULT_MAX_SEGMENTS);
+	}
+
+	/**
+	 * Opens the store in the given directory. If the directory contains no
+	 * manifest, a new empty store is created.
+	 * 
+	 * @param flushChunks
+	 *            the number of chunks collected in memory before writing a new
+	 *            segment.
+	 * @param maxSegments
+	 *            the number of segments that triggers a compaction.
+	 */
+	public FileCloneIndexStore(File directory, int flushChunks, int maxSegments)
+			throws StorageException {
+		this.directory = directory;
+		this.flushChunks = flushChunks;
+		this.maxSegments = maxSegments;
+
+		try {
+			FileSystemUtils.ensureDirectoryExists(directory);
+		} catch (IOException e) {
+			throw new StorageException("Could not create directory "
+					+ directory, e);
+		}
+
+		File manifest = new File(directory, MANIFEST_NAME);
+		if (manifest.isFile()) {
+			readManifest(manifest);
+		}
+		deleteUnusedSegmentFiles();
+	}
+
+	/** Reads the manifest and opens all segments listed. */
+	private void readManifest(File manifest) throws StorageException {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(manifest)));
+			if (in.readInt() != MANIFEST_MAGIC
+					|| in.readInt() != MANIFEST_VERSION) {
+				throw new StorageException("Invalid clone index manifest: "
+						+ manifest);
+			}
+			nextGeneration = in.readLong();
+
+			int segmentCount = in.readInt();
+			for (int i = 0; i < segmentCount; ++i) {
+				segments.add(new CloneIndexSegment(getSegmentFile(in
+						.readLong())));
+			}
+
+			int tombstoneCount = in.readInt();
+			for (int i = 0; i < tombstoneCount; ++i) {
+				tombstones.put(in.readUTF(), in.readLong());
+			}
+
+			int optionCount = in.readInt();
+			for (int i = 0; i < optionCount; ++i) {
+				String key = in.readUTF();
+				byte[] value = new byte[in.readInt()];
+				in.readFully(value);
+				options.put(key, value);
+			}
+		} catch (IOException e) {
+			throw new StorageException("Could not read manifest " + manifest,
+					e);
+		} finally {
+			FileSystemUtils.close(in);
+		}
+	}
+
+	/** Writes the manifest. The old manifest is replaced only on success. */
+	private void writeManifest() throws StorageException {
+		File manifest = new File(directory, MANIFEST_NAME);
+		File tmpManifest = new File(directory, MANIFEST_NAME + ".tmp");
+
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tmpManifest)));
+			out.writeInt(MANIFEST_MAGIC);
+			out.writeInt(MANIFEST_VERSION);
+			out.writeLong(nextGeneration);
+
+			out.writeInt(segments.size());
+			for (CloneIndexSegment segment : segments) {
+				out.writeLong(segment.getGeneration());
+			}
+
+			out.writeInt(tombstones.size());
+			for (Entry<String, Long> entry : tombstones.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue());
+			}
+
+			out.writeInt(options.size());
+			for (Entry<String, byte[]> entry : options.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue().length);
+				out.write(entry.getValue());
+			}
+			out.close();
+			out = null;
+
+			if (manifest.exists()) {
+				FileSystemUtils.deleteFile(manifest);
+			}
+			FileSystemUtils.renameFileTo(tmpManifest, manifest);
+		} catch (IOException e) {
+			throw new StorageException("Could not write manifest " + manifest,
+					e);
+		} finally {
+			FileSystemUtils.close(out);
+		}
+	}
+
+	/**
+	 * Deletes all segment files that are not used by this store, e.g. left
+	 * over from an interrupted flush or from a compaction. Deletion may fail
+	 * for files that are still mapped on some platforms, so failures are
+	 * ignored and deletion is retried the next time.
+	 */
+	private void deleteUnusedSegmentFiles() {
+		Set<File> used = new HashSet<File>();
+		for (CloneIndexSegment segment : segments) {
+			used.add(segment.getFile());
+		}
+
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (name.startsWith(SEGMENT_PREFIX)
+					&& name.endsWith(SEGMENT_EXTENSION) && !used.contains(file)) {
+				file.delete();
+			}
+		}
+	}
+
+	/** Returns the file used for the segment of the given generation. */
+	private File getSegmentFile(long generation) {
+		return new File(directory, SEGMENT_PREFIX + generation
+				+ SEGMENT_EXTENSION);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Serializable getOption(String key) throws StorageException {
+		byte[] value = options.get(key);
+		if (value == null) {
+			return null;
+		}
+
+		try {
+			// we have to use the thread's context class loader, as in the
+			// ConQAT world this is where the classes are loaded from
+			return SerializationUtils.deserializeFromByteArray(value, Thread
+					.currentThread().getContextClassLoader());
+		} catch (IOException e) {
+			throw new StorageException("Could not deserialize option: " + key,
+					e);
+		} catch (ClassNotFoundException e) {
+			throw new StorageException("Could not create option: " + key, e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setOption(String key, Serializable value)
+			throws StorageException {
+		try {
+			options.put(key, SerializationUtils.serializeToByteArray(value));
+		} catch (IOException e) {
+			throw new StorageException("Could not set option: " + key, e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<Chunk> getChunksByOrigin(String originId) {
+		List<Chunk> result = new ArrayList<Chunk>();
+		for (CloneIndexSegment segment : segments) {
+			if (isLive(originId, segment.getGeneration())) {
+				segment.addChunksForOrigin(originId, result);
+			}
+		}
+
+		List<Chunk> pendingChunks = pending.getChunksByOrigin(originId);
+		if (pendingChunks != null) {
+			result.addAll(pendingChunks);
+		}
+
+		if (result.isEmpty()) {
+			return null;
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public UnmodifiableList<Chunk> getChunksByHashes(Set<MD5Digest> chunkHashes) {
+		List<Chunk> result = new ArrayList<Chunk>();
+		List<Chunk> segmentChunks = new ArrayList<Chunk>();
+		for (MD5Digest chunkHash : chunkHashes) {
+			byte[] hash = chunkHash.getBytes();
+			long high = StorageUtils.extractLong(hash, 0);
+			long low = StorageUtils.extractLong(hash, 8);
+
+			for (CloneIndexSegment segment : segments) {
+				segmentChunks.clear();
+				segment.addChunksForHash(high, low, segmentChunks);
+				for (Chunk chunk : segmentChunks) {
+					if (isLive(chunk.getOriginId(), segment.getGeneration())) {
+						result.add(chunk);
+					}
+				}
+			}
+		}
+
+		result.addAll(pending.getChunksByHashes(chunkHashes));
+		return CollectionUtils.asUnmodifiable(result);
+	}
+
+	/**
+	 * Returns whether chunks of the given origin stored in a segment of the
+	 * given generation are visible, i.e. not hidden by a tombstone.
+	 */
+	/* package */boolean isLive(String originId, long generation) {
+		Long removalGeneration = tombstones.get(originId);
+		return removalGeneration == null || generation >= removalGeneration;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void batchInsertChunks(List<Chunk> chunks) throws StorageException {
+		pending.batchInsertChunks(chunks);
+		pendingChunks += chunks.size();
+		if (pendingChunks >= flushChunks) {
+			flush();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void removeChunks(String originId) {
+		List<Chunk> chunks = pending.getChunksByOrigin(originId);
+		if (chunks != null) {
+			pendingChunks -= chunks.size();
+			pending.removeChunks(originId);
+		}
+
+		for (CloneIndexSegment segment : segments) {
+			if (isLive(originId, segment.getGeneration())
+					&& segment.containsOrigin(originId)) {
+				tombstones.put(originId, nextGeneration);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes all pending chunks to a new segment, compacts the segments if
+	 * required, and writes the manifest.
+	 */
+	public void flush() throws StorageException {
+		if (pendingChunks > 0) {
+			CloneIndexSegmentBuilder builder = new CloneIndexSegmentBuilder();
+			for (String originId : pending.getOriginIds()) {
+				for (Chunk chunk : pending.getChunksByOrigin(originId)) {
+					builder.add(chunk);
+				}
+			}
+			segments.add(writeSegment(builder));
+			pending = new InMemoryCloneIndexStore();
+			pendingChunks = 0;
+		}
+
+		if (segments.size() > maxSegments) {
+			compact();
+		}
+
+		writeManifest();
+		deleteUnusedSegmentFiles();
+	}
+
+	/** Writes the segment for the next generation. */
+	private CloneIndexSegment writeSegment(CloneIndexSegmentBuilder builder)
+			throws StorageException {
+		File file = getSegmentFile(nextGeneration);
+		builder.write(file, nextGeneration);
+		nextGeneration += 1;
+		return new CloneIndexSegment(file);
+	}
+
+	/**
+	 * Merges all segments into a single one, dropping chunks hidden by
+	 * tombstones. As the merged segment is newer than all tombstones, the
+	 * tombstones are cleared. Compaction is skipped if the merged segment
+	 * would become too large.
+	 */
+	private void compact() throws StorageException {
+		long chunkCount = 0;
+		for (CloneIndexSegment segment : segments) {
+			chunkCount += segment.getChunkCount();
+		}
+		if (chunkCount > CloneIndexSegment.MAX_CHUNKS) {
+			return;
+		}
+
+		CloneIndexSegmentBuilder builder = new CloneIndexSegmentBuilder();
+		for (CloneIndexSegment segment : segments) {
+			segment.addLiveRecords(builder, this);
+		}
+
+		CloneIndexSegment merged = writeSegment(builder);
+		segments.clear();
+		segments.add(merged);
+		tombstones.clear();
+	}
+
+	/** Returns the number of segments (used for testing). */
+	/* package */int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This flushes all pending changes.
+	 */
+	@Override
+	public void close() throws StorageException {
+		flush();
+	}
+}
@@ -0,0 +1,90 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.store.file;
+
+import java.io.File;
+
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.commons.ConQATProcessorBase;
+import org.conqat.engine.core.core.AConQATAttribute;
+import org.conqat.engine.core.core.AConQATParameter;
+import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.core.IShutdownHook;
+
+/**
+ * {@ConQAT.Doc}
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = "Factory for a clone index store that persists the index "
+		+ "in memory-mapped segment files in a directory. An existing index is reopened "
+		+ "quickly and can be updated incrementally by removing and re-inserting "
+		+ "changed files. Closing the store (which writes all pending data) is "
+		+ "performed on shutdown.")
+public class FileCloneIndexStoreFactory extends ConQATProcessorBase {
+
+	/** The directory to store the index in. */
+	private File directory;
+
+	/** Number of chunks collected in memory before writing a segment. */
+	private int flushChunks = FileCloneIndexStore.DEFAULT_FLUSH_CHUNKS;
+
+	/** Number of segments that triggers a compaction. */
+	private int maxSegments = FileCloneIndexStore.DEFAULT_MAX_SEGMENTS;
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "storage", minOccurrences = 1, maxOccurrences = 1, description = ""
+			+ "The directory where the index is stored. "
+			+ "There will be multiple files written into this directory, so it should ideally be empty.")
+	public void setDirectory(
+			@AConQATAttribute(name = "dir", description = "Name of the directory.") String directory) {
+		this.directory = new File(directory);
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "segments", minOccurrences = 0, maxOccurrences = 1, description = ""
+			+ "Controls the size and number of the segment files.")
+	public void setSegmentParameters(
+			@AConQATAttribute(name = "chunks", description = "The number of chunks collected in memory before a new segment is written. Default is "
+					+ FileCloneIndexStore.DEFAULT_FLUSH_CHUNKS + ".") int flushChunks,
+			@AConQATAttribute(name = "max", description = "If there are more segments, they are merged into one. Default is "
+					+ FileCloneIndexStore.DEFAULT_MAX_SEGMENTS + ".") int maxSegments)
+			throws ConQATException {
+		if (flushChunks <= 0 || maxSegments <= 0) {
+			throw new ConQATException("Segment parameters must be positive!");
+		}
+		this.flushChunks = flushChunks;
+		this.maxSegments = maxSegments;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ICloneIndexStore process() throws ConQATException {
+		final FileCloneIndexStore store = new FileCloneIndexStore(directory,
+				flushChunks, maxSegments);
+		getProcessorInfo().registerShutdownHook(new IShutdownHook() {
+			@Override
+			public void performShutdown() throws ConQATException {
+				store.close();
+			}
+		}, false);
+		return store;
+	}
+}
@@ -24,6 +24,7 @@ import org.conqat.engine.code_clones.index.Chunk;
 import org.conqat.lib.commons.collections.CollectionUtils;
 import org.conqat.lib.commons.collections.ListMap;
 import org.conqat.lib.commons.collections.UnmodifiableList;
+import org.conqat.lib.commons.collections.UnmodifiableSet;
 import org.conqat.lib.commons.digest.MD5Digest;
 
 /**
@@ -63,6 +64,11 @@ public class InMemoryCloneIndexStore extends MemoryStoreBase {
 		}
 	}
 
+	/** Returns the IDs of all origins for which chunks are stored. */
+	public UnmodifiableSet<String> getOriginIds() {
+		return byOrigin.getKeys();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public List<Chunk> getChunksByOrigin(String originId) {
@@ -74,7 +80,10 @@ public class InMemoryCloneIndexStore extends MemoryStoreBase {
 	public UnmodifiableList<Chunk> getChunksByHashes(Set<MD5Digest> chunkHashes) {
 		List<Chunk> result = new ArrayList<Chunk>();
 		for (MD5Digest hash : chunkHashes) {
-			result.addAll(byHash.getCollection(hash));
+			List<Chunk> chunks = byHash.getCollection(hash);
+			if (chunks != null) {
+				result.addAll(chunks);
+			}
 		}
 		return CollectionUtils.asUnmodifiable(result);
 	}
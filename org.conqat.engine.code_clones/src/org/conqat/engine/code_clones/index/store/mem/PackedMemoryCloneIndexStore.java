@@ -0,0 +1,434 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.store.mem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.conqat.engine.code_clones.index.Chunk;
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.persistence.store.util.StorageUtils;
+import org.conqat.lib.commons.collections.CollectionUtils;
+import org.conqat.lib.commons.collections.UnmodifiableList;
+import org.conqat.lib.commons.digest.MD5Digest;
+
+/**
+ * A clone index store that keeps all data in memory using packed primitive
+ * arrays. Origins are mapped to int IDs, the MD5 hashes are stored as two longs
+ * and chunks with the same hash or origin are linked via index arrays. The
+ * lookup by hash uses an open-addressing hash table keyed by the hash longs.
+ * Compared to the {@link InMemoryCloneIndexStore} this avoids the object
+ * overhead of storing {@link Chunk} and {@link MD5Digest} objects and thus
+ * reduces both memory consumption and garbage collection load. Compared to the
+ * {@link SortedMemoryCloneIndexStore} updates are cheap, as no sorting is
+ * required.
+ * <p>
+ * The reading methods do not modify the store and thus may be called
+ * concurrently (see {@link ICloneIndexStore}).
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class PackedMemoryCloneIndexStore extends MemoryStoreBase {
+
+	/**
+	 * Number of ints required for storing the positional data of a chunk. These
+	 * are the unit index, first raw line, last raw line, start raw offset, end
+	 * raw offset and the number of units in the element.
+	 */
+	private static final int CHUNK_INTS = 6;
+
+	/**
+	 * Number of bytes required for each chunk. This consists of the two longs
+	 * for the hash, the origin ID, the {@link #CHUNK_INTS} and two links.
+	 */
+	/* package */static final int BYTES_PER_CHUNK = 2 * 8 + 4 + CHUNK_INTS * 4
+			+ 2 * 4;
+
+	/** Initial number of chunks (and origins) that can be stored. */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** Value used for marking the end of a linked list of chunks. */
+	private static final int NONE = -1;
+
+	/** Value used for marking free slots in the hash table. */
+	private static final int FREE = -2;
+
+	/** The number of chunk positions used (including removed chunks). */
+	private int size = 0;
+
+	/** The number of removed chunks that still use a position. */
+	private int removedCount = 0;
+
+	/** The upper 64 bits of the chunk hashes. */
+	private long[] hashHigh;
+
+	/** The lower 64 bits of the chunk hashes. */
+	private long[] hashLow;
+
+	/** The origin IDs of the chunks. This is {@link #NONE} for removed chunks. */
+	private int[] chunkOrigins;
+
+	/**
+	 * The positional data of the chunks, using {@link #CHUNK_INTS} ints for
+	 * each chunk.
+	 */
+	private int[] chunkData;
+
+	/** Index of the next chunk with the same hash or {@link #NONE}. */
+	private int[] nextByHash;
+
+	/** Index of the next chunk with the same origin or {@link #NONE}. */
+	private int[] nextByOrigin;
+
+	/** Maps origin names to their IDs. */
+	private final Map<String, Integer> originIds = new HashMap<String, Integer>();
+
+	/** The origin names indexed by origin ID. */
+	private final List<String> originNames = new ArrayList<String>();
+
+	/** Index of the first chunk for each origin ID or {@link #NONE}. */
+	private int[] originFirst = new int[INITIAL_CAPACITY];
+
+	/** Index of the last chunk for each origin ID or {@link #NONE}. */
+	private int[] originLast = new int[INITIAL_CAPACITY];
+
+	/** The number of slots used in the hash table. */
+	private int tableUsed;
+
+	/** The upper 64 bits of the hashes stored in the hash table slots. */
+	private long[] tableHigh;
+
+	/** The lower 64 bits of the hashes stored in the hash table slots. */
+	private long[] tableLow;
+
+	/**
+	 * Index of the first chunk for each hash table slot. This is {@link #FREE}
+	 * for unused slots and {@link #NONE} for slots whose chunks were all
+	 * removed.
+	 */
+	private int[] tableFirst;
+
+	/** Index of the last chunk for each hash table slot. */
+	private int[] tableLast;
+
+	/** Constructor. */
+	public PackedMemoryCloneIndexStore() {
+		allocateChunks(INITIAL_CAPACITY);
+		allocateTable(2 * INITIAL_CAPACITY);
+	}
+
+	/** Allocates empty chunk arrays of the given capacity. */
+	private void allocateChunks(int capacity) {
+		hashHigh = new long[capacity];
+		hashLow = new long[capacity];
+		chunkOrigins = new int[capacity];
+		chunkData = new int[capacity * CHUNK_INTS];
+		nextByHash = new int[capacity];
+		nextByOrigin = new int[capacity];
+	}
+
+	/**
+	 * Allocates an empty hash table of the given length, which must be a power
+	 * of two.
+	 */
+	private void allocateTable(int length) {
+		tableUsed = 0;
+		tableHigh = new long[length];
+		tableLow = new long[length];
+		tableFirst = new int[length];
+		tableLast = new int[length];
+		Arrays.fill(tableFirst, FREE);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void batchInsertChunks(List<Chunk> chunks) {
+		for (Chunk chunk : chunks) {
+			insertChunk(chunk);
+		}
+	}
+
+	/** Inserts a single chunk. */
+	private void insertChunk(Chunk chunk) {
+		byte[] hash = chunk.getChunkHash().getBytes();
+		int index = insertRecord(StorageUtils.extractLong(hash, 0),
+				StorageUtils.extractLong(hash, 8),
+				obtainOriginId(chunk.getOriginId()));
+
+		int offset = index * CHUNK_INTS;
+		chunkData[offset++] = chunk.getFirstUnitIndex();
+		chunkData[offset++] = chunk.getFirstRawLineNumber();
+		chunkData[offset++] = chunk.getLastRawLineNumber();
+		chunkData[offset++] = chunk.getRawStartOffset();
+		chunkData[offset++] = chunk.getRawEndOffset();
+		chunkData[offset] = chunk.getElementUnits();
+	}
+
+	/**
+	 * Appends a chunk record with the given hash and origin and links it into
+	 * the lists by hash and by origin. The positional data has to be filled by
+	 * the caller.
+	 * 
+	 * @return the index of the new record.
+	 */
+	private int insertRecord(long high, long low, int originId) {
+		if (size >= hashHigh.length) {
+			growChunks();
+		}
+
+		int index = size++;
+		hashHigh[index] = high;
+		hashLow[index] = low;
+		chunkOrigins[index] = originId;
+		nextByHash[index] = NONE;
+		nextByOrigin[index] = NONE;
+
+		if (originFirst[originId] == NONE) {
+			originFirst[originId] = index;
+		} else {
+			nextByOrigin[originLast[originId]] = index;
+		}
+		originLast[originId] = index;
+
+		int slot = obtainSlot(high, low);
+		if (tableFirst[slot] == NONE) {
+			tableFirst[slot] = index;
+		} else {
+			nextByHash[tableLast[slot]] = index;
+		}
+		tableLast[slot] = index;
+
+		return index;
+	}
+
+	/** Doubles the capacity of the chunk arrays. */
+	private void growChunks() {
+		int capacity = 2 * hashHigh.length;
+		hashHigh = Arrays.copyOf(hashHigh, capacity);
+		hashLow = Arrays.copyOf(hashLow, capacity);
+		chunkOrigins = Arrays.copyOf(chunkOrigins, capacity);
+		chunkData = Arrays.copyOf(chunkData, capacity * CHUNK_INTS);
+		nextByHash = Arrays.copyOf(nextByHash, capacity);
+		nextByOrigin = Arrays.copyOf(nextByOrigin, capacity);
+	}
+
+	/** Returns the ID for an origin, creating a new one if required. */
+	private int obtainOriginId(String originId) {
+		Integer id = originIds.get(originId);
+		if (id != null) {
+			return id;
+		}
+
+		id = originNames.size();
+		originNames.add(originId);
+		originIds.put(originId, id);
+
+		if (id >= originFirst.length) {
+			originFirst = Arrays.copyOf(originFirst, 2 * originFirst.length);
+			originLast = Arrays.copyOf(originLast, 2 * originLast.length);
+		}
+		originFirst[id] = NONE;
+		originLast[id] = NONE;
+		return id;
+	}
+
+	/**
+	 * Returns the hash table slot for the given hash. If the hash is not yet
+	 * contained, a new slot is claimed, growing the table if required.
+	 */
+	private int obtainSlot(long high, long low) {
+		if (2 * (tableUsed + 1) > tableFirst.length) {
+			rehash();
+		}
+
+		int slot = findSlot(high, low);
+		if (tableFirst[slot] == FREE) {
+			tableHigh[slot] = high;
+			tableLow[slot] = low;
+			tableFirst[slot] = NONE;
+			tableLast[slot] = NONE;
+			tableUsed += 1;
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of the hash table that contains the given hash or the
+	 * free slot where it would have to be inserted.
+	 */
+	private int findSlot(long high, long low) {
+		int mask = tableFirst.length - 1;
+		int slot = (int) (high ^ (high >>> 32)) & mask;
+		while (tableFirst[slot] != FREE
+				&& (tableHigh[slot] != high || tableLow[slot] != low)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Rebuilds the hash table with a size suitable for the number of hashes
+	 * with chunks. Slots whose chunks were all removed are dropped.
+	 */
+	private void rehash() {
+		long[] oldHigh = tableHigh;
+		long[] oldLow = tableLow;
+		int[] oldFirst = tableFirst;
+		int[] oldLast = tableLast;
+
+		int used = 0;
+		for (int first : oldFirst) {
+			if (first >= 0) {
+				used += 1;
+			}
+		}
+
+		int length = 2 * INITIAL_CAPACITY;
+		while (length < 4 * (used + 1)) {
+			length *= 2;
+		}
+		allocateTable(length);
+
+		for (int i = 0; i < oldFirst.length; ++i) {
+			if (oldFirst[i] >= 0) {
+				int slot = findSlot(oldHigh[i], oldLow[i]);
+				tableHigh[slot] = oldHigh[i];
+				tableLow[slot] = oldLow[i];
+				tableFirst[slot] = oldFirst[i];
+				tableLast[slot] = oldLast[i];
+				tableUsed += 1;
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void removeChunks(String originId) {
+		Integer id = originIds.get(originId);
+		if (id == null || originFirst[id] == NONE) {
+			return;
+		}
+
+		for (int index = originFirst[id]; index != NONE; index = nextByOrigin[index]) {
+			unlinkFromHashList(index);
+			chunkOrigins[index] = NONE;
+			removedCount += 1;
+		}
+		originFirst[id] = NONE;
+		originLast[id] = NONE;
+
+		if (2 * removedCount > size) {
+			compact();
+		}
+	}
+
+	/** Removes the chunk with the given index from the list of its hash. */
+	private void unlinkFromHashList(int index) {
+		int slot = findSlot(hashHigh[index], hashLow[index]);
+		int previous = NONE;
+		int current = tableFirst[slot];
+		while (current != index) {
+			previous = current;
+			current = nextByHash[current];
+		}
+
+		if (previous == NONE) {
+			tableFirst[slot] = nextByHash[index];
+		} else {
+			nextByHash[previous] = nextByHash[index];
+		}
+		if (tableLast[slot] == index) {
+			tableLast[slot] = previous;
+		}
+	}
+
+	/**
+	 * Rebuilds all arrays from the chunks that have not been removed. The
+	 * order of the remaining chunks is preserved.
+	 */
+	private void compact() {
+		int oldSize = size;
+		long[] oldHigh = hashHigh;
+		long[] oldLow = hashLow;
+		int[] oldOrigins = chunkOrigins;
+		int[] oldData = chunkData;
+
+		allocateChunks(Math.max(INITIAL_CAPACITY, 2 * (size - removedCount)));
+		allocateTable(2 * INITIAL_CAPACITY);
+		Arrays.fill(originFirst, NONE);
+		Arrays.fill(originLast, NONE);
+		size = 0;
+		removedCount = 0;
+
+		for (int i = 0; i < oldSize; ++i) {
+			if (oldOrigins[i] != NONE) {
+				int index = insertRecord(oldHigh[i], oldLow[i], oldOrigins[i]);
+				System.arraycopy(oldData, i * CHUNK_INTS, chunkData, index
+						* CHUNK_INTS, CHUNK_INTS);
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<Chunk> getChunksByOrigin(String originId) {
+		Integer id = originIds.get(originId);
+		if (id == null || originFirst[id] == NONE) {
+			return null;
+		}
+
+		List<Chunk> result = new ArrayList<Chunk>();
+		for (int index = originFirst[id]; index != NONE; index = nextByOrigin[index]) {
+			result.add(extractChunk(index));
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public UnmodifiableList<Chunk> getChunksByHashes(Set<MD5Digest> chunkHashes) {
+		List<Chunk> result = new ArrayList<Chunk>();
+		for (MD5Digest chunkHash : chunkHashes) {
+			byte[] hash = chunkHash.getBytes();
+			int slot = findSlot(StorageUtils.extractLong(hash, 0),
+					StorageUtils.extractLong(hash, 8));
+			for (int index = tableFirst[slot]; index >= 0; index = nextByHash[index]) {
+				result.add(extractChunk(index));
+			}
+		}
+		return CollectionUtils.asUnmodifiable(result);
+	}
+
+	/** Creates the chunk stored at the given index. */
+	private Chunk extractChunk(int index) {
+		byte[] hash = new byte[MD5Digest.MD5_BYTES];
+		StorageUtils.insertLong(hashHigh[index], hash, 0);
+		StorageUtils.insertLong(hashLow[index], hash, 8);
+
+		int offset = index * CHUNK_INTS;
+		return new Chunk(originNames.get(chunkOrigins[index]), new MD5Digest(
+				hash), chunkData[offset], chunkData[offset + 1],
+				chunkData[offset + 2], chunkData[offset + 3],
+				chunkData[offset + 4], chunkData[offset + 5]);
+	}
+}
\ No newline at end of file
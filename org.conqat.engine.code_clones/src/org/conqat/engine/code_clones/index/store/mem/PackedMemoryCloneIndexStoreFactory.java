@@ -0,0 +1,46 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.store.mem;
+
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.commons.ConQATProcessorBase;
+import org.conqat.engine.core.core.AConQATProcessor;
+
+/**
+ * {@ConQAT.Doc}
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = ""
+		+ "Factory for a clone index store that keeps all data in packed primitive arrays in memory. "
+		+ "This store is memory efficient and causes little garbage collection load, "
+		+ "while updates are still cheap. "
+		+ "No disk access is needed but also nothing will be persisted for later use. "
+		+ "Memory consumption is approximately number of units in the system multiplied by "
+		+ PackedMemoryCloneIndexStore.BYTES_PER_CHUNK
+		+ " bytes plus up to 96 bytes for each distinct chunk hash.")
+public class PackedMemoryCloneIndexStoreFactory extends ConQATProcessorBase {
+
+	/** {@inheritDoc} */
+	@Override
+	public ICloneIndexStore process() {
+		// no need to close this in the end
+		return new PackedMemoryCloneIndexStore();
+	}
+}
\ No newline at end of file
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.conqat.engine.code_clones.index.Chunk;
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
 import org.conqat.lib.commons.collections.CollectionUtils;
 import org.conqat.lib.commons.collections.ISortableData;
 import org.conqat.lib.commons.collections.SortableDataUtils;
@@ -202,9 +203,15 @@ public class SortedMemoryCloneIndexStore extends MemoryStoreBase {
 		byOriginIndices = new int[2 * byOriginIndices.length];
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This is synchronized (as is {@link #getChunksByHashes(Set)}) to support
+	 * concurrent reads (see {@link ICloneIndexStore}), as reading may trigger
+	 * sorting and the search uses the free slot behind the data.
+	 */
 	@Override
-	public List<Chunk> getChunksByOrigin(String originId) {
+	public synchronized List<Chunk> getChunksByOrigin(String originId) {
 		ensureClean();
 
 		originId = originId.intern();
@@ -249,7 +256,8 @@ public class SortedMemoryCloneIndexStore extends MemoryStoreBase {
 
 	/** {@inheritDoc} */
 	@Override
-	public UnmodifiableList<Chunk> getChunksByHashes(Set<MD5Digest> chunkHashes) {
+	public synchronized UnmodifiableList<Chunk> getChunksByHashes(
+			Set<MD5Digest> chunkHashes) {
 		ensureClean();
 
 		List<Chunk> result = new ArrayList<Chunk>();
@@ -86,6 +86,7 @@ public class CloneClassNode extends ConQATNodeBase {
 
 	/** Add a new node. */
 	/* package */void addChild(CloneNode node) {
+		checkNotFrozen();
 		children.add(node);
 		node.setParent(this);
 	}
@@ -128,11 +129,13 @@ public class CloneClassNode extends ConQATNodeBase {
 
 	/** Set the parent for this node. */
 	/* package */void setParent(DetectionResultRootNode node) {
+		checkNotFrozen();
 		parent = node;
 	}
 
 	/** Removes the given node from the child list. */
 	/* package */void removeNode(CloneNode node) {
+		checkNotFrozen();
 		children.remove(node);
 	}
 
@@ -105,6 +105,7 @@ public class CloneNode extends ConQATNodeBase {
 
 	/** Set the parent. */
 	/* package */void setParent(CloneClassNode node) {
+		checkNotFrozen();
 		parent = node;
 	}
 }
\ No newline at end of file
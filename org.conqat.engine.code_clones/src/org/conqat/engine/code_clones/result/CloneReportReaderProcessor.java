@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.conqat.engine.code_clones.core.report.BinaryCloneReportReader;
 import org.conqat.engine.code_clones.core.report.CloneReportReader;
 import org.conqat.engine.code_clones.core.report.SourceElementDescriptor;
 import org.conqat.engine.code_clones.detection.CloneDetectionResultElement;
@@ -58,7 +59,8 @@ import org.conqat.lib.commons.string.StringUtils;
 @AConQATProcessor(description = ""
 		+ "Processor that reads clone reports and creates a"
 		+ "{@link CloneDetectionResultElement} that can be used just as the result of a"
-		+ "clone detection processor.")
+		+ "clone detection processor. Both the XML and the binary report format "
+		+ "are supported and detected automatically.")
 public class CloneReportReaderProcessor extends ConQATProcessorBase {
 
 	/** Factory for creating {@link TextContainer}s. */
@@ -101,6 +103,10 @@ public class CloneReportReaderProcessor extends ConQATProcessorBase {
 	/** {@inheritDoc} */
 	@Override
 	public CloneDetectionResultElement process() throws ConQATException {
+		if (BinaryCloneReportReader.isBinaryReport(reportFile)) {
+			return readBinaryReport();
+		}
+
 		CloneReportReader reader = new CloneReportReader(reportFile);
 		ITextResource root = createElementTree(reader
 				.getSourceElementDescriptors());
@@ -108,6 +114,21 @@ public class CloneReportReaderProcessor extends ConQATProcessorBase {
 				reader.getCloneClasses());
 	}
 
+	/** Reads a report in the binary format. */
+	private CloneDetectionResultElement readBinaryReport()
+			throws ConQATException {
+		BinaryCloneReportReader reader = new BinaryCloneReportReader(
+				reportFile);
+		try {
+			ITextResource root = createElementTree(reader
+					.getSourceElementDescriptors());
+			return new CloneDetectionResultElement(reader.getSystemDate(),
+					root, reader.getCloneClasses());
+		} finally {
+			reader.close();
+		}
+	}
+
 	/** Build an element tree from the file information in the clone report */
 	private ITextResource createElementTree(
 			List<SourceElementDescriptor> sourceFiles) throws ConQATException {
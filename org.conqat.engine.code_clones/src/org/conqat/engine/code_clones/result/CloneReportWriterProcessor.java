@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.code_clones.core.report.BinaryCloneReportWriter;
 import org.conqat.engine.code_clones.core.report.CloneReportWriter;
 import org.conqat.engine.code_clones.core.report.SourceElementDescriptor;
 import org.conqat.engine.code_clones.core.utils.CloneUtils;
@@ -31,6 +32,7 @@ import org.conqat.engine.code_clones.detection.CloneDetectionResultElement;
 import org.conqat.engine.commons.ConQATParamDoc;
 import org.conqat.engine.commons.sorting.NodeIdComparator;
 import org.conqat.engine.core.core.AConQATAttribute;
+import org.conqat.engine.core.core.AConQATFieldParameter;
 import org.conqat.engine.core.core.AConQATParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
 import org.conqat.engine.core.core.ConQATException;
@@ -49,7 +51,7 @@ import org.conqat.lib.commons.string.StringUtils;
  * @version $Revision: 45195 $
  * @ConQAT.Rating GREEN Hash: E66869602085AE7A38AD821C3E873A91
  */
-@AConQATProcessor(description = "Processor that writes a clone detection result file in xml format."
+@AConQATProcessor(description = "Processor that writes a clone detection result file in xml format (or optionally in a compact binary format)."
 		+ "The actual xml processing is performed in class {@link CloneReportWriter}."
 		+ "The main job of this class is to make {@link CloneReportWriter} accessible in"
 		+ "a ConQAT clone detection configuration. This separation allows for the use of"
@@ -59,6 +61,12 @@ public class CloneReportWriterProcessor extends CloneReportWriterProcessorBase {
 	/** Clone detection result for which report gets written */
 	private CloneDetectionResultElement detectionResult;
 
+	/** {@ConQAT.Doc} */
+	@AConQATFieldParameter(parameter = "binary", attribute = "value", optional = true, description = ""
+			+ "If this is set to true (default is false), the report is written in the compact binary format "
+			+ "instead of XML. Binary reports can be read by the CloneReportReaderProcessor as well.")
+	public boolean binary = false;
+
 	/** {@ConQAT.Doc} */
 	@AConQATParameter(name = "detection-result", description = ConQATParamDoc.INPUT_DESC, minOccurrences = 1, maxOccurrences = 1)
 	public void setDetectionResult(
@@ -70,8 +78,15 @@ public class CloneReportWriterProcessor extends CloneReportWriterProcessorBase {
 	@Override
 	protected void doWriteReport() throws ConQATException {
 		List<CloneClass> cloneClasses = detectionResult.getList();
-		writeReport(cloneClasses, detectionResult.getRoot(),
-				detectionResult.getSystemDate(), targetFile, getLogger());
+		if (binary) {
+			BinaryCloneReportWriter.writeReport(cloneClasses,
+					createSourceElementDescriptors(detectionResult.getRoot(),
+							getLogger()), null, detectionResult
+							.getSystemDate(), targetFile, false);
+		} else {
+			writeReport(cloneClasses, detectionResult.getRoot(),
+					detectionResult.getSystemDate(), targetFile, getLogger());
+		}
 
 		getLogger().info("Clone classes: " + cloneClasses.size());
 		getLogger().info("Clones: " + CloneUtils.countClones(cloneClasses));
@@ -69,6 +69,7 @@ public class DetectionResultRootNode extends ConQATNodeBase {
 
 	/** Add a child node to this node. */
 	/* package */void addChild(CloneClassNode node) {
+		checkNotFrozen();
 		children.add(node);
 		node.setParent(this);
 	}
@@ -111,6 +112,7 @@ public class DetectionResultRootNode extends ConQATNodeBase {
 
 	/** Remove the given node. */
 	/* package */void removeNode(CloneClassNode node) {
+		checkNotFrozen();
 		children.remove(node);
 	}
 }
\ No newline at end of file
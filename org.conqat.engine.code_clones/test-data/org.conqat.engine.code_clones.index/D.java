@@ -0,0 +1,20 @@
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
+System.out.println("This is a statement");
\ No newline at end of file
@@ -0,0 +1,83 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.core.constraint;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.commons.findings.location.TextRegionLocation;
+import org.conqat.lib.commons.test.CCSMTestCaseBase;
+
+/**
+ * Tests the {@link NonOverlappingConstraint}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class NonOverlappingConstraintTest extends CCSMTestCaseBase {
+
+	/** Tests clone classes without overlapping clones. */
+	public void testNonOverlapping() {
+		assertSatisfied(true, "A", 0, 9, "A", 10, 19);
+		assertSatisfied(true, "A", 20, 29, "A", 0, 9, "A", 10, 19);
+		assertSatisfied(true, "A", 0, 9, "B", 0, 9);
+	}
+
+	/** Tests clone classes with overlapping clones. */
+	public void testOverlapping() {
+		assertSatisfied(false, "A", 0, 10, "A", 10, 19);
+		assertSatisfied(false, "A", 50, 59, "A", 0, 9, "A", 5, 7);
+		assertSatisfied(false, "B", 0, 9, "A", 100, 200, "A", 0, 300);
+	}
+
+	/** Tests a clone class with many clones in the same file. */
+	public void testManyClones() {
+		CloneClass cloneClass = new CloneClass(10, 0);
+		for (int i = 0; i < 1000; ++i) {
+			int start = (i * 7919 % 1000) * 100;
+			addClone(cloneClass, "A", start, start + 99);
+		}
+		NonOverlappingConstraint constraint = new NonOverlappingConstraint();
+		assertTrue(constraint.satisfied(cloneClass));
+
+		addClone(cloneClass, "A", 12345, 12345);
+		assertFalse(constraint.satisfied(cloneClass));
+	}
+
+	/**
+	 * Asserts whether the constraint is satisfied for a clone class whose
+	 * clones are given as triples of uniform path, start offset and end
+	 * offset.
+	 */
+	private static void assertSatisfied(boolean expected, Object... clones) {
+		CloneClass cloneClass = new CloneClass(10, 0);
+		for (int i = 0; i < clones.length; i += 3) {
+			addClone(cloneClass, (String) clones[i], (Integer) clones[i + 1],
+					(Integer) clones[i + 2]);
+		}
+		assertEquals(expected,
+				new NonOverlappingConstraint().satisfied(cloneClass));
+	}
+
+	/** Adds a clone with the given offsets to the clone class. */
+	private static void addClone(CloneClass cloneClass, String uniformPath,
+			int startOffset, int endOffset) {
+		new Clone(cloneClass.size(), cloneClass, new TextRegionLocation(
+				uniformPath, uniformPath, startOffset, endOffset, 1, 1),
+				startOffset, 1, "fingerprint");
+	}
+}
@@ -0,0 +1,130 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.core.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.test.CCSMTestCaseBase;
+
+/**
+ * Tests the {@link BinaryCloneReportWriter}, the
+ * {@link BinaryCloneReportReader} and the {@link CloneReportConverter}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class BinaryCloneReportTest extends CCSMTestCaseBase {
+
+	/** Tests that converting to binary and back preserves the XML report. */
+	public void testRoundTrip() throws ConQATException, IOException {
+		File xmlReport = useTestFile("Clones.xml");
+		File binaryReport = new File(getTmpDirectory(), "report.bin");
+		File convertedReport = new File(getTmpDirectory(), "converted.xml");
+
+		assertFalse(BinaryCloneReportReader.isBinaryReport(xmlReport));
+		CloneReportConverter.convert(xmlReport, binaryReport);
+		assertTrue(BinaryCloneReportReader.isBinaryReport(binaryReport));
+		CloneReportConverter.convert(binaryReport, convertedReport);
+
+		File expectedReport = new File(getTmpDirectory(), "expected.xml");
+		CloneReportReader reader = new CloneReportReader(xmlReport);
+		Map<String, SourceElementDescriptor> descriptorMap = new HashMap<String, SourceElementDescriptor>();
+		for (SourceElementDescriptor descriptor : reader
+				.getSourceElementDescriptors()) {
+			descriptorMap.put(descriptor.getUniformPath(), descriptor);
+		}
+		CloneReportWriter.writeReport(reader.getCloneClasses(), descriptorMap,
+				reader.getRootValues(), reader.getSystemDate(),
+				expectedReport, true);
+
+		assertEquals(FileSystemUtils.readFileUTF8(expectedReport),
+				FileSystemUtils.readFileUTF8(convertedReport));
+		assertTrue(binaryReport.length() < xmlReport.length());
+	}
+
+	/** Tests random access to the clone classes. */
+	public void testRandomAccess() throws ConQATException {
+		File binaryReport = new File(getTmpDirectory(), "report.bin");
+		CloneReportConverter.convert(useTestFile("Clones.xml"), binaryReport);
+
+		List<CloneClass> expected = new CloneReportReader(
+				useTestFile("Clones.xml")).getCloneClasses();
+		BinaryCloneReportReader reader = new BinaryCloneReportReader(
+				binaryReport);
+		try {
+			assertEquals(expected.size(), reader.getCloneClassCount());
+			assertEquals("42", reader.getRootValues().getValue("foo")
+					.toString());
+
+			// read in reverse order to ensure independence of records
+			for (int i = reader.getCloneClassCount() - 1; i >= 0; --i) {
+				CloneClass cloneClass = reader.getCloneClass(i);
+				CloneClass expectedClass = findCloneClass(expected,
+						cloneClass.getId());
+				assertEquals(expectedClass.getNormalizedLength(),
+						cloneClass.getNormalizedLength());
+				assertEquals(expectedClass.size(), cloneClass.size());
+				for (Clone clone : cloneClass.getClones()) {
+					assertTrue(expectedClass.getClones().contains(clone));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/** Tests that no partial report is left behind if writing fails. */
+	public void testFailedWriteDeletesReport() throws ConQATException {
+		File binaryReport = new File(getTmpDirectory(), "failed.bin");
+		CloneReportReader reader = new CloneReportReader(
+				useTestFile("Clones.xml"));
+
+		// the clones refer to unknown elements, which causes a failure
+		boolean failed = false;
+		try {
+			BinaryCloneReportWriter.writeReport(reader.getCloneClasses(),
+					new HashMap<String, SourceElementDescriptor>(),
+					reader.getRootValues(), reader.getSystemDate(),
+					binaryReport, true);
+		} catch (AssertionError e) {
+			failed = true;
+		}
+		assertTrue(failed);
+		assertFalse(binaryReport.exists());
+	}
+
+	/** Returns the clone class with the given ID. */
+	private static CloneClass findCloneClass(List<CloneClass> cloneClasses,
+			long id) {
+		for (CloneClass cloneClass : cloneClasses) {
+			if (cloneClass.getId() == id) {
+				return cloneClass;
+			}
+		}
+		fail("Clone class " + id + " not found");
+		return null;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.detection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.conqat.engine.code_clones.core.Unit;
+import org.conqat.engine.code_clones.lazyscope.TokenElementProvider;
+import org.conqat.engine.code_clones.normalization.provider.IUnitProvider;
+import org.conqat.engine.code_clones.normalization.statement.StatementNormalization;
+import org.conqat.engine.code_clones.normalization.token.TokenProvider;
+import org.conqat.engine.code_clones.normalization.token.configuration.ITokenConfiguration;
+import org.conqat.engine.code_clones.normalization.token.configuration.TokenConfigurationDef;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.logging.testutils.LoggerMock;
+import org.conqat.engine.core.logging.testutils.ProcessorInfoMock;
+import org.conqat.engine.resource.text.ITextResource;
+import org.conqat.engine.resource.util.ResourceTraversalUtils;
+import org.conqat.engine.sourcecode.resource.ITokenElement;
+import org.conqat.engine.sourcecode.resource.ITokenResource;
+import org.conqat.engine.sourcecode.resource.TokenTestCaseBase;
+
+/**
+ * Tests the {@link UnitDrain}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class UnitDrainTest extends TokenTestCaseBase {
+
+	/**
+	 * Tests that parallel draining (both with and without multiple threads)
+	 * yields exactly the same units as sequential draining.
+	 */
+	public void testParallelDrainMatchesSequential() throws ConQATException {
+		String expected = drain(1, new ProcessorInfoMock());
+		assertTrue("Test data should contain units", expected.length() > 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int workers = 2; workers <= 4; ++workers) {
+				assertEquals(expected, drain(workers, new ProcessorInfoMock()));
+				assertEquals(expected, drain(workers, new ProcessorInfoMock(
+						new LoggerMock(), executor)));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Drains the units of the test data using the given number of workers and
+	 * returns a description of the units and unit counts.
+	 */
+	private String drain(int workers, ProcessorInfoMock processorInfo)
+			throws ConQATException {
+		ITokenResource root = createTokenResourceHierarchyFor(useTestFile(""));
+		List<Unit> units = new ArrayList<Unit>();
+		new UnitDrain(processorInfo, null, null, false, workers).drainUnits(
+				root, createNormalization(), units);
+
+		StringBuilder result = new StringBuilder();
+		for (Unit unit : units) {
+			result.append(unit.getClass().getSimpleName() + " "
+					+ unit.getElementUniformPath() + " "
+					+ unit.getFilteredStartOffset() + " "
+					+ unit.getIndexInElement());
+			// sentinels are numbered globally, so we skip their content
+			if (!(unit instanceof SentinelUnit)) {
+				result.append(" " + unit.getContent());
+			}
+			result.append("\n");
+		}
+		for (ITokenElement element : ResourceTraversalUtils.listElements(
+				root, ITokenElement.class)) {
+			result.append(element.getUniformPath() + ": "
+					+ element.getValue(UnitProcessorBase.UNITS_KEY) + "\n");
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Creates the normalization used. The cast is required as the generic
+	 * parameters of the {@link IUnitProvider} are not checked by ConQAT.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static IUnitProvider<ITextResource, Unit> createNormalization() {
+		TokenConfigurationDef configuration = new TokenConfigurationDef();
+		configuration.setAll();
+		return (IUnitProvider) new StatementNormalization(new TokenProvider(
+				new TokenElementProvider()),
+				new ArrayList<ITokenConfiguration>(), configuration);
+	}
+}
\ No newline at end of file
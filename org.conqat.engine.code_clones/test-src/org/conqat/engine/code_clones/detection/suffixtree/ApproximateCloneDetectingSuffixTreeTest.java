@@ -44,6 +44,23 @@ public class ApproximateCloneDetectingSuffixTreeTest extends
 		assertCloneClass(cloneClasses.get(1), "jumps", "jumps");
 	}
 
+	/**
+	 * Tests a long clone whose alignment runs along the border of the band of
+	 * allowed errors, i.e. an insertion early and a deletion late in the
+	 * clone.
+	 */
+	public void testApproximateAtBandBorder() throws ConQATException {
+		List<Character> word = SuffixTreeTest
+				.stringToList("THE_QUICK_BROWN_FOX_JUMPS_OVER_THE_LAZY_DOG123"
+						+ "THE_QUICKK_BROWN_FOX_JUMPS_OVER_THE_LAY_DOG");
+
+		List<List<String>> cloneClasses = findClones(word, 2, 10);
+
+		assertCloneClass(cloneClasses.get(0),
+				"THE_QUICK_BROWN_FOX_JUMPS_OVER_THE_LAZY_DOG",
+				"THE_QUICKK_BROWN_FOX_JUMPS_OVER_THE_LAY_DOG");
+	}
+
 	/** Simple test case 1. */
 	public void testSimple1() throws ConQATException {
 		testSingleCloneClass("abXc123abYc", "abXc", "abYc");
@@ -0,0 +1,210 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.detection.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.detection.suffixtree.CloneDetectingSuffixTreeTest.CloneConsumer;
+import org.conqat.engine.core.core.ConQATException;
+
+/**
+ * Tests for the {@link CloneDetectingSuffixArray}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CloneDetectingSuffixArrayTest extends
+		CloneDetectingSuffixTreeTestBase {
+
+	/** Detects clones in a string */
+	@Override
+	protected List<List<String>> findClones(List<Character> word)
+			throws ConQATException {
+		word.add('$'); // append sentinel
+		CloneConsumer consumer = new CloneConsumer(word);
+		CloneDetectingSuffixArray suffixArray = new CloneDetectingSuffixArray(
+				word);
+		suffixArray.findClones(2, consumer);
+		return consumer.getCloneClasses();
+	}
+
+	/** Compares the suffix array construction with naive sorting. */
+	public void testSuffixArrayConstruction() {
+		Random random = new Random(42);
+		for (int run = 0; run < 200; ++run) {
+			int alphabetSize = 1 + random.nextInt(4);
+			final int[] s = new int[random.nextInt(50)];
+			for (int i = 0; i < s.length; ++i) {
+				s[i] = random.nextInt(alphabetSize);
+			}
+
+			Integer[] expected = new Integer[s.length];
+			for (int i = 0; i < s.length; ++i) {
+				expected[i] = i;
+			}
+			Arrays.sort(expected, new SuffixComparator(s));
+
+			int[] suffixArray = SuffixArray.constructSuffixArray(s,
+					alphabetSize - 1);
+			int[] lcp = SuffixArray.constructLcpArray(s, suffixArray);
+			for (int i = 0; i < s.length; ++i) {
+				assertEquals((int) expected[i], suffixArray[i]);
+				if (i > 0) {
+					assertEquals(commonPrefix(s, suffixArray[i - 1],
+							suffixArray[i]), lcp[i]);
+				}
+			}
+		}
+	}
+
+	/** Tests {@link SuffixArray#containsWord(List)}. */
+	public void testContainsWord() {
+		String s = "Test basic behaviour of the suffix array abcabcabc";
+		SuffixArray suffixArray = new SuffixArray(
+				SuffixTreeTest.stringToList(s));
+
+		for (int i = 0; i < s.length(); ++i) {
+			for (int j = i + 1; j <= s.length(); ++j) {
+				assertTrue(suffixArray.containsWord(SuffixTreeTest
+						.stringToList(s.substring(i, j))));
+			}
+		}
+		for (String test : new String[] { "abd", "xyz", s + "a" }) {
+			assertFalse(suffixArray.containsWord(SuffixTreeTest
+					.stringToList(test)));
+		}
+	}
+
+	/**
+	 * Compares the clones found by the suffix array with those of the suffix
+	 * tree for random words with several sentinels.
+	 */
+	public void testCompareWithSuffixTree() throws ConQATException {
+		Random random = new Random(17);
+		for (int run = 0; run < 100; ++run) {
+			List<Object> word = new ArrayList<Object>();
+			int length = 50 + random.nextInt(500);
+			for (int i = 0; i < length; ++i) {
+				if (random.nextInt(40) == 0) {
+					word.add(new SuffixTree.Sentinel());
+				} else {
+					word.add(random.nextInt(3));
+				}
+			}
+			word.add(new SuffixTree.Sentinel());
+
+			int minLength = 1 + random.nextInt(6);
+			PositionConsumer treeConsumer = new PositionConsumer();
+			new CloneDetectingSuffixTree(word).findClones(minLength,
+					treeConsumer);
+			PositionConsumer arrayConsumer = new PositionConsumer();
+			new CloneDetectingSuffixArray(word).findClones(minLength,
+					arrayConsumer);
+
+			assertEquals(treeConsumer.getSortedCloneClasses(),
+					arrayConsumer.getSortedCloneClasses());
+		}
+	}
+
+	/** Returns the length of the common prefix of two suffixes. */
+	private static int commonPrefix(int[] s, int start1, int start2) {
+		int length = 0;
+		while (start1 + length < s.length && start2 + length < s.length
+				&& s[start1 + length] == s[start2 + length]) {
+			++length;
+		}
+		return length;
+	}
+
+	/** Compares suffixes of an int array lexicographically. */
+	private static class SuffixComparator implements
+			Comparator<Integer> {
+
+		/** The string. */
+		private final int[] s;
+
+		/** Constructor. */
+		public SuffixComparator(int[] s) {
+			this.s = s;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int compare(Integer start1, Integer start2) {
+			int length = commonPrefix(s, start1, start2);
+			if (start1 + length == s.length) {
+				return -1;
+			}
+			if (start2 + length == s.length) {
+				return 1;
+			}
+			return s[start1 + length] - s[start2 + length];
+		}
+	}
+
+	/**
+	 * Consumer that records clone classes as strings of length and sorted
+	 * positions.
+	 */
+	private static class PositionConsumer implements ICloneReporter {
+
+		/** The clone classes found. */
+		private final List<String> cloneClasses = new ArrayList<String>();
+
+		/** The length of the current clone class. */
+		private int currentLength;
+
+		/** The positions of the current clone class. */
+		private final List<Integer> currentPositions = new ArrayList<Integer>();
+
+		/** {@inheritDoc} */
+		@Override
+		public void startCloneClass(int normalizedLength) {
+			currentLength = normalizedLength;
+			currentPositions.clear();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Clone addClone(int globalPosition, int length) {
+			assertEquals(currentLength, length);
+			currentPositions.add(globalPosition);
+			return null;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean completeCloneClass() {
+			Collections.sort(currentPositions);
+			cloneClasses.add(currentLength + ":" + currentPositions);
+			return true;
+		}
+
+		/** Returns the clone classes in sorted order. */
+		public List<String> getSortedCloneClasses() {
+			Collections.sort(cloneClasses);
+			return cloneClasses;
+		}
+	}
+}
\ No newline at end of file
@@ -56,6 +56,36 @@ public class SuffixTreeTest extends TestCase {
 
 	}
 
+	/**
+	 * Tests that distinct sentinels are treated as distinct characters, while
+	 * equal (but not identical) characters are treated as the same.
+	 */
+	public void testSentinels() {
+		SuffixTree.Sentinel first = new SuffixTree.Sentinel();
+		SuffixTree.Sentinel second = new SuffixTree.Sentinel();
+
+		List<Object> word = new ArrayList<Object>();
+		word.add(new String("ab"));
+		word.add(first);
+		word.add(new String("ab"));
+		word.add(second);
+		SuffixTree stree = new SuffixTree(word);
+
+		List<Object> find = new ArrayList<Object>();
+		find.add(new String("ab"));
+		find.add(second);
+		assertTrue(stree.containsWord(find));
+
+		find.set(1, new SuffixTree.Sentinel());
+		assertFalse(stree.containsWord(find));
+
+		find.clear();
+		find.add(first);
+		find.add("ab");
+		find.add(first);
+		assertFalse(stree.containsWord(find));
+	}
+
 	/** Creates a list of its characters for a given string. */
 	public static List<Character> stringToList(String s) {
 		List<Character> result = new ArrayList<Character>();
@@ -0,0 +1,166 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.code_clones.index.store.file.FileCloneIndexStore;
+import org.conqat.engine.code_clones.index.store.mem.InMemoryCloneIndexStore;
+import org.conqat.engine.code_clones.index.store.mem.PackedMemoryCloneIndexStore;
+import org.conqat.engine.code_clones.index.store.mem.SortedMemoryCloneIndexStore;
+import org.conqat.engine.code_clones.lazyscope.TokenElementProvider;
+import org.conqat.engine.code_clones.normalization.statement.StatementNormalization;
+import org.conqat.engine.code_clones.normalization.token.TokenProvider;
+import org.conqat.engine.code_clones.normalization.token.configuration.ITokenConfiguration;
+import org.conqat.engine.code_clones.normalization.token.configuration.TokenConfigurationDef;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.logging.testutils.LoggerMock;
+import org.conqat.engine.core.logging.testutils.ProcessorInfoMock;
+import org.conqat.engine.resource.util.ResourceTraversalUtils;
+import org.conqat.engine.sourcecode.resource.ITokenElement;
+import org.conqat.engine.sourcecode.resource.ITokenResource;
+import org.conqat.engine.sourcecode.resource.TokenTestCaseBase;
+import org.conqat.lib.scanner.ELanguage;
+
+/**
+ * Tests the {@link CloneIndexCloneDetector}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CloneIndexCloneDetectorTest extends TokenTestCaseBase {
+
+	/** The chunk length used for the index. */
+	private static final int CHUNK_LENGTH = 3;
+
+	/** The minimal clone length used. */
+	private static final int MIN_LENGTH = 5;
+
+	/** The token scope used for testing. */
+	private ITokenResource root;
+
+	/** {@inheritDoc} */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		root = createTokenResourceHierarchyFor(useTestFile(""));
+	}
+
+	/** Tests sharded detection with the {@link InMemoryCloneIndexStore}. */
+	public void testShardedInMemoryStore() throws ConQATException {
+		assertShardedDetectionMatchesSequential(new InMemoryCloneIndexStore());
+	}
+
+	/** Tests sharded detection with the {@link SortedMemoryCloneIndexStore}. */
+	public void testShardedSortedMemoryStore() throws ConQATException {
+		assertShardedDetectionMatchesSequential(new SortedMemoryCloneIndexStore());
+	}
+
+	/** Tests sharded detection with the {@link PackedMemoryCloneIndexStore}. */
+	public void testShardedPackedMemoryStore() throws ConQATException {
+		assertShardedDetectionMatchesSequential(new PackedMemoryCloneIndexStore());
+	}
+
+	/** Tests sharded detection with the {@link FileCloneIndexStore}. */
+	public void testShardedFileStore() throws ConQATException {
+		FileCloneIndexStore store = new FileCloneIndexStore(new File(
+				getTmpDirectory(), "index"), 50, 2);
+		try {
+			assertShardedDetectionMatchesSequential(store);
+		} finally {
+			store.close();
+		}
+	}
+
+	/**
+	 * Fills the store and asserts that sharded detection (both sequential and
+	 * parallel) yields exactly the same result as the unsharded detection.
+	 */
+	private void assertShardedDetectionMatchesSequential(ICloneIndexStore store)
+			throws ConQATException {
+		fillIndex(store);
+
+		String expected = describe(detect(store, 1, new ProcessorInfoMock()));
+		assertTrue("Test data should contain clones", expected.length() > 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int shards = 2; shards <= 5; ++shards) {
+				assertEquals(expected, describe(detect(store, shards,
+						new ProcessorInfoMock())));
+				assertEquals(expected, describe(detect(store, shards,
+						new ProcessorInfoMock(new LoggerMock(), executor))));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/** Inserts all elements of the test scope into the store. */
+	private void fillIndex(ICloneIndexStore store) throws ConQATException {
+		TokenConfigurationDef configuration = new TokenConfigurationDef();
+		configuration.setAll();
+		PersistedOptions.setChunkLength(store, CHUNK_LENGTH);
+		PersistedOptions.setNormalization(store, ELanguage.JAVA,
+				new StatementNormalization(new TokenProvider(
+						new TokenElementProvider()),
+						new ArrayList<ITokenConfiguration>(), configuration));
+
+		CloneIndex index = new CloneIndex(store, new LoggerMock());
+		for (ITokenElement element : ResourceTraversalUtils
+				.listElements(root, ITokenElement.class)) {
+			index.insertFile(element);
+		}
+	}
+
+	/** Runs the detector using the given number of shards. */
+	private List<CloneClass> detect(ICloneIndexStore store, int shards,
+			ProcessorInfoMock processorInfo) throws ConQATException {
+		CloneIndexCloneDetector detector = new CloneIndexCloneDetector();
+		detector.init(processorInfo);
+		detector.setInput(root);
+		detector.setStoreFactory(store);
+		detector.setMinLength(MIN_LENGTH);
+		detector.setShards(shards);
+		return detector.process().getList();
+	}
+
+	/**
+	 * Returns a string describing the clone classes including IDs and
+	 * locations of all clones in the order they are reported.
+	 */
+	private static String describe(List<CloneClass> cloneClasses) {
+		StringBuilder builder = new StringBuilder();
+		for (CloneClass cloneClass : cloneClasses) {
+			builder.append(cloneClass.getId() + " "
+					+ cloneClass.getNormalizedLength() + ":");
+			for (Clone clone : cloneClass.getClones()) {
+				builder.append(" " + clone.getId() + "@" + clone.getLocation());
+			}
+			builder.append("\n");
+		}
+		return builder.toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.conqat.engine.code_clones.core.Clone;
+import org.conqat.engine.code_clones.core.CloneClass;
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.code_clones.index.store.file.FileCloneIndexStore;
+import org.conqat.engine.code_clones.index.store.mem.InMemoryCloneIndexStore;
+import org.conqat.engine.code_clones.lazyscope.TokenElementProvider;
+import org.conqat.engine.code_clones.normalization.statement.StatementNormalization;
+import org.conqat.engine.code_clones.normalization.token.TokenProvider;
+import org.conqat.engine.code_clones.normalization.token.configuration.ITokenConfiguration;
+import org.conqat.engine.code_clones.normalization.token.configuration.TokenConfigurationDef;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.logging.testutils.LoggerMock;
+import org.conqat.engine.core.logging.testutils.ProcessorInfoMock;
+import org.conqat.engine.resource.util.ResourceTraversalUtils;
+import org.conqat.engine.sourcecode.resource.ITokenElement;
+import org.conqat.engine.sourcecode.resource.ITokenResource;
+import org.conqat.engine.sourcecode.resource.TokenTestCaseBase;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.scanner.ELanguage;
+
+/**
+ * Tests the {@link IncrementalCloneIndexCloneDetector}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class IncrementalCloneIndexCloneDetectorTest extends TokenTestCaseBase {
+
+	/** The chunk length used for the index. */
+	private static final int CHUNK_LENGTH = 3;
+
+	/** The minimal clone length used. */
+	private static final int MIN_LENGTH = 5;
+
+	/** The directory containing the analyzed files. */
+	private File sourceDirectory;
+
+	/** The persistent store used for incremental detection. */
+	private FileCloneIndexStore store;
+
+	/** {@inheritDoc} */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		sourceDirectory = new File(getTmpDirectory(), "src");
+		for (String name : new String[] { "A.java", "B.java", "C.java",
+				"D.java" }) {
+			FileSystemUtils.copyFile(useTestFile(name), new File(
+					sourceDirectory, name));
+		}
+		store = new FileCloneIndexStore(new File(getTmpDirectory(), "index"),
+				50, 2);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void tearDown() throws Exception {
+		store.close();
+		deleteTmpDirectory();
+		super.tearDown();
+	}
+
+	/**
+	 * Tests that consecutive runs only update changed elements and yield the
+	 * same clones as a full detection.
+	 */
+	public void testConsecutiveRuns() throws ConQATException, IOException {
+		ITokenResource root = createTokenResourceHierarchyFor(sourceDirectory);
+		IncrementalCloneIndexCloneDetector detector = runIncremental(root);
+		assertEquals(4, detector.getInsertedCount());
+		assertEquals(0, detector.getRemovedCount());
+
+		root = createTokenResourceHierarchyFor(sourceDirectory);
+		detector = runIncremental(root);
+		assertEquals(0, detector.getInsertedCount());
+		assertEquals(0, detector.getRemovedCount());
+
+		FileSystemUtils.writeFile(new File(sourceDirectory, "A.java"),
+				FileSystemUtils.readFile(new File(sourceDirectory, "B.java")));
+		FileSystemUtils.deleteFile(new File(sourceDirectory, "D.java"));
+		root = createTokenResourceHierarchyFor(sourceDirectory);
+		detector = runIncremental(root);
+		assertEquals(1, detector.getInsertedCount());
+		assertEquals(1, detector.getRemovedCount());
+	}
+
+	/** Tests that the validation passes after changing the elements. */
+	public void testValidation() throws ConQATException, IOException {
+		runIncremental(createTokenResourceHierarchyFor(sourceDirectory));
+
+		FileSystemUtils.writeFile(new File(sourceDirectory, "C.java"),
+				FileSystemUtils.readFile(new File(sourceDirectory, "A.java")));
+		FileSystemUtils.deleteFile(new File(sourceDirectory, "B.java"));
+
+		ITokenResource root = createTokenResourceHierarchyFor(sourceDirectory);
+		IncrementalCloneIndexCloneDetector detector = createDetector(root);
+		detector.setValidationSampleSize(3);
+		String incremental = describe(detector.process().getList());
+		assertTrue("Changed data should contain clones",
+				incremental.length() > 0);
+		assertEquals(detectFull(root), incremental);
+	}
+
+	/**
+	 * Runs incremental detection on the given root and asserts that it yields
+	 * the same result as a full detection.
+	 */
+	private IncrementalCloneIndexCloneDetector runIncremental(
+			ITokenResource root) throws ConQATException {
+		IncrementalCloneIndexCloneDetector detector = createDetector(root);
+		assertEquals(detectFull(root), describe(detector.process().getList()));
+		return detector;
+	}
+
+	/** Creates the incremental detector working on the persistent store. */
+	private IncrementalCloneIndexCloneDetector createDetector(
+			ITokenResource root) throws ConQATException {
+		IncrementalCloneIndexCloneDetector detector = new IncrementalCloneIndexCloneDetector();
+		detector.init(new ProcessorInfoMock());
+		detector.setInput(root);
+		detector.setStore(store);
+		detector.setChunkLength(CHUNK_LENGTH);
+		detector.setMinLength(MIN_LENGTH);
+		detector.setNormalization(ELanguage.JAVA, createNormalization());
+		return detector;
+	}
+
+	/** Runs a full detection on a fresh index and describes the result. */
+	private String detectFull(ITokenResource root) throws ConQATException {
+		ICloneIndexStore fullStore = new InMemoryCloneIndexStore();
+		PersistedOptions.setChunkLength(fullStore, CHUNK_LENGTH);
+		PersistedOptions.setNormalization(fullStore, ELanguage.JAVA,
+				createNormalization());
+		CloneIndex index = new CloneIndex(fullStore, new LoggerMock());
+		for (ITokenElement element : ResourceTraversalUtils.listElements(
+				root, ITokenElement.class)) {
+			index.insertFile(element);
+		}
+
+		CloneIndexCloneDetector detector = new CloneIndexCloneDetector();
+		detector.init(new ProcessorInfoMock());
+		detector.setInput(root);
+		detector.setStoreFactory(fullStore);
+		detector.setMinLength(MIN_LENGTH);
+		return describe(detector.process().getList());
+	}
+
+	/** Creates the normalization used. */
+	private static StatementNormalization createNormalization() {
+		TokenConfigurationDef configuration = new TokenConfigurationDef();
+		configuration.setAll();
+		return new StatementNormalization(new TokenProvider(
+				new TokenElementProvider()),
+				new ArrayList<ITokenConfiguration>(), configuration);
+	}
+
+	/**
+	 * Returns a string describing the clone classes by their length and the
+	 * locations of their clones. As IDs and order depend on the index
+	 * layout, the description is sorted and does not include IDs.
+	 */
+	private static String describe(List<CloneClass> cloneClasses) {
+		List<String> descriptions = new ArrayList<String>();
+		for (CloneClass cloneClass : cloneClasses) {
+			List<String> clones = new ArrayList<String>();
+			for (Clone clone : cloneClass.getClones()) {
+				clones.add(clone.getLocation().toString());
+			}
+			Collections.sort(clones);
+			descriptions.add(cloneClass.getNormalizedLength() + ": " + clones);
+		}
+		Collections.sort(descriptions);
+		StringBuilder builder = new StringBuilder();
+		for (String description : descriptions) {
+			builder.append(description + "\n");
+		}
+		return builder.toString();
+	}
+}
\ No newline at end of file
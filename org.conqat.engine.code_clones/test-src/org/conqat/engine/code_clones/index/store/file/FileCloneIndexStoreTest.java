@@ -0,0 +1,124 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.store.file;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.conqat.engine.code_clones.index.Chunk;
+import org.conqat.engine.code_clones.index.store.CloneIndexStoreTestBase;
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.persistence.store.StorageException;
+
+/**
+ * Tests the {@link FileCloneIndexStore}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class FileCloneIndexStoreTest extends CloneIndexStoreTestBase {
+
+	/** Number of chunks after which a segment is written in the tests. */
+	private static final int FLUSH_CHUNKS = 40;
+
+	/** Maximal number of segments used in the tests. */
+	private static final int MAX_SEGMENTS = 3;
+
+	/** {@inheritDoc} */
+	@Override
+	protected ICloneIndexStore createStore() throws StorageException {
+		deleteTmpDirectory();
+		return openStore();
+	}
+
+	/** Opens the store in the temporary directory. */
+	private FileCloneIndexStore openStore() throws StorageException {
+		return new FileCloneIndexStore(getIndexDirectory(), FLUSH_CHUNKS,
+				MAX_SEGMENTS);
+	}
+
+	/** Returns the directory used for the index. */
+	private File getIndexDirectory() {
+		return new File(getTmpDirectory(), "index");
+	}
+
+	/** Tests that the data is available after reopening the store. */
+	public void testReopen() throws StorageException {
+		List<Chunk> chunks1 = createChunksForFile("file1", 100);
+		List<Chunk> chunks2 = createChunksForFile("file2", 10);
+		store.batchInsertChunks(chunks1);
+		store.batchInsertChunks(chunks2);
+		store.setOption("key", "value");
+		store.close();
+
+		store = openStore();
+		assertEquals("value", store.getOption("key"));
+		assertEquals(chunks1, store.getChunksByOrigin("file1"));
+		assertEquals(chunks2, store.getChunksByOrigin("file2"));
+		assertEquals(2, getChunksByHash(5).size());
+	}
+
+	/**
+	 * Tests that removing and re-inserting files works across flushes,
+	 * reopening and compaction.
+	 */
+	public void testIncrementalUpdate() throws StorageException {
+		for (int i = 0; i < 5; ++i) {
+			store.batchInsertChunks(createChunksForFile("file" + i, 30));
+		}
+		store.close();
+
+		store = openStore();
+		store.removeChunks("file1");
+		store.removeChunks("file3");
+		store.batchInsertChunks(createChunksForFile("file3", 20));
+		assertNull(store.getChunksByOrigin("file1"));
+		assertEquals(20, store.getChunksByOrigin("file3").size());
+		assertEquals(4, getChunksByHash(5).size());
+		assertEquals(3, getChunksByHash(25).size());
+		store.close();
+
+		store = openStore();
+		assertNull(store.getChunksByOrigin("file1"));
+		assertEquals(createChunksForFile("file3", 20),
+				store.getChunksByOrigin("file3"));
+		assertEquals(createChunksForFile("file4", 30),
+				store.getChunksByOrigin("file4"));
+		assertEquals(4, getChunksByHash(5).size());
+		assertEquals(3, getChunksByHash(25).size());
+
+		for (int i = 0; i < 10; ++i) {
+			store.batchInsertChunks(createChunksForFile("new" + i, 50));
+		}
+		assertTrue(((FileCloneIndexStore) store).getSegmentCount() <= MAX_SEGMENTS);
+		assertNull(store.getChunksByOrigin("file1"));
+		assertEquals(14, getChunksByHash(5).size());
+		store.close();
+
+		File[] files = getIndexDirectory().listFiles();
+		assertEquals(((FileCloneIndexStore) store).getSegmentCount() + 1,
+				files.length);
+	}
+
+	/** Returns the chunks for the hash created with the given seed. */
+	private List<Chunk> getChunksByHash(int seed) throws StorageException {
+		return store.getChunksByHashes(Collections
+				.singleton(createRandomDigest(seed)));
+	}
+}
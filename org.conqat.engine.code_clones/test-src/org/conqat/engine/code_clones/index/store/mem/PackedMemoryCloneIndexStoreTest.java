@@ -0,0 +1,78 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.code_clones.index.store.mem;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.conqat.engine.code_clones.index.Chunk;
+import org.conqat.engine.code_clones.index.store.CloneIndexStoreTestBase;
+import org.conqat.engine.code_clones.index.store.ICloneIndexStore;
+import org.conqat.engine.persistence.store.StorageException;
+
+/**
+ * Tests the {@link PackedMemoryCloneIndexStore}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class PackedMemoryCloneIndexStoreTest extends CloneIndexStoreTestBase {
+
+	/** {@inheritDoc} */
+	@Override
+	protected ICloneIndexStore createStore() {
+		return new PackedMemoryCloneIndexStore();
+	}
+
+	/**
+	 * Tests inserting and removing many origins, which causes growing of the
+	 * arrays and compaction.
+	 */
+	public void testGrowAndCompact() throws StorageException {
+		int origins = 200;
+		for (int i = 0; i < origins; ++i) {
+			store.batchInsertChunks(createChunksForFile("file" + i, 50));
+		}
+		for (int i = 0; i < origins; i += 4) {
+			store.removeChunks("file" + i);
+		}
+		for (int i = 0; i < origins; i += 2) {
+			store.removeChunks("file" + i);
+		}
+		store.batchInsertChunks(createChunksForFile("file0", 20));
+
+		assertEquals(20, store.getChunksByOrigin("file0").size());
+		for (int i = 1; i < origins; ++i) {
+			List<Chunk> chunks = store.getChunksByOrigin("file" + i);
+			if (i % 2 == 0) {
+				assertNull(chunks);
+			} else {
+				assertEquals(createChunksForFile("file" + i, 50), chunks);
+			}
+		}
+
+		assertEquals(
+				origins / 2 + 1,
+				store.getChunksByHashes(
+						Collections.singleton(createRandomDigest(5))).size());
+		assertEquals(
+				origins / 2,
+				store.getChunksByHashes(
+						Collections.singleton(createRandomDigest(30))).size());
+	}
+}
\ No newline at end of file
@@ -17,6 +17,7 @@
 package org.conqat.engine.commons;
 
 import org.conqat.lib.commons.assertion.CCSMPre;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.IConQATProcessor;
 import org.conqat.engine.core.core.IConQATProcessorInfo;
 import org.conqat.engine.core.logging.IConQATLogger;
@@ -25,6 +26,11 @@ import org.conqat.engine.core.logging.IConQATLogger;
  * This is a base class for processors which implements the init method and
  * provides suitable getters for its contens, so the single processors do not
  * have to implement the init method.
+ * <p>
+ * The progress accounting ({@link #setOverallWork(int)} and
+ * {@link #workDone(int)}) is thread-safe, so it may be used by processors that
+ * are annotated as {@link AThreadSafeProcessor} and perform their work using
+ * the executor service of the processor info.
  * 
  * @author $Author: hummelb $
  * @version $Rev: 43290 $
@@ -63,7 +69,7 @@ public abstract class ConQATProcessorBase implements IConQATProcessor {
 	 * may only be called exactly once at the beginning of processor execution.
 	 * and before {@link #workDone(int)} is called.
 	 */
-	protected void setOverallWork(int overallWork) {
+	protected synchronized void setOverallWork(int overallWork) {
 		CCSMPre.isTrue(overallWork > 0, "Overall work must be positive!");
 		CCSMPre.isTrue(workDone == 0, "No work may have been done!");
 		this.overallWork = overallWork;
@@ -77,7 +83,7 @@ public abstract class ConQATProcessorBase implements IConQATProcessor {
 	 * method accounts for this case by increasing overall work (so the
 	 * processor does not have to check for it).
 	 */
-	protected void workDone(int work) {
+	protected synchronized void workDone(int work) {
 		CCSMPre.isTrue(work > 0, "Work must be positive!");
 		workDone += work;
 		if (workDone < 0) {
@@ -80,6 +80,7 @@ public class Finding extends ConQATNodeBase implements IRemovableConQATNode {
 
 	/** Sets/replaces the location. */
 	public void setLocation(ElementLocation location) {
+		checkNotFrozen();
 		CCSMAssert.isNotNull(location);
 		this.location = location;
 	}
@@ -117,6 +118,7 @@ public class Finding extends ConQATNodeBase implements IRemovableConQATNode {
 
 	/** Sets whether the message should be used for the name. */
 	public void setUseMessageAsName(boolean useMessageAsName) {
+		checkNotFrozen();
 		this.useMessageAsName = useMessageAsName;
 	}
 
@@ -26,7 +26,7 @@ import org.conqat.engine.commons.node.IRemovableConQATNode;
 
 /**
  * A finding category collects finding groups from the same context (often the
- * same detection tool).
+ * same detection tool). Access to the groups is synchronized.
  * 
  * @author hummelb
  * @author $Author: juergens $
@@ -73,7 +73,8 @@ public class FindingCategory extends ConQATNodeBase implements
 	 * should be unique within this category. This may not be called, if a group
 	 * of this name already exists (check by {@link #getGroupByName(String)}).
 	 */
-	public FindingGroup createFindingGroup(String description) {
+	public synchronized FindingGroup createFindingGroup(String description) {
+		checkNotFrozen();
 		CCSMPre.isFalse(findingGroups.containsKey(description),
 				"Finding group of given name already exists.");
 		FindingGroup findingGroup = new FindingGroup(description, this);
@@ -85,7 +86,8 @@ public class FindingCategory extends ConQATNodeBase implements
 	 * Returns the specified finding group or creates a new one if it does not
 	 * exist.
 	 */
-	public FindingGroup getOrCreateFindingGroup(String description) {
+	public synchronized FindingGroup getOrCreateFindingGroup(
+			String description) {
 		FindingGroup group = getGroupByName(description);
 		if (group != null) {
 			return group;
@@ -94,13 +96,13 @@ public class FindingCategory extends ConQATNodeBase implements
 	}
 
 	/** Returns the named group or <code>null</code>. */
-	public FindingGroup getGroupByName(String name) {
+	public synchronized FindingGroup getGroupByName(String name) {
 		return findingGroups.get(name);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public FindingGroup[] getChildren() {
+	public synchronized FindingGroup[] getChildren() {
 		return findingGroups.values().toArray(
 				new FindingGroup[findingGroups.size()]);
 	}
@@ -125,12 +127,13 @@ public class FindingCategory extends ConQATNodeBase implements
 
 	/** {@inheritDoc} */
 	@Override
-	public boolean hasChildren() {
+	public synchronized boolean hasChildren() {
 		return !findingGroups.isEmpty();
 	}
 
 	/** Removes the given finding group from the category. */
-	/* package */void remove(FindingGroup findingGroup) {
+	/* package */synchronized void remove(FindingGroup findingGroup) {
+		checkNotFrozen();
 		findingGroups.remove(findingGroup.getName());
 		report.incrementRemoveCounter();
 	}
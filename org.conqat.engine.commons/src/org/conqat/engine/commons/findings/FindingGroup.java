@@ -18,6 +18,7 @@ package org.conqat.engine.commons.findings;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.conqat.engine.commons.findings.location.ElementLocation;
 import org.conqat.engine.commons.node.ConQATNodeBase;
@@ -27,6 +28,9 @@ import org.conqat.lib.commons.clone.DeepCloneException;
 /**
  * A group of findings that collects related findings, such as the clones of a
  * clone group or findings indicating the same flaw.
+ * <p>
+ * Access to the findings of a group is synchronized, so findings may be
+ * created concurrently from multiple threads.
  * 
  * @author $Author: heinemann $
  * @version $Rev: 46036 $
@@ -48,7 +52,7 @@ public class FindingGroup extends ConQATNodeBase implements
 	private final Map<Integer, Finding> findings = new HashMap<Integer, Finding>();
 
 	/** Counter for generating globally unique child IDs. */
-	private static int idCounter = 0;
+	private static final AtomicInteger idCounter = new AtomicInteger();
 
 	/**
 	 * Hidden constructor. Use the factory method in {@link FindingCategory}
@@ -78,7 +82,8 @@ public class FindingGroup extends ConQATNodeBase implements
 	}
 
 	/** Removes a finding. */
-	public void remove(Finding finding) {
+	public synchronized void remove(Finding finding) {
+		checkNotFrozen();
 		findings.remove(finding.id);
 		category.getParent().incrementRemoveCounter();
 	}
@@ -103,30 +108,34 @@ public class FindingGroup extends ConQATNodeBase implements
 
 	/** {@inheritDoc} */
 	@Override
-	public boolean hasChildren() {
+	public synchronized boolean hasChildren() {
 		return !findings.isEmpty();
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public Finding[] getChildren() {
+	public synchronized Finding[] getChildren() {
 		return findings.values().toArray(new Finding[findings.size()]);
 	}
 
 	/** Returns a finding by id (or null). */
-	/* package */Finding getFindingById(int id) {
+	/* package */synchronized Finding getFindingById(int id) {
 		return findings.get(id);
 	}
 
 	/** Creates a new finding. */
-	public Finding createFinding(ElementLocation location) {
-		Finding finding = new Finding(this, ++idCounter, location);
+	public synchronized Finding createFinding(ElementLocation location) {
+		checkNotFrozen();
+		Finding finding = new Finding(this, idCounter.incrementAndGet(),
+				location);
 		findings.put(finding.id, finding);
 		return finding;
 	}
 
 	/** Adds a copy of a finding to the map */
-	public void copyFinding(Finding finding) throws DeepCloneException {
+	public synchronized void copyFinding(Finding finding)
+			throws DeepCloneException {
+		checkNotFrozen();
 		Finding copy = new Finding(finding, this);
 		findings.put(copy.id, copy);
 	}
@@ -143,7 +152,7 @@ public class FindingGroup extends ConQATNodeBase implements
 	}
 
 	/** Returns the number of children/findings. */
-	public int getChildrenSize() {
+	public synchronized int getChildrenSize() {
 		return findings.size();
 	}
 
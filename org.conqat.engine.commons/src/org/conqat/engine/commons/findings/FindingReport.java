@@ -28,7 +28,8 @@ import org.conqat.engine.commons.node.IConQATNode;
 import org.conqat.engine.commons.node.IRemovableConQATNode;
 
 /**
- * A finding report is a collection of finding categories.
+ * A finding report is a collection of finding categories. Access to the
+ * categories is synchronized.
  * 
  * @author $Author: heinemann $
  * @version $Rev: 46038 $
@@ -70,7 +71,7 @@ public class FindingReport extends ConQATNodeBase implements
 	}
 
 	/** Returns the category with the given name or null. */
-	public FindingCategory getCategory(String name) {
+	public synchronized FindingCategory getCategory(String name) {
 		return categories.get(name);
 	}
 
@@ -78,9 +79,10 @@ public class FindingReport extends ConQATNodeBase implements
 	 * Returns the category with the given name or creates one using the finding
 	 * and location types.
 	 */
-	public FindingCategory getOrCreateCategory(String name) {
+	public synchronized FindingCategory getOrCreateCategory(String name) {
 		FindingCategory category = categories.get(name);
 		if (category == null) {
+			checkNotFrozen();
 			category = new FindingCategory(this, name);
 			categories.put(name, category);
 		}
@@ -94,7 +96,7 @@ public class FindingReport extends ConQATNodeBase implements
 
 	/** {@inheritDoc} */
 	@Override
-	public FindingCategory[] getChildren() {
+	public synchronized FindingCategory[] getChildren() {
 		return categories.values().toArray(
 				new FindingCategory[categories.size()]);
 	}
@@ -106,7 +108,8 @@ public class FindingReport extends ConQATNodeBase implements
 	}
 
 	/** Removes the given category. */
-	/* package */void remove(FindingCategory findingCategory) {
+	/* package */synchronized void remove(FindingCategory findingCategory) {
+		checkNotFrozen();
 		categories.remove(findingCategory.getName());
 		incrementRemoveCounter();
 	}
@@ -131,7 +134,7 @@ public class FindingReport extends ConQATNodeBase implements
 
 	/** {@inheritDoc} */
 	@Override
-	public boolean hasChildren() {
+	public synchronized boolean hasChildren() {
 		return !categories.isEmpty();
 	}
 
@@ -143,7 +146,7 @@ public class FindingReport extends ConQATNodeBase implements
 
 	/** {@inheritDoc} */
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		return "Finding Report ["
 				+ StringUtils.concat(categories.keySet(), ", ") + "]";
 	}
@@ -178,12 +181,12 @@ public class FindingReport extends ConQATNodeBase implements
 	}
 
 	/** Returns the current value of the remove counter. */
-	/* package */long getRemoveCounter() {
+	/* package */synchronized long getRemoveCounter() {
 		return removeCounter;
 	}
 
 	/** Increments the remove counter. */
-	/* package */void incrementRemoveCounter() {
+	/* package */synchronized void incrementRemoveCounter() {
 		removeCounter += 1;
 	}
 }
\ No newline at end of file
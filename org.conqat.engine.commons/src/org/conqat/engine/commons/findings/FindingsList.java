@@ -24,12 +24,16 @@ import org.conqat.engine.commons.node.IConQATNode;
 import org.conqat.engine.commons.node.IRemovableConQATNode;
 import org.conqat.engine.commons.node.NodeUtils;
 import org.conqat.lib.commons.assertion.CCSMPre;
+import org.conqat.lib.commons.clone.CloneUtils;
 import org.conqat.lib.commons.clone.IDeepCloneable;
 
 /**
  * A list of findings. Actually this list does not store the findings
  * themselves, but path descriptors which can be used to locate a finding in a
  * {@link FindingReport}.
+ * <p>
+ * If the associated node is frozen, all modifications of the list cause an
+ * {@link IllegalStateException}.
  * 
  * @author $Author: juergens $
  * @version $Rev: 40783 $
@@ -86,6 +90,7 @@ public class FindingsList extends AbstractList<Finding> implements
 	/** {@inheritDoc} */
 	@Override
 	public Finding set(int index, Finding element) {
+		checkNotFrozen();
 		removeFindingsDeletedFromReport();
 		CCSMPre.isTrue(
 				element.getParent().getParent().getParent() == getReport(),
@@ -98,6 +103,7 @@ public class FindingsList extends AbstractList<Finding> implements
 	/** {@inheritDoc} */
 	@Override
 	public void add(int index, Finding element) {
+		checkNotFrozen();
 		removeFindingsDeletedFromReport();
 		CCSMPre.isTrue(
 				element.getParent().getParent().getParent() == getReport(),
@@ -108,12 +114,21 @@ public class FindingsList extends AbstractList<Finding> implements
 	/** {@inheritDoc} */
 	@Override
 	public Finding remove(int index) {
+		checkNotFrozen();
 		removeFindingsDeletedFromReport();
 		Finding result = get(index);
 		findingPaths.remove(index);
 		return result;
 	}
 
+	/** Throws an {@link IllegalStateException} if the node is frozen. */
+	private void checkNotFrozen() {
+		if (CloneUtils.isFrozen(node)) {
+			throw new IllegalStateException("Node " + node.getId()
+					+ " is frozen and may not be modified!");
+		}
+	}
+
 	/**
 	 * This method compacts the internal representation in {@link #findingPaths}
 	 * by removing all entries that can no longer be resolved (i.e. correspond
@@ -156,6 +171,7 @@ public class FindingsList extends AbstractList<Finding> implements
 	 * level.
 	 */
 	public void mergeIn(FindingsList other) {
+		checkNotFrozen();
 		for (FindingPathDescriptor path : other.findingPaths) {
 			if (!findingPaths.contains(path)) {
 				findingPaths.add(path);
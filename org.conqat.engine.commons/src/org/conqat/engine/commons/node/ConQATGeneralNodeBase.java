@@ -62,6 +62,7 @@ public abstract class ConQATGeneralNodeBase<E extends ConQATGeneralNodeBase<E>>
 	/** Adds a child node. */
 	@SuppressWarnings("unchecked")
 	public void addChild(E childNode) {
+		checkNotFrozen();
 		if (children == null) {
 			children = new MemoryEfficientStringMap<E>();
 		}
@@ -129,6 +130,7 @@ public abstract class ConQATGeneralNodeBase<E extends ConQATGeneralNodeBase<E>>
 	@Override
 	@SuppressWarnings("unchecked")
 	public void remove() {
+		checkNotFrozen();
 		if (parent != null) {
 			parent.removeChild((E) this);
 			setParent(null);
@@ -137,6 +139,7 @@ public abstract class ConQATGeneralNodeBase<E extends ConQATGeneralNodeBase<E>>
 
 	/** Removes the child of the given name. */
 	protected void removeChild(E childNode) {
+		checkNotFrozen();
 		if (hasChildren()) {
 			children.remove(childNode.getName());
 		}
@@ -20,6 +20,8 @@ import java.util.Map;
 
 import org.conqat.lib.commons.clone.CloneUtils;
 import org.conqat.lib.commons.clone.DeepCloneException;
+import org.conqat.lib.commons.clone.IDeepCloneable;
+import org.conqat.lib.commons.clone.IFreezable;
 import org.conqat.lib.commons.collections.CollectionUtils;
 import org.conqat.lib.commons.collections.MemoryEfficientStringMap;
 import org.conqat.lib.commons.collections.UnmodifiableCollection;
@@ -30,17 +32,35 @@ import org.conqat.engine.commons.sorting.NameSorter;
  * This is a base class to simplify the creation of new IConQATNode
  * implementations. Key value pairs are handled here and a copy constructor to
  * ease cloning exists.
+ * <p>
+ * Nodes can be frozen (see {@link IFreezable}), which freezes the entire
+ * subtree. Frozen nodes are shared between processors instead of being cloned
+ * by the driver, which saves both time and memory for large trees that are
+ * consumed by multiple processors. Any attempt to modify a frozen node causes
+ * an {@link IllegalStateException}. Subclasses are responsible for calling
+ * {@link #checkNotFrozen()} in all methods that modify the tree structure.
+ * Deep clones of frozen nodes are not frozen.
+ * <p>
+ * Stored values that implement {@link IFreezable} (such as the
+ * {@link DisplayList} or a finding report) are frozen with the node, and the
+ * <code>getOrCreate*</code> methods of {@link NodeUtils} only hand out
+ * unmodifiable views for frozen nodes. All other stored values (e.g. a list
+ * obtained via {@link #getValue(String)}) are not protected and must not be
+ * modified by processors working on a frozen tree.
  * 
  * @author Benjamin Hummel
  * @author $Author: hummelb $
  * @version $Rev: 37013 $
  * @ConQAT.Rating GREEN Hash: A0432A4CBEC6071B14C55717B466E98A
  */
-public abstract class ConQATNodeBase implements IConQATNode {
+public abstract class ConQATNodeBase implements IConQATNode, IFreezable {
 
 	/** value storage. */
 	private final Map<String, Object> values = new MemoryEfficientStringMap<Object>();
 
+	/** Whether this node is frozen. */
+	private boolean frozen = false;
+
 	/** Constructor, sets comparator to name comparator. */
 	protected ConQATNodeBase() {
 		setValue(NodeConstants.COMPARATOR, NameSorter.NameComparator
@@ -54,6 +74,10 @@ public abstract class ConQATNodeBase implements IConQATNode {
 			Object value = source.get(key);
 			if (value instanceof FindingsList) {
 				value = new FindingsList((FindingsList) value, this);
+			} else if (value instanceof IDeepCloneable
+					&& CloneUtils.isFrozen(value)) {
+				// values frozen with the node must not be shared by the clone
+				value = ((IDeepCloneable) value).deepClone();
 			} else {
 				value = CloneUtils.cloneAsDeepAsPossible(value);
 			}
@@ -76,9 +100,52 @@ public abstract class ConQATNodeBase implements IConQATNode {
 	/** {@inheritDoc} */
 	@Override
 	public void setValue(String key, Object value) {
+		checkNotFrozen();
 		values.put(key, value);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public void freeze() {
+		if (frozen) {
+			// also protects against cycles via stored values
+			return;
+		}
+		frozen = true;
+		for (Object value : values.values()) {
+			if (value instanceof IFreezable) {
+				((IFreezable) value).freeze();
+			}
+		}
+		if (!hasChildren()) {
+			return;
+		}
+		for (IConQATNode child : getChildren()) {
+			if (child instanceof IFreezable) {
+				((IFreezable) child).freeze();
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Checks that this node is not frozen.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the node is frozen.
+	 */
+	protected void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException("Node " + getId()
+					+ " is frozen and may not be modified!");
+		}
+	}
+
 	/** Returns the keys which are used for this node. */
 	public UnmodifiableCollection<String> getKeys() {
 		return CollectionUtils.asUnmodifiable(values.keySet());
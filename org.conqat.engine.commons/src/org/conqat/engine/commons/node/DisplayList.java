@@ -18,6 +18,7 @@ package org.conqat.engine.commons.node;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map.Entry;
@@ -25,6 +26,7 @@ import java.util.Map.Entry;
 import org.conqat.engine.commons.format.IValueFormatter;
 import org.conqat.engine.commons.format.NumberValueFormatter;
 import org.conqat.lib.commons.clone.IDeepCloneable;
+import org.conqat.lib.commons.clone.IFreezable;
 import org.conqat.lib.commons.collections.CollectionUtils;
 import org.conqat.lib.commons.collections.UnmodifiableList;
 
@@ -37,17 +39,24 @@ import org.conqat.lib.commons.collections.UnmodifiableList;
  * The DisplayList is normally only attached to the root {@link IConQATNode} and
  * can be retrieved with {@link NodeUtils#getDisplayList(IConQATNode)}.
  * 
+ * The display list is frozen together with the node it is stored at (see
+ * {@link IFreezable}).
+ * 
  * @see NumberValueFormatter as an example
  * 
  * @author $Author: hummelb $
  * @version $Rev: 41317 $
  * @ConQAT.Rating GREEN Hash: 095DA68A87E02DC087E7B1F152044D2F
  */
-public class DisplayList implements IDeepCloneable, Iterable<String> {
+public class DisplayList implements IDeepCloneable, IFreezable,
+		Iterable<String> {
 
 	/** The ordered entries of the display list. */
 	private LinkedHashMap<String, IValueFormatter> entries = new LinkedHashMap<String, IValueFormatter>();
 
+	/** Whether this list is frozen. */
+	private boolean frozen = false;
+
 	/** Constructor. */
 	public DisplayList() {
 		// empty
@@ -70,6 +79,7 @@ public class DisplayList implements IDeepCloneable, Iterable<String> {
 	 *            may be null.
 	 */
 	public void addKey(String key, IValueFormatter formatter) {
+		checkNotFrozen();
 		entries.put(key, formatter);
 	}
 
@@ -87,6 +97,7 @@ public class DisplayList implements IDeepCloneable, Iterable<String> {
 
 	/** Removes the given key. */
 	public void removeKey(String key) {
+		checkNotFrozen();
 		entries.remove(key);
 	}
 
@@ -100,6 +111,9 @@ public class DisplayList implements IDeepCloneable, Iterable<String> {
 	/** Iterates over the keys. */
 	@Override
 	public Iterator<String> iterator() {
+		if (frozen) {
+			return Collections.unmodifiableSet(entries.keySet()).iterator();
+		}
 		return entries.keySet().iterator();
 	}
 
@@ -125,4 +139,24 @@ public class DisplayList implements IDeepCloneable, Iterable<String> {
 	public IValueFormatter getFormatter(String key) {
 		return entries.get(key);
 	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void freeze() {
+		frozen = true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/** Throws an {@link IllegalStateException} if this list is frozen. */
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException(
+					"Display list is frozen and may not be modified!");
+		}
+	}
 }
@@ -102,7 +102,9 @@ public class ListNode extends ConQATNodeBase implements IRemovableConQATNode {
 	/** {@inheritDoc} */
 	@Override
 	public void remove() {
+		checkNotFrozen();
 		if (parent != null) {
+			parent.checkNotFrozen();
 			CCSMAssert.isFalse(parent.children == null,
 					"Parent must have children");
 			parent.children.remove(this);
@@ -132,6 +134,7 @@ public class ListNode extends ConQATNodeBase implements IRemovableConQATNode {
 
 	/** Add child node. */
 	public void addChild(ListNode child) {
+		checkNotFrozen();
 		if (children == null) {
 			children = new ArrayList<ListNode>();
 		}
@@ -165,7 +165,8 @@ public class NodeUtils {
 
 	/**
 	 * Checks whether the value at the given key is a List. If so, returns it,
-	 * otherwise a new list is created, added, and returned.
+	 * otherwise a new list is created, added, and returned. For frozen nodes,
+	 * an unmodifiable view of the list (or an empty list) is returned.
 	 */
 	public static List<String> getOrCreateStringList(IConQATNode node,
 			String key) {
@@ -174,10 +175,17 @@ public class NodeUtils {
 
 	/**
 	 * Checks whether the value at the given key is a set. If so, returns it,
-	 * otherwise a new set is created, added, and returned.
+	 * otherwise a new set is created, added, and returned. For frozen nodes,
+	 * an unmodifiable view of the set (or an empty set) is returned.
 	 */
 	public static Set<String> getOrCreateStringSet(IConQATNode node, String key) {
 		Set<String> set = getTypedSet(node, key, String.class);
+		if (CloneUtils.isFrozen(node)) {
+			if (set == null) {
+				return Collections.emptySet();
+			}
+			return Collections.unmodifiableSet(set);
+		}
 		if (set == null) {
 			set = new HashSet<String>();
 			node.setValue(key, set);
@@ -187,25 +195,36 @@ public class NodeUtils {
 
 	/**
 	 * Checks whether the value at the given key is a List. If so, returns it,
-	 * otherwise a new list is created, added, and returned.
+	 * otherwise a new list is created, added, and returned. For frozen nodes, a
+	 * missing list is not added to the node and the returned list rejects all
+	 * modifications.
 	 */
 	public static FindingsList getOrCreateFindingsList(IConQATNode node,
 			String key) {
 		FindingsList list = getFindingsList(node, key);
 		if (list == null) {
 			list = new FindingsList(node);
-			node.setValue(key, list);
+			if (!CloneUtils.isFrozen(node)) {
+				node.setValue(key, list);
+			}
 		}
 		return list;
 	}
 
 	/**
 	 * Checks whether the value at the given key is a List. If so, returns it,
-	 * otherwise a new list is created, added, and returned.
+	 * otherwise a new list is created, added, and returned. For frozen nodes,
+	 * an unmodifiable view of the list (or an empty list) is returned.
 	 */
 	public static <T> List<T> getOrCreateTypedList(IConQATNode node,
 			String key, Class<T> type) {
 		List<T> list = getTypedList(node, key, type);
+		if (CloneUtils.isFrozen(node)) {
+			if (list == null) {
+				return Collections.emptyList();
+			}
+			return Collections.unmodifiableList(list);
+		}
 		if (list == null) {
 			list = new ArrayList<T>();
 			node.setValue(key, list);
@@ -215,7 +234,9 @@ public class NodeUtils {
 
 	/**
 	 * Returns the display list of the provided ConQAT node. If none exists a
-	 * new one will be created and added to the node.
+	 * new one will be created and added to the node. The display list of a
+	 * frozen node is frozen as well; if none exists, a frozen empty list is
+	 * returned without adding it to the node.
 	 */
 	public static DisplayList getDisplayList(IConQATNode node) {
 		Object list = node.getValue(NodeConstants.DISPLAY_LIST);
@@ -224,7 +245,11 @@ public class NodeUtils {
 		}
 
 		DisplayList displayList = new DisplayList();
-		node.setValue(NodeConstants.DISPLAY_LIST, displayList);
+		if (CloneUtils.isFrozen(node)) {
+			displayList.freeze();
+		} else {
+			node.setValue(NodeConstants.DISPLAY_LIST, displayList);
+		}
 		return displayList;
 	}
 
@@ -262,13 +287,19 @@ public class NodeUtils {
 	/**
 	 * Returns the finding report stored at the node. If none exists, a new one
 	 * will be created. Note that anything stored at this key which is not a
-	 * {@link FindingReport} will be overwritten.
+	 * {@link FindingReport} will be overwritten. The finding report of a
+	 * frozen node is frozen as well; if none exists, a frozen empty report is
+	 * returned without adding it to the node.
 	 */
 	public static FindingReport getFindingReport(IConQATNode node) {
 		Object o = node.getValue(NodeConstants.FINDINGS_REPORT);
 		if (!(o instanceof FindingReport)) {
 			FindingReport report = new FindingReport();
-			node.setValue(NodeConstants.FINDINGS_REPORT, report);
+			if (CloneUtils.isFrozen(node)) {
+				report.freeze();
+			} else {
+				node.setValue(NodeConstants.FINDINGS_REPORT, report);
+			}
 			return report;
 		}
 		return (FindingReport) o;
@@ -283,8 +314,16 @@ public class NodeUtils {
 	 *            the node to read the list from.
 	 * @param key
 	 *            the key the list is stored at.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the node is frozen, as the returned assessment is
+	 *             modifiable.
 	 */
 	public static Assessment getOrCreateAssessment(IConQATNode node, String key) {
+		if (CloneUtils.isFrozen(node)) {
+			throw new IllegalStateException("Node " + node.getId()
+					+ " is frozen and may not be modified!");
+		}
 		Object o = node.getValue(key);
 		if (!(o instanceof Assessment)) {
 			Assessment a = new Assessment();
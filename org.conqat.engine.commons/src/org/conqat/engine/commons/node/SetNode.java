@@ -65,6 +65,7 @@ public class SetNode<E> extends ConQATNodeBase implements
 
 	/** Adds a new child node. */
 	public void addChild(SetNode<E> node) {
+		checkNotFrozen();
 		if (children == null) {
 			children = new LinkedHashMap<E, SetNode<E>>();
 		}
@@ -116,6 +117,7 @@ public class SetNode<E> extends ConQATNodeBase implements
 	/** {@inheritDoc} */
 	@Override
 	public void remove() {
+		checkNotFrozen();
 		if (parent != null) {
 			parent.removeChild(this);
 		}
@@ -129,6 +131,7 @@ public class SetNode<E> extends ConQATNodeBase implements
 
 	/** Removes the child node given if it exists. */
 	protected void removeChild(SetNode<E> childNode) {
+		checkNotFrozen();
 		children.remove(childNode.object);
 	}
 
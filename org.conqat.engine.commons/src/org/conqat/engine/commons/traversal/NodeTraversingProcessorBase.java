@@ -19,12 +19,11 @@ package org.conqat.engine.commons.traversal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 import org.conqat.engine.commons.ConQATParamDoc;
 import org.conqat.engine.commons.ConQATPipelineProcessorBase;
 import org.conqat.engine.commons.node.IConQATNode;
+import org.conqat.engine.commons.util.ParallelExecutionUtils;
 import org.conqat.engine.core.core.AConQATFieldParameter;
 import org.conqat.engine.core.core.ConQATException;
 
@@ -56,31 +55,8 @@ public abstract class NodeTraversingProcessorBase<E extends IConQATNode>
 				inclusionPredicate);
 		setOverallWork(Math.max(1, nodes.size()));
 
-		// we expect this (or similar) code to appear wherever multi-thread
-		// processors, that do no use this base class, are implemented. However,
-		// as we currently cannot tell how the multi-threading support will be
-		// used in the future, we don't built any abstractions right now. The
-		// first person who's about to copy and modify this code, is required to
-		// implement such an abstraction. For example, we could provide a method
-		// that takes a list of calleables and ProcessorInfo objects and
-		// executes them.
-		try {
-			for (Future<ConQATException> result : getProcessorInfo()
-					.getExecutorService().invokeAll(createCallables(nodes))) {
-				if (result.get() != null) {
-					throw result.get();
-				}
-			}
-		} catch (InterruptedException e) {
-			throw new ConQATException(
-					"Encountered spurious InterruptedException: "
-							+ e.getMessage());
-		} catch (ExecutionException e) {
-			if (e.getCause() instanceof RuntimeException) {
-				throw (RuntimeException) e.getCause();
-			}
-			throw new RuntimeException(e.getCause());
-		}
+		ParallelExecutionUtils.executeAll(getProcessorInfo(),
+				createCallables(nodes));
 
 		finish(root);
 	}
@@ -0,0 +1,56 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.commons.util;
+
+import org.conqat.engine.commons.ConQATPipelineProcessorBase;
+import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.lib.commons.clone.IFreezable;
+
+/**
+ * {@ConQAT.Doc}
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = "Freezes the input, i.e. makes it immutable. "
+		+ "Frozen objects (e.g. node trees) are not cloned by the driver if they are "
+		+ "consumed by multiple processors, but rather the same instance is shared. "
+		+ "This saves time and memory for large scopes, but is only safe if all "
+		+ "subsequent processors only read the input. Processors trying to modify a "
+		+ "frozen node, its display list or its findings fail with an exception. "
+		+ "Other mutable values stored at a frozen node (e.g. lists) are not "
+		+ "protected and must not be modified.")
+public class NodeFreezer extends ConQATPipelineProcessorBase<Object> {
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The input is typed as {@link Object}, as node types used in
+	 * configurations are often interfaces that do not extend {@link IFreezable}
+	 * although all implementations do.
+	 */
+	@Override
+	protected void processInput(Object input) throws ConQATException {
+		if (!(input instanceof IFreezable)) {
+			throw new ConQATException("Input of type "
+					+ input.getClass().getName() + " can not be frozen!");
+		}
+		((IFreezable) input).freeze();
+	}
+}
\ No newline at end of file
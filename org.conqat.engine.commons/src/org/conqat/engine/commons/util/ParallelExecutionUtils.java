@@ -0,0 +1,70 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.commons.util;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.conqat.engine.core.core.AThreadSafeProcessor;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.core.IConQATProcessorInfo;
+
+/**
+ * Utility methods for processors that implement processor level parallelism.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class ParallelExecutionUtils {
+
+	/**
+	 * Executes the given tasks using the executor service of the processor
+	 * info and waits for all of them to complete. The tasks are executed in
+	 * parallel only if the processor is marked with
+	 * {@link AThreadSafeProcessor} and ConQAT runs with multiple threads (see
+	 * {@link IConQATProcessorInfo#getExecutorService()}).
+	 * <p>
+	 * Each task returns the {@link ConQATException} it encountered or
+	 * <code>null</code> on success. The first exception returned (in the order
+	 * of the tasks) is rethrown after all tasks have completed. Runtime
+	 * exceptions thrown by a task are rethrown as well.
+	 */
+	public static void executeAll(IConQATProcessorInfo processorInfo,
+			List<? extends Callable<ConQATException>> tasks)
+			throws ConQATException {
+		try {
+			for (Future<ConQATException> result : processorInfo
+					.getExecutorService().invokeAll(tasks)) {
+				if (result.get() != null) {
+					throw result.get();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new ConQATException(
+					"Encountered spurious InterruptedException: "
+							+ e.getMessage());
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+}
\ No newline at end of file
@@ -16,8 +16,13 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.commons.node;
 
+import org.conqat.lib.commons.clone.CloneUtils;
 import org.conqat.lib.commons.clone.DeepCloneException;
 import org.conqat.lib.commons.test.CCSMTestCaseBase;
+import org.conqat.engine.commons.findings.FindingCategory;
+import org.conqat.engine.commons.findings.FindingGroup;
+import org.conqat.engine.commons.findings.FindingsList;
+import org.conqat.engine.commons.findings.location.ElementLocation;
 import org.conqat.engine.commons.testutils.NodeTestUtils;
 
 /**
@@ -47,4 +52,105 @@ public class ListNodeTest extends CCSMTestCaseBase {
 		NodeTestUtils.testDeepCloning(root);
 	}
 
+	/** Tests that frozen nodes are shared and may not be modified. */
+	public void testFreeze() throws DeepCloneException {
+		ListNode root = new ListNode();
+		ListNode child = new ListNode("child");
+		root.addChild(child);
+		root.freeze();
+
+		assertTrue(child.isFrozen());
+		assertSame(root, CloneUtils.cloneAsDeepAsPossible(root));
+
+		try {
+			child.setValue("key", "value");
+			fail("Expected exception for frozen node!");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			root.addChild(new ListNode("other"));
+			fail("Expected exception for frozen node!");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		ListNode clone = root.deepClone();
+		assertFalse(clone.isFrozen());
+		clone.getChildren()[0].setValue("key", "value");
+	}
+
+	/**
+	 * Tests that the display list, the findings and values obtained via the
+	 * helper methods of {@link NodeUtils} may not be modified for frozen nodes.
+	 */
+	public void testFreezeStoredValues() throws DeepCloneException {
+		ListNode root = new ListNode();
+		ListNode child = new ListNode("child");
+		root.addChild(child);
+		NodeUtils.addToDisplayList(root, "key");
+		NodeUtils.getOrCreateStringList(child, "list").add("value");
+		FindingCategory category = NodeUtils.getFindingReport(root)
+				.getOrCreateCategory("category");
+		FindingGroup group = category.createFindingGroup("group");
+		NodeUtils.getOrCreateFindingsList(child, "findings").add(
+				group.createFinding(new ElementLocation("location", "path")));
+		root.freeze();
+
+		try {
+			NodeUtils.getDisplayList(root).addKey("other", null);
+			fail("Expected exception for frozen display list!");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			NodeUtils.getDisplayList(child).addKey("other", null);
+			fail("Expected exception for frozen display list!");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			NodeUtils.getOrCreateStringList(child, "list").add("other");
+			fail("Expected exception for frozen list!");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			NodeUtils.getOrCreateStringList(child, "new").add("other");
+			fail("Expected exception for frozen list!");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			category.createFindingGroup("other");
+			fail("Expected exception for frozen finding category!");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			group.createFinding(new ElementLocation("other", "path"));
+			fail("Expected exception for frozen finding group!");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		FindingsList findings = NodeUtils.getOrCreateFindingsList(child,
+				"findings");
+		try {
+			findings.remove(0);
+			fail("Expected exception for frozen findings list!");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		assertEquals(1, NodeUtils.getDisplayList(root).size());
+		assertNull(child.getValue(NodeConstants.DISPLAY_LIST));
+		assertEquals(1, findings.size());
+		assertEquals(1, group.getChildrenSize());
+
+		ListNode clone = root.deepClone();
+		NodeUtils.getDisplayList(clone).addKey("other", null);
+		NodeUtils.getFindingReport(clone).getOrCreateCategory("other");
+		assertEquals(1, NodeUtils.getDisplayList(root).size());
+	}
+
 }
\ No newline at end of file
@@ -42,8 +42,11 @@ public class BasicCache<K, V, X extends Exception> implements ICache<K, V, X> {
 	/** The name of this cache (e.g. used for statistics). */
 	private final String name;
 
-	/** The cache backend. */
-	private ICacheBackend<K, V> backend;
+	/**
+	 * The cache backend. This is volatile, as {@link #clear(boolean)} may be
+	 * called from a different thread (see {@link ThreadLocalCache}).
+	 */
+	private volatile ICacheBackend<K, V> backend;
 
 	/** The factory used to create new elements. */
 	private final IParameterizedFactory<V, K, X> factory;
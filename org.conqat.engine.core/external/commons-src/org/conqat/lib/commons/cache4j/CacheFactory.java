@@ -52,6 +52,12 @@ import org.conqat.lib.commons.string.StringUtils;
  * These links are used for generating statistics. To not avoid garbage
  * collection of caches (e.g. when many caches are created only temporarily), we
  * use weak references which to not hinder the GC from collecting a cache.
+ * <p>
+ * The factory itself is thread-safe. Note that caches created with
+ * {@link ECacheThreadSupport#NONE} must not be used concurrently, so the
+ * rules for caches accessed by thread-safe processors should use one of the
+ * other modes (the driver's default rule uses
+ * {@link ECacheThreadSupport#THREADLOCAL}).
  * 
  * @author $Author: heinemann $
  * @version $Rev: 43065 $
@@ -99,7 +105,7 @@ public class CacheFactory {
 	}
 
 	/** Sets the default rule. */
-	public void setDefaultRule(CacheCreationRule rule) {
+	public synchronized void setDefaultRule(CacheCreationRule rule) {
 		CCSMPre.isNotNull(rule);
 		defaultRule = rule;
 	}
@@ -126,7 +132,7 @@ public class CacheFactory {
 	 * Loads the caching rules from individual lines. See the class comment for
 	 * a description of the file format.
 	 */
-	public void loadCacheConfiguration(String[] lines)
+	public synchronized void loadCacheConfiguration(String[] lines)
 			throws CacheRuleParsingException {
 		clearRules();
 
@@ -186,17 +192,17 @@ public class CacheFactory {
 	}
 
 	/** Removes all rules. */
-	public void clearRules() {
+	public synchronized void clearRules() {
 		rules.clear();
 	}
 
 	/** Adds a rule to the beginning (i.e. it is checked before all others). */
-	public void addRuleFront(CacheCreationRule rule) {
+	public synchronized void addRuleFront(CacheCreationRule rule) {
 		rules.add(0, rule);
 	}
 
 	/** Adds a rule to the end (i.e. it is checked after all other rules). */
-	public void addRuleBack(CacheCreationRule rule) {
+	public synchronized void addRuleBack(CacheCreationRule rule) {
 		rules.add(rule);
 	}
 
@@ -254,7 +260,7 @@ public class CacheFactory {
 	 *            removed (if possible).
 	 */
 	public void clearAllCachedData(boolean allThreads) {
-		for (CacheInfo cache : new ArrayList<CacheInfo>(caches)) {
+		for (CacheInfo cache : copyCaches()) {
 			cache.clearAllCachedData(allThreads);
 		}
 	}
@@ -268,18 +274,26 @@ public class CacheFactory {
 
 		sb.append("Name;Thread Support;Cache Strategy; Strategy Parameter; Hits; Misses; Miss Cost Millis"
 				+ StringUtils.CR);
-		for (CacheInfo cache : new ArrayList<CacheInfo>(caches)) {
+		for (CacheInfo cache : copyCaches()) {
 			cache.appendStatistics(sb);
 		}
 
 		return sb.toString();
 	}
 
+	/**
+	 * Returns a copy of the list of caches. The copy is created while holding
+	 * the lock, so the caches can be iterated without it.
+	 */
+	private synchronized List<CacheInfo> copyCaches() {
+		return new ArrayList<CacheInfo>(caches);
+	}
+
 	/**
 	 * Clears the list of caches used for reporting. This method is only used
 	 * for testing.
 	 */
-	/* package */void clearCaches() {
+	/* package */synchronized void clearCaches() {
 		caches.clear();
 	}
 
@@ -97,8 +97,10 @@ public class ThreadLocalCache<K, V, X extends Exception> implements
 	@Override
 	public void clear(boolean allThreads) {
 		if (allThreads) {
-			for (BasicCache<K, V, X> cache : subCaches) {
-				cache.clear(false);
+			synchronized (subCaches) {
+				for (BasicCache<K, V, X> cache : subCaches) {
+					cache.clear(false);
+				}
 			}
 		} else {
 			localCaches.get().clear(false);
@@ -115,8 +117,10 @@ public class ThreadLocalCache<K, V, X extends Exception> implements
 	@Override
 	public int getHits() {
 		int result = 0;
-		for (BasicCache<K, V, X> cache : subCaches) {
-			result += cache.getHits();
+		synchronized (subCaches) {
+			for (BasicCache<K, V, X> cache : subCaches) {
+				result += cache.getHits();
+			}
 		}
 		return result;
 	}
@@ -125,8 +129,10 @@ public class ThreadLocalCache<K, V, X extends Exception> implements
 	@Override
 	public int getMisses() {
 		int result = 0;
-		for (BasicCache<K, V, X> cache : subCaches) {
-			result += cache.getMisses();
+		synchronized (subCaches) {
+			for (BasicCache<K, V, X> cache : subCaches) {
+				result += cache.getMisses();
+			}
 		}
 		return result;
 	}
@@ -135,8 +141,10 @@ public class ThreadLocalCache<K, V, X extends Exception> implements
 	@Override
 	public long getMissCostMillis() {
 		long result = 0;
-		for (BasicCache<K, V, X> cache : subCaches) {
-			result += cache.getMissCostMillis();
+		synchronized (subCaches) {
+			for (BasicCache<K, V, X> cache : subCaches) {
+				result += cache.getMissCostMillis();
+			}
 		}
 		return result;
 	}
@@ -75,6 +75,8 @@ public class CloneUtils {
 	 * Clone the provided object if supported. The following cases are
 	 * explicitly handled:
 	 * <ul>
+	 * <li>Frozen {@link IFreezable}s are returned uncloned, as they can not be
+	 * modified anyway.</li>
 	 * <li>For {@link IDeepCloneable}s the {@link IDeepCloneable#deepClone()}
 	 * method is used, ignoring the maximal depth.</li>
 	 * <li>For {@link Map}s the contents (keys and values) are cloned and put
@@ -112,6 +114,10 @@ public class CloneUtils {
 				return null;
 			}
 
+			if (isFrozen(o)) {
+				return o;
+			}
+
 			if (o instanceof IDeepCloneable) {
 				return ((IDeepCloneable) o).deepClone();
 			}
@@ -162,6 +168,14 @@ public class CloneUtils {
 		}
 	}
 
+	/**
+	 * Returns whether the given object is a frozen {@link IFreezable}, i.e.
+	 * may be shared instead of being cloned.
+	 */
+	public static boolean isFrozen(Object o) {
+		return o instanceof IFreezable && ((IFreezable) o).isFrozen();
+	}
+
 	/**
 	 * Returns a new instance of the same class as the input object. This
 	 * contains special handling for some types.
@@ -0,0 +1,42 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.commons.clone;
+
+/**
+ * Interface for objects that can be frozen, i.e. made immutable. A frozen
+ * object may be shared instead of being cloned, thus
+ * {@link CloneUtils#cloneAsDeepAsPossible(Object)} returns frozen objects
+ * uncloned. Explicit calls to {@link IDeepCloneable#deepClone()} should still
+ * create a (non-frozen) copy, so this can be used to obtain a modifiable
+ * version of a frozen object.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public interface IFreezable {
+
+	/**
+	 * Freezes this object. Afterwards all attempts to modify the object will
+	 * cause an {@link IllegalStateException}. Freezing an already frozen
+	 * object has no effect.
+	 */
+	public void freeze();
+
+	/** Returns whether this object is frozen. */
+	public boolean isFrozen();
+}
\ No newline at end of file
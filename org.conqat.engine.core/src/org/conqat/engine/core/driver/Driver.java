@@ -39,6 +39,7 @@ import org.conqat.engine.core.driver.error.ErrorLocation;
 import org.conqat.engine.core.driver.info.BlockInfo;
 import org.conqat.engine.core.driver.instance.BlockInstance;
 import org.conqat.engine.core.driver.instance.ExecutionContext;
+import org.conqat.engine.core.driver.instance.InstanceScheduler;
 import org.conqat.engine.core.driver.runner.ConQATRunnerBase;
 import org.conqat.engine.core.driver.specification.BlockSpecification;
 import org.conqat.engine.core.driver.specification.SpecificationLoader;
@@ -70,6 +71,12 @@ public class Driver extends ConQATRunnerBase {
 	/** The executor used. */
 	private ExecutorService executorService = new InThreadExecutorService();
 
+	/**
+	 * The maximal number of block children executed in parallel (see
+	 * {@link InstanceScheduler}).
+	 */
+	private int parallelInstances = 1;
+
 	/** The block file or block name to be used use. */
 	private String rootBlock = null;
 
@@ -182,14 +189,18 @@ public class Driver extends ConQATRunnerBase {
 		if (dryRun) {
 			LOGGER.info("Configuration '" + rootBlock + "' seems to be OK.");
 		} else {
+			InstanceScheduler instanceScheduler = new InstanceScheduler(
+					parallelInstances);
 			ExecutionContext executionContext = new ExecutionContext(
 					new BlockInfo(configInstance), bundleConfig,
-					instrumentation, tempDir, executorService);
+					instrumentation, tempDir, executorService,
+					instanceScheduler);
 			if (instrumentation.beginExecution(executionContext)) {
 				configInstance.execute(executionContext, instrumentation);
 			}
 			executionContext.performShutdown();
 			instrumentation.endExecution();
+			instanceScheduler.shutdown();
 			executorService.shutdownNow();
 		}
 
@@ -458,4 +469,16 @@ public class Driver extends ConQATRunnerBase {
 		}
 		executorService = Executors.newFixedThreadPool(numThreads);
 	}
+
+	/** Set parallel execution of independent instances. */
+	@AOption(shortName = 'x', longName = "parallel-instances", description = ""
+			+ "Sets the maximal number of processors and blocks that are executed in parallel, "
+			+ "if they do not depend on each others' outputs. This is still an experimental feature!")
+	public void setParallelInstances(int parallelInstances) {
+		if (parallelInstances < 1) {
+			throw new IllegalArgumentException(
+					"Number of parallel instances must be positive!");
+		}
+		this.parallelInstances = parallelInstances;
+	}
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import java.util.Map;
 import org.conqat.engine.core.bundle.BundleInfo;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.core.core.IConQATProcessor;
+import org.conqat.engine.core.core.IConQATProcessorInfo;
 import org.conqat.engine.core.driver.error.DriverException;
 import org.conqat.engine.core.driver.specification.ProcessorSpecification;
 import org.conqat.engine.core.driver.specification.ProcessorSpecificationAttribute;
@@ -80,6 +81,20 @@ public class CQDDLUtils {
 	public static Object executeProcessor(String processorClassName,
 			CQDDLParsingParameters parsingParameters, Object... args)
 			throws ConQATException, CQDDLExecutionException {
+		return executeProcessor(processorClassName, new ProcessorInfoMock(),
+				parsingParameters, args);
+	}
+
+	/**
+	 * Executes the given ConQAT processor using a CQDDL specification for its
+	 * parameters and the given processor info. See
+	 * {@link #executeProcessor(String, CQDDLParsingParameters, Object...)} for
+	 * details.
+	 */
+	public static Object executeProcessor(String processorClassName,
+			IConQATProcessorInfo processorInfo,
+			CQDDLParsingParameters parsingParameters, Object... args)
+			throws ConQATException, CQDDLExecutionException {
 
 		try {
 			ProcessorSpecification processorSpecification = new SpecificationLoader(
@@ -88,7 +103,7 @@ public class CQDDLUtils {
 
 			IConQATProcessor processor = processorSpecification
 					.createProcessorInstance();
-			processor.init(new ProcessorInfoMock());
+			processor.init(processorInfo);
 
 			Object parsingResult = CQDDL.parse(parsingParameters, args);
 			if (!(parsingResult instanceof PairList<?, ?>)) {
@@ -18,6 +18,7 @@ package org.conqat.engine.core.driver.info;
 
 import java.util.EnumMap;
 
+import org.conqat.engine.core.driver.instance.CloningStatistics;
 import org.conqat.engine.core.driver.instance.EInstanceState;
 import org.conqat.engine.core.driver.instance.ProcessorInstance;
 import org.conqat.lib.commons.collections.CollectionUtils;
@@ -62,4 +63,12 @@ public class ProcessorInfo extends InfoBase {
 	public long getExecutionTime() {
 		return instance.getExecutionTime();
 	}
+
+	/**
+	 * Returns the statistics on the cloning of values passed to the
+	 * processor.
+	 */
+	public CloningStatistics getCloningStatistics() {
+		return instance.getCloningStatistics();
+	}
 }
\ No newline at end of file
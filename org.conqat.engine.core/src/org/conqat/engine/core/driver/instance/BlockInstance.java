@@ -39,7 +39,8 @@ import org.conqat.lib.commons.collections.ListMap;
  * The instance of a block. This class is responsible for instantiating and
  * "wiring up" all contents of the block.
  * <p>
- * Execution is done by executing all contained block and processor instances.
+ * Execution is done by executing all contained block and processor instances
+ * using the {@link InstanceScheduler} from the {@link ExecutionContext}.
  * Furthermore, an aggregated view on the results is presented.
  * 
  * @author $Author: kinnen $
@@ -97,13 +98,8 @@ public class BlockInstance extends InstanceBase<BlockDeclaration> {
 			ConQATInstrumentation instrumentation) {
 		collectParameters();
 
-		// execute
-		for (IInstance instance : executionList) {
-			if (instrumentation.beforeExecute(instance)) {
-				instance.execute(contextInfo, instrumentation);
-			}
-			instrumentation.afterExecute(instance);
-		}
+		contextInfo.getInstanceScheduler().execute(executionList,
+				contextInfo, instrumentation);
 
 		collectResults();
 	}
@@ -113,7 +109,7 @@ public class BlockInstance extends InstanceBase<BlockDeclaration> {
 		for (InstanceParameter param : getNonSyntheticParameters()) {
 			for (InstanceAttribute attr : param.getAttributes()) {
 				try {
-					attr.prepareValue();
+					attr.prepareValue(getCloningStatistics());
 				} catch (DeepCloneException e) {
 					logger.error(
 							"In attribute "
@@ -129,7 +125,7 @@ public class BlockInstance extends InstanceBase<BlockDeclaration> {
 	private void collectResults() {
 		for (InstanceOutput output : getOutputs()) {
 			try {
-				output.copyReferencedResult();
+				output.copyReferencedResult(getCloningStatistics());
 			} catch (DeepCloneException e) {
 				logger.error("In output " + output.toString()
 						+ ": could not receive value due to cloning errors!", e);
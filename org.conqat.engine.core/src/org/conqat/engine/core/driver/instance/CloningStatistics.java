@@ -0,0 +1,133 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.core.driver.instance;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.conqat.lib.commons.clone.IFreezable;
+
+/**
+ * Statistics on the values cloned when passing them to an instance. Values are
+ * cloned if the same output is consumed by multiple instances (see
+ * {@link IValueProvider}). Frozen values (see {@link IFreezable}) are shared
+ * instead, which is also recorded here.
+ * <p>
+ * The number of bytes cloned is measured as the memory allocated by the
+ * current thread during cloning. This requires a JVM that supports
+ * measurement of thread allocation (such as the HotSpot VM); otherwise the
+ * number of bytes is not available.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CloningStatistics {
+
+	/** Value returned if the allocated bytes are not available. */
+	public static final long UNKNOWN_BYTES = -1;
+
+	/** The number of values cloned. */
+	private int cloneCount = 0;
+
+	/** The number of frozen values that were shared instead of cloned. */
+	private int sharedCount = 0;
+
+	/**
+	 * The number of bytes allocated while cloning or {@link #UNKNOWN_BYTES} if
+	 * not available.
+	 */
+	private long clonedBytes = 0;
+
+	/** The time spent for cloning in milliseconds. */
+	private long cloningTimeMillis = 0;
+
+	/**
+	 * Records the cloning of a value.
+	 * 
+	 * @param bytes
+	 *            the bytes allocated during cloning or {@link #UNKNOWN_BYTES}.
+	 */
+	/* package */synchronized void recordClone(long bytes, long timeMillis) {
+		cloneCount += 1;
+		cloningTimeMillis += timeMillis;
+		if (bytes == UNKNOWN_BYTES || clonedBytes == UNKNOWN_BYTES) {
+			clonedBytes = UNKNOWN_BYTES;
+		} else {
+			clonedBytes += bytes;
+		}
+	}
+
+	/** Records a frozen value that was shared instead of being cloned. */
+	/* package */synchronized void recordSharedValue() {
+		sharedCount += 1;
+	}
+
+	/** Returns the number of values cloned. */
+	public synchronized int getCloneCount() {
+		return cloneCount;
+	}
+
+	/** Returns the number of frozen values shared instead of being cloned. */
+	public synchronized int getSharedCount() {
+		return sharedCount;
+	}
+
+	/**
+	 * Returns the number of bytes allocated while cloning or
+	 * {@link #UNKNOWN_BYTES} if this is not supported by the JVM.
+	 */
+	public synchronized long getClonedBytes() {
+		return clonedBytes;
+	}
+
+	/** Returns the time spent for cloning in milliseconds. */
+	public synchronized long getCloningTimeMillis() {
+		return cloningTimeMillis;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized String toString() {
+		String bytes = "unknown";
+		if (clonedBytes != UNKNOWN_BYTES) {
+			bytes = (clonedBytes / 1024) + "kB";
+		}
+		return cloneCount + " values cloned (" + bytes + ", "
+				+ cloningTimeMillis + "ms), " + sharedCount
+				+ " frozen values shared";
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far or
+	 * {@link #UNKNOWN_BYTES} if this is not supported by the JVM.
+	 */
+	/* package */static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return UNKNOWN_BYTES;
+		}
+
+		com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) bean;
+		if (!hotspotBean.isThreadAllocatedMemorySupported()
+				|| !hotspotBean.isThreadAllocatedMemoryEnabled()) {
+			return UNKNOWN_BYTES;
+		}
+		return hotspotBean.getThreadAllocatedBytes(Thread.currentThread()
+				.getId());
+	}
+}
\ No newline at end of file
@@ -16,14 +16,16 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.core.driver.instance;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementation of a ConQAT wide processor local string pool. The pooling
  * strategy is not smart with respect to garbage collection, i.e., the interned
  * strings are not automatically released. However, the pool is only processor
  * local, so a full clean (which releases all strings) is performed after each
- * processor execution.
+ * processor execution. If processors are executed in parallel (see
+ * {@link InstanceScheduler}), the pool is shared by all running processors and
+ * only cleared after the last of them has been completed.
  * 
  * @author $Author: juergens $
  * @version $Rev: 35194 $
@@ -32,7 +34,10 @@ import java.util.HashMap;
 public class ConQATStringPool {
 
 	/** The string pool. */
-	private static final HashMap<String, String> STRING_POOL = new HashMap<String, String>();
+	private static final ConcurrentHashMap<String, String> STRING_POOL = new ConcurrentHashMap<String, String>();
+
+	/** The number of processors currently being executed. */
+	private static int runningProcessors = 0;
 
 	/**
 	 * Interns the string into the pool and returns the interned version. The
@@ -40,18 +45,45 @@ public class ConQATStringPool {
 	 * (i.e. comparison can be made by reference). This guarantee is valid only
 	 * between consecutive calls to {@link #clear()}, which happen automatically
 	 * at the end of a processor execution.
+	 * <p>
+	 * This method does not lock, as it is called concurrently by thread-safe
+	 * processors.
 	 */
-	public static synchronized String intern(String string) {
-		String interned = STRING_POOL.get(string);
+	public static String intern(String string) {
+		if (string == null) {
+			return null;
+		}
+		String interned = STRING_POOL.putIfAbsent(string, string);
 		if (interned == null) {
-			STRING_POOL.put(string, string);
 			return string;
 		}
 		return interned;
 	}
 
-	/** Clears the string pool. */
+	/**
+	 * Clears the string pool. If other processors are running in parallel to
+	 * the calling one, the pool is not cleared, as this would break the
+	 * uniqueness guarantee for them.
+	 */
 	public static synchronized void clear() {
-		STRING_POOL.clear();
+		if (runningProcessors <= 1) {
+			STRING_POOL.clear();
+		}
+	}
+
+	/** Signals that the execution of a processor has been started. */
+	/* package */static synchronized void processorStarted() {
+		runningProcessors += 1;
+	}
+
+	/**
+	 * Signals that the execution of a processor has been completed. This
+	 * clears the pool if no other processor is running.
+	 */
+	/* package */static synchronized void processorCompleted() {
+		runningProcessors -= 1;
+		if (runningProcessors == 0) {
+			STRING_POOL.clear();
+		}
 	}
 }
\ No newline at end of file
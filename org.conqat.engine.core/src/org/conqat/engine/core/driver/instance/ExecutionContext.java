@@ -81,6 +81,9 @@ public class ExecutionContext {
 	/** The executor. */
 	private final ExecutorService executorService;
 
+	/** The scheduler used for executing the children of blocks. */
+	private final InstanceScheduler instanceScheduler;
+
 	/**
 	 * Create a new context information object.
 	 * 
@@ -95,7 +98,8 @@ public class ExecutionContext {
 	public ExecutionContext(BlockInfo configurationInfo,
 			BundlesConfiguration bundlesConfig,
 			ConQATInstrumentation instrumentation, File tempDir,
-			ExecutorService executorService) throws EnvironmentException {
+			ExecutorService executorService, InstanceScheduler instanceScheduler)
+			throws EnvironmentException {
 		if (!tempDir.isDirectory() || !tempDir.canWrite()) {
 			throw new EnvironmentException(EDriverExceptionType.TEMP_DIR,
 					"Temporary directory " + tempDir
@@ -104,6 +108,7 @@ public class ExecutionContext {
 		}
 
 		this.executorService = executorService;
+		this.instanceScheduler = instanceScheduler;
 
 		this.configurationInfo = configurationInfo;
 		this.bundlesConfig = bundlesConfig;
@@ -211,7 +216,7 @@ public class ExecutionContext {
 	 * 
 	 * @see IConQATProcessorInfo#getTempFile(String, String)
 	 */
-	public CanonicalFile getTempFile(String prefix, String suffix) {
+	public synchronized CanonicalFile getTempFile(String prefix, String suffix) {
 		try {
 			return createUniqueFile(tmpBaseDir, prefix, suffix);
 		} catch (IOException e) {
@@ -230,4 +235,9 @@ public class ExecutionContext {
 	public ExecutorService getSharedExecutorService() {
 		return executorService;
 	}
+
+	/** Returns the scheduler used for executing the children of blocks. */
+	public InstanceScheduler getInstanceScheduler() {
+		return instanceScheduler;
+	}
 }
\ No newline at end of file
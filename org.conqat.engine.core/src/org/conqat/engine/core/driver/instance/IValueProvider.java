@@ -29,7 +29,9 @@ import org.conqat.lib.commons.clone.DeepCloneException;
  * we know for sure that the value will be requested again. Thus, each potential
  * consumer has to register during its initialization, so the exact number of
  * {@link #consumeValue()} calls is known at execution time (and thus the
- * necessary number of clone operations).
+ * necessary number of clone operations). Values that are frozen (see
+ * {@link org.conqat.lib.commons.clone.IFreezable}) are never cloned, but shared
+ * between all consumers.
  * 
  * @author $Author: kinnen $
  * @version $Rev: 41751 $
@@ -69,4 +71,18 @@ public interface IValueProvider {
 	 *             if the cloning process caused any problems.
 	 */
 	public Object consumeValue() throws DeepCloneException;
+
+	/**
+	 * Same as {@link #consumeValue()}, but additionally records any cloning
+	 * (or sharing of frozen values) in the given statistics.
+	 * 
+	 * @param statistics
+	 *            the statistics to record cloning in. If this is
+	 *            <code>null</code>, nothing is recorded.
+	 * 
+	 * @throws DeepCloneException
+	 *             if the cloning process caused any problems.
+	 */
+	public Object consumeValue(CloningStatistics statistics)
+			throws DeepCloneException;
 }
\ No newline at end of file
@@ -105,10 +105,15 @@ public class InstanceAttribute extends ValueProviderBase {
 	 * Prepares the value to be provided by either using the immediate value or
 	 * obtaining the result from a referenced value provider.
 	 * 
+	 * @param statistics
+	 *            the statistics used for recording the cloning of values
+	 *            obtained from the referenced value provider.
+	 * 
 	 * @throws DeepCloneException
 	 *             if an immediate or default value could not be cloned.
 	 */
-	public void prepareValue() throws DeepCloneException {
+	public void prepareValue(CloningStatistics statistics)
+			throws DeepCloneException {
 		if (declarationAttribute.getValueObject() != null) {
 			/*
 			 * Clone the value object, as it might have resulted from a default
@@ -121,7 +126,7 @@ public class InstanceAttribute extends ValueProviderBase {
 			setValue(value);
 		} else if (referencedValueProvider != null
 				&& referencedValueProvider.hasValue()) {
-			setValue(referencedValueProvider.consumeValue());
+			setValue(referencedValueProvider.consumeValue(statistics));
 		}
 	}
 
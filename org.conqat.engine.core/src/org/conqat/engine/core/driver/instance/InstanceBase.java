@@ -55,6 +55,9 @@ import org.conqat.lib.commons.clone.DeepCloneException;
 	/** The list of parameters for this instance. */
 	private final List<InstanceParameter> parameters = new ArrayList<InstanceParameter>();
 
+	/** Statistics on the cloning of values passed to this instance. */
+	private final CloningStatistics cloningStatistics = new CloningStatistics();
+
 	/**
 	 * Creates a new instance and prepares the list of parameters for this
 	 * instance from the given declaration.
@@ -114,6 +117,11 @@ import org.conqat.lib.commons.clone.DeepCloneException;
 		return result;
 	}
 
+	/** Returns the statistics on the cloning of values passed to this instance. */
+	public CloningStatistics getCloningStatistics() {
+		return cloningStatistics;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public BlockInstance getParent() {
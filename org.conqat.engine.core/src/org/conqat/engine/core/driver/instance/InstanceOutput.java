@@ -122,14 +122,23 @@ public class InstanceOutput extends ValueProviderBase {
 		return declarationOutput;
 	}
 
-	/** Signals this output to get its result from the referenced object. */
-	/* package */void copyReferencedResult() throws DeepCloneException {
+	/** Returns the instance this output belongs to. */
+	public IInstance getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Signals this output to get its result from the referenced object. Any
+	 * cloning is recorded in the given statistics.
+	 */
+	/* package */void copyReferencedResult(CloningStatistics statistics)
+			throws DeepCloneException {
 		if (referencedValueProvider == null) {
 			throw new IllegalStateException(
 					"May only use this for 'linked' outputs! In " + this);
 		}
 		if (referencedValueProvider.hasValue()) {
-			setValue(referencedValueProvider.consumeValue());
+			setValue(referencedValueProvider.consumeValue(statistics));
 		}
 	}
 
@@ -131,7 +131,7 @@ public class InstanceParameter {
 	 */
 	/* package */boolean prepareAttributes() throws DeepCloneException {
 		for (InstanceAttribute attr : getAttributes()) {
-			attr.prepareValue();
+			attr.prepareValue(instance.getCloningStatistics());
 			if (!attr.hasValue()) {
 				return false;
 			}
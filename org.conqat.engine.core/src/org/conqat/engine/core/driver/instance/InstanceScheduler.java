@@ -0,0 +1,377 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.core.driver.instance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.conqat.engine.core.driver.ConQATInstrumentation;
+import org.conqat.lib.commons.assertion.CCSMPre;
+
+/**
+ * Scheduler used by {@link BlockInstance}s for executing their child
+ * instances. In sequential mode (the default) the children are executed
+ * strictly in the order of the execution list. In parallel mode, the data
+ * dependencies between the children (i.e. attributes referencing the outputs
+ * of sibling instances) are used to build a dependency graph and all
+ * instances whose inputs are available are executed concurrently.
+ * <p>
+ * Only data dependencies are respected in parallel mode. Side effects of
+ * processors (such as writing and reading the same file) are not considered
+ * when ordering the instances. Additionally, the
+ * {@link ConQATInstrumentation#beforeExecute(IInstance)} and
+ * {@link ConQATInstrumentation#afterExecute(IInstance)} callbacks may be
+ * called concurrently from different threads (but always from the same thread
+ * for a single instance).
+ * <p>
+ * To avoid dead locks, the thread executing a block always participates in
+ * the execution of its children and additional threads are only used if a
+ * worker permit is available. Thus, no thread ever waits for a task that is
+ * not yet running. The worker threads are independent of the executor shared
+ * by the thread-safe processors (see
+ * {@link ExecutionContext#getSharedExecutorService()}), as processors may
+ * block this executor while waiting for their own tasks.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash: 
+ */
+public class InstanceScheduler {
+
+	/** The number of instances that may be executed in parallel. */
+	private final int maxParallelInstances;
+
+	/**
+	 * The executor used for the worker threads. This is <code>null</code> in
+	 * sequential mode.
+	 */
+	private final ExecutorService workerExecutor;
+
+	/**
+	 * Permits for additional worker threads. The thread executing a block does
+	 * not need a permit.
+	 */
+	private final Semaphore workerPermits;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxParallelInstances
+	 *            the maximal number of instances executed in parallel. A value
+	 *            of 1 corresponds to the sequential execution.
+	 */
+	public InstanceScheduler(int maxParallelInstances) {
+		CCSMPre.isTrue(maxParallelInstances >= 1,
+				"Number of parallel instances must be positive!");
+		this.maxParallelInstances = maxParallelInstances;
+		workerPermits = new Semaphore(maxParallelInstances - 1);
+		if (isParallel()) {
+			workerExecutor = Executors
+					.newCachedThreadPool(new WorkerThreadFactory());
+		} else {
+			workerExecutor = null;
+		}
+	}
+
+	/** Returns whether instances are executed in parallel. */
+	public boolean isParallel() {
+		return maxParallelInstances > 1;
+	}
+
+	/** Returns the maximal number of instances executed in parallel. */
+	public int getMaxParallelInstances() {
+		return maxParallelInstances;
+	}
+
+	/**
+	 * Executes the given instances. The list must be in a valid execution
+	 * order, i.e. each instance may only reference outputs of instances
+	 * earlier in the list. This method returns after all instances have been
+	 * executed.
+	 */
+	/* package */void execute(List<IInstance> executionList,
+			ExecutionContext contextInfo, ConQATInstrumentation instrumentation) {
+		if (!isParallel() || executionList.size() <= 1) {
+			for (IInstance instance : executionList) {
+				executeInstance(instance, contextInfo, instrumentation);
+			}
+			return;
+		}
+
+		new DataflowExecution(executionList, contextInfo, instrumentation)
+				.run();
+	}
+
+	/** Executes a single instance including the instrumentation callbacks. */
+	private static void executeInstance(IInstance instance,
+			ExecutionContext contextInfo, ConQATInstrumentation instrumentation) {
+		if (instrumentation.beforeExecute(instance)) {
+			instance.execute(contextInfo, instrumentation);
+		}
+		instrumentation.afterExecute(instance);
+	}
+
+	/**
+	 * Shuts down the worker threads. This should be called after the
+	 * execution of the configuration has been completed.
+	 */
+	public void shutdown() {
+		if (workerExecutor != null) {
+			workerExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The execution of a single execution list in dataflow order. All mutable
+	 * state is guarded by the monitor of this object.
+	 */
+	private class DataflowExecution {
+
+		/** The instances to execute. */
+		private final List<IInstance> instances;
+
+		/** The execution context. */
+		private final ExecutionContext contextInfo;
+
+		/** The instrumentation. */
+		private final ConQATInstrumentation instrumentation;
+
+		/**
+		 * For each instance (by index) the indices of the instances that
+		 * depend on it.
+		 */
+		private final List<List<Integer>> successors = new ArrayList<List<Integer>>();
+
+		/**
+		 * For each instance (by index) the number of instances it depends on
+		 * that have not been completed.
+		 */
+		private final int[] pendingPredecessors;
+
+		/**
+		 * The indices of the instances that are ready for execution. We use a
+		 * sorted set to prefer instances early in the execution list.
+		 */
+		private final TreeSet<Integer> ready = new TreeSet<Integer>();
+
+		/** The number of instances that have been completed. */
+		private int completed = 0;
+
+		/** The first throwable that escaped from the execution of an instance. */
+		private Throwable failure = null;
+
+		/**
+		 * Whether the coordinating thread was interrupted while waiting for
+		 * running instances.
+		 */
+		private boolean interrupted = false;
+
+		/** Constructor. */
+		public DataflowExecution(List<IInstance> instances,
+				ExecutionContext contextInfo,
+				ConQATInstrumentation instrumentation) {
+			this.instances = instances;
+			this.contextInfo = contextInfo;
+			this.instrumentation = instrumentation;
+			pendingPredecessors = new int[instances.size()];
+			buildDependencyGraph();
+		}
+
+		/** Builds the dependencies based on the references of the attributes. */
+		private void buildDependencyGraph() {
+			Map<IValueProvider, Integer> outputOwners = new HashMap<IValueProvider, Integer>();
+			for (int i = 0; i < instances.size(); ++i) {
+				for (InstanceOutput output : instances.get(i).getOutputs()) {
+					outputOwners.put(output, i);
+				}
+				successors.add(new ArrayList<Integer>());
+			}
+
+			for (int i = 0; i < instances.size(); ++i) {
+				for (int predecessor : determinePredecessors(
+						instances.get(i), outputOwners)) {
+					successors.get(predecessor).add(i);
+					pendingPredecessors[i] += 1;
+				}
+				if (pendingPredecessors[i] == 0) {
+					ready.add(i);
+				}
+			}
+		}
+
+		/**
+		 * Returns the indices of all instances whose outputs are referenced by
+		 * the parameters (including synthetic ones) of the given instance.
+		 */
+		private TreeSet<Integer> determinePredecessors(IInstance instance,
+				Map<IValueProvider, Integer> outputOwners) {
+			TreeSet<Integer> result = new TreeSet<Integer>();
+			for (InstanceParameter parameter : instance.getParameters()) {
+				for (InstanceAttribute attribute : parameter.getAttributes()) {
+					Integer owner = outputOwners.get(attribute
+							.getValueProvider());
+					if (owner != null) {
+						result.add(owner);
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Executes all instances and returns after the last one has been
+		 * completed. Throwables escaping from the execution of an instance
+		 * are rethrown after all running instances have been completed.
+		 */
+		public void run() {
+			runReadyInstances(true);
+
+			synchronized (this) {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				if (failure instanceof RuntimeException) {
+					throw (RuntimeException) failure;
+				}
+				if (failure instanceof Error) {
+					throw (Error) failure;
+				}
+				if (failure != null) {
+					throw new RuntimeException(failure);
+				}
+			}
+		}
+
+		/**
+		 * Executes ready instances until no more work is available. If this is
+		 * called for the coordinating thread (i.e. the one executing the
+		 * block), this waits for running instances and only returns after all
+		 * instances have been completed.
+		 */
+		private void runReadyInstances(boolean coordinator) {
+			while (true) {
+				int index;
+				synchronized (this) {
+					while (coordinator && ready.isEmpty()
+							&& completed < instances.size()) {
+						waitForCompletion();
+					}
+					if (ready.isEmpty()) {
+						return;
+					}
+					index = ready.pollFirst();
+					startAdditionalWorkers();
+				}
+
+				try {
+					executeInstance(instances.get(index), contextInfo,
+							instrumentation);
+				} catch (Throwable t) {
+					recordFailure(t);
+				} finally {
+					markCompleted(index);
+				}
+			}
+		}
+
+		/**
+		 * Waits until the next instance has been completed. If the thread is
+		 * interrupted, this is recorded in {@link #interrupted}, so the
+		 * interrupt can be restored by {@link #run()} after all running
+		 * instances have been completed (we can not abandon them).
+		 */
+		private void waitForCompletion() {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				// the caller checks its condition again, so we can just
+				// continue waiting
+				interrupted = true;
+			}
+		}
+
+		/**
+		 * Starts additional worker threads for the remaining ready instances
+		 * as long as permits are available. Must be called while holding the
+		 * monitor.
+		 */
+		private void startAdditionalWorkers() {
+			int startable = ready.size();
+			while (startable > 0 && workerPermits.tryAcquire()) {
+				startable -= 1;
+				workerExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							runReadyInstances(false);
+						} finally {
+							workerPermits.release();
+						}
+					}
+				});
+			}
+		}
+
+		/** Records the first failure. */
+		private synchronized void recordFailure(Throwable t) {
+			if (failure == null) {
+				failure = t;
+			}
+		}
+
+		/**
+		 * Marks the instance with given index as completed, which makes its
+		 * successors ready (if all of their inputs are available).
+		 */
+		private synchronized void markCompleted(int index) {
+			completed += 1;
+			for (int successor : successors.get(index)) {
+				pendingPredecessors[successor] -= 1;
+				if (pendingPredecessors[successor] == 0) {
+					ready.add(successor);
+				}
+			}
+			notifyAll();
+		}
+	}
+
+	/** Thread factory for the worker threads. */
+	private static class WorkerThreadFactory implements ThreadFactory {
+
+		/** Counter used for naming the threads. */
+		private final AtomicInteger threadCounter = new AtomicInteger();
+
+		/** {@inheritDoc} */
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "ConQAT instance worker "
+					+ threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setContextClassLoader(Thread.currentThread()
+					.getContextClassLoader());
+			return thread;
+		}
+	}
+}
\ No newline at end of file
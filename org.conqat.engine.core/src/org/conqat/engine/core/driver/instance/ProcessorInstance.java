@@ -58,11 +58,17 @@ public class ProcessorInstance extends InstanceBase<ProcessorDeclaration> {
 	/** The output of this instance. */
 	private final InstanceOutput output;
 
-	/** The time this processor needed to run in milliseconds. */
-	private long runtimeMillis = 0;
+	/**
+	 * The time this processor needed to run in milliseconds. This is volatile,
+	 * as it may be read from other threads during parallel execution.
+	 */
+	private volatile long runtimeMillis = 0;
 
-	/** The state this processor instance is in. */
-	private EInstanceState state = EInstanceState.NOT_RUN;
+	/**
+	 * The state this processor instance is in. This is volatile, as it may be
+	 * read from other threads during parallel execution.
+	 */
+	private volatile EInstanceState state = EInstanceState.NOT_RUN;
 
 	/**
 	 * Create a new processor instance from a given declaration.
@@ -119,6 +125,7 @@ public class ProcessorInstance extends InstanceBase<ProcessorDeclaration> {
 		logger.info("Executing processor: " + getName());
 		PerformanceMonitor monitor = PerformanceMonitor.create();
 
+		ConQATStringPool.processorStarted();
 		try {
 			// try to actually execute the processor
 			execute(contextInfo, instrumentation, preparedParameters);
@@ -126,7 +133,7 @@ public class ProcessorInstance extends InstanceBase<ProcessorDeclaration> {
 			handleExecutionException(e);
 		} finally {
 			// clear the ConQAT global string pool
-			ConQATStringPool.clear();
+			ConQATStringPool.processorCompleted();
 
 			// Stop collecting statistics
 			monitor.stop();
@@ -135,6 +142,16 @@ public class ProcessorInstance extends InstanceBase<ProcessorDeclaration> {
 					+ StringUtils.format(runtimeMillis) + "ms and "
 					+ StringUtils.format(monitor.getDeltaMemUsageInKBs())
 					+ "kB.");
+			logCloningStatistics();
+		}
+	}
+
+	/** Logs the cloning statistics if any input values were cloned or shared. */
+	private void logCloningStatistics() {
+		CloningStatistics statistics = getCloningStatistics();
+		if (statistics.getCloneCount() > 0 || statistics.getSharedCount() > 0) {
+			logger.info("Inputs of processor '" + getName() + "': "
+					+ statistics);
 		}
 	}
 
@@ -20,7 +20,9 @@ import org.conqat.lib.commons.clone.CloneUtils;
 import org.conqat.lib.commons.clone.DeepCloneException;
 
 /**
- * Implementation of the {@link IValueProvider} interface.
+ * Implementation of the {@link IValueProvider} interface. All methods are
+ * synchronized, as consumers of the same value might be executed in parallel
+ * (see {@link InstanceScheduler}).
  * 
  * @author $Author: kinnen $
  * @version $Rev: 41751 $
@@ -39,7 +41,7 @@ public abstract class ValueProviderBase implements IValueProvider {
 
 	/** {@inheritDoc} */
 	@Override
-	public void addConsumer() {
+	public synchronized void addConsumer() {
 		if (containsValue) {
 			throw new IllegalStateException(
 					"May only add consumers before value assignment!");
@@ -49,7 +51,7 @@ public abstract class ValueProviderBase implements IValueProvider {
 
 	/** {@inheritDoc} */
 	@Override
-	public void removeConsumer() {
+	public synchronized void removeConsumer() {
 		expectedReads -= 1;
 
 		// allow memory to be freed
@@ -60,12 +62,12 @@ public abstract class ValueProviderBase implements IValueProvider {
 
 	/** {@inheritDoc} */
 	@Override
-	public boolean hasValue() {
+	public synchronized boolean hasValue() {
 		return containsValue;
 	}
 
 	/** Assigns the value to be provided to this object. */
-	protected void setValue(Object value) {
+	protected synchronized void setValue(Object value) {
 		if (containsValue) {
 			throw new IllegalStateException("Should only be assigned once!");
 		}
@@ -84,6 +86,18 @@ public abstract class ValueProviderBase implements IValueProvider {
 	 */
 	@Override
 	public Object consumeValue() throws DeepCloneException {
+		return consumeValue(null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws DeepCloneException
+	 *             if the cloning process caused any problems.
+	 */
+	@Override
+	public synchronized Object consumeValue(CloningStatistics statistics)
+			throws DeepCloneException {
 		if (!containsValue) {
 			throw new IllegalStateException(
 					"This does not have a value to consume!");
@@ -97,7 +111,7 @@ public abstract class ValueProviderBase implements IValueProvider {
 
 		// clone if more reads are expected
 		if (expectedReads > 0) {
-			return CloneUtils.cloneAsDeepAsPossible(value);
+			return cloneValue(statistics);
 		}
 
 		// free value to support garbage collector
@@ -105,4 +119,32 @@ public abstract class ValueProviderBase implements IValueProvider {
 		value = null;
 		return result;
 	}
+
+	/**
+	 * Returns a clone of the value or the value itself if it is frozen. The
+	 * operation is recorded in the statistics (if non-null).
+	 */
+	private Object cloneValue(CloningStatistics statistics)
+			throws DeepCloneException {
+		if (CloneUtils.isFrozen(value)) {
+			if (statistics != null) {
+				statistics.recordSharedValue();
+			}
+			return value;
+		}
+
+		if (statistics == null) {
+			return CloneUtils.cloneAsDeepAsPossible(value);
+		}
+
+		long startBytes = CloningStatistics.getAllocatedBytes();
+		long startTime = System.currentTimeMillis();
+		Object result = CloneUtils.cloneAsDeepAsPossible(value);
+		long bytes = CloningStatistics.UNKNOWN_BYTES;
+		if (startBytes != CloningStatistics.UNKNOWN_BYTES) {
+			bytes = CloningStatistics.getAllocatedBytes() - startBytes;
+		}
+		statistics.recordClone(bytes, System.currentTimeMillis() - startTime);
+		return result;
+	}
 }
\ No newline at end of file
@@ -29,6 +29,7 @@ import org.conqat.engine.core.bundle.BundleException;
 import org.conqat.engine.core.bundle.BundleInfo;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.core.core.IConQATProcessor;
+import org.conqat.engine.core.core.IConQATProcessorInfo;
 import org.conqat.engine.core.driver.cqddl.CQDDLExecutionException;
 import org.conqat.engine.core.driver.cqddl.CQDDLUtils;
 import org.conqat.engine.core.driver.specification.SpecificationLoader;
@@ -129,6 +130,23 @@ public abstract class ConQATProcessorTestCaseBase extends CCSMTestCaseBase {
 		}
 	}
 
+	/**
+	 * Executes the given ConQAT processor using the given processor info. This
+	 * can be used to provide a multi-threaded executor service. See
+	 * {@link #executeProcessor(Class, Object...)} for details.
+	 */
+	protected Object executeProcessor(IConQATProcessorInfo processorInfo,
+			Class<? extends IConQATProcessor> processorClass, Object... args)
+			throws ConQATException {
+
+		try {
+			return CQDDLUtils.executeProcessor(processorClass.getName(),
+					processorInfo, parsingParameters, args);
+		} catch (CQDDLExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/** Make sure that the tmp directory exists and is empty. */
 	protected void ensureEmptyTmpDir() throws IOException {
 		deleteTmpDirectory();
@@ -44,6 +44,12 @@ public class ProcessorInfoMock implements IConQATProcessorInfo {
 	/** Logger. */
 	private final IConQATLogger logger;
 
+	/**
+	 * The executor service returned. If this is null, a new
+	 * {@link InThreadExecutorService} is returned.
+	 */
+	private final ExecutorService executorService;
+
 	/**
 	 * Constructs a new {@link ProcessorInfoMock} with a {@link LoggerMock} as
 	 * logger.
@@ -54,7 +60,18 @@ public class ProcessorInfoMock implements IConQATProcessorInfo {
 
 	/** Constructs a new {@link ProcessorInfoMock} with the given logger */
 	public ProcessorInfoMock(IConQATLogger logger) {
+		this(logger, null);
+	}
+
+	/**
+	 * Constructs a new {@link ProcessorInfoMock} with the given logger and
+	 * executor service. The executor service allows testing thread-safe
+	 * processors with multiple threads.
+	 */
+	public ProcessorInfoMock(IConQATLogger logger,
+			ExecutorService executorService) {
 		this.logger = logger;
+		this.executorService = executorService;
 	}
 
 	/** Throws {@link IllegalStateException} */
@@ -125,6 +142,9 @@ public class ProcessorInfoMock implements IConQATProcessorInfo {
 	/** {@inheritDoc} */
 	@Override
 	public ExecutorService getExecutorService() {
+		if (executorService != null) {
+			return executorService;
+		}
 		return new InThreadExecutorService();
 	}
 }
\ No newline at end of file
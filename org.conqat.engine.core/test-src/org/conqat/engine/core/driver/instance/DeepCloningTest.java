@@ -62,4 +62,12 @@ public class DeepCloningTest extends DriverTestBase {
 		// order)
 		assertTrue(dct.numberOfDeepCloneCalls < 2);
 	}
+
+	/** Tests that frozen results are shared instead of being cloned. */
+	public void testFrozenResultsAreShared() throws DriverException {
+		runDriver("cloning-04.cqb");
+		DeepClonedType dct = (DeepClonedType) DataSinkProcessor.accessData(
+				"clone").get(0);
+		assertEquals(0, dct.numberOfDeepCloneCalls);
+	}
 }
\ No newline at end of file
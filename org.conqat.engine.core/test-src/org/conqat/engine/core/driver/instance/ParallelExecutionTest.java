@@ -0,0 +1,76 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.core.driver.instance;
+
+import java.util.Arrays;
+
+import org.conqat.engine.core.driver.Driver;
+import org.conqat.engine.core.driver.error.DriverException;
+import org.conqat.engine.core.driver.info.IInfo;
+import org.conqat.engine.core.driver.processors.BarrierProcessor;
+import org.conqat.engine.core.driver.processors.DataSinkProcessor;
+import org.conqat.engine.core.logging.testutils.DriverTestBase;
+
+/**
+ * Tests the parallel execution of instances via the {@link InstanceScheduler}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class ParallelExecutionTest extends DriverTestBase {
+
+	/**
+	 * Tests that independent instances are executed in parallel while
+	 * dependent ones still see the outputs of their predecessors.
+	 */
+	public void testParallelExecution() throws DriverException {
+		runParallelDriver("parallel-01.cqb", 4);
+
+		assertEquals(Arrays.asList("first", "second"),
+				DataSinkProcessor.accessData("barrier"));
+		assertEquals(Arrays.asList("chained", "hello chained"),
+				DataSinkProcessor.accessData("chain"));
+		for (IInfo info : DataSinkProcessor.blockInfo.getChildren()) {
+			assertEquals(EInstanceState.RUN_SUCCESSFULLY, info.getState());
+		}
+	}
+
+	/**
+	 * Tests that the existing configurations yield the same results as in
+	 * sequential execution.
+	 */
+	public void testSplitExecution() throws DriverException {
+		runParallelDriver("execution-02.cqb", 3);
+
+		assertEquals(Arrays.asList("hello world!"),
+				DataSinkProcessor.accessData("child1"));
+		assertEquals(Arrays.asList("hiho hiho"),
+				DataSinkProcessor.accessData("child2"));
+	}
+
+	/** Runs the driver with the given number of parallel instances. */
+	private void runParallelDriver(String filename, int parallelInstances)
+			throws DriverException {
+		DataSinkProcessor.resetDataStore();
+		BarrierProcessor.resetBarrier();
+		Driver driver = new Driver();
+		driver.setConfigFileName(useTestFile(filename).toString());
+		driver.setParallelInstances(parallelInstances);
+		driver.drive(null);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.core.driver.processors;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.conqat.engine.core.core.AConQATAttribute;
+import org.conqat.engine.core.core.AConQATParameter;
+import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.core.IConQATProcessor;
+import org.conqat.engine.core.core.IConQATProcessorInfo;
+
+/**
+ * A processor that waits until a second instance of this processor is
+ * executed concurrently. This can only succeed if instances are executed in
+ * parallel.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = "Barrier for testing purposes.")
+public class BarrierProcessor implements IConQATProcessor {
+
+	/** The barrier shared by all instances. */
+	private static CyclicBarrier barrier = new CyclicBarrier(2);
+
+	/** The value to output. */
+	private String value;
+
+	/** Resets the barrier. */
+	public static void resetBarrier() {
+		barrier = new CyclicBarrier(2);
+	}
+
+	/** Set the value to be output. */
+	@AConQATParameter(name = "set", description = "", minOccurrences = 1, maxOccurrences = 1)
+	public void setValue(@AConQATAttribute(name = "value", description = "")
+	String value) {
+		this.value = value;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void init(IConQATProcessorInfo processorInfo) {
+		// nothing to do here
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String process() throws ConQATException {
+		try {
+			barrier.await(10, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			throw new ConQATException("Barrier was not reached: " + e);
+		}
+		return value;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.core.driver.processors;
+
+import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.lib.commons.clone.IFreezable;
+
+/**
+ * A {@link DeepClonedType} that freezes itself when being processed. As frozen
+ * objects are shared between consumers, the deep clone counter should stay
+ * zero.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = "A deep clone counting type that freezes itself "
+		+ "when processed.")
+public class FrozenDeepClonedType extends DeepClonedType implements IFreezable {
+
+	/** Flag for frozen state. */
+	private boolean frozen = false;
+
+	/** {@inheritDoc} */
+	@Override
+	public void freeze() {
+		frozen = true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public DeepClonedType process() {
+		freeze();
+		return this;
+	}
+}
\ No newline at end of file
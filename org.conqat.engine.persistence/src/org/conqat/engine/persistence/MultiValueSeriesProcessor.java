@@ -16,13 +16,13 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.persistence;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.conqat.engine.commons.node.IConQATNode;
 import org.conqat.engine.commons.node.NodeUtils;
-import org.conqat.engine.commons.node.StringSetNode;
 import org.conqat.engine.commons.statistics.DateValueSeries;
 import org.conqat.engine.commons.statistics.MultiDateValueSeries;
 import org.conqat.engine.commons.traversal.TraversalUtils;
@@ -32,6 +32,7 @@ import org.conqat.engine.core.core.AConQATParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.lib.commons.collections.ListMap;
+import org.conqat.lib.commons.collections.PairList;
 
 /**
  * {@ConQAT.Doc}
@@ -66,7 +67,13 @@ public class MultiValueSeriesProcessor extends ValueSeriesProcessor {
 			+ "the difference between the value at the root node and the registered target nodes is stored under this name.")
 	public String collectorName = null;
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The values of all series are stored with a single batch and read back
+	 * with a single query. The collector series depends on the stored values
+	 * and thus requires a second round.
+	 */
 	@Override
 	public MultiDateValueSeries process() throws ConQATException {
 		MultiDateValueSeries result = new MultiDateValueSeries();
@@ -86,7 +93,7 @@ public class MultiValueSeriesProcessor extends ValueSeriesProcessor {
 		Map<String, IConQATNode> idToNodes = TraversalUtils
 				.createIdToNodeMap(node);
 
-		double sum = 0;
+		PairList<String, Number> tableValues = new PairList<String, Number>();
 		for (String name : namesToNodeIDs.getKeys()) {
 			double localSum = 0;
 			for (String nodeId : namesToNodeIDs.getCollection(name)) {
@@ -97,33 +104,44 @@ public class MultiValueSeriesProcessor extends ValueSeriesProcessor {
 				}
 				localSum += NodeUtils.getDoubleValue(localNode, key);
 			}
+			tableValues.add(getTable(originalTableName, name), localSum);
+		}
 
-			node = new StringSetNode();
-			node.setValue(key, localSum);
-			setTable(originalTableName, name);
+		getLogger().info(
+				"Processing " + namesToNodeIDs.getKeys().size() + " series");
+		storeValues(tableValues);
+		List<DateValueSeries> seriesList = createSeries(tableValues
+				.extractFirstList());
 
-			getLogger().info("Processing series " + name);
-			DateValueSeries series = super.process();
+		double sum = 0;
+		int i = 0;
+		for (String name : namesToNodeIDs.getKeys()) {
+			DateValueSeries series = seriesList.get(i++);
 			sum += series.getValues().get(series.getLatestDate());
 			result.addSeries(name, series);
 		}
 		return sum;
 	}
 
-	/** Sets the table according to the given original/base name and extension. */
-	private void setTable(String originalTableName, String extension) {
-		tableName = originalTableName + "_"
+	/**
+	 * Returns the table according to the given original/base name and
+	 * extension.
+	 */
+	private static String getTable(String originalTableName, String extension) {
+		return originalTableName + "_"
 				+ extension.replaceAll("[^a-zA-Z0-9]", "_");
 	}
 
 	/** Appends the series used for the collector. */
 	private void appendCollectorSeries(MultiDateValueSeries result,
 			String originalTableName, double value) throws ConQATException {
-		node = new StringSetNode();
-		node.setValue(key, value);
-		setTable(originalTableName, collectorName);
+		String table = getTable(originalTableName, collectorName);
+		PairList<String, Number> tableValues = new PairList<String, Number>();
+		tableValues.add(table, value);
 
 		getLogger().info("Processing collector");
-		result.addSeries(collectorName, super.process());
+		storeValues(tableValues);
+		result.addSeries(collectorName,
+				createSeries(Collections.singletonList(table)).get(0));
 	}
 }
@@ -19,7 +19,10 @@ package org.conqat.engine.persistence;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import org.conqat.engine.commons.statistics.DateValueSeries;
 import org.conqat.engine.core.core.AConQATAttribute;
@@ -43,6 +46,12 @@ public abstract class ValueSeriesCreatorBase extends DatabaseProcessorBase {
 	/** Name of value column in database table */
 	protected static final String VALUE = "Value";
 
+	/**
+	 * Name of the column used to identify the series in queries reading
+	 * multiple tables.
+	 */
+	private static final String SERIES = "Series";
+
 	/** If set, only dates after this time stamp are included */
 	private Date after = null;
 
@@ -71,38 +80,56 @@ public abstract class ValueSeriesCreatorBase extends DatabaseProcessorBase {
 	 *             (e.g. ends before it starts).
 	 */
 	protected DateValueSeries createSeries() throws ConQATException {
+		return createSeries(Collections.singletonList(tableName)).get(0);
+	}
+
+	/**
+	 * Creates the {@link DateValueSeries} for each of the given tables using a
+	 * single query.
+	 * 
+	 * @throws ConQATException
+	 *             if a database exception occurs, or if the interval is invalid
+	 *             (e.g. ends before it starts).
+	 */
+	protected List<DateValueSeries> createSeries(List<String> tableNames)
+			throws ConQATException {
 		checkIntervalSane();
 		CCSMAssert
 				.isNotNull(dbConnection,
 						"The ConQAT driver makes sure that the dbConnection is initialized.");
 		try {
-			return loadSeries();
+			return loadSeries(tableNames);
 		} catch (SQLException e) {
 			throw wrap(e);
 		}
 	}
 
 	/** Fills the series with data from the database */
-	private DateValueSeries loadSeries() throws SQLException {
-		DateValueSeries series = new DateValueSeries();
+	private List<DateValueSeries> loadSeries(List<String> tableNames)
+			throws SQLException {
+		List<DateValueSeries> seriesList = new ArrayList<DateValueSeries>();
+		for (int i = 0; i < tableNames.size(); ++i) {
+			seriesList.add(new DateValueSeries());
+		}
 
 		Statement statement = null;
 		ResultSet result = null;
 		try {
 			statement = dbConnection.createStatement();
-			result = statement.executeQuery(createQueryString());
+			result = statement.executeQuery(createQueryString(tableNames));
 
 			while (result.next()) {
+				int index = result.getInt(SERIES);
 				long date = result.getLong(DATE);
 				double value = result.getDouble(VALUE);
-				series.addValue(new Date(date), value);
+				seriesList.get(index).addValue(new Date(date), value);
 			}
 		} finally {
 			DatabaseUtils.closeSilently(result);
 			DatabaseUtils.closeSilently(statement);
 		}
 
-		return series;
+		return seriesList;
 	}
 
 	/** Make sure that the specified interval is sane. */
@@ -117,11 +144,26 @@ public abstract class ValueSeriesCreatorBase extends DatabaseProcessorBase {
 		}
 	}
 
-	/** Create SQL string for query. */
-	private String createQueryString() {
+	/**
+	 * Create SQL string for query. The tables are combined using UNION ALL and
+	 * the index of the table is selected as column {@link #SERIES}.
+	 */
+	private String createQueryString(List<String> tableNames) {
 		StringBuilder result = new StringBuilder();
-		result.append("SELECT " + DATE + ", " + VALUE + " FROM ");
-		result.append(tableName);
+		for (int i = 0; i < tableNames.size(); ++i) {
+			if (i > 0) {
+				result.append(" UNION ALL ");
+			}
+			result.append("SELECT " + i + " AS " + SERIES + ", " + DATE + ", "
+					+ VALUE + " FROM ");
+			result.append(tableNames.get(i));
+			appendCondition(result);
+		}
+		return result.toString();
+	}
+
+	/** Appends the WHERE clause for the interval (if any). */
+	private void appendCondition(StringBuilder result) {
 		if (after != null || before != null) {
 			result.append(" WHERE ");
 		}
@@ -134,7 +176,6 @@ public abstract class ValueSeriesCreatorBase extends DatabaseProcessorBase {
 		if (before != null) {
 			result.append(DATE + "<" + before.getTime());
 		}
-		return result.toString();
 	}
 
 }
\ No newline at end of file
@@ -16,9 +16,16 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.persistence;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.conqat.engine.commons.node.IConQATNode;
 import org.conqat.engine.commons.statistics.DateValueSeries;
@@ -26,6 +33,7 @@ import org.conqat.engine.core.core.AConQATAttribute;
 import org.conqat.engine.core.core.AConQATParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
 import org.conqat.engine.core.core.ConQATException;
+import org.conqat.lib.commons.collections.PairList;
 import org.conqat.lib.commons.date.DateUtils;
 
 /**
@@ -57,6 +65,14 @@ public class ValueSeriesProcessor extends ValueSeriesCreatorBase {
 	/** Key for the value. */
 	protected String key;
 
+	/**
+	 * Names (in upper case) of the tables known to exist for each connection.
+	 * This avoids issuing a CREATE TABLE statement for each stored value. If a
+	 * table is dropped later on, it is created again when an insert fails (see
+	 * {@link #insertBatchRecreatingTables(PairList)}).
+	 */
+	private static final Map<Connection, Set<String>> EXISTING_TABLES = new WeakHashMap<Connection, Set<String>>();
+
 	/**
 	 * If set to true, exceptions occurring during insertion are treated as log
 	 * messages on level debug
@@ -118,22 +134,129 @@ public class ValueSeriesProcessor extends ValueSeriesCreatorBase {
 			throw new ConQATException("Value is not a number.");
 		}
 
-		getLogger().debug("Storing value: " + value);
+		PairList<String, Number> tableValues = new PairList<String, Number>();
+		tableValues.add(tableName, (Number) value);
+		storeValues(tableValues);
+	}
+
+	/**
+	 * Stores the values in the given tables (one value per table). Missing
+	 * tables are created and all values are inserted using a single batch
+	 * within one transaction.
+	 * 
+	 * @throws ConQATException
+	 *             if a database exception occurs
+	 */
+	protected void storeValues(PairList<String, Number> tableValues)
+			throws ConQATException {
+		for (int i = 0; i < tableValues.size(); ++i) {
+			getLogger().debug(
+					"Storing value " + tableValues.getSecond(i) + " in table "
+							+ tableValues.getFirst(i));
+		}
 
 		try {
-			insertValue(value);
+			ensureTablesExist(tableValues.extractFirstList());
+			insertValues(tableValues);
 		} catch (SQLException e) {
 			throw wrap(e);
 		}
 	}
 
-	/** Insert value into datbase */
-	private void insertValue(Object value) throws SQLException {
-		ensureTableExists();
+	/**
+	 * Insert values into database. If the batch fails and lenient insertion is
+	 * enabled, the values are inserted one by one so failures of individual
+	 * values do not affect the others.
+	 */
+	private void insertValues(PairList<String, Number> tableValues)
+			throws SQLException, ConQATException {
+		try {
+			insertBatchRecreatingTables(tableValues);
+		} catch (SQLException e) {
+			if (!lenientInsertionBehavior) {
+				throw e;
+			}
+			insertValuesIndividually(tableValues);
+		} catch (ConQATException e) {
+			if (!lenientInsertionBehavior) {
+				throw e;
+			}
+			insertValuesIndividually(tableValues);
+		}
+	}
+
+	/**
+	 * Inserts all values with a single batch. If this fails, a table may have
+	 * been dropped after it was recorded in {@link #EXISTING_TABLES}. As batch
+	 * errors do not reliably report the cause, the tables are created again in
+	 * this case. If any table was missing, the batch is retried once.
+	 */
+	private void insertBatchRecreatingTables(
+			PairList<String, Number> tableValues) throws SQLException,
+			ConQATException {
+		try {
+			insertBatch(tableValues);
+		} catch (SQLException e) {
+			if (!recreateTables(tableValues.extractFirstList())) {
+				throw e;
+			}
+			insertBatch(tableValues);
+		}
+	}
+
+	/**
+	 * Creates all tables that do not exist (anymore) and returns whether any
+	 * table had to be created.
+	 */
+	private boolean recreateTables(List<String> tableNames)
+			throws SQLException {
+		boolean created = false;
+		for (String table : tableNames) {
+			if (ensureTableExists(table)) {
+				created = true;
+			}
+			getExistingTables().add(table.toUpperCase());
+		}
+		return created;
+	}
+
+	/** Inserts the values one by one. */
+	private void insertValuesIndividually(PairList<String, Number> tableValues)
+			throws SQLException {
+		for (int i = 0; i < tableValues.size(); ++i) {
+			insertValue(tableValues.getFirst(i), tableValues.getSecond(i));
+		}
+	}
+
+	/** Inserts all values with a single batch in one transaction. */
+	private void insertBatch(PairList<String, Number> tableValues)
+			throws SQLException, ConQATException {
+		boolean autoCommit = dbConnection.getAutoCommit();
+		dbConnection.setAutoCommit(false);
+		try {
+			Statement statement = dbConnection.createStatement();
+			for (int i = 0; i < tableValues.size(); ++i) {
+				statement.addBatch(createInsertString(tableValues.getFirst(i),
+						tableValues.getSecond(i)));
+			}
+			DatabaseUtils.executeAndClose(statement);
+			dbConnection.commit();
+		} catch (SQLException e) {
+			dbConnection.rollback();
+			throw e;
+		} catch (ConQATException e) {
+			dbConnection.rollback();
+			throw e;
+		} finally {
+			dbConnection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/** Insert single value into database */
+	private void insertValue(String table, Number number) throws SQLException {
 		Statement statement = dbConnection.createStatement();
 		try {
-			Number number = (Number) value;
-			statement.executeUpdate(createInsertString(number));
+			statement.executeUpdate(createInsertString(table, number));
 		} catch (SQLException e) {
 			if (lenientInsertionBehavior) {
 				getLogger().debug("Could not insert value: " + e.getMessage());
@@ -146,18 +269,56 @@ public class ValueSeriesProcessor extends ValueSeriesCreatorBase {
 	}
 
 	/**
-	 * Ensure that database table exists.
+	 * Ensure that the database tables exist. Tables already known to exist for
+	 * the current connection are skipped.
+	 * 
+	 * @throws SQLException
+	 *             if a problem with database connection occurred.
+	 */
+	private void ensureTablesExist(List<String> tableNames)
+			throws SQLException {
+		Set<String> existingTables = getExistingTables();
+		for (String table : tableNames) {
+			String normalizedName = table.toUpperCase();
+			if (!existingTables.contains(normalizedName)) {
+				ensureTableExists(table);
+				existingTables.add(normalizedName);
+			}
+		}
+	}
+
+	/**
+	 * Returns the names (in upper case) of the tables known to exist for the
+	 * current connection.
+	 */
+	private Set<String> getExistingTables() {
+		synchronized (EXISTING_TABLES) {
+			Set<String> existingTables = EXISTING_TABLES.get(dbConnection);
+			if (existingTables == null) {
+				existingTables = Collections
+						.synchronizedSet(new HashSet<String>());
+				EXISTING_TABLES.put(dbConnection, existingTables);
+			}
+			return existingTables;
+		}
+	}
+
+	/**
+	 * Ensure that database table exists. Returns whether the table was
+	 * created.
 	 * 
 	 * @throws SQLException
 	 *             if a problem with database connection occurred.
 	 */
-	private void ensureTableExists() throws SQLException {
-		String createTableString = createCreateTableString();
+	private boolean ensureTableExists(String table) throws SQLException {
+		String createTableString = createCreateTableString(table);
 		Statement statement = dbConnection.createStatement();
 
+		boolean created = true;
 		try {
 			statement.executeUpdate(createTableString);
 		} catch (SQLException e) {
+			created = false;
 			// if the error is caused by a table that already exists, everything
 			// is fine. Otherwise, we throw an exception. This can, e.g., be
 			// caused by a invalid table name (see also CR#3611).
@@ -179,22 +340,23 @@ public class ValueSeriesProcessor extends ValueSeriesCreatorBase {
 			}
 		}
 		statement.close();
+		return created;
 	}
 
 	/** Create SQL string for table creation. */
-	private String createCreateTableString() {
+	private static String createCreateTableString(String table) {
 		StringBuilder result = new StringBuilder();
 		result.append("CREATE TABLE ");
-		result.append(tableName);
+		result.append(table);
 		result.append(" (" + DATE + " bigint PRIMARY KEY, " + VALUE + " real) ");
 		return result.toString();
 	}
 
 	/** Create SQL string for insertion. */
-	private String createInsertString(Number number) {
+	private String createInsertString(String table, Number number) {
 		StringBuilder result = new StringBuilder();
 		result.append("INSERT INTO ");
-		result.append(tableName);
+		result.append(table);
 		result.append(" (" + DATE + ", " + VALUE + ") VALUES (");
 		result.append(time);
 		result.append(", ");
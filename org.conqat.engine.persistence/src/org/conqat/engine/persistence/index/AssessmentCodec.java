@@ -0,0 +1,89 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.conqat.lib.commons.assessment.Assessment;
+import org.conqat.lib.commons.assessment.ETrafficLightColor;
+
+/**
+ * Codec for {@link Assessment}s. Only colors with non-zero frequency are
+ * stored as pairs of color ordinal and frequency.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class AssessmentCodec implements IValueCodec<Assessment> {
+
+	/** {@inheritDoc} */
+	@Override
+	public int getVersion() {
+		return 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Subclasses are written using Java serialization to preserve their type.
+	 */
+	@Override
+	public boolean canEncode(Assessment value) {
+		return value.getClass() == Assessment.class;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void encode(Assessment value, DataOutputStream out)
+			throws IOException {
+		int count = 0;
+		for (ETrafficLightColor color : ETrafficLightColor.values()) {
+			if (value.getColorFrequency(color) > 0) {
+				count += 1;
+			}
+		}
+
+		out.writeByte(count);
+		for (ETrafficLightColor color : ETrafficLightColor.values()) {
+			int frequency = value.getColorFrequency(color);
+			if (frequency > 0) {
+				out.writeByte(color.ordinal());
+				out.writeInt(frequency);
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Assessment decode(DataInputStream in, int version)
+			throws IOException {
+		ETrafficLightColor[] colors = ETrafficLightColor.values();
+		Assessment assessment = new Assessment();
+		int count = in.readUnsignedByte();
+		for (int i = 0; i < count; ++i) {
+			int ordinal = in.readUnsignedByte();
+			if (ordinal >= colors.length) {
+				throw new IOException("Invalid color ordinal: " + ordinal);
+			}
+			assessment.add(colors[ordinal], in.readInt());
+		}
+		return assessment;
+	}
+}
\ No newline at end of file
@@ -20,7 +20,7 @@ import org.conqat.engine.persistence.store.IStore;
 import org.conqat.lib.commons.assessment.Assessment;
 
 /**
- * Index that stores assessments.
+ * Index that stores assessments using the {@link AssessmentCodec}.
  * 
  * @author $Author: heineman $
  * @version $Rev: 37965 $
@@ -31,6 +31,6 @@ public class AssessmentIndex extends
 
 	/** Constructor */
 	public AssessmentIndex(IStore store) {
-		super(store);
+		super(store, new AssessmentCodec());
 	}
 }
@@ -0,0 +1,91 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.conqat.lib.commons.collections.CounterSet;
+import org.conqat.lib.commons.string.StringUtils;
+
+/**
+ * Codec for {@link CounterSet}s with string keys. The entries are stored in
+ * iteration order as pairs of UTF-8 key and value.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@SuppressWarnings("rawtypes")
+public class CounterSetCodec implements IValueCodec<CounterSet> {
+
+	/** {@inheritDoc} */
+	@Override
+	public int getVersion() {
+		return 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Only plain counter sets whose keys are all strings are supported, as
+	 * other keys and subclasses require Java serialization anyway.
+	 */
+	@Override
+	public boolean canEncode(CounterSet value) {
+		if (value.getClass() != CounterSet.class) {
+			return false;
+		}
+		for (Object key : value.getKeys()) {
+			if (!(key instanceof String)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void encode(CounterSet value, DataOutputStream out)
+			throws IOException {
+		// all keys are strings (see canEncode())
+		@SuppressWarnings("unchecked")
+		CounterSet<String> counterSet = value;
+		out.writeInt(counterSet.getKeys().size());
+		for (String key : counterSet.getKeys()) {
+			byte[] keyBytes = StringUtils.stringToBytes(key);
+			out.writeInt(keyBytes.length);
+			out.write(keyBytes);
+			out.writeInt(counterSet.getValue(key));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public CounterSet decode(DataInputStream in, int version)
+			throws IOException {
+		CounterSet<String> counterSet = new CounterSet<String>();
+		int size = in.readInt();
+		for (int i = 0; i < size; ++i) {
+			byte[] keyBytes = new byte[in.readInt()];
+			in.readFully(keyBytes);
+			counterSet.inc(StringUtils.bytesToString(keyBytes), in.readInt());
+		}
+		return counterSet;
+	}
+}
\ No newline at end of file
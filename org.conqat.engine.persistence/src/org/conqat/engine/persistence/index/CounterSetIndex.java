@@ -20,7 +20,8 @@ import org.conqat.engine.persistence.store.IStore;
 import org.conqat.lib.commons.collections.CounterSet;
 
 /**
- * An index holding {@link CounterSet}s.
+ * An index holding {@link CounterSet}s. Counter sets with string keys are
+ * stored using the {@link CounterSetCodec}.
  * 
  * @author $Author: $
  * @version $Rev: $
@@ -32,6 +33,6 @@ public class CounterSetIndex extends
 
 	/** Constructor */
 	public CounterSetIndex(IStore store) {
-		super(store);
+		super(store, new CounterSetCodec());
 	}
 }
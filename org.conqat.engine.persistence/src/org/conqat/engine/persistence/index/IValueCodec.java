@@ -0,0 +1,55 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A codec for converting values of a {@link SerializationBasedValueIndexBase}
+ * into a compact binary representation instead of using Java serialization.
+ * Each encoded value is prefixed with the codec version, so data written by
+ * older versions of a codec stays readable.
+ * 
+ * @param <T>
+ *            the type of values handled.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public interface IValueCodec<T> {
+
+	/**
+	 * Returns the current version of this codec, which is used for writing.
+	 * This must be between 1 and 127 (inclusive).
+	 */
+	int getVersion();
+
+	/**
+	 * Returns whether the given value can be encoded by this codec. If not,
+	 * Java serialization is used instead.
+	 */
+	boolean canEncode(T value);
+
+	/** Writes the given value using the current version. */
+	void encode(T value, DataOutputStream out) throws IOException;
+
+	/** Reads a value written with the given version of this codec. */
+	T decode(DataInputStream in, int version) throws IOException;
+}
\ No newline at end of file
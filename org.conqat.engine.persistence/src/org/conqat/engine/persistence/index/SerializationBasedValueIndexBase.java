@@ -16,16 +16,24 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.persistence.index;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 
 import org.conqat.engine.persistence.store.IStore;
 import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.lib.commons.assertion.CCSMPre;
 import org.conqat.lib.commons.io.SerializationUtils;
 
 /**
  * Abstract base class for {@link ValueIndexBase} where the byte conversion is
- * just performed by Java serialization.
+ * performed by Java serialization. Subclasses may provide an
+ * {@link IValueCodec} that is used instead for all values it supports. Values
+ * written by Java serialization (e.g. existing data) remain readable, as they
+ * are recognized by the serialization stream header.
  * 
  * @param <T>
  *            the type stored as values.
@@ -37,15 +45,60 @@ import org.conqat.lib.commons.io.SerializationUtils;
 public abstract class SerializationBasedValueIndexBase<T extends Serializable>
 		extends ValueIndexBase<T> {
 
+	/**
+	 * The first byte of the Java serialization stream header. Codec versions
+	 * are restricted to positive bytes to never collide with this.
+	 */
+	private static final byte SERIALIZATION_HEADER = (byte) 0xAC;
+
+	/** The codec used (may be null). */
+	private final IValueCodec<T> codec;
+
 	/** Constructor. */
 	protected SerializationBasedValueIndexBase(IStore store) {
+		this(store, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param codec
+	 *            the codec used for writing values. If this is null, Java
+	 *            serialization is used.
+	 */
+	protected SerializationBasedValueIndexBase(IStore store,
+			IValueCodec<T> codec) {
 		super(store);
+		if (codec != null) {
+			CCSMPre.isTrue(codec.getVersion() > 0 && codec.getVersion() <= 127,
+					"Codec version must be between 1 and 127!");
+		}
+		this.codec = codec;
+	}
+
+	/**
+	 * Returns the version of the codec used for writing values. This is 0 if
+	 * Java serialization is used.
+	 */
+	public int getCodecVersion() {
+		if (codec == null) {
+			return 0;
+		}
+		return codec.getVersion();
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	protected byte[] valueToByteArray(T value) throws StorageException {
 		try {
+			if (codec != null && codec.canEncode(value)) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(bytes);
+				out.writeByte(codec.getVersion());
+				codec.encode(value, out);
+				out.close();
+				return bytes.toByteArray();
+			}
 			return SerializationUtils.serializeToByteArray(value);
 		} catch (IOException e) {
 			throw new StorageException(e);
@@ -57,6 +110,9 @@ public abstract class SerializationBasedValueIndexBase<T extends Serializable>
 	@Override
 	protected T byteArrayToValue(byte[] bytes) throws StorageException {
 		try {
+			if (bytes.length > 0 && bytes[0] != SERIALIZATION_HEADER) {
+				return decode(bytes);
+			}
 			return (T) SerializationUtils.deserializeFromByteArray(bytes,
 					Thread.currentThread().getContextClassLoader());
 		} catch (IOException e) {
@@ -67,4 +123,17 @@ public abstract class SerializationBasedValueIndexBase<T extends Serializable>
 			throw new StorageException(e);
 		}
 	}
+
+	/** Decodes a value written by the codec. */
+	private T decode(byte[] bytes) throws IOException, StorageException {
+		int version = bytes[0];
+		if (codec == null || version > codec.getVersion()) {
+			throw new StorageException("Value was written with unsupported "
+					+ "codec version " + version + " (supported: "
+					+ getCodecVersion() + ")");
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				bytes, 1, bytes.length - 1));
+		return codec.decode(in, version);
+	}
 }
@@ -17,6 +17,7 @@
 package org.conqat.engine.persistence.index.schema;
 
 import org.conqat.engine.persistence.store.util.CompressingStore;
+import org.conqat.engine.persistence.store.util.DictionaryCompressingStore;
 
 /**
  * Options that can be used to modify the storage layout used below an index.
@@ -30,6 +31,12 @@ public enum EStorageOption {
 	/** Compresses the values using the {@link CompressingStore}. */
 	COMPRESSED,
 
+	/**
+	 * Compresses the values using the {@link DictionaryCompressingStore} with
+	 * the dictionary recorded in the {@link SchemaEntry}.
+	 */
+	DICTIONARY_COMPRESSED,
+
 	/** Indicates whether a store will be included in the backup */
 	BACKUP,
 
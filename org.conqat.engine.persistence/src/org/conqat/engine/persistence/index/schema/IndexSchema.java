@@ -22,11 +22,13 @@ import java.util.Map;
 
 import org.conqat.engine.persistence.index.IndexBase;
 import org.conqat.engine.persistence.index.MetaIndex;
+import org.conqat.engine.persistence.index.SerializationBasedValueIndexBase;
 import org.conqat.engine.persistence.store.IStorageSystem;
 import org.conqat.engine.persistence.store.IStore;
 import org.conqat.engine.persistence.store.StorageException;
 import org.conqat.engine.persistence.store.hist.HistoryAccessOption;
 import org.conqat.engine.persistence.store.util.CompressingStore;
+import org.conqat.engine.persistence.store.util.DictionaryCompressingStore;
 import org.conqat.lib.commons.assertion.CCSMAssert;
 import org.conqat.lib.commons.collections.CollectionUtils;
 import org.conqat.lib.commons.collections.UnmodifiableSet;
@@ -82,12 +84,41 @@ public class IndexSchema implements Serializable {
 			HistoryAccessOption historyAccessOption) throws StorageException {
 		IStore store = openStoreChecked(storeName, indexClass, storageSystem,
 				false, historyAccessOption);
+		T index;
 		try {
-			return indexClass.getConstructor(IStore.class).newInstance(store);
+			index = indexClass.getConstructor(IStore.class).newInstance(store);
 		} catch (Exception e) {
 			throw new StorageException("Failed to create index for "
 					+ storeName + " (index class " + indexClass + ")", e);
 		}
+		updateCodecVersion(storeName, index);
+		return index;
+	}
+
+	/**
+	 * Records the codec version used by the given index in the schema entry of
+	 * the store. This fails if the store contains values written by a newer
+	 * codec version than supported by the index. The updated entry is
+	 * persisted with the next call to {@link #save(IStorageSystem)}.
+	 */
+	private synchronized void updateCodecVersion(String storeName,
+			IndexBase index) throws StorageException {
+		if (!(index instanceof SerializationBasedValueIndexBase)) {
+			return;
+		}
+
+		int codecVersion = ((SerializationBasedValueIndexBase<?>) index)
+				.getCodecVersion();
+		SchemaEntry entry = entries.get(storeName);
+		if (entry.getCodecVersion() > codecVersion) {
+			throw new StorageException("Store '" + storeName
+					+ "' contains values written with codec version "
+					+ entry.getCodecVersion() + " but the index only supports "
+					+ codecVersion);
+		}
+		if (entry.getCodecVersion() < codecVersion) {
+			entries.put(storeName, entry.withCodecVersion(codecVersion));
+		}
 	}
 
 	/** Opens the given store applying all storage options from the schema. */
@@ -119,10 +150,14 @@ public class IndexSchema implements Serializable {
 	 * historyAccessOption has to be supplied.
 	 */
 	public IStore applyStoreOptions(SchemaEntry entry, IStore store,
-			boolean rawAccess, HistoryAccessOption historyAccessOption) {
+			boolean rawAccess, HistoryAccessOption historyAccessOption)
+			throws StorageException {
 
 		if (entry.usesOption(EStorageOption.COMPRESSED)) {
 			store = new CompressingStore(store);
+		} else if (entry.usesOption(EStorageOption.DICTIONARY_COMPRESSED)) {
+			store = new DictionaryCompressingStore(store,
+					entry.getCompressionDictionaryId());
 		}
 
 		CCSMAssert.isFalse(rawAccess && historyAccessOption != null,
@@ -151,6 +186,27 @@ public class IndexSchema implements Serializable {
 		return store;
 	}
 
+	/**
+	 * Trains a new compression dictionary from the values of the given store
+	 * and records it in the schema entry, so it is used for all values written
+	 * afterwards. The store must use
+	 * {@link EStorageOption#DICTIONARY_COMPRESSED}. The updated entry is
+	 * persisted with the next call to {@link #save(IStorageSystem)}.
+	 */
+	public synchronized void trainCompressionDictionary(String storeName,
+			IStorageSystem storageSystem) throws StorageException {
+		SchemaEntry entry = entries.get(storeName);
+		if (entry == null
+				|| !entry.usesOption(EStorageOption.DICTIONARY_COMPRESSED)) {
+			throw new StorageException("Store '" + storeName
+					+ "' does not use dictionary compression!");
+		}
+
+		int dictionaryId = DictionaryCompressingStore
+				.trainDictionary(storageSystem.openStore(storeName));
+		entries.put(storeName, entry.withCompressionDictionaryId(dictionaryId));
+	}
+
 	/** Sets the decorator (may be set to null to turn decorating off). */
 	public void setDecorator(IStoreDecorator decorator) {
 		this.decorator = decorator;
@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.EnumSet;
 import java.util.Set;
 
+import org.conqat.engine.persistence.index.IValueCodec;
 import org.conqat.engine.persistence.index.IndexBase;
 import org.conqat.lib.commons.collections.CollectionUtils;
 import org.conqat.lib.commons.collections.UnmodifiableSet;
@@ -49,11 +50,34 @@ public class SchemaEntry implements Serializable {
 	private final Set<EStorageOption> storageOptions = EnumSet
 			.noneOf(EStorageOption.class);
 
+	/**
+	 * The highest version of the {@link IValueCodec} used for writing values
+	 * to the store. This is 0 if the values are written by Java serialization
+	 * only or if the schema was created before codec versions were recorded.
+	 */
+	private final int codecVersion;
+
+	/**
+	 * The ID of the dictionary used for compressing new values if
+	 * {@link EStorageOption#DICTIONARY_COMPRESSED} is used. This is 0 if no
+	 * dictionary has been trained yet.
+	 */
+	private final int compressionDictionaryId;
+
 	/** Constructor. */
 	/* package */SchemaEntry(String indexClassName,
-			Collection<EStorageOption> storageOptions) {
+			Collection<EStorageOption> storageOptions, int codecVersion,
+			int compressionDictionaryId) {
 		this.indexClass = indexClassName;
 		this.storageOptions.addAll(storageOptions);
+		this.codecVersion = codecVersion;
+		this.compressionDictionaryId = compressionDictionaryId;
+	}
+
+	/** Constructor. */
+	/* package */SchemaEntry(String indexClassName,
+			Collection<EStorageOption> storageOptions) {
+		this(indexClassName, storageOptions, 0, 0);
 	}
 
 	/** Constructor. */
@@ -73,6 +97,31 @@ public class SchemaEntry implements Serializable {
 		return indexClass;
 	}
 
+	/** Returns the codec version (see {@link #codecVersion}). */
+	public int getCodecVersion() {
+		return codecVersion;
+	}
+
+	/** Returns a copy of this entry with the given codec version. */
+	public SchemaEntry withCodecVersion(int codecVersion) {
+		return new SchemaEntry(indexClass, storageOptions, codecVersion,
+				compressionDictionaryId);
+	}
+
+	/**
+	 * Returns the compression dictionary ID (see
+	 * {@link #compressionDictionaryId}).
+	 */
+	public int getCompressionDictionaryId() {
+		return compressionDictionaryId;
+	}
+
+	/** Returns a copy of this entry with the given compression dictionary ID. */
+	public SchemaEntry withCompressionDictionaryId(int compressionDictionaryId) {
+		return new SchemaEntry(indexClass, storageOptions, codecVersion,
+				compressionDictionaryId);
+	}
+
 	/** Returns the storage options. */
 	public UnmodifiableSet<EStorageOption> getStorageOptions() {
 		return CollectionUtils.asUnmodifiable(storageOptions);
@@ -85,7 +134,13 @@ public class SchemaEntry implements Serializable {
 		return storageOptions.contains(option);
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The codec version and compression dictionary are not included, as they
+	 * only describe the encoding of values and all older encodings remain
+	 * readable.
+	 */
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -97,7 +152,12 @@ public class SchemaEntry implements Serializable {
 		return result;
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The codec version and compression dictionary are not included (see
+	 * {@link #hashCode()}).
+	 */
 	@Override
 	public boolean equals(Object other) {
 		if (!(other instanceof SchemaEntry)) {
@@ -111,6 +171,13 @@ public class SchemaEntry implements Serializable {
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
-		return indexClass + " (" + storageOptions.toString() + ")";
+		String result = indexClass + " (" + storageOptions.toString() + ")";
+		if (codecVersion > 0) {
+			result += " codec v" + codecVersion;
+		}
+		if (compressionDictionaryId > 0) {
+			result += " dictionary " + compressionDictionaryId;
+		}
+		return result;
 	}
 }
\ No newline at end of file
@@ -16,10 +16,15 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.persistence.store.bdb;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.conqat.engine.persistence.store.IKeyValueCallback;
 import org.conqat.engine.persistence.store.StorageException;
 import org.conqat.engine.persistence.store.base.ByteArrayComparator;
 import org.conqat.engine.persistence.store.base.PartitionStoreBase;
+import org.conqat.engine.persistence.store.util.StorageUtils;
+import org.conqat.lib.commons.collections.PairList;
 
 import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
@@ -30,6 +35,11 @@ import com.sleepycat.je.OperationStatus;
 
 /**
  * Store implementation for Berkeley DB.
+ * <p>
+ * Batch operations use a single cursor and process the keys in sorted order,
+ * which avoids opening a cursor per key and improves the locality of the
+ * B-tree accesses. As the database uses deferred writes (which can not be
+ * combined with transactions), batches are not atomic.
  * 
  * @author $Author: hummelb $
  * @version $Rev: 46133 $
@@ -71,6 +81,83 @@ public class BDBStore extends PartitionStoreBase {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	protected List<byte[]> doBatchGet(List<byte[]> keys)
+			throws StorageException {
+		byte[][] values = new byte[keys.size()][];
+		Cursor cursor = null;
+		try {
+			cursor = database.openCursor(null, null);
+			for (int index : StorageUtils.sortedOrder(keys)) {
+				DatabaseEntry value = new DatabaseEntry();
+				if (cursor.getSearchKey(new DatabaseEntry(keys.get(index)),
+						value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+					values[index] = value.getData();
+				}
+			}
+		} catch (DatabaseException e) {
+			throw new StorageException("Could not access BDB data!", e);
+		} finally {
+			closeCursor(cursor);
+		}
+		return Arrays.asList(values);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doBatchPut(PairList<byte[], byte[]> keysValues)
+			throws StorageException {
+		Cursor cursor = null;
+		try {
+			cursor = database.openCursor(null, null);
+			// the sort is stable, so the last value for a key still wins
+			for (int index : StorageUtils.sortedOrder(keysValues
+					.extractFirstList())) {
+				cursor.put(new DatabaseEntry(keysValues.getFirst(index)),
+						new DatabaseEntry(keysValues.getSecond(index)));
+			}
+		} catch (DatabaseException e) {
+			throw new StorageException("Could not store BDB data!", e);
+		} finally {
+			closeCursor(cursor);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doBatchRemove(List<byte[]> keys) throws StorageException {
+		Cursor cursor = null;
+		try {
+			cursor = database.openCursor(null, null);
+			DatabaseEntry value = new DatabaseEntry();
+			value.setPartial(0, 0, true);
+			for (int index : StorageUtils.sortedOrder(keys)) {
+				if (cursor.getSearchKey(new DatabaseEntry(keys.get(index)),
+						value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+					cursor.delete();
+				}
+			}
+		} catch (Exception e) {
+			// we catch exception here, as the number of possible (uncatched)
+			// exceptions is really overwhelming
+			throw new StorageException("Deletion failed!", e);
+		} finally {
+			closeCursor(cursor);
+		}
+	}
+
+	/** Closes the given cursor (if it is not null). */
+	private static void closeCursor(Cursor cursor) {
+		if (cursor != null) {
+			try {
+				cursor.close();
+			} catch (DatabaseException e) {
+				// nothing we can do here...
+			}
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	protected void doScan(byte[] beginKey, byte[] endKey,
@@ -101,13 +188,7 @@ public class BDBStore extends PartitionStoreBase {
 		} catch (DatabaseException e) {
 			throw new StorageException("Could not scan BDB table!", e);
 		} finally {
-			if (cursor != null) {
-				try {
-					cursor.close();
-				} catch (DatabaseException e) {
-					// nothing we can do here...
-				}
-			}
+			closeCursor(cursor);
 		}
 	}
 
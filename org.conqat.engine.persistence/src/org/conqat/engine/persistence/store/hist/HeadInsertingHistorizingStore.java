@@ -16,6 +16,7 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.persistence.store.hist;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.conqat.engine.persistence.store.IStore;
@@ -26,7 +27,10 @@ import org.conqat.lib.commons.io.ByteArrayUtils;
 
 /**
  * A store that inserts new data at the head. All reading operations work on the
- * head revision.
+ * head revision. Additionally, the {@link RevisionIndex} of all written keys is
+ * updated, which allows efficient reads from
+ * {@link TimestampReadOnlyHistorizingStore}. As the index is updated by
+ * read-modify-write, there must be no concurrent writers for the same keys.
  * 
  * @author $Author: heineman $
  * @version $Rev: 38851 $
@@ -34,6 +38,9 @@ import org.conqat.lib.commons.io.ByteArrayUtils;
  */
 public class HeadInsertingHistorizingStore extends HeadReadOnlyHistorizingStore {
 
+	/** The timestamp used for the revisions. */
+	private final long timestamp;
+
 	/** The suffix used for the timestamp keys. */
 	private final byte[] timestampSuffix;
 
@@ -42,26 +49,29 @@ public class HeadInsertingHistorizingStore extends HeadReadOnlyHistorizingStore
 		super(delegate);
 
 		CCSMPre.isTrue(timestamp > 0, "Timestamp must be positive!");
+		this.timestamp = timestamp;
 		this.timestampSuffix = ByteArrayUtils.longToByteArray(timestamp);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 * <p>
-	 * We have to update both the head and the revision key.
+	 * We have to update the head and the revision key as well as the index.
 	 */
 	@Override
 	public void put(byte[] key, byte[] value) throws StorageException {
-		PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>(2);
+		PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>(3);
 		keysValues.add(revisionKey(key, timestampSuffix), value);
 		keysValues.add(headKey(key), value);
+		RevisionIndex.addRevisions(store, Collections.singletonList(key),
+				timestamp, keysValues);
 		store.put(keysValues);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 * <p>
-	 * We have to update both the head and the revision key.
+	 * We have to update the head and the revision key as well as the index.
 	 */
 	@Override
 	public void put(PairList<byte[], byte[]> keysValues)
@@ -74,6 +84,8 @@ public class HeadInsertingHistorizingStore extends HeadReadOnlyHistorizingStore
 			newKeysValues.add(headKey(keysValues.getFirst(i)),
 					keysValues.getSecond(i));
 		}
+		RevisionIndex.addRevisions(store, keysValues.extractFirstList(),
+				timestamp, newKeysValues);
 		store.put(newKeysValues);
 	}
 
@@ -83,7 +95,11 @@ public class HeadInsertingHistorizingStore extends HeadReadOnlyHistorizingStore
 		store.remove(headKey(key));
 
 		// also persist deletion marker
-		store.put(revisionKey(key, timestampSuffix), DELETION_MARKER);
+		PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>(2);
+		keysValues.add(revisionKey(key, timestampSuffix), DELETION_MARKER);
+		RevisionIndex.addRevisions(store, Collections.singletonList(key),
+				timestamp, keysValues);
+		store.put(keysValues);
 	}
 
 	/** {@inheritDoc} */
@@ -100,6 +116,7 @@ public class HeadInsertingHistorizingStore extends HeadReadOnlyHistorizingStore
 			deletionMarkers.add(revisionKey(key, timestampSuffix),
 					DELETION_MARKER);
 		}
+		RevisionIndex.addRevisions(store, keys, timestamp, deletionMarkers);
 		store.put(deletionMarkers);
 	}
 }
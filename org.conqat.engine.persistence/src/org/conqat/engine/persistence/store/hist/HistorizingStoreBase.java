@@ -24,6 +24,7 @@ import java.util.List;
 import org.conqat.engine.persistence.store.IKeyValueCallback;
 import org.conqat.engine.persistence.store.IStore;
 import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.util.DictionaryCompressingStore;
 import org.conqat.engine.persistence.store.util.ExceptionHandlingKeyValueCallbackBase;
 import org.conqat.lib.commons.collections.PairList;
 import org.conqat.lib.commons.io.ByteArrayUtils;
@@ -44,6 +45,13 @@ public abstract class HistorizingStoreBase implements IStore {
 	/** The string used as prefix for marking the head revision. */
 	protected static final byte[] HEAD_PREFIX = "#_HEAD_#".getBytes();
 
+	/**
+	 * The string used as prefix for the per-key revision index (see
+	 * {@link RevisionIndex}).
+	 */
+	protected static final byte[] REVISION_INDEX_PREFIX = "#_RIDX_#"
+			.getBytes();
+
 	/** Single 0 byte marks deleted entries. */
 	protected static final byte[] DELETION_MARKER = new byte[] { 0 };
 
@@ -74,6 +82,24 @@ public abstract class HistorizingStoreBase implements IStore {
 		return newKey;
 	}
 
+	/** Makes a revision index key by prefixing {@link #REVISION_INDEX_PREFIX}. */
+	protected static byte[] revisionIndexKey(byte[] key) {
+		return ByteArrayUtils.concat(REVISION_INDEX_PREFIX, key);
+	}
+
+	/**
+	 * Returns whether the given raw key is used for internal bookkeeping, i.e.
+	 * is a head key, a revision index key, or the key of a dictionary stored
+	 * by a {@link DictionaryCompressingStore} below this store, and hence no
+	 * revision key.
+	 */
+	protected static boolean isInternalKey(byte[] rawKey) {
+		return ByteArrayUtils.isPrefix(HEAD_PREFIX, rawKey)
+				|| ByteArrayUtils.isPrefix(REVISION_INDEX_PREFIX, rawKey)
+				|| ByteArrayUtils.isPrefix(
+						DictionaryCompressingStore.DICTIONARY_PREFIX, rawKey);
+	}
+
 	/** Converts a list of keys to head keys using {@link #headKey(byte[])}. */
 	protected static List<byte[]> headKeyList(List<byte[]> keys) {
 		List<byte[]> result = new ArrayList<byte[]>();
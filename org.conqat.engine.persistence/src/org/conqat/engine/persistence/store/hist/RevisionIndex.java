@@ -0,0 +1,230 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.hist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.base.ByteArrayComparator;
+import org.conqat.engine.persistence.store.util.ExceptionHandlingKeyValueCallbackBase;
+import org.conqat.engine.persistence.store.util.StorageUtils;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.io.ByteArrayUtils;
+
+/**
+ * Utility methods for the per-key revision index of historized stores. For
+ * each key the index stores the sorted timestamps of all revisions (including
+ * deletions) as concatenated 8 byte values under the key prefixed with
+ * {@link HistorizingStoreBase#REVISION_INDEX_PREFIX}. This allows to find the
+ * revision valid at a given timestamp with a single point lookup instead of
+ * scanning the revision keys.
+ * <p>
+ * An index entry is always complete, i.e. it is only created with the
+ * timestamps of all revisions that already exist for the key. Keys without
+ * index entry (e.g. data written before the index was introduced) have to be
+ * read by scanning. {@link RevisionIndexMigration} creates the missing index
+ * entries for existing data.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */final class RevisionIndex {
+
+	/** Length of a single timestamp entry in the index. */
+	private static final int ENTRY_LENGTH = ByteArrayUtils.LONG_BYTE_ARRAY_LENGTH;
+
+	/**
+	 * Returns the largest timestamp stored in the index that is less or equal
+	 * to the given timestamp or -1 if no such timestamp exists.
+	 */
+	public static long findRevision(byte[] index, long timestamp) {
+		int low = 0;
+		int high = index.length / ENTRY_LENGTH - 1;
+		long result = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long value = StorageUtils
+					.extractLong(index, middle * ENTRY_LENGTH);
+			if (value <= timestamp) {
+				result = value;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an index that contains the timestamps of the given index (which
+	 * may be null) and the given timestamp.
+	 */
+	public static byte[] addRevision(byte[] index, long timestamp) {
+		if (index == null) {
+			return ByteArrayUtils.longToByteArray(timestamp);
+		}
+
+		int count = index.length / ENTRY_LENGTH;
+		int position = count;
+		while (position > 0
+				&& StorageUtils.extractLong(index, (position - 1)
+						* ENTRY_LENGTH) >= timestamp) {
+			position -= 1;
+		}
+		if (position < count
+				&& StorageUtils.extractLong(index, position * ENTRY_LENGTH)
+						== timestamp) {
+			return index;
+		}
+
+		byte[] result = new byte[index.length + ENTRY_LENGTH];
+		System.arraycopy(index, 0, result, 0, position * ENTRY_LENGTH);
+		StorageUtils.insertLong(timestamp, result, position * ENTRY_LENGTH);
+		System.arraycopy(index, position * ENTRY_LENGTH, result, (position + 1)
+				* ENTRY_LENGTH, index.length - position * ENTRY_LENGTH);
+		return result;
+	}
+
+	/** Creates an index from the given (unsorted) timestamps. */
+	public static byte[] createIndex(Collection<Long> timestamps) {
+		TreeSet<Long> sorted = new TreeSet<Long>(timestamps);
+		byte[] result = new byte[sorted.size() * ENTRY_LENGTH];
+		int offset = 0;
+		for (long timestamp : sorted) {
+			StorageUtils.insertLong(timestamp, result, offset);
+			offset += ENTRY_LENGTH;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the original key of a revision key or null if the given raw key
+	 * is no revision key.
+	 */
+	public static byte[] extractOriginalKey(byte[] rawKey) {
+		int length = rawKey.length - 1 - ENTRY_LENGTH;
+		if (length < 0
+				|| rawKey[length] != HistorizingStoreBase.TIMESTAMP_SEPARATOR
+				|| HistorizingStoreBase.isInternalKey(rawKey)) {
+			return null;
+		}
+		byte[] result = new byte[length];
+		System.arraycopy(rawKey, 0, result, 0, length);
+		return result;
+	}
+
+	/** Returns the timestamp of a revision key. */
+	public static long extractTimestamp(byte[] revisionKey) {
+		return StorageUtils.extractLong(revisionKey, revisionKey.length
+				- ENTRY_LENGTH);
+	}
+
+	/**
+	 * Adds the given timestamp to the index entries of the given keys. The
+	 * updated index entries are not written to the store but appended to the
+	 * given list, so they can be written together with the revision data. For
+	 * keys without index entry the existing revisions are determined by a
+	 * (single, batched) prefix scan.
+	 */
+	public static void addRevisions(IStore rawStore, List<byte[]> keys,
+			long timestamp, PairList<byte[], byte[]> indexUpdates)
+			throws StorageException {
+		List<byte[]> sortedKeys = new ArrayList<byte[]>(keys);
+		Collections.sort(sortedKeys, ByteArrayComparator.INSTANCE);
+
+		List<byte[]> indexKeys = new ArrayList<byte[]>();
+		for (byte[] key : sortedKeys) {
+			indexKeys.add(HistorizingStoreBase.revisionIndexKey(key));
+		}
+		List<byte[]> indexes = rawStore.get(indexKeys);
+
+		Map<byte[], List<Long>> unindexed = new TreeMap<byte[], List<Long>>(
+				ByteArrayComparator.INSTANCE);
+		byte[] lastKey = null;
+		for (int i = 0; i < sortedKeys.size(); ++i) {
+			byte[] key = sortedKeys.get(i);
+			if (lastKey != null
+					&& ByteArrayComparator.INSTANCE.compare(lastKey, key) == 0) {
+				continue;
+			}
+			lastKey = key;
+
+			if (indexes.get(i) != null) {
+				indexUpdates.add(indexKeys.get(i),
+						addRevision(indexes.get(i), timestamp));
+			} else {
+				List<Long> timestamps = new ArrayList<Long>();
+				timestamps.add(timestamp);
+				unindexed.put(key, timestamps);
+			}
+		}
+
+		if (unindexed.isEmpty()) {
+			return;
+		}
+
+		collectRevisions(rawStore, unindexed);
+		for (Map.Entry<byte[], List<Long>> entry : unindexed.entrySet()) {
+			indexUpdates.add(
+					HistorizingStoreBase.revisionIndexKey(entry.getKey()),
+					createIndex(entry.getValue()));
+		}
+	}
+
+	/**
+	 * Scans the revisions of all keys in the given map and adds their
+	 * timestamps to the map's lists.
+	 */
+	private static void collectRevisions(IStore rawStore,
+			final Map<byte[], List<Long>> revisions) throws StorageException {
+		List<byte[]> prefixes = new ArrayList<byte[]>();
+		for (byte[] key : revisions.keySet()) {
+			byte[] prefix = new byte[key.length + 1];
+			System.arraycopy(key, 0, prefix, 0, key.length);
+			prefix[key.length] = HistorizingStoreBase.TIMESTAMP_SEPARATOR;
+			prefixes.add(prefix);
+		}
+
+		ExceptionHandlingKeyValueCallbackBase callback = new ExceptionHandlingKeyValueCallbackBase() {
+			@Override
+			protected void callbackWithException(byte[] key, byte[] value) {
+				byte[] originalKey = extractOriginalKey(key);
+				if (originalKey == null) {
+					return;
+				}
+
+				// callbacks may be called concurrently
+				synchronized (revisions) {
+					List<Long> timestamps = revisions.get(originalKey);
+					if (timestamps != null) {
+						timestamps.add(extractTimestamp(key));
+					}
+				}
+			}
+		};
+		rawStore.scan(prefixes, callback);
+		callback.throwCaughtException();
+	}
+}
\ No newline at end of file
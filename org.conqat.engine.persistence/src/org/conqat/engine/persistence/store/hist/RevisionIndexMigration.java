@@ -0,0 +1,142 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.hist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.conqat.engine.persistence.index.schema.EStorageOption;
+import org.conqat.engine.persistence.index.schema.IndexSchema;
+import org.conqat.engine.persistence.index.schema.SchemaAwareStorageSystem;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.util.ExceptionHandlingKeyValueCallbackBase;
+import org.conqat.lib.commons.collections.ByteArrayWrapper;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.io.ByteArrayUtils;
+
+/**
+ * Creates the missing {@link RevisionIndex} entries for historized data, e.g.
+ * data written by {@link HeadInsertingHistorizingStore} before the index was
+ * introduced. Running the migration is optional, as keys without index entry
+ * are still read by scanning, but it is required to get fast point lookups for
+ * existing data. The migration must not run concurrently with writers.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class RevisionIndexMigration {
+
+	/** Number of index entries written in one batch. */
+	private static final int BATCH_SIZE = 1000;
+
+	/**
+	 * Creates the missing index entries for all historized stores of the given
+	 * storage system. Returns the number of created entries.
+	 */
+	public static int migrate(SchemaAwareStorageSystem storageSystem)
+			throws StorageException {
+		IndexSchema schema = storageSystem.getSchema();
+		int count = 0;
+		for (String name : schema.getEntryNames()) {
+			if (schema.getEntry(name).usesOption(EStorageOption.HISTORIZED)) {
+				count += migrate(storageSystem.openStore(name));
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Creates the missing index entries for the given raw store (i.e. without
+	 * any historizing store in between). Returns the number of created
+	 * entries.
+	 */
+	public static int migrate(IStore rawStore) throws StorageException {
+		MigrationCallback callback = new MigrationCallback();
+		rawStore.scanKeys(new byte[0], callback);
+		callback.throwCaughtException();
+
+		PairList<byte[], byte[]> indexes = new PairList<byte[], byte[]>();
+		int count = 0;
+		for (Map.Entry<ByteArrayWrapper, List<Long>> entry : callback.revisions
+				.entrySet()) {
+			if (callback.indexedKeys.contains(entry.getKey())) {
+				continue;
+			}
+
+			indexes.add(
+					HistorizingStoreBase.revisionIndexKey(entry.getKey()
+							.getBytes()), RevisionIndex.createIndex(entry
+							.getValue()));
+			count += 1;
+			if (indexes.size() >= BATCH_SIZE) {
+				rawStore.put(indexes);
+				indexes = new PairList<byte[], byte[]>();
+			}
+		}
+
+		if (!indexes.isEmpty()) {
+			rawStore.put(indexes);
+		}
+		return count;
+	}
+
+	/** Callback collecting the revisions and index entries of a store. */
+	private static class MigrationCallback extends
+			ExceptionHandlingKeyValueCallbackBase {
+
+		/** The timestamps of all revisions for each key. */
+		private final Map<ByteArrayWrapper, List<Long>> revisions = new HashMap<ByteArrayWrapper, List<Long>>();
+
+		/** The keys that already have an index entry. */
+		private final Set<ByteArrayWrapper> indexedKeys = new HashSet<ByteArrayWrapper>();
+
+		/** {@inheritDoc} */
+		@Override
+		protected synchronized void callbackWithException(byte[] key,
+				byte[] value) {
+			if (ByteArrayUtils.isPrefix(
+					HistorizingStoreBase.REVISION_INDEX_PREFIX, key)) {
+				byte[] originalKey = new byte[key.length
+						- HistorizingStoreBase.REVISION_INDEX_PREFIX.length];
+				System.arraycopy(key,
+						HistorizingStoreBase.REVISION_INDEX_PREFIX.length,
+						originalKey, 0, originalKey.length);
+				indexedKeys.add(new ByteArrayWrapper(originalKey));
+				return;
+			}
+
+			byte[] originalKey = RevisionIndex.extractOriginalKey(key);
+			if (originalKey == null) {
+				return;
+			}
+
+			ByteArrayWrapper mapKey = new ByteArrayWrapper(originalKey);
+			List<Long> timestamps = revisions.get(mapKey);
+			if (timestamps == null) {
+				timestamps = new ArrayList<Long>();
+				revisions.put(mapKey, timestamps);
+			}
+			timestamps.add(RevisionIndex.extractTimestamp(key));
+		}
+	}
+}
\ No newline at end of file
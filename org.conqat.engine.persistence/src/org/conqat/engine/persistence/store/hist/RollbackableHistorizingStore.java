@@ -20,8 +20,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.conqat.engine.persistence.rollback.IRollbackableIndex;
 import org.conqat.engine.persistence.store.IStore;
@@ -33,7 +35,10 @@ import org.conqat.lib.commons.collections.PairList;
 import org.conqat.lib.commons.io.ByteArrayUtils;
 
 /**
- * Historizing store that supports rollback.
+ * Historizing store that supports rollback. The {@link RevisionIndex} entries
+ * of keys affected by the rollback are removed, so reading these keys falls
+ * back to scanning until the index is recreated by the next write or by
+ * {@link RevisionIndexMigration}.
  * 
  * @author $Author: heinemann $
  * @version $Rev: 46932 $
@@ -88,6 +93,12 @@ public class RollbackableHistorizingStore extends HeadReadOnlyHistorizingStore
 		/** The list of all keys in the head view. */
 		private final List<byte[]> headKeys = new ArrayList<byte[]>();
 
+		/** The list of all keys with a revision index entry. */
+		private final List<byte[]> indexedKeys = new ArrayList<byte[]>();
+
+		/** The keys for which at least one revision is deleted. */
+		private final Set<ByteArrayWrapper> rolledBackKeys = new HashSet<ByteArrayWrapper>();
+
 		/** Constructor. */
 		public RollbackCallback(long timestamp) {
 			this.timestamp = timestamp;
@@ -101,6 +112,16 @@ public class RollbackableHistorizingStore extends HeadReadOnlyHistorizingStore
 				headKeys.add(stripHeadPrefix(key));
 				return;
 			}
+			if (ByteArrayUtils.isPrefix(REVISION_INDEX_PREFIX, key)) {
+				indexedKeys.add(Arrays.copyOfRange(key,
+						REVISION_INDEX_PREFIX.length, key.length));
+				return;
+			}
+			if (isInternalKey(key)) {
+				// compression dictionaries are never rolled back, as values
+				// written before the timestamp may still use them
+				return;
+			}
 
 			// extract original key without timestamp suffix
 			ByteArrayWrapper originalKey = new ByteArrayWrapper(
@@ -110,6 +131,7 @@ public class RollbackableHistorizingStore extends HeadReadOnlyHistorizingStore
 			long keyTimestamp = getKeyTimestamp(key);
 			if (keyTimestamp > timestamp) {
 				toDelete.add(key);
+				rolledBackKeys.add(originalKey);
 			} else {
 				Long latest = latestChange.get(originalKey);
 				if (latest == null || keyTimestamp > latest) {
@@ -128,6 +150,12 @@ public class RollbackableHistorizingStore extends HeadReadOnlyHistorizingStore
 				}
 			}
 
+			for (byte[] key : indexedKeys) {
+				if (rolledBackKeys.contains(new ByteArrayWrapper(key))) {
+					toDelete.add(revisionIndexKey(key));
+				}
+			}
+
 			List<ByteArrayWrapper> allKeys = new ArrayList<ByteArrayWrapper>(
 					latestChange.keySet());
 			for (int i = 0; i < allKeys.size(); i += BATCH_SIZE) {
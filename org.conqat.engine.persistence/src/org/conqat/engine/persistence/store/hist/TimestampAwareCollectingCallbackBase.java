@@ -57,8 +57,8 @@ import org.conqat.lib.commons.io.ByteArrayUtils;
 	/** {@inheritDoc} */
 	@Override
 	public void callback(byte[] key, byte[] value) {
-		// filter head revision keys
-		if (ByteArrayUtils.isPrefix(HistorizingStoreBase.HEAD_PREFIX, key)) {
+		// filter head revision keys, index keys, and dictionary keys
+		if (HistorizingStoreBase.isInternalKey(key)) {
 			return;
 		}
 
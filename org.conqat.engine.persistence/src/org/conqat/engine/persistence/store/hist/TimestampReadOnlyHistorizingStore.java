@@ -18,11 +18,13 @@ package org.conqat.engine.persistence.store.hist;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.conqat.engine.persistence.store.IKeyValueCallback;
 import org.conqat.engine.persistence.store.IStore;
 import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.util.StorageUtils;
 import org.conqat.lib.commons.assertion.CCSMPre;
 import org.conqat.lib.commons.date.DateUtils;
 import org.conqat.lib.commons.io.ByteArrayUtils;
@@ -31,6 +33,10 @@ import org.conqat.lib.commons.io.ByteArrayUtils;
  * This is a read-only store that reads from a specified timestamp. All write
  * operations will throw an exception. Reading from a given timestamp is more
  * expensive than reading from the head.
+ * <p>
+ * Point queries use the {@link RevisionIndex} to find the revision valid at the
+ * read timestamp, resulting in two point lookups per key. Only keys without
+ * index entry fall back to scanning the revision keys.
  * 
  * @author $Author: heinemann $
  * @version $Rev: 46547 $
@@ -43,6 +49,9 @@ public class TimestampReadOnlyHistorizingStore extends HistorizingStoreBase {
 			DateUtils.daysToMilliseconds(1), DateUtils.daysToMilliseconds(16),
 			DateUtils.daysToMilliseconds(256) };
 
+	/** The timestamp to read from. */
+	private final long readTimestamp;
+
 	/** The suffix used for the timestamp keys. */
 	private final byte[] timestampSuffix;
 
@@ -56,6 +65,7 @@ public class TimestampReadOnlyHistorizingStore extends HistorizingStoreBase {
 	public TimestampReadOnlyHistorizingStore(IStore delegate, long readTimestamp) {
 		super(delegate);
 		CCSMPre.isTrue(readTimestamp > 0, "Timestamp must be positive!");
+		this.readTimestamp = readTimestamp;
 		this.timestampSuffix = ByteArrayUtils.longToByteArray(readTimestamp);
 
 		for (long scanRange : SCAN_RANGES) {
@@ -71,7 +81,33 @@ public class TimestampReadOnlyHistorizingStore extends HistorizingStoreBase {
 
 	/** {@inheritDoc} */
 	@Override
-	public byte[] get(final byte[] originalKey) throws StorageException {
+	public byte[] get(byte[] originalKey) throws StorageException {
+		byte[] index = store.get(revisionIndexKey(originalKey));
+		if (index == null) {
+			return scanValue(originalKey);
+		}
+
+		long revision = RevisionIndex.findRevision(index, readTimestamp);
+		if (revision < 0) {
+			return null;
+		}
+		return stripDeletion(store.get(revisionKey(originalKey,
+				ByteArrayUtils.longToByteArray(revision))));
+	}
+
+	/** Returns null for deletion markers and the value otherwise. */
+	private static byte[] stripDeletion(byte[] value) {
+		if (value == null || isDeletionValue(value)) {
+			return null;
+		}
+		return value;
+	}
+
+	/**
+	 * Determines the value of a key without index entry by scanning backwards
+	 * over the revision keys.
+	 */
+	private byte[] scanValue(final byte[] originalKey) throws StorageException {
 		TimestampAwareCollectingCallbackBase callback = new TimestampAwareCollectingCallbackBase(
 				timestampSuffix) {
 			@Override
@@ -105,14 +141,48 @@ public class TimestampReadOnlyHistorizingStore extends HistorizingStoreBase {
 		return result;
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Index entries and revisions are both read with a single batched lookup
+	 * in sorted key order.
+	 */
 	@Override
 	public List<byte[]> get(List<byte[]> keys) throws StorageException {
-		// for multiple get query in the historized case it is still faster to
-		// retrieve individual keys
-		List<byte[]> result = new ArrayList<byte[]>();
-		for (byte[] key : keys) {
-			result.add(get(key));
+		List<byte[]> result = new ArrayList<byte[]>(Collections.<byte[]> nCopies(
+				keys.size(), null));
+
+		List<Integer> order = StorageUtils.sortedOrder(keys);
+		List<byte[]> indexKeys = new ArrayList<byte[]>(keys.size());
+		for (int position : order) {
+			indexKeys.add(revisionIndexKey(keys.get(position)));
+		}
+		List<byte[]> indexes = store.get(indexKeys);
+
+		List<Integer> revisionPositions = new ArrayList<Integer>();
+		List<byte[]> revisionKeys = new ArrayList<byte[]>();
+		for (int i = 0; i < order.size(); ++i) {
+			int position = order.get(i);
+			byte[] index = indexes.get(i);
+			if (index == null) {
+				result.set(position, scanValue(keys.get(position)));
+				continue;
+			}
+
+			long revision = RevisionIndex.findRevision(index, readTimestamp);
+			if (revision >= 0) {
+				revisionPositions.add(position);
+				revisionKeys.add(revisionKey(keys.get(position),
+						ByteArrayUtils.longToByteArray(revision)));
+			}
+		}
+
+		if (!revisionKeys.isEmpty()) {
+			List<byte[]> values = store.get(revisionKeys);
+			for (int i = 0; i < values.size(); ++i) {
+				result.set(revisionPositions.get(i),
+						stripDeletion(values.get(i)));
+			}
 		}
 		return result;
 	}
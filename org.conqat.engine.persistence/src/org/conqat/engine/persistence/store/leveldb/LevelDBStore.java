@@ -16,9 +16,13 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.persistence.store.leveldb;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import leveldb.LevelDB;
 import leveldb.SWIGTYPE_p_leveldb_iterator_t;
 import leveldb.SWIGTYPE_p_leveldb_readoptions_t;
+import leveldb.SWIGTYPE_p_leveldb_snapshot_t;
 import leveldb.SWIGTYPE_p_leveldb_t;
 import leveldb.SWIGTYPE_p_leveldb_writeoptions_t;
 
@@ -29,6 +33,10 @@ import org.conqat.lib.commons.io.ByteArrayUtils;
 
 /**
  * Store implementation for Level DB (http://leveldb.googlecode.com/).
+ * <p>
+ * Batch writes are not mapped to native write batches, as the SWIG binding
+ * maps the key and value parameters of <code>leveldb_writebatch_put</code>
+ * to Java strings, which can not represent arbitrary binary keys.
  * 
  * @author $Author: hummelb $
  * @version $Rev: 46133 $
@@ -81,6 +89,38 @@ public class LevelDBStore extends PartitionStoreBase {
 		return result[0];
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All keys are read from the same snapshot, so the result is consistent
+	 * even if the store is modified concurrently.
+	 */
+	@Override
+	protected List<byte[]> doBatchGet(List<byte[]> keys)
+			throws StorageException {
+		SWIGTYPE_p_leveldb_snapshot_t snapshot = LevelDB
+				.leveldb_create_snapshot(db);
+		SWIGTYPE_p_leveldb_readoptions_t snapshotOptions = LevelDB
+				.leveldb_readoptions_create();
+		try {
+			LevelDB.leveldb_readoptions_set_snapshot(snapshotOptions, snapshot);
+
+			List<byte[]> values = new ArrayList<byte[]>(keys.size());
+			String[] error = new String[1];
+			byte[][] result = new byte[][] { null };
+			for (byte[] key : keys) {
+				result[0] = null;
+				LevelDB.leveldb_get2(db, snapshotOptions, key, result, error);
+				LevelDBStorageSystem.checkError(error);
+				values.add(result[0]);
+			}
+			return values;
+		} finally {
+			LevelDB.leveldb_readoptions_destroy(snapshotOptions);
+			LevelDB.leveldb_release_snapshot(db, snapshot);
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void doPut(byte[] key, byte[] value) throws StorageException {
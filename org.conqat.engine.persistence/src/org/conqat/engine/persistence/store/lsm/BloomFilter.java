@@ -0,0 +1,128 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A simple bloom filter for byte array keys as used by the {@link SSTable}s.
+ * The bit positions are derived from two independent hash values using double
+ * hashing (A. Kirsch, M. Mitzenmacher: "Less Hashing, Same Performance:
+ * Building a Better Bloom Filter").
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */class BloomFilter {
+
+	/** The number of bits used per key. */
+	private static final int BITS_PER_KEY = 10;
+
+	/**
+	 * The number of hash functions used. This is optimal for
+	 * {@link #BITS_PER_KEY} (10 * ln 2).
+	 */
+	private static final int NUM_HASHES = 7;
+
+	/** The bits of the filter. */
+	private final long[] bits;
+
+	/** Creates an empty filter for the expected number of keys. */
+	public BloomFilter(long expectedKeys) {
+		long numBits = Math.max(64, expectedKeys * BITS_PER_KEY);
+		bits = new long[(int) Math.min(Integer.MAX_VALUE,
+				(numBits + 63) / 64)];
+	}
+
+	/** Creates a filter from its serialized form (see {@link #toBytes()}). */
+	public BloomFilter(byte[] data) {
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		bits = new long[data.length / 8];
+		for (int i = 0; i < bits.length; ++i) {
+			bits[i] = buffer.getLong();
+		}
+	}
+
+	/** Adds a key to the filter. */
+	public void add(byte[] key) {
+		add(hash1(key), hash2(key));
+	}
+
+	/**
+	 * Adds a key to the filter given by its two hash values (see
+	 * {@link #hash1(byte[])} and {@link #hash2(byte[])}).
+	 */
+	public void add(int hash1, int hash2) {
+		long numBits = bits.length * 64L;
+		for (int i = 0; i < NUM_HASHES; ++i) {
+			long bit = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % numBits;
+			bits[(int) (bit >>> 6)] |= 1L << (bit & 63);
+		}
+	}
+
+	/**
+	 * Returns whether the key may be contained. If this returns false, the key
+	 * was definitely not added.
+	 */
+	public boolean mayContain(byte[] key) {
+		int hash1 = hash1(key);
+		int hash2 = hash2(key);
+		long numBits = bits.length * 64L;
+		for (int i = 0; i < NUM_HASHES; ++i) {
+			long bit = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % numBits;
+			if ((bits[(int) (bit >>> 6)] & (1L << (bit & 63))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Returns the serialized form of this filter. */
+	public byte[] toBytes() {
+		ByteBuffer buffer = ByteBuffer.allocate(bits.length * 8);
+		for (long word : bits) {
+			buffer.putLong(word);
+		}
+		return buffer.array();
+	}
+
+	/** Returns the first hash value for a key. */
+	public static int hash1(byte[] key) {
+		return hash(key, 0x9747b28c);
+	}
+
+	/** Returns the second hash value for a key. */
+	public static int hash2(byte[] key) {
+		return hash(key, 0x5bd1e995);
+	}
+
+	/** Returns a hash value for the key (FNV-1a with mixing). */
+	private static int hash(byte[] key, int seed) {
+		int hash = seed ^ 0x811c9dc5;
+		for (byte b : key) {
+			hash ^= b & 0xff;
+			hash *= 0x01000193;
+		}
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
@@ -0,0 +1,43 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import org.conqat.engine.persistence.store.StorageException;
+
+/**
+ * Iterator over the entries of a memtable or {@link SSTable} in ascending key
+ * order. Deleted entries are included with {@link LSMStorageSystem#TOMBSTONE}
+ * as value.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */interface IEntryIterator {
+
+	/**
+	 * Advances to the next entry. Returns false if there are no more entries.
+	 * This must be called before accessing the first entry.
+	 */
+	boolean next() throws StorageException;
+
+	/** Returns the key of the current entry. */
+	byte[] getKey();
+
+	/** Returns the value of the current entry. */
+	byte[] getValue();
+}
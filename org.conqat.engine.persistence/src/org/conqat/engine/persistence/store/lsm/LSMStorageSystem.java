@@ -0,0 +1,733 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.base.StorageSystemBase;
+import org.conqat.engine.persistence.store.util.StorageUtils;
+import org.conqat.lib.commons.assertion.CCSMPre;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.io.ByteArrayUtils;
+
+/**
+ * A storage system based on a log-structured merge tree implemented in pure
+ * Java. All stores share a single tree (as for the LevelDB based storage
+ * systems).
+ * <p>
+ * Writes are appended to a {@link WriteAheadLog} and inserted into an
+ * in-memory {@link Memtable}. If the memtable exceeds its size limit, it is
+ * replaced by a new one and written to an immutable {@link SSTable} in the
+ * background. If the number of tables exceeds a limit, the most recent tables
+ * are merged (size-tiered compaction), again in the background. Reads consult
+ * the memtables and then the tables from newest to oldest, where the bloom
+ * filters of the tables avoid most unnecessary disk accesses.
+ * <p>
+ * Each memtable, log, and table is identified by a number, where higher
+ * numbers indicate more recent data. Logs are named
+ * <code>&lt;number&gt;.log</code>, tables
+ * <code>&lt;oldest&gt;-&lt;number&gt;.sst</code>, where the oldest number
+ * differs from the number for tables created by compaction. All files are
+ * written under a temporary name first, so after a crash the directory can be
+ * recovered by deleting temporary files and tables whose number range is
+ * contained in another table, and by replaying all logs that have not been
+ * written to a table yet.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class LSMStorageSystem extends StorageSystemBase {
+
+	/** The logger. */
+	private static final Logger LOGGER = Logger
+			.getLogger(LSMStorageSystem.class);
+
+	/**
+	 * Value used internally for marking deleted keys. This is compared by
+	 * identity.
+	 */
+	/* package */static final byte[] TOMBSTONE = new byte[0];
+
+	/** The default memtable size in MB. */
+	public static final int DEFAULT_MEMTABLE_SIZE_MB = 16;
+
+	/** The default maximal number of tables. */
+	public static final int DEFAULT_MAX_TABLES = 8;
+
+	/** The smallest possible key. */
+	private static final byte[] MIN_KEY = new byte[0];
+
+	/** Extension of temporary files. */
+	private static final String TMP_EXTENSION = ".tmp";
+
+	/** Pattern for the names of table files. */
+	private static final Pattern TABLE_NAME_PATTERN = Pattern
+			.compile("(\\d+)-(\\d+)\\.sst");
+
+	/** Pattern for the names of log files. */
+	private static final Pattern LOG_NAME_PATTERN = Pattern
+			.compile("(\\d+)\\.log");
+
+	/**
+	 * During compaction, the next older table is included if it is at most
+	 * this factor larger than the tables included so far.
+	 */
+	private static final int COMPACTION_SIZE_RATIO = 2;
+
+	/** Orders tables by descending number, i.e. most recent first. */
+	private static final Comparator<SSTable> RECENCY_COMPARATOR = new Comparator<SSTable>() {
+		@Override
+		public int compare(SSTable table1, SSTable table2) {
+			return Long.valueOf(table2.getNumber()).compareTo(
+					table1.getNumber());
+		}
+	};
+
+	/** The directory containing the files. */
+	private final File directory;
+
+	/** The memtable size in bytes at which the memtable is written to disk. */
+	private final long memtableSize;
+
+	/** The number of tables at which compaction is triggered. */
+	private final int maxTables;
+
+	/** Whether to force each write to the log to disk. */
+	private final boolean sync;
+
+	/**
+	 * Lock used for serializing writes and all changes to {@link #state}.
+	 * Also guards {@link #nextNumber}.
+	 */
+	private final Object writeLock = new Object();
+
+	/**
+	 * Lock used for reads of tables (read lock) and closing of tables (write
+	 * lock).
+	 */
+	private final ReadWriteLock tableLock = new ReentrantReadWriteLock();
+
+	/** The current state. This is replaced on each change. */
+	private volatile State state;
+
+	/** The next number to be used for a memtable. */
+	private long nextNumber;
+
+	/** Executor used for flushing memtables and compaction. */
+	private final ExecutorService backgroundExecutor = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable,
+							"LSM storage background thread");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/** The first error that occurred during background work (or null). */
+	private volatile Throwable backgroundError;
+
+	/** Whether this storage system has been closed. */
+	private volatile boolean closed = false;
+
+	/**
+	 * Whether closing this storage system has started. From then on, writes
+	 * are rejected, as the active memtable is flushed by {@link #close()}.
+	 * This is guarded by {@link #writeLock}.
+	 */
+	private boolean closing = false;
+
+	/** Creates a storage system with default settings. */
+	public LSMStorageSystem(File directory) throws StorageException {
+		this(directory, DEFAULT_MEMTABLE_SIZE_MB * 1024L * 1024L,
+				DEFAULT_MAX_TABLES, false);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param directory
+	 *            the directory used for storing the data.
+	 * @param memtableSize
+	 *            the size of the memtable in bytes.
+	 * @param maxTables
+	 *            the number of tables at which compaction is triggered. Must be
+	 *            at least 2.
+	 * @param sync
+	 *            whether each write should be forced to disk. Otherwise, writes
+	 *            performed shortly before a system crash (not a crash of the
+	 *            VM) may be lost.
+	 */
+	public LSMStorageSystem(File directory, long memtableSize, int maxTables,
+			boolean sync) throws StorageException {
+		CCSMPre.isTrue(maxTables >= 2, "Need to allow at least two tables!");
+
+		this.directory = directory;
+		this.memtableSize = memtableSize;
+		this.maxTables = maxTables;
+		this.sync = sync;
+
+		ensureStorageDirectory(directory);
+		List<SSTable> tables = openTables();
+		long maxNumber = 0;
+		if (!tables.isEmpty()) {
+			maxNumber = tables.get(0).getNumber();
+		}
+		maxNumber = recoverLogs(tables, maxNumber);
+
+		nextNumber = maxNumber + 1;
+		state = new State(createMemtable(), new ArrayList<Memtable>(), tables);
+	}
+
+	/**
+	 * Opens all tables in the directory, most recent first. Temporary files
+	 * and tables made obsolete by compaction are deleted.
+	 */
+	private List<SSTable> openTables() throws StorageException {
+		List<File> files = new ArrayList<File>();
+		List<long[]> ranges = new ArrayList<long[]>();
+		for (File file : directory.listFiles()) {
+			if (file.getName().endsWith(TMP_EXTENSION)) {
+				deleteFile(file);
+				continue;
+			}
+			Matcher matcher = TABLE_NAME_PATTERN.matcher(file.getName());
+			if (matcher.matches()) {
+				files.add(file);
+				ranges.add(new long[] { Long.parseLong(matcher.group(1)),
+						Long.parseLong(matcher.group(2)) });
+			}
+		}
+
+		List<SSTable> tables = new ArrayList<SSTable>();
+		try {
+			for (int i = 0; i < files.size(); ++i) {
+				if (isContainedInOtherRange(ranges.get(i), ranges)) {
+					deleteFile(files.get(i));
+				} else {
+					tables.add(new SSTable(files.get(i), ranges.get(i)[0],
+							ranges.get(i)[1]));
+				}
+			}
+		} catch (StorageException e) {
+			for (SSTable table : tables) {
+				table.close();
+			}
+			throw e;
+		}
+
+		Collections.sort(tables, RECENCY_COMPARATOR);
+		return tables;
+	}
+
+	/** Returns whether the given range is contained in any other range. */
+	private static boolean isContainedInOtherRange(long[] range,
+			List<long[]> ranges) {
+		for (long[] other : ranges) {
+			if (other != range && other[0] <= range[0]
+					&& range[1] <= other[1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Replays all logs that are not yet contained in a table. The replayed
+	 * data is written to a new table which is added to the front of the given
+	 * list. Returns the largest number used.
+	 */
+	private long recoverLogs(List<SSTable> tables, long maxTableNumber)
+			throws StorageException {
+		List<File> logs = new ArrayList<File>();
+		List<Long> numbers = new ArrayList<Long>();
+		for (File file : directory.listFiles()) {
+			Matcher matcher = LOG_NAME_PATTERN.matcher(file.getName());
+			if (matcher.matches()) {
+				long number = Long.parseLong(matcher.group(1));
+				int index = 0;
+				while (index < numbers.size() && numbers.get(index) < number) {
+					++index;
+				}
+				logs.add(index, file);
+				numbers.add(index, number);
+			}
+		}
+
+		long maxNumber = maxTableNumber;
+		PairList<byte[], byte[]> entries = new PairList<byte[], byte[]>();
+		long oldestNumber = -1;
+		for (int i = 0; i < logs.size(); ++i) {
+			long number = numbers.get(i);
+			// logs of flushed memtables are only deleted after the table has
+			// been written, so they may still exist
+			if (number > maxTableNumber) {
+				WriteAheadLog.replay(logs.get(i), entries);
+				if (oldestNumber < 0) {
+					oldestNumber = number;
+				}
+			}
+			maxNumber = Math.max(maxNumber, number);
+		}
+
+		if (!entries.isEmpty()) {
+			Memtable memtable = new Memtable(maxNumber, null);
+			memtable.write(entries);
+			tables.add(0, writeTable(memtable.iterator(MIN_KEY), oldestNumber,
+					maxNumber, tables.isEmpty()));
+		}
+
+		for (File log : logs) {
+			deleteFile(log);
+		}
+		return maxNumber;
+	}
+
+	/**
+	 * Creates a new memtable and its log. This must be called while holding
+	 * the {@link #writeLock} (or from the constructor).
+	 */
+	private Memtable createMemtable() throws StorageException {
+		long number = nextNumber++;
+		return new Memtable(number, new WriteAheadLog(new File(directory,
+				number + ".log"), sync));
+	}
+
+	/**
+	 * Writes all entries of the given iterator to a new table and opens it.
+	 * 
+	 * @param dropTombstones
+	 *            if this is true, deletions are not written. This may only be
+	 *            done if there is no older table that might contain the key.
+	 */
+	private SSTable writeTable(IEntryIterator entries, long oldestNumber,
+			long number, boolean dropTombstones) throws StorageException {
+		String name = oldestNumber + "-" + number + ".sst";
+		File tmpFile = new File(directory, name + TMP_EXTENSION);
+		SSTableWriter writer = new SSTableWriter(tmpFile);
+		try {
+			while (entries.next()) {
+				if (!dropTombstones || entries.getValue() != TOMBSTONE) {
+					writer.add(entries.getKey(), entries.getValue());
+				}
+			}
+		} catch (StorageException e) {
+			writer.abort();
+			tmpFile.delete();
+			throw e;
+		}
+		writer.finish();
+
+		File file = new File(directory, name);
+		if (!tmpFile.renameTo(file)) {
+			throw new StorageException("Could not rename " + tmpFile + " to "
+					+ file);
+		}
+		return new SSTable(file, oldestNumber, number);
+	}
+
+	/** Deletes the given file. */
+	private static void deleteFile(File file) throws StorageException {
+		try {
+			FileSystemUtils.deleteFile(file);
+		} catch (IOException e) {
+			throw new StorageException(e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public IStore openStore(String name) {
+		return new LSMStore(name, this);
+	}
+
+	/**
+	 * Returns the value for the given key or null if the key is not found.
+	 */
+	/* package */byte[] get(byte[] key) throws StorageException {
+		tableLock.readLock().lock();
+		try {
+			ensureOpen();
+			State current = state;
+			byte[] value = getFromMemtables(current, key);
+			for (int i = 0; value == null && i < current.tables.size(); ++i) {
+				value = current.tables.get(i).get(key);
+			}
+			if (value == TOMBSTONE) {
+				return null;
+			}
+			return value;
+		} finally {
+			tableLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the values for the given keys (null for keys not found). The
+	 * keys are looked up in sorted order on a single state, so each block of a
+	 * table is read at most once per batch.
+	 */
+	/* package */List<byte[]> get(List<byte[]> keys) throws StorageException {
+		List<Integer> order = StorageUtils.sortedOrder(keys);
+		List<byte[]> sortedKeys = new ArrayList<byte[]>(keys.size());
+		for (int index : order) {
+			sortedKeys.add(keys.get(index));
+		}
+
+		byte[][] values = new byte[keys.size()][];
+		tableLock.readLock().lock();
+		try {
+			ensureOpen();
+			State current = state;
+			for (int i = 0; i < sortedKeys.size(); ++i) {
+				values[i] = getFromMemtables(current, sortedKeys.get(i));
+			}
+			for (SSTable table : current.tables) {
+				table.get(sortedKeys, values);
+			}
+		} finally {
+			tableLock.readLock().unlock();
+		}
+
+		List<byte[]> result = new ArrayList<byte[]>(Collections
+				.<byte[]> nCopies(keys.size(), null));
+		for (int i = 0; i < values.length; ++i) {
+			if (values[i] != TOMBSTONE) {
+				result.set(order.get(i), values[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the value for the given key from the memtables of the given
+	 * state (which may be {@link #TOMBSTONE}) or null if the key is not found.
+	 */
+	private static byte[] getFromMemtables(State current, byte[] key) {
+		byte[] value = current.active.get(key);
+		for (int i = 0; value == null && i < current.immutables.size(); ++i) {
+			value = current.immutables.get(i).get(key);
+		}
+		return value;
+	}
+
+	/**
+	 * Writes the given keys and values atomically. Values that are
+	 * {@link #TOMBSTONE} mark deletions.
+	 */
+	/* package */void write(PairList<byte[], byte[]> keysValues)
+			throws StorageException {
+		synchronized (writeLock) {
+			if (closing) {
+				throw new StorageException("Storage system has been closed!");
+			}
+			if (backgroundError != null) {
+				throw new StorageException("Background work failed!",
+						backgroundError);
+			}
+
+			Memtable active = state.active;
+			active.write(keysValues);
+			if (active.getSize() >= memtableSize) {
+				List<Memtable> immutables = new ArrayList<Memtable>();
+				immutables.add(active);
+				immutables.addAll(state.immutables);
+				state = new State(createMemtable(), immutables, state.tables);
+				backgroundExecutor.execute(new FlushTask(active));
+			}
+		}
+	}
+
+	/**
+	 * Scans all keys from the begin key (inclusive) to the end key
+	 * (exclusive). The callback is called while holding the read lock for the
+	 * tables, so compactions can not complete during the scan.
+	 */
+	/* package */void scan(byte[] beginKey, byte[] endKey,
+			IKeyValueCallback callback, boolean includeValue)
+			throws StorageException {
+		tableLock.readLock().lock();
+		try {
+			ensureOpen();
+			State current = state;
+			List<IEntryIterator> iterators = new ArrayList<IEntryIterator>();
+			iterators.add(current.active.iterator(beginKey));
+			for (Memtable memtable : current.immutables) {
+				iterators.add(memtable.iterator(beginKey));
+			}
+			for (SSTable table : current.tables) {
+				iterators.add(table.iterator(beginKey));
+			}
+
+			MergingIterator merged = new MergingIterator(iterators);
+			while (merged.next()) {
+				byte[] key = merged.getKey();
+				if (ByteArrayUtils.isLess(endKey, key, true)) {
+					return;
+				}
+				byte[] value = merged.getValue();
+				if (value != TOMBSTONE) {
+					if (!includeValue) {
+						value = null;
+					}
+					callback.callback(key, value);
+				}
+			}
+		} finally {
+			tableLock.readLock().unlock();
+		}
+	}
+
+	/** Throws an exception if this storage system has been closed. */
+	private void ensureOpen() throws StorageException {
+		if (closed) {
+			throw new StorageException("Storage system has been closed!");
+		}
+	}
+
+	/**
+	 * Writes the given memtable to a table, removes its log, and performs
+	 * compaction if required. This is only called from the background
+	 * thread.
+	 */
+	private void flush(Memtable memtable) throws StorageException {
+		// the memtable is the oldest one, so if there are no tables,
+		// deletions are not needed anymore
+		SSTable table = writeTable(memtable.iterator(MIN_KEY),
+				memtable.getNumber(), memtable.getNumber(),
+				state.tables.isEmpty());
+
+		synchronized (writeLock) {
+			List<Memtable> immutables = new ArrayList<Memtable>(
+					state.immutables);
+			immutables.remove(memtable);
+			List<SSTable> tables = new ArrayList<SSTable>();
+			tables.add(table);
+			tables.addAll(state.tables);
+			state = new State(state.active, immutables, tables);
+		}
+
+		memtable.getLog().close();
+		deleteFile(memtable.getLog().getFile());
+
+		while (state.tables.size() > maxTables) {
+			compact();
+		}
+	}
+
+	/**
+	 * Merges the most recent tables. At least two tables are merged. Older
+	 * tables are included as long as they are not much larger than the
+	 * tables included so far, so large tables are rewritten rarely. This is
+	 * only called from the background thread.
+	 */
+	private void compact() throws StorageException {
+		List<SSTable> tables = state.tables;
+		int count = 0;
+		long size = 0;
+		while (count < tables.size()
+				&& (count < 2 || tables.get(count).getFileSize() <= COMPACTION_SIZE_RATIO
+						* size)) {
+			size += tables.get(count).getFileSize();
+			++count;
+		}
+		List<SSTable> inputs = new ArrayList<SSTable>(tables.subList(0, count));
+
+		List<IEntryIterator> iterators = new ArrayList<IEntryIterator>();
+		for (SSTable table : inputs) {
+			iterators.add(table.iterator(MIN_KEY));
+		}
+		SSTable output = writeTable(new MergingIterator(iterators), inputs
+				.get(count - 1).getOldestNumber(), inputs.get(0).getNumber(),
+				count == tables.size());
+
+		synchronized (writeLock) {
+			List<SSTable> newTables = new ArrayList<SSTable>(state.tables);
+			int index = newTables.indexOf(inputs.get(0));
+			newTables.removeAll(inputs);
+			newTables.add(index, output);
+			state = new State(state.active, state.immutables, newTables);
+		}
+
+		tableLock.writeLock().lock();
+		try {
+			for (SSTable table : inputs) {
+				table.close();
+			}
+		} finally {
+			tableLock.writeLock().unlock();
+		}
+		for (SSTable table : inputs) {
+			deleteFile(table.getFile());
+		}
+		LOGGER.debug("Compacted " + count + " tables into " + output.getFile());
+	}
+
+	/** Returns the number of tables (for testing). */
+	/* package */int getTableCount() {
+		return state.tables.size();
+	}
+
+	/**
+	 * Blocks until all background work submitted so far has been completed.
+	 */
+	/* package */void awaitBackgroundWork() throws StorageException {
+		try {
+			backgroundExecutor.submit(new Runnable() {
+				@Override
+				public void run() {
+					// nothing to do
+				}
+			}).get();
+		} catch (InterruptedException e) {
+			throw new StorageException(e);
+		} catch (ExecutionException e) {
+			throw new StorageException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The current memtable is written to disk, so no log replay is needed when
+	 * opening the storage system again.
+	 */
+	@Override
+	public void close() throws StorageException {
+		synchronized (writeLock) {
+			if (closing) {
+				return;
+			}
+			closing = true;
+			Memtable active = state.active;
+			if (active.isEmpty() || backgroundError != null) {
+				active.getLog().close();
+				if (active.isEmpty()) {
+					deleteFile(active.getLog().getFile());
+				}
+			} else {
+				backgroundExecutor.execute(new FlushTask(active));
+			}
+		}
+
+		backgroundExecutor.shutdown();
+		try {
+			backgroundExecutor.awaitTermination(Long.MAX_VALUE,
+					TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			throw new StorageException(
+					"Interrupted while waiting for background work!", e);
+		}
+
+		tableLock.writeLock().lock();
+		try {
+			closed = true;
+			for (SSTable table : state.tables) {
+				table.close();
+			}
+		} finally {
+			tableLock.writeLock().unlock();
+		}
+
+		if (backgroundError != null) {
+			throw new StorageException("Background work failed!",
+					backgroundError);
+		}
+	}
+
+	/** Background task for flushing a memtable. */
+	private class FlushTask implements Runnable {
+
+		/** The memtable to flush. */
+		private final Memtable memtable;
+
+		/** Constructor. */
+		public FlushTask(Memtable memtable) {
+			this.memtable = memtable;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void run() {
+			if (backgroundError != null) {
+				return;
+			}
+			try {
+				flush(memtable);
+			} catch (StorageException e) {
+				handleBackgroundError(e);
+			} catch (RuntimeException e) {
+				handleBackgroundError(e);
+			}
+		}
+
+		/** Records an error of the background thread. */
+		private void handleBackgroundError(Exception e) {
+			LOGGER.error("Background work of LSM storage failed: "
+					+ e.getMessage(), e);
+			backgroundError = e;
+		}
+	}
+
+	/**
+	 * The immutable state of the storage system. Modifications are performed
+	 * by replacing the state, so readers can work on a consistent snapshot.
+	 */
+	private static class State {
+
+		/** The memtable receiving writes. */
+		private final Memtable active;
+
+		/**
+		 * Memtables that are being written to tables in the background, most
+		 * recent first.
+		 */
+		private final List<Memtable> immutables;
+
+		/** The tables, most recent first. */
+		private final List<SSTable> tables;
+
+		/** Constructor. */
+		public State(Memtable active, List<Memtable> immutables,
+				List<SSTable> tables) {
+			this.active = active;
+			this.immutables = immutables;
+			this.tables = tables;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.util.List;
+
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.base.PartitionStoreBase;
+import org.conqat.lib.commons.collections.PairList;
+
+/**
+ * Store implementation for {@link LSMStorageSystem}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class LSMStore extends PartitionStoreBase {
+
+	/** The underlying storage system. */
+	private final LSMStorageSystem storageSystem;
+
+	/** Constructor. */
+	public LSMStore(String name, LSMStorageSystem storageSystem) {
+		super(name);
+		this.storageSystem = storageSystem;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected byte[] doGet(byte[] key) throws StorageException {
+		return storageSystem.get(key);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected List<byte[]> doBatchGet(List<byte[]> keys)
+			throws StorageException {
+		return storageSystem.get(keys);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doPut(byte[] key, byte[] value) throws StorageException {
+		PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>(1);
+		keysValues.add(key, value);
+		storageSystem.write(keysValues);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doBatchPut(PairList<byte[], byte[]> keysValues)
+			throws StorageException {
+		storageSystem.write(keysValues);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doRemove(byte[] key) throws StorageException {
+		PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>(1);
+		keysValues.add(key, LSMStorageSystem.TOMBSTONE);
+		storageSystem.write(keysValues);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doBatchRemove(List<byte[]> keys) throws StorageException {
+		PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>(
+				keys.size());
+		for (byte[] key : keys) {
+			keysValues.add(key, LSMStorageSystem.TOMBSTONE);
+		}
+		storageSystem.write(keysValues);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doScan(byte[] beginKey, byte[] endKey,
+			IKeyValueCallback callback, boolean includeValue)
+			throws StorageException {
+		storageSystem.scan(beginKey, endKey, callback, includeValue);
+	}
+}
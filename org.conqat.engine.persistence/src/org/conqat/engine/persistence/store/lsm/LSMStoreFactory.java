@@ -0,0 +1,104 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.io.File;
+
+import org.conqat.engine.commons.ConQATProcessorBase;
+import org.conqat.engine.core.core.AConQATAttribute;
+import org.conqat.engine.core.core.AConQATParameter;
+import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.core.IShutdownHook;
+import org.conqat.engine.persistence.store.IStorageSystem;
+
+/**
+ * {@ConQAT.Doc}
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = "Store implementation based on a log-structured merge tree "
+		+ "implemented in pure Java. This is a disk-based store without native dependencies.")
+public class LSMStoreFactory extends ConQATProcessorBase {
+
+	/** The name of the base directory to store the data in. */
+	private File baseDirectory;
+
+	/** The memtable size in MB. */
+	private int memtableSizeMB = LSMStorageSystem.DEFAULT_MEMTABLE_SIZE_MB;
+
+	/** The maximal number of tables. */
+	private int maxTables = LSMStorageSystem.DEFAULT_MAX_TABLES;
+
+	/** Whether to sync each write. */
+	private boolean sync = false;
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "storage", minOccurrences = 1, maxOccurrences = 1, description = ""
+			+ "The directory where the data is stored in. "
+			+ "There will be multiple files written into this directory, so it should ideally be empty.")
+	public void setBaseDirectory(
+			@AConQATAttribute(name = "dir", description = "Name of the directory.") String baseDirectory) {
+		this.baseDirectory = new File(baseDirectory);
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "memtable", maxOccurrences = 1, description = "Sets the amount of memory used for buffering writes.")
+	public void setMemtableSizeMB(
+			@AConQATAttribute(name = "size", description = "The size of the memtable in MB. "
+					+ "Larger values result in fewer tables and less compaction work. The default value is "
+					+ LSMStorageSystem.DEFAULT_MEMTABLE_SIZE_MB + ".") int memtableSizeMB) {
+		this.memtableSizeMB = memtableSizeMB;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "compaction", maxOccurrences = 1, description = "Sets the number of tables at which compaction is triggered.")
+	public void setMaxTables(
+			@AConQATAttribute(name = "max-tables", description = "The maximal number of tables (at least 2). "
+					+ "Smaller values result in faster reads but more compaction work. The default value is "
+					+ LSMStorageSystem.DEFAULT_MAX_TABLES + ".") int maxTables)
+			throws ConQATException {
+		if (maxTables < 2) {
+			throw new ConQATException("Need to allow at least two tables!");
+		}
+		this.maxTables = maxTables;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "sync", maxOccurrences = 1, description = "Sets whether each write is forced to disk.")
+	public void setSync(
+			@AConQATAttribute(name = "value", description = "If this is true, writes survive system crashes "
+					+ "at the cost of write performance. Default is false.") boolean sync) {
+		this.sync = sync;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public IStorageSystem process() throws ConQATException {
+		final LSMStorageSystem storageSystem = new LSMStorageSystem(
+				baseDirectory, memtableSizeMB * 1024L * 1024L, maxTables, sync);
+		getProcessorInfo().registerShutdownHook(new IShutdownHook() {
+			@Override
+			public void performShutdown() throws ConQATException {
+				storageSystem.close();
+			}
+		}, false);
+		return storageSystem;
+	}
+}
@@ -0,0 +1,150 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.base.ByteArrayComparator;
+import org.conqat.lib.commons.collections.PairList;
+
+/**
+ * The in-memory table of the {@link LSMStorageSystem} that receives all
+ * writes. The memtable is backed by a {@link WriteAheadLog} with the same
+ * number. Reads may be performed concurrently to writes, but writes must be
+ * serialized by the caller.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */class Memtable {
+
+	/** Estimated memory overhead per entry in bytes. */
+	private static final int ENTRY_OVERHEAD = 64;
+
+	/** The number of this memtable (and its log). */
+	private final long number;
+
+	/** The log (may be null for memtables used during recovery). */
+	private final WriteAheadLog log;
+
+	/** The entries. Deleted keys are mapped to the tombstone. */
+	private final ConcurrentSkipListMap<byte[], byte[]> entries = new ConcurrentSkipListMap<byte[], byte[]>(
+			ByteArrayComparator.INSTANCE);
+
+	/** The estimated memory size in bytes. */
+	private volatile long size = 0;
+
+	/** Constructor. */
+	public Memtable(long number, WriteAheadLog log) {
+		this.number = number;
+		this.log = log;
+	}
+
+	/** Writes the given entries to the log (if any) and the memtable. */
+	public void write(PairList<byte[], byte[]> keysValues)
+			throws StorageException {
+		if (log != null) {
+			log.append(keysValues);
+		}
+		long newSize = size;
+		for (int i = 0; i < keysValues.size(); ++i) {
+			byte[] key = keysValues.getFirst(i);
+			byte[] value = keysValues.getSecond(i);
+			entries.put(key, value);
+			newSize += key.length + value.length + ENTRY_OVERHEAD;
+		}
+		size = newSize;
+	}
+
+	/**
+	 * Returns the value for the given key, {@link LSMStorageSystem#TOMBSTONE}
+	 * for deleted keys, or null if the key is unknown to this memtable.
+	 */
+	public byte[] get(byte[] key) {
+		return entries.get(key);
+	}
+
+	/** Returns whether this memtable has no entries. */
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Returns the estimated memory size in bytes. As overwritten values are
+	 * not subtracted, this is an upper bound.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/** Returns the number. */
+	public long getNumber() {
+		return number;
+	}
+
+	/** Returns the log (may be null). */
+	public WriteAheadLog getLog() {
+		return log;
+	}
+
+	/**
+	 * Returns an iterator over all entries starting with the first key not
+	 * less than the given key.
+	 */
+	public IEntryIterator iterator(byte[] beginKey) {
+		final Iterator<Entry<byte[], byte[]>> iterator = entries.tailMap(
+				beginKey).entrySet().iterator();
+		return new IEntryIterator() {
+
+			/** The current entry. */
+			private Entry<byte[], byte[]> current;
+
+			/** {@inheritDoc} */
+			@Override
+			public boolean next() {
+				if (!iterator.hasNext()) {
+					return false;
+				}
+				current = iterator.next();
+				return true;
+			}
+
+			/** {@inheritDoc} */
+			@Override
+			public byte[] getKey() {
+				return current.getKey();
+			}
+
+			/** {@inheritDoc} */
+			@Override
+			public byte[] getValue() {
+				return current.getValue();
+			}
+		};
+	}
+
+	/** Writes all entries (including deletions) to the given table writer. */
+	public void writeTo(SSTableWriter writer) throws StorageException {
+		for (Entry<byte[], byte[]> entry : entries.entrySet()) {
+			writer.add(entry.getKey(), entry.getValue());
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.base.ByteArrayComparator;
+
+/**
+ * Merges several sorted {@link IEntryIterator}s into one. If a key is
+ * contained in more than one iterator, only the entry of the most recent
+ * iterator (the one that comes first in the list passed to the constructor)
+ * is returned. Deletions are returned as well.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */class MergingIterator implements IEntryIterator {
+
+	/** The iterators to merge, most recent first. */
+	private final List<IEntryIterator> iterators;
+
+	/** The iterators that still have entries, ordered by key and recency. */
+	private final PriorityQueue<Source> queue = new PriorityQueue<Source>();
+
+	/** Whether the {@link #queue} has been initialized. */
+	private boolean initialized = false;
+
+	/** The current key. */
+	private byte[] key;
+
+	/** The current value. */
+	private byte[] value;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param iterators
+	 *            the iterators to merge, ordered by recency (most recent
+	 *            first).
+	 */
+	public MergingIterator(List<IEntryIterator> iterators) {
+		this.iterators = iterators;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean next() throws StorageException {
+		if (!initialized) {
+			for (int i = 0; i < iterators.size(); ++i) {
+				advance(new Source(iterators.get(i), i));
+			}
+			initialized = true;
+		}
+
+		Source head = queue.poll();
+		if (head == null) {
+			return false;
+		}
+		key = head.key;
+		value = head.iterator.getValue();
+		advance(head);
+
+		// skip older entries for the same key
+		while (!queue.isEmpty()
+				&& ByteArrayComparator.INSTANCE.compare(queue.peek().key, key) == 0) {
+			advance(queue.poll());
+		}
+		return true;
+	}
+
+	/** Advances the given source and reinserts it if it has more entries. */
+	private void advance(Source source) throws StorageException {
+		if (source.iterator.next()) {
+			source.key = source.iterator.getKey();
+			queue.add(source);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public byte[] getKey() {
+		return key;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public byte[] getValue() {
+		return value;
+	}
+
+	/** An iterator together with its recency and current key. */
+	private static class Source implements Comparable<Source> {
+
+		/** The iterator. */
+		private final IEntryIterator iterator;
+
+		/** The recency (smaller is more recent). */
+		private final int recency;
+
+		/** The current key of the iterator. */
+		private byte[] key;
+
+		/** Constructor. */
+		public Source(IEntryIterator iterator, int recency) {
+			this.iterator = iterator;
+			this.recency = recency;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int compareTo(Source other) {
+			int compare = ByteArrayComparator.INSTANCE.compare(key, other.key);
+			if (compare != 0) {
+				return compare;
+			}
+			return recency - other.recency;
+		}
+	}
+}
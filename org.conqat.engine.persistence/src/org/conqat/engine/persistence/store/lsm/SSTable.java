@@ -0,0 +1,419 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.base.ByteArrayComparator;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+
+/**
+ * An immutable sorted table of the {@link LSMStorageSystem}. The block index
+ * and bloom filter are kept in memory, while blocks are read on demand using
+ * positional reads, so a table may be read concurrently.
+ * <p>
+ * The file format (all numbers big endian) is:
+ * <ul>
+ * <li>data blocks, each being a sequence of entries sorted by key. An entry
+ * consists of key length, value length (-1 for deleted keys), key, and
+ * value.</li>
+ * <li>the block index, consisting of the number of blocks and for each block
+ * the length and bytes of its last key, its offset, length, and CRC32.</li>
+ * <li>the serialized {@link BloomFilter} of all keys.</li>
+ * <li>a footer of fixed size ({@value #FOOTER_SIZE}) with offset and length of
+ * index and bloom filter, the number of entries, version ({@value #VERSION})
+ * and magic number ({@value #MAGIC}).</li>
+ * </ul>
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */class SSTable {
+
+	/** Magic number at the end of the table files. */
+	/* package */static final int MAGIC = 0x4353534C;
+
+	/** Version of the file format. */
+	/* package */static final int VERSION = 1;
+
+	/** The size of the footer in bytes. */
+	private static final int FOOTER_SIZE = 40;
+
+	/** The file of this table. */
+	private final File file;
+
+	/**
+	 * The number of this table. Tables with higher numbers contain more recent
+	 * data.
+	 */
+	private final long number;
+
+	/**
+	 * The smallest number of the tables (or logs) whose data is contained in
+	 * this table. This is different from {@link #number} for tables created by
+	 * compaction.
+	 */
+	private final long oldestNumber;
+
+	/** The file we are reading from. */
+	private final RandomAccessFile randomAccessFile;
+
+	/** The channel used for positional reads. */
+	private final FileChannel channel;
+
+	/** The last keys of the blocks. */
+	private final byte[][] blockLastKeys;
+
+	/** The offsets of the blocks. */
+	private final long[] blockOffsets;
+
+	/** The lengths of the blocks. */
+	private final int[] blockLengths;
+
+	/** The checksums of the blocks. */
+	private final int[] blockChecksums;
+
+	/** The bloom filter of the keys. */
+	private final BloomFilter bloomFilter;
+
+	/** The number of entries (including deletions). */
+	private final long entryCount;
+
+	/** Opens the table from the given file. */
+	public SSTable(File file, long oldestNumber, long number)
+			throws StorageException {
+		this.file = file;
+		this.oldestNumber = oldestNumber;
+		this.number = number;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+			channel = randomAccessFile.getChannel();
+
+			long size = channel.size();
+			if (size < FOOTER_SIZE) {
+				throw new StorageException("Table file too short: " + file);
+			}
+			ByteBuffer footer = read(size - FOOTER_SIZE, FOOTER_SIZE);
+			long indexOffset = footer.getLong();
+			int indexLength = footer.getInt();
+			long bloomOffset = footer.getLong();
+			int bloomLength = footer.getInt();
+			entryCount = footer.getLong();
+			int version = footer.getInt();
+			if (footer.getInt() != MAGIC || version != VERSION) {
+				throw new StorageException("Invalid table file: " + file);
+			}
+
+			ByteBuffer index = read(indexOffset, indexLength);
+			int numBlocks = index.getInt();
+			blockLastKeys = new byte[numBlocks][];
+			blockOffsets = new long[numBlocks];
+			blockLengths = new int[numBlocks];
+			blockChecksums = new int[numBlocks];
+			for (int i = 0; i < numBlocks; ++i) {
+				blockLastKeys[i] = new byte[index.getInt()];
+				index.get(blockLastKeys[i]);
+				blockOffsets[i] = index.getLong();
+				blockLengths[i] = index.getInt();
+				blockChecksums[i] = index.getInt();
+			}
+
+			bloomFilter = new BloomFilter(read(bloomOffset, bloomLength)
+					.array());
+		} catch (IOException e) {
+			close();
+			throw new StorageException("Could not open table " + file, e);
+		} catch (StorageException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/** Reads the given number of bytes starting at the given position. */
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new IOException("Unexpected end of file " + file);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/** Reads the block with given index and verifies its checksum. */
+	private ByteBuffer readBlock(int blockIndex) throws StorageException {
+		try {
+			ByteBuffer block = read(blockOffsets[blockIndex],
+					blockLengths[blockIndex]);
+			CRC32 crc = new CRC32();
+			crc.update(block.array(), 0, block.limit());
+			if ((int) crc.getValue() != blockChecksums[blockIndex]) {
+				throw new StorageException("Checksum error in block "
+						+ blockIndex + " of table " + file);
+			}
+			return block;
+		} catch (IOException e) {
+			throw new StorageException("Could not read table " + file, e);
+		}
+	}
+
+	/**
+	 * Returns the index of the first block that may contain the given key (or
+	 * larger keys). Returns the number of blocks if no block contains such
+	 * keys.
+	 */
+	private int findBlock(byte[] key) {
+		int low = 0;
+		int high = blockLastKeys.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (ByteArrayComparator.INSTANCE.compare(blockLastKeys[middle],
+					key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the value stored for the given key, {@link LSMStorageSystem#TOMBSTONE}
+	 * if the key is marked as deleted, or <code>null</code> if the table has
+	 * no entry for the key.
+	 */
+	public byte[] get(byte[] key) throws StorageException {
+		if (!bloomFilter.mayContain(key)) {
+			return null;
+		}
+		int blockIndex = findBlock(key);
+		if (blockIndex >= blockLastKeys.length) {
+			return null;
+		}
+
+		return findInBlock(readBlock(blockIndex), key);
+	}
+
+	/**
+	 * Looks up multiple keys. The keys must be sorted, so each block is read
+	 * at most once. The values are stored at the corresponding positions of
+	 * the given array (using the same conventions as {@link #get(byte[])}).
+	 * Positions that already contain a value (i.e. the key was found in a more
+	 * recent source) are skipped.
+	 */
+	public void get(List<byte[]> sortedKeys, byte[][] values)
+			throws StorageException {
+		int currentBlockIndex = -1;
+		ByteBuffer currentBlock = null;
+		for (int i = 0; i < sortedKeys.size(); ++i) {
+			byte[] key = sortedKeys.get(i);
+			if (values[i] != null || !bloomFilter.mayContain(key)) {
+				continue;
+			}
+			int blockIndex = findBlock(key);
+			if (blockIndex >= blockLastKeys.length) {
+				// all remaining keys are larger than the keys of this table
+				return;
+			}
+			if (blockIndex != currentBlockIndex) {
+				currentBlock = readBlock(blockIndex);
+				currentBlockIndex = blockIndex;
+			}
+			values[i] = findInBlock(currentBlock.duplicate(), key);
+		}
+	}
+
+	/**
+	 * Returns the value stored for the given key in the given block (see
+	 * {@link #get(byte[])}).
+	 */
+	private static byte[] findInBlock(ByteBuffer block, byte[] key) {
+		BlockIterator iterator = new BlockIterator(block);
+		while (iterator.next()) {
+			int compare = ByteArrayComparator.INSTANCE.compare(
+					iterator.getKey(), key);
+			if (compare == 0) {
+				return iterator.getValue();
+			}
+			if (compare > 0) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an iterator over all entries starting with the first key not
+	 * less than the given key.
+	 */
+	public IEntryIterator iterator(byte[] beginKey) {
+		return new TableIterator(beginKey);
+	}
+
+	/** Returns the number of this table. */
+	public long getNumber() {
+		return number;
+	}
+
+	/** Returns {@link #oldestNumber}. */
+	public long getOldestNumber() {
+		return oldestNumber;
+	}
+
+	/** Returns the number of entries (including deletions). */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	/** Returns the size of the table file in bytes. */
+	public long getFileSize() {
+		return file.length();
+	}
+
+	/** Returns the file of this table. */
+	public File getFile() {
+		return file;
+	}
+
+	/** Closes the table. */
+	public void close() {
+		FileSystemUtils.close(randomAccessFile);
+	}
+
+	/** Writes an entry. A value of <code>null</code> marks a deletion. */
+	/* package */static void writeEntry(DataOutputStream out, byte[] key,
+			byte[] value) throws IOException {
+		out.writeInt(key.length);
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(value.length);
+		}
+		out.write(key);
+		if (value != null) {
+			out.write(value);
+		}
+	}
+
+	/** Iterator over the entries of a single block. */
+	private static class BlockIterator implements IEntryIterator {
+
+		/** The block data. */
+		private final ByteBuffer block;
+
+		/** The current key. */
+		private byte[] key;
+
+		/** The current value. */
+		private byte[] value;
+
+		/** Constructor. */
+		public BlockIterator(ByteBuffer block) {
+			this.block = block;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean next() {
+			if (!block.hasRemaining()) {
+				return false;
+			}
+			key = new byte[block.getInt()];
+			int valueLength = block.getInt();
+			block.get(key);
+			if (valueLength < 0) {
+				value = LSMStorageSystem.TOMBSTONE;
+			} else {
+				value = new byte[valueLength];
+				block.get(value);
+			}
+			return true;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public byte[] getKey() {
+			return key;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public byte[] getValue() {
+			return value;
+		}
+	}
+
+	/** Iterator over the entries of the table starting at a given key. */
+	private class TableIterator implements IEntryIterator {
+
+		/** The first key to return. */
+		private final byte[] beginKey;
+
+		/** The index of the next block to read. */
+		private int nextBlock;
+
+		/** The iterator of the current block. */
+		private BlockIterator blockIterator;
+
+		/** Constructor. */
+		public TableIterator(byte[] beginKey) {
+			this.beginKey = beginKey;
+			nextBlock = findBlock(beginKey);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean next() throws StorageException {
+			while (true) {
+				if (blockIterator != null && blockIterator.next()) {
+					if (ByteArrayComparator.INSTANCE.compare(
+							blockIterator.getKey(), beginKey) >= 0) {
+						return true;
+					}
+					continue;
+				}
+				if (nextBlock >= blockLastKeys.length) {
+					return false;
+				}
+				blockIterator = new BlockIterator(readBlock(nextBlock++));
+			}
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public byte[] getKey() {
+			return blockIterator.getKey();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public byte[] getValue() {
+			return blockIterator.getValue();
+		}
+	}
+}
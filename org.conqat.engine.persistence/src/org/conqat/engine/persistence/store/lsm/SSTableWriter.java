@@ -0,0 +1,211 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+
+/**
+ * Writer for {@link SSTable} files. The entries must be added in ascending key
+ * order. The file format is described in {@link SSTable}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */class SSTableWriter {
+
+	/** The (uncompressed) size in bytes at which a block is completed. */
+	private static final int BLOCK_SIZE = 4096;
+
+	/** The underlying file stream (used for syncing). */
+	private final FileOutputStream fileOut;
+
+	/** The stream written to. */
+	private final DataOutputStream out;
+
+	/** The buffer for the current block. */
+	private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(
+			2 * BLOCK_SIZE);
+
+	/** Stream for writing into the {@link #blockBuffer}. */
+	private final DataOutputStream blockOut = new DataOutputStream(
+			blockBuffer);
+
+	/** The last keys of the completed blocks. */
+	private final List<byte[]> indexKeys = new ArrayList<byte[]>();
+
+	/** The offsets of the completed blocks. */
+	private long[] indexOffsets = new long[16];
+
+	/** The checksums of the completed blocks. */
+	private int[] indexChecksums = new int[16];
+
+	/** The lengths of the completed blocks. */
+	private int[] indexLengths = new int[16];
+
+	/** The hash values of all keys for the bloom filter (two per key). */
+	private int[] keyHashes = new int[32];
+
+	/** The number of bytes written so far. */
+	private long offset = 0;
+
+	/** The number of entries written so far. */
+	private long entryCount = 0;
+
+	/** The last key added. */
+	private byte[] lastKey = null;
+
+	/** Constructor. */
+	public SSTableWriter(File file) throws StorageException {
+		try {
+			fileOut = new FileOutputStream(file);
+			out = new DataOutputStream(new BufferedOutputStream(fileOut,
+					64 * 1024));
+		} catch (IOException e) {
+			throw new StorageException("Could not create table " + file, e);
+		}
+	}
+
+	/**
+	 * Adds an entry. The value may be {@link LSMStorageSystem#TOMBSTONE} to
+	 * mark the key as deleted.
+	 */
+	public void add(byte[] key, byte[] value) throws StorageException {
+		try {
+			if (value == LSMStorageSystem.TOMBSTONE) {
+				SSTable.writeEntry(blockOut, key, null);
+			} else {
+				SSTable.writeEntry(blockOut, key, value);
+			}
+		} catch (IOException e) {
+			throw new StorageException(e);
+		}
+
+		int hashIndex = (int) (2 * entryCount);
+		if (hashIndex + 2 > keyHashes.length) {
+			keyHashes = Arrays.copyOf(keyHashes, 2 * keyHashes.length);
+		}
+		keyHashes[hashIndex] = BloomFilter.hash1(key);
+		keyHashes[hashIndex + 1] = BloomFilter.hash2(key);
+
+		entryCount += 1;
+		lastKey = key;
+		if (blockBuffer.size() >= BLOCK_SIZE) {
+			completeBlock();
+		}
+	}
+
+	/** Writes the current block to the file. */
+	private void completeBlock() throws StorageException {
+		if (blockBuffer.size() == 0) {
+			return;
+		}
+
+		int blockIndex = indexKeys.size();
+		if (blockIndex == indexOffsets.length) {
+			indexOffsets = Arrays.copyOf(indexOffsets, 2 * blockIndex);
+			indexChecksums = Arrays.copyOf(indexChecksums, 2 * blockIndex);
+			indexLengths = Arrays.copyOf(indexLengths, 2 * blockIndex);
+		}
+
+		byte[] block = blockBuffer.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(block);
+
+		indexKeys.add(lastKey);
+		indexOffsets[blockIndex] = offset;
+		indexLengths[blockIndex] = block.length;
+		indexChecksums[blockIndex] = (int) crc.getValue();
+
+		write(block);
+		blockBuffer.reset();
+	}
+
+	/** Writes the given bytes to the file. */
+	private void write(byte[] data) throws StorageException {
+		try {
+			out.write(data);
+		} catch (IOException e) {
+			throw new StorageException(e);
+		}
+		offset += data.length;
+	}
+
+	/**
+	 * Completes the table by writing index, bloom filter and footer, forces it
+	 * to disk, and closes the file. Returns the number of entries written.
+	 */
+	public long finish() throws StorageException {
+		completeBlock();
+
+		try {
+			ByteArrayOutputStream indexBuffer = new ByteArrayOutputStream();
+			DataOutputStream indexOut = new DataOutputStream(indexBuffer);
+			indexOut.writeInt(indexKeys.size());
+			for (int i = 0; i < indexKeys.size(); ++i) {
+				indexOut.writeInt(indexKeys.get(i).length);
+				indexOut.write(indexKeys.get(i));
+				indexOut.writeLong(indexOffsets[i]);
+				indexOut.writeInt(indexLengths[i]);
+				indexOut.writeInt(indexChecksums[i]);
+			}
+			long indexOffset = offset;
+			byte[] index = indexBuffer.toByteArray();
+			write(index);
+
+			BloomFilter bloomFilter = new BloomFilter(entryCount);
+			for (int i = 0; i < 2 * entryCount; i += 2) {
+				bloomFilter.add(keyHashes[i], keyHashes[i + 1]);
+			}
+			long bloomOffset = offset;
+			byte[] bloom = bloomFilter.toBytes();
+			write(bloom);
+
+			out.writeLong(indexOffset);
+			out.writeInt(index.length);
+			out.writeLong(bloomOffset);
+			out.writeInt(bloom.length);
+			out.writeLong(entryCount);
+			out.writeInt(SSTable.VERSION);
+			out.writeInt(SSTable.MAGIC);
+			out.flush();
+			fileOut.getChannel().force(true);
+			out.close();
+		} catch (IOException e) {
+			FileSystemUtils.close(out);
+			throw new StorageException(e);
+		}
+		return entryCount;
+	}
+
+	/** Closes the writer without completing the table. */
+	public void abort() {
+		FileSystemUtils.close(out);
+	}
+}
@@ -0,0 +1,192 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+
+/**
+ * The write-ahead log of the {@link LSMStorageSystem}. Each write (which may
+ * be a batch of several keys) is appended as a single record consisting of
+ * payload length, CRC32 of the payload, and the payload. The payload is the
+ * number of entries followed by the entries in the format used by
+ * {@link SSTable#writeEntry(DataOutputStream, byte[], byte[])}. As a batch is
+ * a single record, it is recovered either completely or not at all.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */class WriteAheadLog {
+
+	/** The log file. */
+	private final File file;
+
+	/** The stream written to. */
+	private final FileOutputStream out;
+
+	/** Whether to force each record to disk. */
+	private final boolean sync;
+
+	/** Buffer used for constructing records. */
+	private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+
+	/** Creates a new (empty) log in the given file. */
+	public WriteAheadLog(File file, boolean sync) throws StorageException {
+		this.file = file;
+		this.sync = sync;
+		try {
+			out = new FileOutputStream(file);
+		} catch (IOException e) {
+			throw new StorageException("Could not create log " + file, e);
+		}
+	}
+
+	/**
+	 * Appends a record for the given entries. Values that are
+	 * {@link LSMStorageSystem#TOMBSTONE} mark deletions.
+	 */
+	public void append(PairList<byte[], byte[]> entries)
+			throws StorageException {
+		try {
+			recordBuffer.reset();
+			DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+			recordOut.writeInt(0);
+			recordOut.writeInt(0);
+			recordOut.writeInt(entries.size());
+			for (int i = 0; i < entries.size(); ++i) {
+				byte[] value = entries.getSecond(i);
+				if (value == LSMStorageSystem.TOMBSTONE) {
+					value = null;
+				}
+				SSTable.writeEntry(recordOut, entries.getFirst(i), value);
+			}
+			recordOut.flush();
+
+			byte[] record = recordBuffer.toByteArray();
+			int payloadLength = record.length - 8;
+			CRC32 crc = new CRC32();
+			crc.update(record, 8, payloadLength);
+			writeInt(record, 0, payloadLength);
+			writeInt(record, 4, (int) crc.getValue());
+
+			out.write(record);
+			if (sync) {
+				out.getChannel().force(false);
+			}
+		} catch (IOException e) {
+			throw new StorageException("Could not write to log " + file, e);
+		}
+	}
+
+	/** Writes an int in big endian order into the array. */
+	private static void writeInt(byte[] array, int offset, int value) {
+		array[offset] = (byte) (value >>> 24);
+		array[offset + 1] = (byte) (value >>> 16);
+		array[offset + 2] = (byte) (value >>> 8);
+		array[offset + 3] = (byte) value;
+	}
+
+	/** Returns the log file. */
+	public File getFile() {
+		return file;
+	}
+
+	/** Closes the log. */
+	public void close() throws StorageException {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new StorageException("Could not close log " + file, e);
+		}
+	}
+
+	/**
+	 * Reads all complete records from the given log file and adds their
+	 * entries to the given list (deletions use
+	 * {@link LSMStorageSystem#TOMBSTONE}). A truncated or corrupt record at
+	 * the end of the log (e.g. after a crash during writing) ends the replay.
+	 */
+	public static void replay(File file, PairList<byte[], byte[]> entries)
+			throws StorageException {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			while (true) {
+				byte[] payload;
+				int checksum;
+				try {
+					int length = in.readInt();
+					checksum = in.readInt();
+					if (length < 4) {
+						return;
+					}
+					payload = new byte[length];
+					in.readFully(payload);
+				} catch (EOFException e) {
+					return;
+				}
+
+				CRC32 crc = new CRC32();
+				crc.update(payload);
+				if ((int) crc.getValue() != checksum) {
+					return;
+				}
+				readRecord(payload, entries);
+			}
+		} catch (IOException e) {
+			throw new StorageException("Could not read log " + file, e);
+		} finally {
+			FileSystemUtils.close(in);
+		}
+	}
+
+	/** Reads the entries of a single record. */
+	private static void readRecord(byte[] payload,
+			PairList<byte[], byte[]> entries) throws IOException {
+		DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(payload));
+		int count = in.readInt();
+		for (int i = 0; i < count; ++i) {
+			byte[] key = new byte[in.readInt()];
+			int valueLength = in.readInt();
+			in.readFully(key);
+			byte[] value = LSMStorageSystem.TOMBSTONE;
+			if (valueLength >= 0) {
+				value = new byte[valueLength];
+				in.readFully(value);
+			}
+			entries.add(key, value);
+		}
+	}
+}
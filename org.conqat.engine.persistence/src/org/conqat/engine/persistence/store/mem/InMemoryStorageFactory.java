@@ -41,6 +41,9 @@ public class InMemoryStorageFactory extends ConQATProcessorBase {
 	/** The name of the base directory to store the data in. */
 	private File baseDirectory;
 
+	/** Whether keys and values are copied. */
+	private boolean copyData = true;
+
 	/**
 	 * {@ConQAT.Doc}
 	 * <p>
@@ -56,11 +59,21 @@ public class InMemoryStorageFactory extends ConQATProcessorBase {
 		this.baseDirectory = new File(baseDirectory);
 	}
 
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "copy", maxOccurrences = 1, description = ""
+			+ "Sets whether keys and values are copied when entering or leaving the store.")
+	public void setCopyData(
+			@AConQATAttribute(name = "value", description = "If this is false, no copies are made, which saves memory "
+					+ "allocations but requires that no caller modifies the arrays passed to or returned from the store. "
+					+ "Default is true.") boolean copyData) {
+		this.copyData = copyData;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public IStorageSystem process() throws ConQATException {
 		final InMemoryStorageSystem storageSystem = new InMemoryStorageSystem(
-				baseDirectory);
+				baseDirectory, copyData);
 		getProcessorInfo().registerShutdownHook(new IShutdownHook() {
 			@Override
 			public void performShutdown() throws ConQATException {
@@ -17,9 +17,9 @@
 package org.conqat.engine.persistence.store.mem;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.conqat.engine.persistence.store.IStore;
 import org.conqat.engine.persistence.store.StorageException;
@@ -39,7 +39,7 @@ import org.conqat.lib.commons.string.StringUtils;
 public class InMemoryStorageSystem extends StorageSystemBase {
 
 	/** The stores available. */
-	private final Map<String, InMemoryStore> stores = new HashMap<String, InMemoryStore>();
+	private final Map<String, InMemoryStore> stores = new ConcurrentHashMap<String, InMemoryStore>();
 
 	/**
 	 * If this is not <code>null</code>, the contents of the individual stores
@@ -47,6 +47,9 @@ public class InMemoryStorageSystem extends StorageSystemBase {
 	 */
 	private final File persistenceDirectory;
 
+	/** Whether the stores copy their keys and values. */
+	private final boolean copyData;
+
 	/**
 	 * Constructor.
 	 * 
@@ -56,7 +59,23 @@ public class InMemoryStorageSystem extends StorageSystemBase {
 	 */
 	public InMemoryStorageSystem(File persistenceDirectory)
 			throws StorageException {
+		this(persistenceDirectory, true);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param persistenceDirectory
+	 *            if this is not <code>null</code>, the contents of the
+	 *            individual stores will be persisted in this directory.
+	 * @param copyData
+	 *            whether the stores copy keys and values (see
+	 *            {@link InMemoryStore#InMemoryStore(boolean)}).
+	 */
+	public InMemoryStorageSystem(File persistenceDirectory, boolean copyData)
+			throws StorageException {
 		this.persistenceDirectory = persistenceDirectory;
+		this.copyData = copyData;
 
 		if (persistenceDirectory != null) {
 			ensureStorageDirectory(persistenceDirectory);
@@ -65,10 +84,10 @@ public class InMemoryStorageSystem extends StorageSystemBase {
 
 	/** {@inheritDoc} */
 	@Override
-	public IStore openStore(String name) throws StorageException {
+	public synchronized IStore openStore(String name) throws StorageException {
 		InMemoryStore store = stores.get(name);
 		if (store == null) {
-			store = new InMemoryStore();
+			store = new InMemoryStore(copyData);
 			if (persistenceDirectory != null) {
 				File storeFile = new File(persistenceDirectory, name);
 				if (storeFile.canRead()) {
@@ -82,7 +101,7 @@ public class InMemoryStorageSystem extends StorageSystemBase {
 
 	/** {@inheritDoc} */
 	@Override
-	public void removeStore(String storeName) {
+	public synchronized void removeStore(String storeName) {
 		stores.remove(storeName);
 		if (persistenceDirectory != null) {
 			File storeFile = new File(persistenceDirectory, storeName);
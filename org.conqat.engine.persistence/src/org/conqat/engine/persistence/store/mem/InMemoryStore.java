@@ -18,16 +18,19 @@ package org.conqat.engine.persistence.store.mem;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.conqat.engine.persistence.store.IKeyValueCallback;
 import org.conqat.engine.persistence.store.StorageException;
@@ -38,6 +41,10 @@ import org.conqat.lib.commons.filesystem.FileSystemUtils;
 /**
  * Store implementation that keeps all data in main memory. Very simple
  * persistence is possible, but all data must fit into main memory.
+ * <p>
+ * The store is based on a concurrent skip list and uses no locks, so it may
+ * be accessed from many threads in parallel. Scans are weakly consistent,
+ * i.e. they may or may not reflect changes performed during the scan.
  * 
  * @author $Author: heinemann $
  * @version $Rev: 46021 $
@@ -45,61 +52,132 @@ import org.conqat.lib.commons.filesystem.FileSystemUtils;
  */
 public class InMemoryStore extends StoreBase {
 
+	/** Magic number at the start of files written by {@link #dumpToFile(File)}. */
+	private static final int MAGIC = 0x43514D53;
+
+	/** The first two bytes of files written by Java serialization. */
+	private static final int SERIALIZATION_MAGIC = 0xACED;
+
+	/** Size of the buffer used for reading and writing files. */
+	private static final int FILE_BUFFER_SIZE = 1024 * 1024;
+
 	/** Data store. */
-	private final NavigableMap<byte[], byte[]> data = new TreeMap<byte[], byte[]>(
+	private final ConcurrentNavigableMap<byte[], byte[]> data = new ConcurrentSkipListMap<byte[], byte[]>(
 			ByteArrayComparator.INSTANCE);
 
+	/**
+	 * Whether keys and values are copied when entering or leaving the store.
+	 * See {@link #InMemoryStore(boolean)}.
+	 */
+	private final boolean copyData;
+
+	/** Constructor. */
+	public InMemoryStore() {
+		this(true);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param copyData
+	 *            if this is false, keys and values are neither copied when
+	 *            stored nor when returned. This avoids lots of allocations,
+	 *            but may only be used if all callers are trusted to not modify
+	 *            arrays passed to or returned from the store.
+	 */
+	public InMemoryStore(boolean copyData) {
+		this.copyData = copyData;
+	}
+
+	/** Returns a copy of the given array if {@link #copyData} is true. */
+	private byte[] copy(byte[] array) {
+		if (copyData) {
+			return array.clone();
+		}
+		return array;
+	}
+
 	/** {@inheritDoc} */
 	@Override
-	public synchronized byte[] get(byte[] key) {
+	public byte[] get(byte[] key) {
 		byte[] value = data.get(key);
 		if (value == null) {
 			return null;
 		}
-		return value.clone();
+		return copy(value);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void put(byte[] key, byte[] value) {
-		data.put(key.clone(), value.clone());
+	public void put(byte[] key, byte[] value) {
+		data.put(copy(key), copy(value));
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void remove(byte[] key) {
+	public void remove(byte[] key) {
 		data.remove(key);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void scan(byte[] beginKey, byte[] endKey,
+	public void scan(byte[] beginKey, byte[] endKey,
 			IKeyValueCallback callback) {
-		for (Entry<byte[], byte[]> entry : data.subMap(beginKey, endKey)
-				.entrySet()) {
-			callback.callback(entry.getKey().clone(), entry.getValue().clone());
+		for (Entry<byte[], byte[]> entry : range(beginKey, endKey).entrySet()) {
+			callback.callback(copy(entry.getKey()), copy(entry.getValue()));
 		}
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void scanKeys(byte[] beginKey, byte[] endKey,
+	public void scanKeys(byte[] beginKey, byte[] endKey,
 			IKeyValueCallback callback) {
-		for (byte[] key : data.subMap(beginKey, endKey).keySet()) {
-			callback.callback(key.clone(), null);
+		for (byte[] key : range(beginKey, endKey).keySet()) {
+			callback.callback(copy(key), null);
+		}
+	}
+
+	/**
+	 * Returns the view of the data between the given keys. Both keys may be
+	 * <code>null</code> to indicate open boundaries.
+	 */
+	private Map<byte[], byte[]> range(byte[] beginKey, byte[] endKey) {
+		if (beginKey == null && endKey == null) {
+			return data;
+		}
+		if (beginKey == null) {
+			return data.headMap(endKey);
 		}
+		if (endKey == null) {
+			return data.tailMap(beginKey);
+		}
+		if (ByteArrayComparator.INSTANCE.compare(beginKey, endKey) > 0) {
+			return Collections.emptyMap();
+		}
+		return data.subMap(beginKey, endKey);
 	}
 
 	/**
 	 * Serializes this store to the given file. The contents of this file will
-	 * be overwritten.
+	 * be overwritten. The format consists of a magic number followed by the
+	 * entries (each being key length, key, value length, and value) and a
+	 * terminating -1. If the store is modified concurrently, the snapshot may
+	 * or may not contain the modifications.
 	 */
-	public synchronized void dumpToFile(File file) throws StorageException {
-		ObjectOutputStream out = null;
+	public void dumpToFile(File file) throws StorageException {
+		DataOutputStream out = null;
 		try {
-			out = new ObjectOutputStream(new BufferedOutputStream(
-					new FileOutputStream(file)));
-			out.writeObject(data);
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file), FILE_BUFFER_SIZE));
+			out.writeInt(MAGIC);
+			for (Entry<byte[], byte[]> entry : data.entrySet()) {
+				out.writeInt(entry.getKey().length);
+				out.write(entry.getKey());
+				out.writeInt(entry.getValue().length);
+				out.write(entry.getValue());
+			}
+			out.writeInt(-1);
+			out.close();
 		} catch (IOException e) {
 			throw new StorageException("Could not persist store: "
 					+ e.getMessage(), e);
@@ -108,51 +186,85 @@ public class InMemoryStore extends StoreBase {
 		}
 	}
 
-	/** Loads all entries from a map which was serialized to the given file. */
+	/**
+	 * Loads all entries from a file written by {@link #dumpToFile(File)}. For
+	 * compatibility, files containing a serialized map (as written by earlier
+	 * versions) are supported as well.
+	 */
+	public void loadFromFile(File file) throws StorageException {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file), FILE_BUFFER_SIZE));
+			in.mark(4);
+			int magic = in.readInt();
+			if (magic >>> 16 == SERIALIZATION_MAGIC) {
+				in.reset();
+				loadSerializedMap(in);
+			} else if (magic == MAGIC) {
+				loadEntries(in);
+			} else {
+				throw new StorageException("Invalid file contents: " + file);
+			}
+		} catch (IOException e) {
+			throw new StorageException("Could not load store: "
+					+ e.getMessage(), e);
+		} finally {
+			FileSystemUtils.close(in);
+		}
+	}
+
+	/** Loads the entries written by {@link #dumpToFile(File)}. */
+	private void loadEntries(DataInputStream in) throws IOException {
+		int keyLength;
+		while ((keyLength = in.readInt()) >= 0) {
+			byte[] key = new byte[keyLength];
+			in.readFully(key);
+			byte[] value = new byte[in.readInt()];
+			in.readFully(value);
+			data.put(key, value);
+		}
+	}
+
+	/** Loads the entries from a serialized map. */
 	@SuppressWarnings("unchecked")
-	public synchronized void loadFromFile(File file) throws StorageException {
-		ObjectInputStream in = null;
+	private void loadSerializedMap(InputStream in) throws IOException,
+			StorageException {
 		try {
-			in = new ObjectInputStream(new BufferedInputStream(
-					new FileInputStream(file)));
-			Map<byte[], byte[]> m = (Map<byte[], byte[]>) in.readObject();
+			Map<byte[], byte[]> m = (Map<byte[], byte[]>) new ObjectInputStream(
+					in).readObject();
 			data.putAll(m);
 		} catch (ClassNotFoundException e) {
 			// we map this to IOException as it is an unlikely case and
 			// indicates data corruption
 			throw new StorageException("Invalid file contents: "
 					+ e.getMessage(), e);
-		} catch (IOException e) {
-			throw new StorageException("Could not load store: "
-					+ e.getMessage(), e);
-		} finally {
-			FileSystemUtils.close(in);
 		}
 	}
 
 	/** Removes all data from this store. */
-	public synchronized void clear() {
+	public void clear() {
 		data.clear();
 	}
 
 	/**
 	 * Returns statistics on the memory consumption of the store. This operation
-	 * is potentially expensive and thus should not be called too often. This
-	 * method is not thread-safe and should not be called concurrently to other
-	 * store operations.
+	 * is potentially expensive and thus should not be called too often.
 	 */
-	public synchronized String getUsageStatistics(boolean detailed) {
+	public String getUsageStatistics(boolean detailed) {
 		if (!detailed) {
 			return "entries: " + data.size();
 		}
 		long keyBytes = 0;
 		long valueBytes = 0;
+		int entries = 0;
 		for (Entry<byte[], byte[]> entry : data.entrySet()) {
 			keyBytes += entry.getKey().length;
 			valueBytes += entry.getValue().length;
+			entries += 1;
 		}
 
-		return "entries: " + data.size() + ", keys (byte): " + keyBytes
+		return "entries: " + entries + ", keys (byte): " + keyBytes
 				+ ", values (byte): " + valueBytes;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.profiler;
+
+import org.conqat.engine.persistence.store.IStore;
+
+/**
+ * The operations of an {@link IStore} distinguished by the
+ * {@link StorageProfiler}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public enum EStorageOperation {
+
+	/** Get of a single key. */
+	GET,
+
+	/** Get of multiple keys. */
+	GET_MULTIPLE,
+
+	/** Put of a single key. */
+	PUT,
+
+	/** Put of multiple keys. */
+	PUT_MULTIPLE,
+
+	/** Removal of a single key. */
+	REMOVE,
+
+	/** Removal of multiple keys. */
+	REMOVE_MULTIPLE,
+
+	/** Scan of a key range. */
+	SCAN_RANGE,
+
+	/** Scan of a single prefix. */
+	SCAN_PREFIX,
+
+	/** Scan of multiple prefixes. */
+	SCAN_PREFIXES,
+
+	/** Scan of the keys in a key range. */
+	SCAN_KEYS_RANGE,
+
+	/** Scan of the keys with a prefix. */
+	SCAN_KEYS_PREFIX
+}
\ No newline at end of file
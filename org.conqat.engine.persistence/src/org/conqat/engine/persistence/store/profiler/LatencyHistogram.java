@@ -0,0 +1,105 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.profiler;
+
+/**
+ * A histogram of latencies (or other non-negative values) with bounded
+ * relative error, similar to the HDR histogram. Values are counted in buckets
+ * whose width grows with the magnitude of the value: each power of two is
+ * split into 16 linear sub-buckets, so the relative error of reported values
+ * is below 7%. The memory required is constant (less than 8 KB) independent
+ * of the number and range of values recorded.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class LatencyHistogram {
+
+	/** The number of bits used for the linear sub-buckets. */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/** The number of sub-buckets per power of two. */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/** The counts of the buckets. */
+	private final long[] counts = new long[bucketIndex(Long.MAX_VALUE) + 1];
+
+	/** The total number of values recorded. */
+	private long totalCount = 0;
+
+	/** The largest value recorded. */
+	private long maxValue = 0;
+
+	/** Records a value. Negative values are recorded as 0. */
+	public void record(long value) {
+		value = Math.max(0, value);
+		counts[bucketIndex(value)] += 1;
+		totalCount += 1;
+		maxValue = Math.max(maxValue, value);
+	}
+
+	/** Returns the number of values recorded. */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/** Returns the largest value recorded (0 if no value was recorded). */
+	public long getMaxValue() {
+		return maxValue;
+	}
+
+	/**
+	 * Returns the value at the given percentile (0 to 100), i.e. the smallest
+	 * value such that the given percentage of recorded values is less than or
+	 * equal to it. The result is the upper bound of the bucket containing the
+	 * value (but never more than the maximal value recorded). Returns 0 if no
+	 * value was recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long threshold = (long) Math.ceil(percentile / 100 * totalCount);
+		threshold = Math.max(1, Math.min(totalCount, threshold));
+
+		long count = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			count += counts[i];
+			if (count >= threshold) {
+				return Math.min(maxValue, bucketUpperBound(i));
+			}
+		}
+		return 0;
+	}
+
+	/** Returns the index of the bucket for the given non-negative value. */
+	/* package */static int bucketIndex(long value) {
+		int highestBit = 63 - Long.numberOfLeadingZeros(value);
+		int shift = Math.max(0, highestBit - SUB_BUCKET_BITS);
+		return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+	}
+
+	/** Returns the largest value stored in the bucket with the given index. */
+	/* package */static long bucketUpperBound(int index) {
+		if (index < 2 * SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = index - shift * SUB_BUCKET_COUNT;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
\ No newline at end of file
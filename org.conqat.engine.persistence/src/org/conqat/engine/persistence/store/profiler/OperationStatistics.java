@@ -0,0 +1,113 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.profiler;
+
+/**
+ * Statistics collected by the {@link StorageProfiler} for a single operation
+ * of a single store. This class is thread-safe.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class OperationStatistics {
+
+	/** Histogram of the call latencies in nanoseconds. */
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	/** The total nanoseconds spent in calls. */
+	private long totalNanos = 0;
+
+	/** The number of bytes (keys and values) returned to the caller. */
+	private long bytesRead = 0;
+
+	/** The number of bytes (keys and values) passed to the store. */
+	private long bytesWritten = 0;
+
+	/** The number of entries returned by scans (or found by gets). */
+	private long resultCount = 0;
+
+	/** The number of lookups answered by a cache. */
+	private long cacheHits = 0;
+
+	/** The number of cache lookups that had to be passed to the store. */
+	private long cacheMisses = 0;
+
+	/** Records a single call. */
+	public synchronized void record(long nanos, long bytesRead,
+			long bytesWritten, long resultCount) {
+		latencies.record(nanos);
+		totalNanos += nanos;
+		this.bytesRead += bytesRead;
+		this.bytesWritten += bytesWritten;
+		this.resultCount += resultCount;
+	}
+
+	/** Records the outcome of lookups in a cache. */
+	public synchronized void recordCacheAccess(long hits, long misses) {
+		cacheHits += hits;
+		cacheMisses += misses;
+	}
+
+	/** Returns the number of calls. */
+	public synchronized long getCount() {
+		return latencies.getTotalCount();
+	}
+
+	/** Returns the total nanoseconds spent in calls. */
+	public synchronized long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * Returns the latency in nanoseconds at the given percentile (0 to 100).
+	 * See {@link LatencyHistogram#getValueAtPercentile(double)}.
+	 */
+	public synchronized long getPercentileNanos(double percentile) {
+		return latencies.getValueAtPercentile(percentile);
+	}
+
+	/** Returns the maximal latency in nanoseconds. */
+	public synchronized long getMaxNanos() {
+		return latencies.getMaxValue();
+	}
+
+	/** Returns the number of bytes (keys and values) returned to the caller. */
+	public synchronized long getBytesRead() {
+		return bytesRead;
+	}
+
+	/** Returns the number of bytes (keys and values) passed to the store. */
+	public synchronized long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/** Returns the number of entries returned by scans (or found by gets). */
+	public synchronized long getResultCount() {
+		return resultCount;
+	}
+
+	/** Returns the number of lookups answered by a cache. */
+	public synchronized long getCacheHits() {
+		return cacheHits;
+	}
+
+	/** Returns the number of cache lookups that had to be passed to the store. */
+	public synchronized long getCacheMisses() {
+		return cacheMisses;
+	}
+}
\ No newline at end of file
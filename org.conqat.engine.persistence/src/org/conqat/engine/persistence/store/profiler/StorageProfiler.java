@@ -16,21 +16,33 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.persistence.store.profiler;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.conqat.engine.persistence.store.IKeyValueCallback;
 import org.conqat.engine.persistence.store.IStorageSystem;
 import org.conqat.engine.persistence.store.IStore;
 import org.conqat.engine.persistence.store.StorageException;
 import org.conqat.engine.persistence.store.base.DelegatingStorageSystemBase;
+import org.conqat.engine.persistence.store.util.CachingStore;
 import org.conqat.engine.persistence.store.util.PartitionedStorageSystem;
 import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.string.StringUtils;
 
 /**
  * Manages performance counters for storage access. The counted time includes
  * all time spent in methods of the {@link IStore} interface including time
  * spent in any callbacks provided to the scan methods. It does not include time
  * required for store creation and closing.
+ * <p>
+ * Additionally, statistics (including latency histograms) are collected for
+ * each store and operation. These can be exported using
+ * {@link #getCsvReport()}.
  * 
  * @author $Author: heinemann $
  * @version $Rev: 47054 $
@@ -38,32 +50,160 @@ import org.conqat.lib.commons.collections.PairList;
  */
 public class StorageProfiler {
 
+	/** Separator used for the CSV report. */
+	private static final String CSV_SEPARATOR = ";";
+
 	/** Accumulates nanoseconds spent. */
 	private long nanoSeconds = 0;
 
 	/** The number of calls to the methods of an {@link IStore}. */
 	private int numberOfCalls = 0;
 
+	/** The number of lookups answered by a cache. */
+	private long cacheHits = 0;
+
+	/** The number of cache lookups that had to be passed to the store. */
+	private long cacheMisses = 0;
+
+	/**
+	 * The statistics for each store and operation. The maps for the individual
+	 * stores contain all operations and are never modified after creation.
+	 * Access to the outer map is synchronized on the map.
+	 */
+	private final Map<String, Map<EStorageOperation, OperationStatistics>> statistics = new TreeMap<String, Map<EStorageOperation, OperationStatistics>>();
+
 	/**
 	 * Returns time spent in the created storage systems rounded to milli
 	 * seconds.
 	 */
-	public long getTimeMillis() {
+	public synchronized long getTimeMillis() {
 		return (nanoSeconds + 500 * 1000) / 1000 / 1000;
 	}
 
 	/** Returns the number of calls to any method of decorated storage systems. */
-	public int getNumberOfCalls() {
+	public synchronized int getNumberOfCalls() {
 		return numberOfCalls;
 	}
 
+	/** Returns the number of lookups answered by a cache. */
+	public synchronized long getCacheHits() {
+		return cacheHits;
+	}
+
+	/** Returns the number of cache lookups that had to be passed to the store. */
+	public synchronized long getCacheMisses() {
+		return cacheMisses;
+	}
+
+	/**
+	 * Reports the outcome of lookups in a {@link CachingStore}. Besides the
+	 * total counters, the hits and misses are recorded in the statistics of
+	 * the given store and operation.
+	 */
+	public void reportCacheAccess(String storeName,
+			EStorageOperation operation, int hits, int misses) {
+		synchronized (this) {
+			cacheHits += hits;
+			cacheMisses += misses;
+		}
+		getOrCreateStatistics(storeName).get(operation).recordCacheAccess(
+				hits, misses);
+	}
+
+	/** Returns the names of all stores for which statistics were collected. */
+	public List<String> getStoreNames() {
+		synchronized (statistics) {
+			return new ArrayList<String>(statistics.keySet());
+		}
+	}
+
+	/**
+	 * Returns the statistics for the given store and operation. Returns null if
+	 * the store was never opened via a decorated storage system. The names of
+	 * stores opened via a {@link PartitionedStorageSystem} are prefixed with
+	 * the partition name and a slash.
+	 */
+	public OperationStatistics getStatistics(String storeName,
+			EStorageOperation operation) {
+		synchronized (statistics) {
+			Map<EStorageOperation, OperationStatistics> storeStatistics = statistics
+					.get(storeName);
+			if (storeStatistics == null) {
+				return null;
+			}
+			return storeStatistics.get(operation);
+		}
+	}
+
+	/** Returns the statistics for the given store, creating them if needed. */
+	private Map<EStorageOperation, OperationStatistics> getOrCreateStatistics(
+			String storeName) {
+		synchronized (statistics) {
+			Map<EStorageOperation, OperationStatistics> storeStatistics = statistics
+					.get(storeName);
+			if (storeStatistics == null) {
+				storeStatistics = new EnumMap<EStorageOperation, OperationStatistics>(
+						EStorageOperation.class);
+				for (EStorageOperation operation : EStorageOperation.values()) {
+					storeStatistics.put(operation, new OperationStatistics());
+				}
+				statistics.put(storeName, storeStatistics);
+			}
+			return storeStatistics;
+		}
+	}
+
+	/**
+	 * Returns a CSV report (separated by semicolons) with one line for each
+	 * store and operation that was called at least once or had cache lookups
+	 * reported. Times are given in microseconds.
+	 */
+	public String getCsvReport() {
+		StringBuilder builder = new StringBuilder();
+		appendCsvLine(builder, "store", "operation", "count", "total_us",
+				"p50_us", "p99_us", "max_us", "bytes_read", "bytes_written",
+				"results", "cache_hits", "cache_misses");
+		for (String storeName : getStoreNames()) {
+			for (EStorageOperation operation : EStorageOperation.values()) {
+				OperationStatistics operationStatistics = getStatistics(
+						storeName, operation);
+				if (operationStatistics.getCount() == 0
+						&& operationStatistics.getCacheHits() == 0
+						&& operationStatistics.getCacheMisses() == 0) {
+					continue;
+				}
+				appendCsvLine(builder, storeName, operation.name(),
+						operationStatistics.getCount(),
+						operationStatistics.getTotalNanos() / 1000,
+						operationStatistics.getPercentileNanos(50) / 1000,
+						operationStatistics.getPercentileNanos(99) / 1000,
+						operationStatistics.getMaxNanos() / 1000,
+						operationStatistics.getBytesRead(),
+						operationStatistics.getBytesWritten(),
+						operationStatistics.getResultCount(),
+						operationStatistics.getCacheHits(),
+						operationStatistics.getCacheMisses());
+			}
+		}
+		return builder.toString();
+	}
+
+	/** Appends a single line to a CSV report. */
+	private static void appendCsvLine(StringBuilder builder, Object... values) {
+		builder.append(StringUtils.concat(values, CSV_SEPARATOR));
+		builder.append(StringUtils.CR);
+	}
+
 	/**
 	 * Helper method for reporting time spent in the storage system relative to
-	 * the start time returned via {@link System#nanoTime()}.
+	 * the start time returned via {@link System#nanoTime()}. Returns the
+	 * nanoseconds passed.
 	 */
-	private void reportTime(long startNanos) {
-		nanoSeconds += System.nanoTime() - startNanos;
+	private synchronized long reportTime(long startNanos) {
+		long nanos = System.nanoTime() - startNanos;
+		nanoSeconds += nanos;
 		numberOfCalls += 1;
+		return nanos;
 	}
 
 	/**
@@ -71,10 +211,21 @@ public class StorageProfiler {
 	 * stores in this profiler.
 	 */
 	public IStorageSystem decorate(IStorageSystem storageSystem) {
+		return decorate(storageSystem, StringUtils.EMPTY_STRING);
+	}
+
+	/**
+	 * Decorates a storage system to count all method invocations of created
+	 * stores in this profiler. The store names used for the statistics are
+	 * prefixed with the given string.
+	 */
+	private IStorageSystem decorate(IStorageSystem storageSystem,
+			final String storeNamePrefix) {
 		return new DelegatingStorageSystemBase(storageSystem) {
 			@Override
 			public IStore openStore(String name) throws StorageException {
-				return new ProfilingStore(super.openStore(name));
+				return new ProfilingStore(super.openStore(name),
+						getOrCreateStatistics(storeNamePrefix + name));
 			}
 		};
 	}
@@ -88,31 +239,75 @@ public class StorageProfiler {
 		return new PartitionedStorageSystem(null) {
 			@Override
 			public IStorageSystem getPartition(String partitionName) {
-				return decorate(partitionedStorageSystem
-						.getPartition(partitionName));
+				return decorate(
+						partitionedStorageSystem.getPartition(partitionName),
+						partitionName + "/");
 			}
 		};
 	}
 
+	/** Returns the length of the given array or 0 for null. */
+	private static int length(byte[] array) {
+		if (array == null) {
+			return 0;
+		}
+		return array.length;
+	}
+
+	/** Returns the total length of the given arrays (which may contain null). */
+	private static long totalLength(List<byte[]> arrays) {
+		long length = 0;
+		for (byte[] array : arrays) {
+			length += length(array);
+		}
+		return length;
+	}
+
 	/** Delegate that measures exeution time for all {@link IStore} methods. */
 	private class ProfilingStore implements IStore {
 
 		/** Instance to delegate all calls to. */
 		private final IStore store;
 
+		/** The statistics for this store. */
+		private final Map<EStorageOperation, OperationStatistics> storeStatistics;
+
 		/** Constructor. */
-		public ProfilingStore(IStore store) {
+		public ProfilingStore(IStore store,
+				Map<EStorageOperation, OperationStatistics> storeStatistics) {
 			this.store = store;
+			this.storeStatistics = storeStatistics;
+		}
+
+		/** Records a call of the given operation. */
+		private void report(EStorageOperation operation, long startNanos,
+				long bytesRead, long bytesWritten, long resultCount) {
+			long nanos = reportTime(startNanos);
+			storeStatistics.get(operation).record(nanos, bytesRead,
+					bytesWritten, resultCount);
+		}
+
+		/** Records a call of a scan operation. */
+		private void report(EStorageOperation operation, long startNanos,
+				CountingCallback callback) {
+			report(operation, startNanos, callback.bytes.get(), 0,
+					callback.results.get());
 		}
 
 		/** {@inheritDoc} */
 		@Override
 		public byte[] get(byte[] key) throws StorageException {
 			long start = System.nanoTime();
+			byte[] value = null;
 			try {
-				return store.get(key);
+				value = store.get(key);
+				return value;
 			} finally {
-				reportTime(start);
+				int results = 0;
+				if (value != null) {
+					results = 1;
+				}
+				report(EStorageOperation.GET, start, length(value), 0, results);
 			}
 		}
 
@@ -120,10 +315,19 @@ public class StorageProfiler {
 		@Override
 		public List<byte[]> get(List<byte[]> keys) throws StorageException {
 			long start = System.nanoTime();
+			List<byte[]> values = Collections.emptyList();
 			try {
-				return store.get(keys);
+				values = store.get(keys);
+				return values;
 			} finally {
-				reportTime(start);
+				int results = 0;
+				for (byte[] value : values) {
+					if (value != null) {
+						results += 1;
+					}
+				}
+				report(EStorageOperation.GET_MULTIPLE, start,
+						totalLength(values), 0, results);
 			}
 		}
 
@@ -134,7 +338,8 @@ public class StorageProfiler {
 			try {
 				store.put(key, value);
 			} finally {
-				reportTime(start);
+				report(EStorageOperation.PUT, start, 0, key.length
+						+ value.length, 0);
 			}
 		}
 
@@ -146,7 +351,12 @@ public class StorageProfiler {
 			try {
 				store.put(keysValues);
 			} finally {
-				reportTime(start);
+				long bytes = 0;
+				for (int i = 0; i < keysValues.size(); ++i) {
+					bytes += keysValues.getFirst(i).length
+							+ keysValues.getSecond(i).length;
+				}
+				report(EStorageOperation.PUT_MULTIPLE, start, 0, bytes, 0);
 			}
 		}
 
@@ -157,7 +367,7 @@ public class StorageProfiler {
 			try {
 				store.remove(key);
 			} finally {
-				reportTime(start);
+				report(EStorageOperation.REMOVE, start, 0, key.length, 0);
 			}
 		}
 
@@ -168,7 +378,8 @@ public class StorageProfiler {
 			try {
 				store.remove(keys);
 			} finally {
-				reportTime(start);
+				report(EStorageOperation.REMOVE_MULTIPLE, start, 0,
+						totalLength(keys), 0);
 			}
 		}
 
@@ -177,10 +388,11 @@ public class StorageProfiler {
 		public void scan(byte[] beginKey, byte[] endKey,
 				IKeyValueCallback callback) throws StorageException {
 			long start = System.nanoTime();
+			CountingCallback countingCallback = new CountingCallback(callback);
 			try {
-				store.scan(beginKey, endKey, callback);
+				store.scan(beginKey, endKey, countingCallback);
 			} finally {
-				reportTime(start);
+				report(EStorageOperation.SCAN_RANGE, start, countingCallback);
 			}
 		}
 
@@ -189,10 +401,11 @@ public class StorageProfiler {
 		public void scan(byte[] prefix, IKeyValueCallback callback)
 				throws StorageException {
 			long start = System.nanoTime();
+			CountingCallback countingCallback = new CountingCallback(callback);
 			try {
-				store.scan(prefix, callback);
+				store.scan(prefix, countingCallback);
 			} finally {
-				reportTime(start);
+				report(EStorageOperation.SCAN_PREFIX, start, countingCallback);
 			}
 		}
 
@@ -201,10 +414,12 @@ public class StorageProfiler {
 		public void scan(List<byte[]> prefixes, IKeyValueCallback callback)
 				throws StorageException {
 			long start = System.nanoTime();
+			CountingCallback countingCallback = new CountingCallback(callback);
 			try {
-				store.scan(prefixes, callback);
+				store.scan(prefixes, countingCallback);
 			} finally {
-				reportTime(start);
+				report(EStorageOperation.SCAN_PREFIXES, start,
+						countingCallback);
 			}
 		}
 
@@ -213,10 +428,12 @@ public class StorageProfiler {
 		public void scanKeys(byte[] beginKey, byte[] endKey,
 				IKeyValueCallback callback) throws StorageException {
 			long start = System.nanoTime();
+			CountingCallback countingCallback = new CountingCallback(callback);
 			try {
-				store.scanKeys(beginKey, endKey, callback);
+				store.scanKeys(beginKey, endKey, countingCallback);
 			} finally {
-				reportTime(start);
+				report(EStorageOperation.SCAN_KEYS_RANGE, start,
+						countingCallback);
 			}
 		}
 
@@ -225,11 +442,41 @@ public class StorageProfiler {
 		public void scanKeys(byte[] prefix, IKeyValueCallback callback)
 				throws StorageException {
 			long start = System.nanoTime();
+			CountingCallback countingCallback = new CountingCallback(callback);
 			try {
-				store.scanKeys(prefix, callback);
+				store.scanKeys(prefix, countingCallback);
 			} finally {
-				reportTime(start);
+				report(EStorageOperation.SCAN_KEYS_PREFIX, start,
+						countingCallback);
 			}
 		}
 	}
+
+	/**
+	 * Callback that counts the entries and bytes passed on to another callback.
+	 */
+	private static class CountingCallback implements IKeyValueCallback {
+
+		/** The callback to delegate to. */
+		private final IKeyValueCallback delegate;
+
+		/** The number of entries. */
+		private final AtomicLong results = new AtomicLong();
+
+		/** The number of bytes of keys and values. */
+		private final AtomicLong bytes = new AtomicLong();
+
+		/** Constructor. */
+		public CountingCallback(IKeyValueCallback delegate) {
+			this.delegate = delegate;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void callback(byte[] key, byte[] value) {
+			results.incrementAndGet();
+			bytes.addAndGet(key.length + length(value));
+			delegate.callback(key, value);
+		}
+	}
 }
@@ -127,4 +127,45 @@ public interface IRemoteStore extends Remote {
 	void scanKeys(String store, byte[] prefix, IRemoteKeyValueCallback callback)
 			throws StorageException, RemoteException;
 
+	/**
+	 * Starts a scan of all key/value pairs where the keys starts with the
+	 * given beginKey (inclusive if it exists) and ends before the endKey
+	 * (exclusive). Any of the keys may be <code>null</code> to indicate open
+	 * boundaries.
+	 * <p>
+	 * The results are returned in pages, which are requested using
+	 * {@link #nextScanPage(long)} until the last page is reached. This
+	 * requires one remote call per page instead of one per key/value pair as
+	 * for the callback based scans. If the scan is not completed, it must be
+	 * closed using {@link #closeScan(long)}.
+	 * 
+	 * @param includeValues
+	 *            if this is false, the values in the pages are
+	 *            <code>null</code>.
+	 * @param maxPageBytes
+	 *            the number of key/value bytes at which a page is completed.
+	 * @return the first page of the scan.
+	 */
+	ScanPage openScan(String store, byte[] beginKey, byte[] endKey,
+			boolean includeValues, int maxPageBytes) throws StorageException,
+			RemoteException;
+
+	/**
+	 * Starts a scan of all key/value pairs where the key starts with at least
+	 * one of the given prefixes. See
+	 * {@link #openScan(String, byte[], byte[], boolean, int)} for details.
+	 */
+	ScanPage openPrefixScan(String store, List<byte[]> prefixes,
+			boolean includeValues, int maxPageBytes) throws StorageException,
+			RemoteException;
+
+	/** Returns the next page of the scan with the given cursor id. */
+	ScanPage nextScanPage(long cursorId) throws StorageException,
+			RemoteException;
+
+	/**
+	 * Closes the scan with the given cursor id. This is only required if not
+	 * all pages have been requested. Unknown ids are ignored.
+	 */
+	void closeScan(long cursorId) throws RemoteException;
 }
\ No newline at end of file
@@ -17,7 +17,14 @@
 package org.conqat.engine.persistence.store.rmi;
 
 import java.rmi.RemoteException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 import org.conqat.engine.persistence.store.IKeyValueCallback;
@@ -34,6 +41,10 @@ import org.conqat.lib.commons.factory.IParameterizedFactory;
  * by starting the {@link RmiStorageServer} and not in a ConQAT context (i.e. as
  * processor). Thus, we use our own logger instead of using the ConQAT logging
  * infrastructure.
+ * <p>
+ * Calls are not synchronized (except for opening stores), so requests of
+ * several clients are processed in parallel. This requires the stores of the
+ * underlying storage system to be thread-safe.
  * 
  * @author $Author: heinemann $
  * @version $Rev: 46960 $
@@ -52,6 +63,23 @@ public class RemoteStore implements IRemoteStore {
 	private final ICache<String, IStore, StorageException> openStores = CacheFactory
 			.obtainCache(RemoteStore.class, new StoreFactory());
 
+	/** The open scan cursors by id. */
+	private final Map<Long, ScanCursor> cursors = new ConcurrentHashMap<Long, ScanCursor>();
+
+	/** Counter used for creating cursor ids. */
+	private final AtomicLong cursorIdCounter = new AtomicLong();
+
+	/** Executor used for running the scans of cursors. */
+	private final ExecutorService scanExecutor = Executors
+			.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Remote scan");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
 	/** Constructor. */
 	public RemoteStore(IStorageSystem storageSystem) {
 		this.storageSystem = storageSystem;
@@ -65,49 +93,49 @@ public class RemoteStore implements IRemoteStore {
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized byte[] get(String store, byte[] key)
+	public byte[] get(String store, byte[] key)
 			throws StorageException {
 		return getOrOpenStore(store).get(key);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized List<byte[]> getAll(String store, List<byte[]> keys)
+	public List<byte[]> getAll(String store, List<byte[]> keys)
 			throws StorageException {
 		return getOrOpenStore(store).get(keys);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void put(String store, byte[] key, byte[] value)
+	public void put(String store, byte[] key, byte[] value)
 			throws StorageException {
 		getOrOpenStore(store).put(key, value);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void putAll(String store,
+	public void putAll(String store,
 			PairList<byte[], byte[]> keysValues) throws StorageException {
 		getOrOpenStore(store).put(keysValues);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void remove(String store, byte[] key)
+	public void remove(String store, byte[] key)
 			throws StorageException {
 		getOrOpenStore(store).remove(key);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void removeAll(String store, List<byte[]> keys)
+	public void removeAll(String store, List<byte[]> keys)
 			throws StorageException {
 		getOrOpenStore(store).remove(keys);
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void scan(String store, byte[] beginKey, byte[] endKey,
+	public void scan(String store, byte[] beginKey, byte[] endKey,
 			final IRemoteKeyValueCallback callback) throws StorageException {
 		getOrOpenStore(store).scan(beginKey, endKey,
 				new ForwardingCallback(callback));
@@ -115,21 +143,21 @@ public class RemoteStore implements IRemoteStore {
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void scan(String store, byte[] prefix,
+	public void scan(String store, byte[] prefix,
 			final IRemoteKeyValueCallback callback) throws StorageException {
 		getOrOpenStore(store).scan(prefix, new ForwardingCallback(callback));
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void scan(String store, List<byte[]> prefixes,
+	public void scan(String store, List<byte[]> prefixes,
 			final IRemoteKeyValueCallback callback) throws StorageException {
 		getOrOpenStore(store).scan(prefixes, new ForwardingCallback(callback));
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void scanKeys(String store, byte[] beginKey,
+	public void scanKeys(String store, byte[] beginKey,
 			byte[] endKey, final IRemoteKeyValueCallback callback)
 			throws StorageException {
 		getOrOpenStore(store).scanKeys(beginKey, endKey,
@@ -138,12 +166,113 @@ public class RemoteStore implements IRemoteStore {
 
 	/** {@inheritDoc} */
 	@Override
-	public synchronized void scanKeys(String store, byte[] prefix,
+	public void scanKeys(String store, byte[] prefix,
 			final IRemoteKeyValueCallback callback) throws StorageException {
 		getOrOpenStore(store)
 				.scanKeys(prefix, new ForwardingCallback(callback));
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public ScanPage openScan(String store, final byte[] beginKey,
+			final byte[] endKey, final boolean includeValues, int maxPageBytes)
+			throws StorageException {
+		final IStore openStore = getOrOpenStore(store);
+		return startCursor(new ScanCursor(cursorIdCounter.incrementAndGet(),
+				maxPageBytes, includeValues) {
+			@Override
+			protected void runScan(IKeyValueCallback callback)
+					throws StorageException {
+				if (includeValues) {
+					openStore.scan(beginKey, endKey, callback);
+				} else {
+					openStore.scanKeys(beginKey, endKey, callback);
+				}
+			}
+		});
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ScanPage openPrefixScan(String store, final List<byte[]> prefixes,
+			final boolean includeValues, int maxPageBytes)
+			throws StorageException {
+		final IStore openStore = getOrOpenStore(store);
+		return startCursor(new ScanCursor(cursorIdCounter.incrementAndGet(),
+				maxPageBytes, includeValues) {
+			@Override
+			protected void runScan(IKeyValueCallback callback)
+					throws StorageException {
+				if (!includeValues && prefixes.size() == 1) {
+					openStore.scanKeys(prefixes.get(0), callback);
+				} else {
+					openStore.scan(prefixes, callback);
+				}
+			}
+		});
+	}
+
+	/** Registers and starts the cursor and returns its first page. */
+	private ScanPage startCursor(final ScanCursor cursor)
+			throws StorageException {
+		closeExpiredCursors();
+		cursors.put(cursor.getId(), cursor);
+		scanExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				cursor.run();
+				if (cursor.isClosed()) {
+					cursors.remove(cursor.getId());
+				}
+			}
+		});
+		return nextScanPage(cursor.getId());
+	}
+
+	/**
+	 * Closes and removes all cursors whose client did not request a page for
+	 * a long time, e.g. because it died before fetching the last page.
+	 */
+	private void closeExpiredCursors() {
+		for (ScanCursor cursor : new ArrayList<ScanCursor>(cursors.values())) {
+			if (cursor.isExpired()) {
+				LOGGER.warn("Closing expired scan cursor " + cursor.getId());
+				closeScan(cursor.getId());
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ScanPage nextScanPage(long cursorId) throws StorageException {
+		ScanCursor cursor = cursors.get(cursorId);
+		if (cursor == null) {
+			throw new StorageException("Unknown or expired scan cursor: "
+					+ cursorId);
+		}
+
+		ScanPage page;
+		try {
+			page = cursor.nextPage();
+		} catch (StorageException e) {
+			closeScan(cursorId);
+			throw e;
+		}
+		if (page.isLast()) {
+			cursors.remove(cursorId);
+		}
+		return page;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void closeScan(long cursorId) {
+		ScanCursor cursor = cursors.remove(cursorId);
+		if (cursor != null) {
+			cursor.close();
+		}
+	}
+
 	/**
 	 * Factory used for opening stores in the {@link RemoteStore#openStores}
 	 * cache.
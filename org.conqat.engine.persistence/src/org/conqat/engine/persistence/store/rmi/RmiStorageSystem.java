@@ -20,6 +20,9 @@ import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.conqat.engine.persistence.store.IStorageSystem;
 import org.conqat.engine.persistence.store.IStore;
@@ -36,12 +39,73 @@ import org.conqat.lib.commons.net.SmartRMISocketFactory;
  */
 public class RmiStorageSystem implements IStorageSystem {
 
+	/** The default for {@link #batchSize}. */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/** The default for {@link #scanPageBytes}. */
+	public static final int DEFAULT_SCAN_PAGE_BYTES = 1024 * 1024;
+
+	/**
+	 * The number of threads used for prefetching scan pages and parallel
+	 * batches.
+	 */
+	private static final int PIPELINE_THREADS = 4;
+
 	/** The remote store. */
 	private IRemoteStore remoteStore;
 
+	/** The maximal number of keys sent in a single remote call. */
+	private final int batchSize;
+
+	/** The number of key/value bytes requested per scan page. */
+	private final int scanPageBytes;
+
+	/** Executor used by the stores for pipelining remote calls. */
+	private final ExecutorService executor = Executors.newFixedThreadPool(
+			PIPELINE_THREADS, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "RMI store pipeline");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
 	/** Constructor. */
 	public RmiStorageSystem(String host, int port) throws RemoteException,
 			NotBoundException {
+		this(host, port, DEFAULT_BATCH_SIZE, DEFAULT_SCAN_PAGE_BYTES);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param batchSize
+	 *            the maximal number of keys sent in a single remote call.
+	 *            Larger batch operations are split.
+	 * @param scanPageBytes
+	 *            the number of key/value bytes transferred per remote call
+	 *            during scans.
+	 */
+	public RmiStorageSystem(String host, int port, int batchSize,
+			int scanPageBytes) throws RemoteException, NotBoundException {
+		this(lookupRemoteStore(host, port), batchSize, scanPageBytes);
+	}
+
+	/**
+	 * Constructor for directly using the given remote store (which also may
+	 * be a local object).
+	 */
+	public RmiStorageSystem(IRemoteStore remoteStore, int batchSize,
+			int scanPageBytes) {
+		this.remoteStore = remoteStore;
+		this.batchSize = batchSize;
+		this.scanPageBytes = scanPageBytes;
+	}
+
+	/** Looks up the remote store from the registry at the given host. */
+	private static IRemoteStore lookupRemoteStore(String host, int port)
+			throws RemoteException, NotBoundException {
 		SmartRMISocketFactory factory;
 		if ("localhost".equals(host) || "127.0.0.1".equals(host)) {
 			factory = new LocalhostRMISocketFactory();
@@ -50,7 +114,7 @@ public class RmiStorageSystem implements IStorageSystem {
 		}
 
 		Registry registry = LocateRegistry.getRegistry(host, port, factory);
-		remoteStore = (IRemoteStore) registry
+		return (IRemoteStore) registry
 				.lookup(RmiStorageServer.STORAGE_SERVER_URL);
 	}
 
@@ -61,7 +125,8 @@ public class RmiStorageSystem implements IStorageSystem {
 			throw new StorageException("May not access store after closing!");
 		}
 
-		return new RmiStore(name, remoteStore);
+		return new RmiStore(name, remoteStore, executor, batchSize,
+				scanPageBytes);
 	}
 
 	/** {@inheritDoc} */
@@ -75,5 +140,6 @@ public class RmiStorageSystem implements IStorageSystem {
 	public void close() {
 		// allow garbage collector to kill the connection
 		remoteStore = null;
+		executor.shutdown();
 	}
 }
\ No newline at end of file
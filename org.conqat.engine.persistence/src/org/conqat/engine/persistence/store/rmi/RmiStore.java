@@ -17,8 +17,13 @@
 package org.conqat.engine.persistence.store.rmi;
 
 import java.rmi.RemoteException;
-import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.conqat.engine.persistence.store.IKeyValueCallback;
 import org.conqat.engine.persistence.store.IStore;
@@ -27,6 +32,11 @@ import org.conqat.lib.commons.collections.PairList;
 
 /**
  * A simple store based on RMI communication.
+ * <p>
+ * Scans use the paged scan protocol of {@link IRemoteStore}, where the next
+ * page is fetched in the background while the callback processes the current
+ * one. Batch operations are split into batches of limited size. For
+ * {@link #get(List)}, several batches are requested in parallel.
  * 
  * @author $Author: heinemann $
  * @version $Rev: 46024 $
@@ -40,10 +50,23 @@ public class RmiStore implements IStore {
 	/** The remote store. */
 	private IRemoteStore remoteStore;
 
+	/** Executor used for prefetching scan pages and parallel batches. */
+	private final ExecutorService executor;
+
+	/** The maximal number of keys sent in a single remote call. */
+	private final int batchSize;
+
+	/** The number of key/value bytes requested per scan page. */
+	private final int scanPageBytes;
+
 	/** Constructor. */
-	/* package */RmiStore(String store, IRemoteStore remoteStore) {
+	/* package */RmiStore(String store, IRemoteStore remoteStore,
+			ExecutorService executor, int batchSize, int scanPageBytes) {
 		this.storeName = store;
 		this.remoteStore = remoteStore;
+		this.executor = executor;
+		this.batchSize = batchSize;
+		this.scanPageBytes = scanPageBytes;
 	}
 
 	/** {@inheritDoc} */
@@ -59,6 +82,31 @@ public class RmiStore implements IStore {
 	/** {@inheritDoc} */
 	@Override
 	public List<byte[]> get(List<byte[]> keys) throws StorageException {
+		if (keys.size() <= batchSize) {
+			return getBatch(keys);
+		}
+
+		List<Future<List<byte[]>>> futures = new ArrayList<Future<List<byte[]>>>();
+		for (int start = 0; start < keys.size(); start += batchSize) {
+			final List<byte[]> batch = new ArrayList<byte[]>(keys.subList(
+					start, Math.min(keys.size(), start + batchSize)));
+			futures.add(executor.submit(new Callable<List<byte[]>>() {
+				@Override
+				public List<byte[]> call() throws StorageException {
+					return getBatch(batch);
+				}
+			}));
+		}
+
+		List<byte[]> result = new ArrayList<byte[]>(keys.size());
+		for (Future<List<byte[]>> future : futures) {
+			result.addAll(waitFor(future));
+		}
+		return result;
+	}
+
+	/** Retrieves the values for a single batch of keys. */
+	private List<byte[]> getBatch(List<byte[]> keys) throws StorageException {
 		try {
 			return remoteStore.getAll(storeName, keys);
 		} catch (RemoteException e) {
@@ -76,12 +124,30 @@ public class RmiStore implements IStore {
 		}
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Large lists are sent in batches. These are sent one after the other to
+	 * preserve the order of multiple values for the same key.
+	 */
 	@Override
 	public void put(PairList<byte[], byte[]> keysValues)
 			throws StorageException {
 		try {
-			remoteStore.putAll(storeName, keysValues);
+			if (keysValues.size() <= batchSize) {
+				remoteStore.putAll(storeName, keysValues);
+				return;
+			}
+
+			for (int start = 0; start < keysValues.size(); start += batchSize) {
+				int end = Math.min(keysValues.size(), start + batchSize);
+				PairList<byte[], byte[]> batch = new PairList<byte[], byte[]>(
+						end - start);
+				for (int i = start; i < end; ++i) {
+					batch.add(keysValues.getFirst(i), keysValues.getSecond(i));
+				}
+				remoteStore.putAll(storeName, batch);
+			}
 		} catch (RemoteException e) {
 			throw new StorageException("Remote connection failed!", e);
 		}
@@ -101,7 +167,11 @@ public class RmiStore implements IStore {
 	@Override
 	public void remove(List<byte[]> keys) throws StorageException {
 		try {
-			remoteStore.removeAll(storeName, keys);
+			for (int start = 0; start < keys.size(); start += batchSize) {
+				remoteStore.removeAll(storeName, new ArrayList<byte[]>(keys
+						.subList(start,
+								Math.min(keys.size(), start + batchSize))));
+			}
 		} catch (RemoteException e) {
 			throw new StorageException("Remote connection failed!", e);
 		}
@@ -112,8 +182,8 @@ public class RmiStore implements IStore {
 	public void scan(byte[] beginKey, byte[] endKey,
 			final IKeyValueCallback callback) throws StorageException {
 		try {
-			remoteStore.scan(storeName, beginKey, endKey,
-					new RemoteKeyValueCallback(callback));
+			consumePages(remoteStore.openScan(storeName, beginKey, endKey,
+					true, scanPageBytes), callback);
 		} catch (RemoteException e) {
 			throw new StorageException("Remote connection failed!", e);
 		}
@@ -123,12 +193,7 @@ public class RmiStore implements IStore {
 	@Override
 	public void scan(byte[] prefix, final IKeyValueCallback callback)
 			throws StorageException {
-		try {
-			remoteStore.scan(storeName, prefix, new RemoteKeyValueCallback(
-					callback));
-		} catch (RemoteException e) {
-			throw new StorageException("Remote connection failed!", e);
-		}
+		scan(Collections.singletonList(prefix), callback);
 	}
 
 	/** {@inheritDoc} */
@@ -136,8 +201,9 @@ public class RmiStore implements IStore {
 	public void scan(List<byte[]> prefixes, final IKeyValueCallback callback)
 			throws StorageException {
 		try {
-			remoteStore.scan(storeName, prefixes, new RemoteKeyValueCallback(
-					callback));
+			consumePages(remoteStore.openPrefixScan(storeName,
+					new ArrayList<byte[]>(prefixes), true, scanPageBytes),
+					callback);
 		} catch (RemoteException e) {
 			throw new StorageException("Remote connection failed!", e);
 		}
@@ -148,8 +214,8 @@ public class RmiStore implements IStore {
 	public void scanKeys(byte[] beginKey, byte[] endKey,
 			final IKeyValueCallback callback) throws StorageException {
 		try {
-			remoteStore.scanKeys(storeName, beginKey, endKey,
-					new RemoteKeyValueCallback(callback));
+			consumePages(remoteStore.openScan(storeName, beginKey, endKey,
+					false, scanPageBytes), callback);
 		} catch (RemoteException e) {
 			throw new StorageException("Remote connection failed!", e);
 		}
@@ -160,36 +226,75 @@ public class RmiStore implements IStore {
 	public void scanKeys(byte[] prefix, final IKeyValueCallback callback)
 			throws StorageException {
 		try {
-			remoteStore.scanKeys(storeName, prefix, new RemoteKeyValueCallback(
-					callback));
+			consumePages(remoteStore.openPrefixScan(storeName,
+					Collections.singletonList(prefix), false, scanPageBytes),
+					callback);
 		} catch (RemoteException e) {
 			throw new StorageException("Remote connection failed!", e);
 		}
 	}
 
 	/**
-	 * Implementation of {@link IRemoteKeyValueCallback}. Needed to extend
-	 * {@link UnicastRemoteObject}.
+	 * Passes the contents of the given and all following pages of the scan to
+	 * the callback. While a page is processed, the next one is already
+	 * fetched. If the scan is aborted by an exception, the cursor is closed.
 	 */
-	private static class RemoteKeyValueCallback extends UnicastRemoteObject
-			implements IRemoteKeyValueCallback {
-
-		/** Serial version UID. */
-		private static final long serialVersionUID = 1;
+	private void consumePages(ScanPage firstPage, IKeyValueCallback callback)
+			throws StorageException, RemoteException {
+		ScanPage page = firstPage;
+		boolean completed = false;
+		try {
+			while (true) {
+				Future<ScanPage> nextPage = null;
+				if (!page.isLast()) {
+					nextPage = fetchInBackground(page.getCursorId());
+				}
 
-		/** The callback to be called. */
-		private final IKeyValueCallback callback;
+				PairList<byte[], byte[]> keysValues = page.getKeysValues();
+				for (int i = 0; i < keysValues.size(); ++i) {
+					callback.callback(keysValues.getFirst(i),
+							keysValues.getSecond(i));
+				}
 
-		/** Constructor. */
-		private RemoteKeyValueCallback(IKeyValueCallback callback)
-				throws RemoteException {
-			this.callback = callback;
+				if (nextPage == null) {
+					completed = true;
+					return;
+				}
+				page = waitFor(nextPage);
+			}
+		} finally {
+			if (!completed) {
+				remoteStore.closeScan(page.getCursorId());
+			}
 		}
+	}
+
+	/** Requests the next page of the given cursor in the background. */
+	private Future<ScanPage> fetchInBackground(final long cursorId) {
+		return executor.submit(new Callable<ScanPage>() {
+			@Override
+			public ScanPage call() throws StorageException, RemoteException {
+				return remoteStore.nextScanPage(cursorId);
+			}
+		});
+	}
 
-		/** {@inheritDoc} */
-		@Override
-		public void callback(byte[] key, byte[] value) {
-			callback.callback(key, value);
+	/**
+	 * Waits for the result of the given future and converts any exception to
+	 * a {@link StorageException}.
+	 */
+	private static <T> T waitFor(Future<T> future) throws StorageException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new StorageException("Interrupted while waiting for result!",
+					e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof StorageException) {
+				throw (StorageException) e.getCause();
+			}
+			throw new StorageException("Remote connection failed!",
+					e.getCause());
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.rmi;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.lib.commons.collections.PairList;
+
+/**
+ * Server side cursor of a scan. The scan is executed by {@link #run()} in a
+ * separate thread, which packs the results into {@link ScanPage}s of limited
+ * size. Only a small number of pages is buffered, so the scan is paused if
+ * the client does not request pages fast enough. If the client does not
+ * request a page for {@value #TIMEOUT_SECONDS} seconds, the cursor is
+ * closed or reported as expired (see {@link #isExpired()}).
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+/* package */abstract class ScanCursor implements Runnable {
+
+	/** The number of pages buffered ahead of the client. */
+	private static final int BUFFERED_PAGES = 2;
+
+	/** Timeout for the client in seconds. */
+	private static final long TIMEOUT_SECONDS = 300;
+
+	/** The id of this cursor. */
+	private final long id;
+
+	/** The number of key/value bytes at which a page is completed. */
+	private final int maxPageBytes;
+
+	/** Whether to include values in the pages. */
+	private final boolean includeValues;
+
+	/** The completed pages. */
+	private final BlockingQueue<ScanPage> pages = new ArrayBlockingQueue<ScanPage>(
+			BUFFERED_PAGES);
+
+	/** The page currently being filled. */
+	private PairList<byte[], byte[]> currentPage = new PairList<byte[], byte[]>();
+
+	/** The number of key/value bytes in the {@link #currentPage}. */
+	private int currentPageBytes = 0;
+
+	/** Whether the cursor was closed (by the client or by timeout). */
+	private volatile boolean closed = false;
+
+	/** The error that occurred during the scan (or null). */
+	private volatile StorageException error;
+
+	/** The time of the last page request by the client. */
+	private volatile long lastAccessMillis = System.currentTimeMillis();
+
+	/** Constructor. */
+	protected ScanCursor(long id, int maxPageBytes, boolean includeValues) {
+		this.id = id;
+		this.maxPageBytes = maxPageBytes;
+		this.includeValues = includeValues;
+	}
+
+	/** Returns the id. */
+	public long getId() {
+		return id;
+	}
+
+	/** Returns whether the cursor has been closed. */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Returns whether the client did not request a page for
+	 * {@value #TIMEOUT_SECONDS} seconds. This is also the case for cursors
+	 * whose scan has completed, but whose last page was never fetched.
+	 */
+	public boolean isExpired() {
+		return System.currentTimeMillis() - lastAccessMillis > TimeUnit.SECONDS
+				.toMillis(TIMEOUT_SECONDS);
+	}
+
+	/**
+	 * Executes the scan. Unless the cursor was closed, the last page is
+	 * always published, so the client does not wait for the timeout if the
+	 * scan fails.
+	 */
+	@Override
+	public void run() {
+		boolean completed = false;
+		try {
+			runScan(new IKeyValueCallback() {
+				@Override
+				public void callback(byte[] key, byte[] value) {
+					add(key, value);
+				}
+			});
+			completed = true;
+		} catch (StorageException e) {
+			error = e;
+		} catch (CursorClosedException e) {
+			// client is gone, nothing to do
+		} catch (RuntimeException e) {
+			error = new StorageException(e);
+		} finally {
+			if (!closed) {
+				if (!completed && error == null) {
+					error = new StorageException("Scan aborted unexpectedly!");
+				}
+				publishLastPage();
+			}
+		}
+	}
+
+	/** Publishes the last page (including the {@link #error} if any). */
+	private synchronized void publishLastPage() {
+		try {
+			publish(new ScanPage(id, currentPage, true));
+		} catch (CursorClosedException e) {
+			// client is gone, nothing to do
+		}
+	}
+
+	/**
+	 * Template method for running the actual scan, passing all results to the
+	 * given callback.
+	 */
+	protected abstract void runScan(IKeyValueCallback callback)
+			throws StorageException;
+
+	/** Adds an entry to the current page. */
+	private synchronized void add(byte[] key, byte[] value) {
+		if (closed) {
+			throw new CursorClosedException();
+		}
+		if (!includeValues) {
+			value = null;
+		}
+
+		currentPage.add(key, value);
+		currentPageBytes += key.length;
+		if (value != null) {
+			currentPageBytes += value.length;
+		}
+
+		if (currentPageBytes >= maxPageBytes) {
+			publish(new ScanPage(id, currentPage, false));
+			currentPage = new PairList<byte[], byte[]>();
+			currentPageBytes = 0;
+		}
+	}
+
+	/**
+	 * Adds a completed page to the queue, waiting for the client if
+	 * required.
+	 */
+	private void publish(ScanPage page) {
+		try {
+			if (!closed
+					&& pages.offer(page, TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				return;
+			}
+		} catch (InterruptedException e) {
+			// handled below
+		}
+		closed = true;
+		throw new CursorClosedException();
+	}
+
+	/**
+	 * Returns the next page, waiting for the scan if required. If the scan
+	 * failed, the exception is rethrown when reaching the last page.
+	 */
+	public ScanPage nextPage() throws StorageException {
+		lastAccessMillis = System.currentTimeMillis();
+		ScanPage page;
+		try {
+			page = pages.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			throw new StorageException("Interrupted while waiting for scan!",
+					e);
+		} finally {
+			lastAccessMillis = System.currentTimeMillis();
+		}
+		if (page == null) {
+			throw new StorageException("Timeout while waiting for scan!");
+		}
+		if (page.isLast() && error != null) {
+			throw new StorageException("Scan failed: " + error.getMessage(),
+					error);
+		}
+		return page;
+	}
+
+	/** Closes the cursor and thus aborts the scan. */
+	public void close() {
+		closed = true;
+		// unblock the scan thread if it is waiting
+		pages.clear();
+	}
+
+	/** Exception used for aborting the scan of a closed cursor. */
+	private static class CursorClosedException extends RuntimeException {
+
+		/** Version used for serialization. */
+		private static final long serialVersionUID = 1;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.rmi;
+
+import java.io.Serializable;
+
+import org.conqat.lib.commons.collections.PairList;
+
+/**
+ * A page of results of a scan performed via
+ * {@link IRemoteStore#openScan(String, byte[], byte[], boolean, int)} or
+ * {@link IRemoteStore#openPrefixScan(String, java.util.List, boolean, int)}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class ScanPage implements Serializable {
+
+	/** Version used for serialization. */
+	private static final long serialVersionUID = 1;
+
+	/** The id of the cursor used for requesting further pages. */
+	private final long cursorId;
+
+	/**
+	 * The keys and values of this page. The values are <code>null</code> for
+	 * key-only scans.
+	 */
+	private final PairList<byte[], byte[]> keysValues;
+
+	/** Whether this is the last page of the scan. */
+	private final boolean last;
+
+	/** Constructor. */
+	public ScanPage(long cursorId, PairList<byte[], byte[]> keysValues,
+			boolean last) {
+		this.cursorId = cursorId;
+		this.keysValues = keysValues;
+		this.last = last;
+	}
+
+	/** Returns the id of the cursor. */
+	public long getCursorId() {
+		return cursorId;
+	}
+
+	/** Returns the keys and values. */
+	public PairList<byte[], byte[]> getKeysValues() {
+		return keysValues;
+	}
+
+	/**
+	 * Returns whether this is the last page. In this case, the cursor has
+	 * already been released by the server.
+	 */
+	public boolean isLast() {
+		return last;
+	}
+}
\ No newline at end of file
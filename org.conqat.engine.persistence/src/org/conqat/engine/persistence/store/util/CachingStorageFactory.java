@@ -0,0 +1,117 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.conqat.engine.commons.ConQATParamDoc;
+import org.conqat.engine.commons.ConQATProcessorBase;
+import org.conqat.engine.core.core.AConQATAttribute;
+import org.conqat.engine.core.core.AConQATParameter;
+import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.persistence.store.IStorageSystem;
+import org.conqat.engine.persistence.store.profiler.StorageProfiler;
+
+/**
+ * {@ConQAT.Doc}
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = "Wraps a storage system into a read-through LRU cache. "
+		+ "Values read from the stores are kept in memory, so repeated point lookups "
+		+ "do not reach the underlying storage system. Writes are passed through "
+		+ "and update the cache.")
+public class CachingStorageFactory extends ConQATProcessorBase {
+
+	/** The default value for {@link #cacheSizeMB}. */
+	private static final int DEFAULT_CACHE_SIZE_MB = 32;
+
+	/** The storage system to wrap. */
+	private IStorageSystem storageSystem;
+
+	/** The cache size per store in MB. */
+	private int cacheSizeMB = DEFAULT_CACHE_SIZE_MB;
+
+	/** Whether the results of prefix scans are cached. */
+	private boolean cacheScans = false;
+
+	/** The names of the stores to cache (empty for all stores). */
+	private final Set<String> storeNames = new HashSet<String>();
+
+	/** The profiler cache hits and misses are reported to (may be null). */
+	private StorageProfiler profiler;
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = ConQATParamDoc.INPUT_NAME, minOccurrences = 1, maxOccurrences = 1, description = "The storage system to cache.")
+	public void setStorageSystem(
+			@AConQATAttribute(name = ConQATParamDoc.INPUT_REF_NAME, description = ConQATParamDoc.INPUT_REF_DESC) IStorageSystem storageSystem) {
+		this.storageSystem = storageSystem;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "cache", maxOccurrences = 1, description = "Sets the amount of memory used for caching.")
+	public void setCacheSizeMB(
+			@AConQATAttribute(name = "size", description = "The size of the cache of each store in MB. "
+					+ "The memory used is estimated from the sizes of keys and values. The default value is "
+					+ DEFAULT_CACHE_SIZE_MB + ".") int cacheSizeMB)
+			throws ConQATException {
+		if (cacheSizeMB <= 0) {
+			throw new ConQATException("Cache size must be positive!");
+		}
+		this.cacheSizeMB = cacheSizeMB;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "scans", maxOccurrences = 1, description = "Sets whether the results of prefix scans are cached.")
+	public void setCacheScans(
+			@AConQATAttribute(name = "value", description = "If this is true, the results of prefix scans are cached as well. "
+					+ "This helps for repeated scans of small prefixes. Default is false.") boolean cacheScans) {
+		this.cacheScans = cacheScans;
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "store", description = "Adds a store to be cached. "
+			+ "If no store is given, all stores are cached.")
+	public void addStoreName(
+			@AConQATAttribute(name = "name", description = "Name of the store.") String storeName) {
+		storeNames.add(storeName);
+	}
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "profiler", maxOccurrences = 1, description = "Sets the profiler "
+			+ "cache hits and misses are reported to. By default, cache accesses are not reported.")
+	public void setProfiler(
+			@AConQATAttribute(name = "ref", description = "The storage profiler.") StorageProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public IStorageSystem process() {
+		Set<String> cachedStoreNames = null;
+		if (!storeNames.isEmpty()) {
+			cachedStoreNames = storeNames;
+		}
+		return new CachingStorageSystem(storageSystem,
+				cacheSizeMB * 1024L * 1024L, cacheScans, profiler,
+				cachedStoreNames);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.conqat.engine.persistence.store.IStorageSystem;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.base.DelegatingStorageSystemBase;
+import org.conqat.engine.persistence.store.profiler.StorageProfiler;
+
+/**
+ * Storage system that wraps all stores into a {@link CachingStore}. Each store
+ * is wrapped only once, so the cache is shared by all users of the store. As
+ * the caches work on the raw data, they also serve all views on the data, such
+ * as the different history access options or compression. Optionally, caching
+ * can be restricted to a set of stores.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CachingStorageSystem extends DelegatingStorageSystemBase {
+
+	/** The maximal number of bytes (estimated) cached per store. */
+	private final long maxCacheBytesPerStore;
+
+	/** Whether the results of prefix scans are cached. */
+	private final boolean cacheScans;
+
+	/** The profiler cache hits and misses are reported to (may be null). */
+	private final StorageProfiler profiler;
+
+	/** The names of the stores that are cached (null for all stores). */
+	private final Set<String> cachedStoreNames;
+
+	/** The opened stores indexed by name. */
+	private final Map<String, CachingStore> stores = new HashMap<String, CachingStore>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxCacheBytesPerStore
+	 *            the maximal number of bytes (estimated) cached per store.
+	 * @param cacheScans
+	 *            whether the results of prefix scans should be cached as well.
+	 * @param profiler
+	 *            the profiler cache hits and misses are reported to. This may
+	 *            be null.
+	 */
+	public CachingStorageSystem(IStorageSystem delegateStorageSystem,
+			long maxCacheBytesPerStore, boolean cacheScans,
+			StorageProfiler profiler) {
+		this(delegateStorageSystem, maxCacheBytesPerStore, cacheScans,
+				profiler, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxCacheBytesPerStore
+	 *            the maximal number of bytes (estimated) cached per store.
+	 * @param cacheScans
+	 *            whether the results of prefix scans should be cached as well.
+	 * @param profiler
+	 *            the profiler cache hits and misses are reported to. This may
+	 *            be null.
+	 * @param cachedStoreNames
+	 *            the names of the stores that are cached. All other stores are
+	 *            passed through unchanged. If this is null, all stores are
+	 *            cached.
+	 */
+	public CachingStorageSystem(IStorageSystem delegateStorageSystem,
+			long maxCacheBytesPerStore, boolean cacheScans,
+			StorageProfiler profiler, Set<String> cachedStoreNames) {
+		super(delegateStorageSystem);
+		this.maxCacheBytesPerStore = maxCacheBytesPerStore;
+		this.cacheScans = cacheScans;
+		this.profiler = profiler;
+		if (cachedStoreNames == null) {
+			this.cachedStoreNames = null;
+		} else {
+			this.cachedStoreNames = new HashSet<String>(cachedStoreNames);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized IStore openStore(String name) throws StorageException {
+		if (cachedStoreNames != null && !cachedStoreNames.contains(name)) {
+			return super.openStore(name);
+		}
+
+		CachingStore store = stores.get(name);
+		if (store == null) {
+			store = new CachingStore(super.openStore(name), name,
+					maxCacheBytesPerStore, cacheScans, profiler);
+			stores.put(name, store);
+		}
+		return store;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void removeStore(String storeName)
+			throws StorageException {
+		CachingStore store = stores.remove(storeName);
+		if (store != null) {
+			store.clearCache();
+		}
+		super.removeStore(storeName);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void close() throws StorageException {
+		stores.clear();
+		super.close();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,513 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.profiler.EStorageOperation;
+import org.conqat.engine.persistence.store.profiler.StorageProfiler;
+import org.conqat.lib.commons.collections.ByteArrayWrapper;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.io.ByteArrayUtils;
+
+/**
+ * A read-through cache for a store. Values (including misses) are kept in an
+ * LRU cache whose size is bounded by an estimate of the number of bytes
+ * stored. Optionally, the results of prefix scans are cached as well. All
+ * modifications are passed on to the underlying store immediately and
+ * invalidate the affected cache entries.
+ * <p>
+ * The cache is only consistent if all modifications of the underlying store
+ * are performed via this instance. Thus, it should not be used for stores that
+ * are shared between processes, such as the store of a remote server accessed
+ * by multiple clients. Use the {@link CachingStorageSystem} to share caches
+ * between all users of a store.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CachingStore implements IStore {
+
+	/**
+	 * Estimated memory overhead of a cache entry in bytes (map entry, wrappers
+	 * and array headers).
+	 */
+	private static final int ENTRY_OVERHEAD = 96;
+
+	/** Tag prepended to the cache key for entries of single values. */
+	private static final byte VALUE_TAG = 0;
+
+	/** Tag prepended to the cache key for entries of prefix scans. */
+	private static final byte SCAN_TAG = 1;
+
+	/** The store to delegate to. */
+	private final IStore store;
+
+	/** The name of the store used for reporting to the profiler. */
+	private final String storeName;
+
+	/** The maximal number of bytes (estimated) used for cache entries. */
+	private final long maxCacheBytes;
+
+	/** Whether the results of prefix scans are cached. */
+	private final boolean cacheScans;
+
+	/** The profiler hits and misses are reported to (may be null). */
+	private final StorageProfiler profiler;
+
+	/**
+	 * The cache. The map uses access order, so the first entry is the least
+	 * recently used one. All access to the cache and the following fields is
+	 * synchronized on this map.
+	 */
+	private final LinkedHashMap<ByteArrayWrapper, CacheEntry> cache = new LinkedHashMap<ByteArrayWrapper, CacheEntry>(
+			16, .75f, true);
+
+	/** The prefixes of all cached scans. */
+	private final Set<ByteArrayWrapper> cachedScanPrefixes = new HashSet<ByteArrayWrapper>();
+
+	/** The estimated number of bytes used by the cache entries. */
+	private long cacheBytes = 0;
+
+	/**
+	 * Counts the modifications of the store. Values read from the store are
+	 * only cached if no modification happened in between, as the value might
+	 * already be outdated otherwise.
+	 */
+	private long modificationCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param storeName
+	 *            the name of the store used for reporting cache hits and
+	 *            misses to the profiler.
+	 * @param maxCacheBytes
+	 *            the maximal number of bytes (estimated) used for caching.
+	 * @param cacheScans
+	 *            whether the results of prefix scans should be cached as well.
+	 * @param profiler
+	 *            the profiler cache hits and misses are reported to. This may
+	 *            be null.
+	 */
+	public CachingStore(IStore store, String storeName, long maxCacheBytes,
+			boolean cacheScans, StorageProfiler profiler) {
+		this.store = store;
+		this.storeName = storeName;
+		this.maxCacheBytes = maxCacheBytes;
+		this.cacheScans = cacheScans;
+		this.profiler = profiler;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public byte[] get(byte[] key) throws StorageException {
+		ByteArrayWrapper cacheKey = cacheKey(VALUE_TAG, key);
+		long modifications;
+		synchronized (cache) {
+			CacheEntry entry = cache.get(cacheKey);
+			if (entry != null) {
+				reportAccess(EStorageOperation.GET, 1, 0);
+				return copy(entry.value);
+			}
+			modifications = modificationCount;
+		}
+
+		reportAccess(EStorageOperation.GET, 0, 1);
+		byte[] value = store.get(key);
+		synchronized (cache) {
+			cacheValue(cacheKey, key.length, value, modifications);
+		}
+		return copy(value);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<byte[]> get(List<byte[]> keys) throws StorageException {
+		List<byte[]> result = new ArrayList<byte[]>(keys.size());
+		List<Integer> missingIndexes = new ArrayList<Integer>();
+		List<byte[]> missingKeys = new ArrayList<byte[]>();
+		long modifications;
+
+		synchronized (cache) {
+			for (byte[] key : keys) {
+				CacheEntry entry = cache.get(cacheKey(VALUE_TAG, key));
+				if (entry == null) {
+					missingIndexes.add(result.size());
+					missingKeys.add(key);
+					result.add(null);
+				} else {
+					result.add(copy(entry.value));
+				}
+			}
+			modifications = modificationCount;
+		}
+
+		reportAccess(EStorageOperation.GET_MULTIPLE, keys.size()
+				- missingKeys.size(), missingKeys.size());
+		if (missingKeys.isEmpty()) {
+			return result;
+		}
+
+		List<byte[]> values = store.get(missingKeys);
+		synchronized (cache) {
+			for (int i = 0; i < missingKeys.size(); ++i) {
+				byte[] key = missingKeys.get(i);
+				cacheValue(cacheKey(VALUE_TAG, key), key.length,
+						values.get(i), modifications);
+			}
+		}
+		for (int i = 0; i < missingKeys.size(); ++i) {
+			result.set(missingIndexes.get(i), copy(values.get(i)));
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a value read from the store to the cache. A <code>null</code> value
+	 * is cached as a miss. Must be called while holding the lock of
+	 * {@link #cache}.
+	 */
+	private void cacheValue(ByteArrayWrapper cacheKey, int keyLength,
+			byte[] value, long modifications) {
+		if (modifications != modificationCount) {
+			return;
+		}
+		long size = ENTRY_OVERHEAD + keyLength;
+		if (value != null) {
+			size += value.length;
+		}
+		insert(cacheKey, new CacheEntry(value, null, null, size));
+	}
+
+	/**
+	 * Inserts an entry into the cache and evicts the least recently used
+	 * entries if the cache becomes too large. Must be called while holding the
+	 * lock of {@link #cache}.
+	 */
+	private void insert(ByteArrayWrapper cacheKey, CacheEntry entry) {
+		if (entry.size > maxCacheBytes) {
+			return;
+		}
+
+		removeEntry(cacheKey);
+		cache.put(cacheKey, entry);
+		cacheBytes += entry.size;
+		if (entry.scanPrefix != null) {
+			cachedScanPrefixes.add(entry.scanPrefix);
+		}
+
+		Iterator<Entry<ByteArrayWrapper, CacheEntry>> iterator = cache
+				.entrySet().iterator();
+		while (cacheBytes > maxCacheBytes) {
+			CacheEntry evicted = iterator.next().getValue();
+			iterator.remove();
+			entryRemoved(evicted);
+		}
+	}
+
+	/**
+	 * Removes the entry for the given key from the cache. Must be called while
+	 * holding the lock of {@link #cache}.
+	 */
+	private void removeEntry(ByteArrayWrapper cacheKey) {
+		CacheEntry entry = cache.remove(cacheKey);
+		if (entry != null) {
+			entryRemoved(entry);
+		}
+	}
+
+	/** Updates the bookkeeping after an entry was removed from the cache. */
+	private void entryRemoved(CacheEntry entry) {
+		cacheBytes -= entry.size;
+		if (entry.scanPrefix != null) {
+			cachedScanPrefixes.remove(entry.scanPrefix);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(byte[] key, byte[] value) throws StorageException {
+		try {
+			store.put(key, value);
+		} finally {
+			invalidate(Collections.singletonList(key));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(PairList<byte[], byte[]> keysValues)
+			throws StorageException {
+		try {
+			store.put(keysValues);
+		} finally {
+			invalidate(keysValues.extractFirstList());
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(byte[] key) throws StorageException {
+		try {
+			store.remove(key);
+		} finally {
+			invalidate(Collections.singletonList(key));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(List<byte[]> keys) throws StorageException {
+		try {
+			store.remove(keys);
+		} finally {
+			invalidate(keys);
+		}
+	}
+
+	/**
+	 * Removes all cache entries affected by a modification of the given keys.
+	 * This includes the cached scans for all prefixes of the keys.
+	 */
+	private void invalidate(List<byte[]> keys) {
+		synchronized (cache) {
+			modificationCount += 1;
+			for (byte[] key : keys) {
+				removeEntry(cacheKey(VALUE_TAG, key));
+			}
+
+			if (cachedScanPrefixes.isEmpty()) {
+				return;
+			}
+			for (ByteArrayWrapper prefix : new ArrayList<ByteArrayWrapper>(
+					cachedScanPrefixes)) {
+				byte[] prefixBytes = prefix.getBytes();
+				for (byte[] key : keys) {
+					if (ByteArrayUtils.isPrefix(prefixBytes, key)) {
+						removeEntry(cacheKey(SCAN_TAG, prefixBytes));
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/** Discards all cache entries. */
+	public void clearCache() {
+		synchronized (cache) {
+			modificationCount += 1;
+			cache.clear();
+			cachedScanPrefixes.clear();
+			cacheBytes = 0;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void scan(byte[] beginKey, byte[] endKey, IKeyValueCallback callback)
+			throws StorageException {
+		store.scan(beginKey, endKey, callback);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void scan(byte[] prefix, IKeyValueCallback callback)
+			throws StorageException {
+		if (!cacheScans) {
+			store.scan(prefix, callback);
+			return;
+		}
+
+		ByteArrayWrapper cacheKey = cacheKey(SCAN_TAG, prefix);
+		if (replayScan(cacheKey, callback, EStorageOperation.SCAN_PREFIX)) {
+			return;
+		}
+
+		long modifications;
+		synchronized (cache) {
+			modifications = modificationCount;
+		}
+
+		ScanRecordingCallback recordingCallback = new ScanRecordingCallback(
+				callback);
+		store.scan(prefix, recordingCallback);
+
+		synchronized (cache) {
+			if (modifications == modificationCount
+					&& recordingCallback.size <= maxCacheBytes) {
+				insert(cacheKey, new CacheEntry(null,
+						recordingCallback.keysValues, new ByteArrayWrapper(
+								prefix), recordingCallback.size));
+			}
+		}
+	}
+
+	/**
+	 * Replays a cached scan to the given callback. Returns whether the scan was
+	 * found in the cache. Values are only passed to the callback for
+	 * {@link EStorageOperation#SCAN_PREFIX}.
+	 */
+	private boolean replayScan(ByteArrayWrapper cacheKey,
+			IKeyValueCallback callback, EStorageOperation operation) {
+		PairList<byte[], byte[]> keysValues;
+		synchronized (cache) {
+			CacheEntry entry = cache.get(cacheKey);
+			if (entry == null) {
+				return false;
+			}
+			keysValues = entry.scanResult;
+		}
+
+		reportAccess(operation, 1, 0);
+		for (int i = 0; i < keysValues.size(); ++i) {
+			byte[] value = null;
+			if (operation == EStorageOperation.SCAN_PREFIX) {
+				value = keysValues.getSecond(i).clone();
+			}
+			callback.callback(keysValues.getFirst(i).clone(), value);
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Scans for multiple prefixes are not cached, as overlapping prefixes
+	 * would require elaborate handling.
+	 */
+	@Override
+	public void scan(List<byte[]> prefixes, IKeyValueCallback callback)
+			throws StorageException {
+		store.scan(prefixes, callback);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void scanKeys(byte[] beginKey, byte[] endKey,
+			IKeyValueCallback callback) throws StorageException {
+		store.scanKeys(beginKey, endKey, callback);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This is answered from the cache if a scan for the same prefix is cached,
+	 * but does not populate the cache itself.
+	 */
+	@Override
+	public void scanKeys(byte[] prefix, IKeyValueCallback callback)
+			throws StorageException {
+		if (!cacheScans
+				|| !replayScan(cacheKey(SCAN_TAG, prefix), callback,
+						EStorageOperation.SCAN_KEYS_PREFIX)) {
+			store.scanKeys(prefix, callback);
+		}
+	}
+
+	/** Reports cache hits and misses to the profiler (if any). */
+	private void reportAccess(EStorageOperation operation, int hits,
+			int misses) {
+		if (profiler != null) {
+			profiler.reportCacheAccess(storeName, operation, hits, misses);
+		}
+	}
+
+	/** Creates the key used for the cache. */
+	private static ByteArrayWrapper cacheKey(byte tag, byte[] key) {
+		return new ByteArrayWrapper(ByteArrayUtils.concat(new byte[] { tag },
+				key));
+	}
+
+	/** Returns a copy of the given value (which may be null). */
+	private static byte[] copy(byte[] value) {
+		if (value == null) {
+			return null;
+		}
+		return value.clone();
+	}
+
+	/** An entry of the cache. */
+	private static class CacheEntry {
+
+		/** The cached value (null for misses and scans). */
+		private final byte[] value;
+
+		/** The keys and values of a cached scan (null for values). */
+		private final PairList<byte[], byte[]> scanResult;
+
+		/** The prefix of a cached scan (null for values). */
+		private final ByteArrayWrapper scanPrefix;
+
+		/** The estimated size of this entry in bytes. */
+		private final long size;
+
+		/** Constructor. */
+		public CacheEntry(byte[] value, PairList<byte[], byte[]> scanResult,
+				ByteArrayWrapper scanPrefix, long size) {
+			this.value = value;
+			this.scanResult = scanResult;
+			this.scanPrefix = scanPrefix;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Callback that records all keys and values while passing them on to
+	 * another callback.
+	 */
+	private class ScanRecordingCallback implements IKeyValueCallback {
+
+		/** The callback to delegate to. */
+		private final IKeyValueCallback delegate;
+
+		/** The recorded keys and values. */
+		private final PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>();
+
+		/** The estimated size of the recorded data. */
+		private long size = ENTRY_OVERHEAD;
+
+		/** Constructor. */
+		public ScanRecordingCallback(IKeyValueCallback delegate) {
+			this.delegate = delegate;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void callback(byte[] key, byte[] value) {
+			synchronized (keysValues) {
+				// stop recording once the result cannot be cached anyway
+				if (size <= maxCacheBytes) {
+					keysValues.add(key.clone(), value.clone());
+					size += ENTRY_OVERHEAD + key.length + value.length;
+				}
+			}
+			delegate.callback(key, value);
+		}
+	}
+}
\ No newline at end of file
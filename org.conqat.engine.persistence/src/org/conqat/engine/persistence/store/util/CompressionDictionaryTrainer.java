@@ -0,0 +1,194 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Trains preset dictionaries for the {@link DictionaryCompressingStore}. The
+ * dictionary is built from those segments of the sample values that contain the
+ * most n-grams shared between samples. Segments are selected greedily and each
+ * n-gram is only rewarded once, so the dictionary does not contain the same
+ * content repeatedly. As deflate encodes shorter distances more efficiently,
+ * the most valuable segments are placed at the end of the dictionary.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CompressionDictionaryTrainer {
+
+	/**
+	 * The maximal size of a dictionary. Deflate can not reference content that
+	 * is further away than its 32 KB window.
+	 */
+	public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+	/** The length of the n-grams used for scoring (as they fit in a long). */
+	private static final int NGRAM_LENGTH = 8;
+
+	/** The length of the segments added to the dictionary. */
+	private static final int SEGMENT_LENGTH = 64;
+
+	/**
+	 * Number of samples (i.e. different values) that contain each n-gram.
+	 * N-grams that were already added to the dictionary are removed.
+	 */
+	private final Map<Long, Integer> ngramFrequencies = new HashMap<Long, Integer>();
+
+	/** The candidate segments. */
+	private final List<byte[]> segments = new ArrayList<byte[]>();
+
+	/** Constructor. */
+	private CompressionDictionaryTrainer(List<byte[]> samples) {
+		for (byte[] sample : samples) {
+			Set<Long> ngrams = new HashSet<Long>();
+			for (int i = 0; i + NGRAM_LENGTH <= sample.length; ++i) {
+				ngrams.add(ngramAt(sample, i));
+			}
+			for (Long ngram : ngrams) {
+				Integer frequency = ngramFrequencies.get(ngram);
+				if (frequency == null) {
+					frequency = 0;
+				}
+				ngramFrequencies.put(ngram, frequency + 1);
+			}
+
+			for (int i = 0; i + NGRAM_LENGTH <= sample.length; i += SEGMENT_LENGTH / 2) {
+				int end = Math.min(sample.length, i + SEGMENT_LENGTH);
+				byte[] segment = new byte[end - i];
+				System.arraycopy(sample, i, segment, 0, segment.length);
+				segments.add(segment);
+			}
+		}
+	}
+
+	/**
+	 * Trains a dictionary from the given sample values. Returns an empty array
+	 * if the samples share no content.
+	 * 
+	 * @param maxSize
+	 *            the maximal size of the dictionary, which is limited to
+	 *            {@link #MAX_DICTIONARY_SIZE}.
+	 */
+	public static byte[] train(List<byte[]> samples, int maxSize) {
+		return new CompressionDictionaryTrainer(samples).selectSegments(Math
+				.min(maxSize, MAX_DICTIONARY_SIZE));
+	}
+
+	/** Greedily selects the best segments and returns the dictionary. */
+	private byte[] selectSegments(int maxSize) {
+		PriorityQueue<ScoredSegment> queue = new PriorityQueue<ScoredSegment>();
+		for (byte[] segment : segments) {
+			int score = score(segment);
+			if (score > 0) {
+				queue.add(new ScoredSegment(segment, score));
+			}
+		}
+
+		List<byte[]> selected = new ArrayList<byte[]>();
+		int size = 0;
+		while (size < maxSize && !queue.isEmpty()) {
+			ScoredSegment best = queue.poll();
+
+			// scores only decrease, so a segment whose updated score is still
+			// at least the best remaining (outdated) score is the best one
+			int score = score(best.segment);
+			if (score <= 0) {
+				continue;
+			}
+			if (!queue.isEmpty() && score < queue.peek().score) {
+				queue.add(new ScoredSegment(best.segment, score));
+				continue;
+			}
+
+			selected.add(best.segment);
+			size += best.segment.length;
+			for (int i = 0; i + NGRAM_LENGTH <= best.segment.length; ++i) {
+				ngramFrequencies.remove(ngramAt(best.segment, i));
+			}
+		}
+
+		// most valuable segments go last
+		Collections.reverse(selected);
+		byte[] dictionary = new byte[Math.min(size, maxSize)];
+		int offset = dictionary.length - size;
+		for (byte[] segment : selected) {
+			int skip = Math.min(segment.length, Math.max(0, -offset));
+			System.arraycopy(segment, skip, dictionary, offset + skip,
+					segment.length - skip);
+			offset += segment.length;
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Returns the score of a segment, which is the sum of the frequencies of
+	 * all n-grams shared with other samples. Each n-gram is only counted once.
+	 */
+	private int score(byte[] segment) {
+		int score = 0;
+		Set<Long> seen = new HashSet<Long>();
+		for (int i = 0; i + NGRAM_LENGTH <= segment.length; ++i) {
+			Long ngram = ngramAt(segment, i);
+			Integer frequency = ngramFrequencies.get(ngram);
+			if (frequency != null && frequency > 1 && seen.add(ngram)) {
+				score += frequency;
+			}
+		}
+		return score;
+	}
+
+	/** Returns the n-gram starting at the given offset packed into a long. */
+	private static long ngramAt(byte[] data, int offset) {
+		long result = 0;
+		for (int i = 0; i < NGRAM_LENGTH; ++i) {
+			result = (result << 8) | (data[offset + i] & 0xff);
+		}
+		return result;
+	}
+
+	/** A segment together with its score. */
+	private static class ScoredSegment implements Comparable<ScoredSegment> {
+
+		/** The segment. */
+		private final byte[] segment;
+
+		/** The score (may be outdated). */
+		private final int score;
+
+		/** Constructor. */
+		public ScoredSegment(byte[] segment, int score) {
+			this.segment = segment;
+			this.score = score;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int compareTo(ScoredSegment other) {
+			// higher scores first
+			return other.score - score;
+		}
+	}
+}
\ No newline at end of file
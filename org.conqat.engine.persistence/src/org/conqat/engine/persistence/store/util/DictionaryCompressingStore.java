@@ -0,0 +1,606 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.lib.commons.assertion.CCSMPre;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.io.ByteArrayUtils;
+
+/**
+ * A delegating store that transparently compresses the value arrays using
+ * deflate with a preset dictionary. For small and repetitive values, this is
+ * much more effective than the per-value GZIP compression of the
+ * {@link CompressingStore}, as the dictionary provides the context shared
+ * between values and the per-value overhead is only a few bytes.
+ * <p>
+ * Dictionaries are trained from existing values using
+ * {@link #trainDictionary(IStore)} and stored in the delegate store under keys
+ * with the {@link #DICTIONARY_PREFIX}, which are hidden from scans. Each value
+ * records the ID of the dictionary it was compressed with, so dictionaries are
+ * never removed and values written with older dictionaries (or by the
+ * {@link CompressingStore}) remain readable.
+ * <p>
+ * During scans, values are decompressed in parallel in chunks. The callback is
+ * still called by the scanning thread and in scan order.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class DictionaryCompressingStore implements IStore {
+
+	/** Prefix of the keys used for storing the dictionaries. */
+	public static final byte[] DICTIONARY_PREFIX = "#_DICT_#".getBytes();
+
+	/** Marker for values stored without compression. */
+	private static final byte FORMAT_UNCOMPRESSED = 0;
+
+	/** Marker for values compressed with deflate. */
+	private static final byte FORMAT_DEFLATE = 1;
+
+	/** First byte of values compressed by the {@link CompressingStore}. */
+	private static final byte GZIP_MAGIC = 0x1f;
+
+	/**
+	 * The size of trained dictionaries. Deflate processes the entire
+	 * dictionary for each value, so larger dictionaries slow down writing
+	 * considerably while only slightly improving the compression of small
+	 * values.
+	 */
+	private static final int DICTIONARY_SIZE = 4 * 1024;
+
+	/** Number of values sampled for training a dictionary. */
+	private static final int TRAINING_SAMPLES = 1000;
+
+	/** Maximal length of a single sample used for training a dictionary. */
+	private static final int MAX_TRAINING_SAMPLE_LENGTH = 512;
+
+	/** Number of values decompressed together during scans. */
+	private static final int SCAN_CHUNK_SIZE = 256;
+
+	/** Number of threads used for decompressing during scans. */
+	private static final int DECOMPRESSION_THREADS = Runtime.getRuntime()
+			.availableProcessors();
+
+	/** Maximal number of chunks being decompressed at the same time. */
+	private static final int MAX_CHUNKS_IN_FLIGHT = 2 * DECOMPRESSION_THREADS;
+
+	/** Executor used for parallel decompression during scans. */
+	private static final ExecutorService DECOMPRESSION_EXECUTOR = Executors
+			.newFixedThreadPool(DECOMPRESSION_THREADS, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable,
+							"Store decompression");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/** Deflaters are expensive to create, so we reuse them per thread. */
+	private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>() {
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		}
+	};
+
+	/** Inflaters are expensive to create, so we reuse them per thread. */
+	private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+		@Override
+		protected Inflater initialValue() {
+			return new Inflater(true);
+		}
+	};
+
+	/** The store to delegate to. */
+	private final IStore store;
+
+	/** The ID of the dictionary used for writing (0 for none). */
+	private final int dictionaryId;
+
+	/** The dictionary used for writing (null for none). */
+	private final byte[] dictionary;
+
+	/** Cache for the dictionaries used for reading. */
+	private final ConcurrentHashMap<Integer, byte[]> dictionaries = new ConcurrentHashMap<Integer, byte[]>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param dictionaryId
+	 *            the ID of the dictionary used for writing values as returned
+	 *            by {@link #trainDictionary(IStore)}. Use 0 to compress without
+	 *            dictionary.
+	 */
+	public DictionaryCompressingStore(IStore store, int dictionaryId)
+			throws StorageException {
+		CCSMPre.isTrue(dictionaryId >= 0, "Dictionary ID must not be negative!");
+		this.store = store;
+		this.dictionaryId = dictionaryId;
+		if (dictionaryId == 0) {
+			dictionary = null;
+		} else {
+			dictionary = getDictionary(dictionaryId);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public byte[] get(byte[] key) throws StorageException {
+		return decompress(store.get(key));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<byte[]> get(List<byte[]> keys) throws StorageException {
+		List<byte[]> values = store.get(keys);
+		List<byte[]> result = new ArrayList<byte[]>(values.size());
+		for (byte[] value : values) {
+			result.add(decompress(value));
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(byte[] key, byte[] value) throws StorageException {
+		store.put(key, compress(value));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(PairList<byte[], byte[]> keysValues)
+			throws StorageException {
+		PairList<byte[], byte[]> result = new PairList<byte[], byte[]>(
+				keysValues.size());
+		for (int i = 0; i < keysValues.size(); ++i) {
+			result.add(keysValues.getFirst(i),
+					compress(keysValues.getSecond(i)));
+		}
+		store.put(result);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(byte[] key) throws StorageException {
+		store.remove(key);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(List<byte[]> keys) throws StorageException {
+		store.remove(keys);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void scan(byte[] beginKey, byte[] endKey, IKeyValueCallback callback)
+			throws StorageException {
+		DecompressingCallback decompressingCallback = new DecompressingCallback(
+				callback);
+		store.scan(beginKey, endKey, decompressingCallback);
+		decompressingCallback.finish();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void scan(byte[] prefix, IKeyValueCallback callback)
+			throws StorageException {
+		DecompressingCallback decompressingCallback = new DecompressingCallback(
+				callback);
+		store.scan(prefix, decompressingCallback);
+		decompressingCallback.finish();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void scan(List<byte[]> prefixes, IKeyValueCallback callback)
+			throws StorageException {
+		DecompressingCallback decompressingCallback = new DecompressingCallback(
+				callback);
+		store.scan(prefixes, decompressingCallback);
+		decompressingCallback.finish();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void scanKeys(byte[] beginKey, byte[] endKey,
+			IKeyValueCallback callback) throws StorageException {
+		store.scanKeys(beginKey, endKey, new DictionaryHidingCallback(callback));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void scanKeys(byte[] prefix, IKeyValueCallback callback)
+			throws StorageException {
+		store.scanKeys(prefix, new DictionaryHidingCallback(callback));
+	}
+
+	/**
+	 * Compresses a value. The format is a marker byte, followed by the
+	 * dictionary ID and the uncompressed length (both as variable length
+	 * integers) and the raw deflate data. Values that do not get smaller are
+	 * stored uncompressed.
+	 */
+	private byte[] compress(byte[] value) {
+		if (value == null) {
+			return null;
+		}
+
+		Deflater deflater = DEFLATERS.get();
+		deflater.reset();
+		if (dictionary != null) {
+			deflater.setDictionary(dictionary);
+		}
+		deflater.setInput(value);
+		deflater.finish();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(
+				value.length / 2 + 16);
+		out.write(FORMAT_DEFLATE);
+		writeVarInt(out, dictionaryId);
+		writeVarInt(out, value.length);
+		byte[] buffer = new byte[Math.max(64, value.length / 2)];
+		while (!deflater.finished()) {
+			int length = deflater.deflate(buffer);
+			out.write(buffer, 0, length);
+		}
+
+		if (out.size() <= value.length) {
+			return out.toByteArray();
+		}
+
+		byte[] result = new byte[value.length + 1];
+		result[0] = FORMAT_UNCOMPRESSED;
+		System.arraycopy(value, 0, result, 1, value.length);
+		return result;
+	}
+
+	/** Decompresses a value (which may be null). */
+	private byte[] decompress(byte[] value) throws StorageException {
+		if (value == null) {
+			return null;
+		}
+
+		try {
+			if (value.length == 0) {
+				throw new IOException("Empty value");
+			}
+			switch (value[0]) {
+			case FORMAT_UNCOMPRESSED:
+				return Arrays.copyOfRange(value, 1, value.length);
+			case FORMAT_DEFLATE:
+				return inflate(value);
+			case GZIP_MAGIC:
+				return ByteArrayUtils.decompress(value);
+			default:
+				throw new IOException("Unknown compression format: "
+						+ value[0]);
+			}
+		} catch (IOException e) {
+			throw new StorageException(e);
+		}
+	}
+
+	/** Decompresses a value in {@link #FORMAT_DEFLATE}. */
+	private byte[] inflate(byte[] value) throws StorageException, IOException {
+		int[] position = { 1 };
+		int id = readVarInt(value, position);
+		int length = readVarInt(value, position);
+
+		Inflater inflater = INFLATERS.get();
+		inflater.reset();
+		if (id != 0) {
+			inflater.setDictionary(getDictionary(id));
+		}
+		inflater.setInput(value, position[0], value.length - position[0]);
+
+		byte[] result = new byte[length];
+		int written = 0;
+		try {
+			while (written < length) {
+				int count = inflater.inflate(result, written, length - written);
+				if (count == 0
+						&& (inflater.finished() || inflater.needsInput())) {
+					throw new IOException("Compressed value is truncated");
+				}
+				written += count;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e.getMessage());
+		}
+		return result;
+	}
+
+	/** Returns the dictionary with the given ID. */
+	private byte[] getDictionary(int id) throws StorageException {
+		byte[] result = dictionaries.get(id);
+		if (result == null) {
+			result = store.get(dictionaryKey(id));
+			if (result == null) {
+				throw new StorageException("Missing compression dictionary "
+						+ id);
+			}
+			dictionaries.put(id, result);
+		}
+		return result;
+	}
+
+	/** Returns the key under which the dictionary with the given ID is stored. */
+	private static byte[] dictionaryKey(int id) {
+		byte[] key = Arrays.copyOf(DICTIONARY_PREFIX,
+				DICTIONARY_PREFIX.length + 4);
+		StorageUtils.insertInt(id, key, DICTIONARY_PREFIX.length);
+		return key;
+	}
+
+	/**
+	 * Trains a new dictionary from a sample of the values in the given store
+	 * and stores it there. The store may contain values compressed by this
+	 * class or by the {@link CompressingStore}. Returns the ID of the new
+	 * dictionary, which should be recorded (e.g. in the schema) and passed to
+	 * the constructor for compressing further values.
+	 */
+	public static int trainDictionary(IStore rawStore) throws StorageException {
+		SamplingCallback samplingCallback = new SamplingCallback();
+		new DictionaryCompressingStore(rawStore, 0).scan(new byte[0],
+				samplingCallback);
+		byte[] dictionary = CompressionDictionaryTrainer.train(
+				samplingCallback.samples, DICTIONARY_SIZE);
+
+		final int[] maxId = { 0 };
+		rawStore.scanKeys(DICTIONARY_PREFIX, new IKeyValueCallback() {
+			@Override
+			public synchronized void callback(byte[] key, byte[] value) {
+				maxId[0] = Math.max(maxId[0],
+						StorageUtils.extractInt(key, DICTIONARY_PREFIX.length));
+			}
+		});
+
+		int id = maxId[0] + 1;
+		rawStore.put(dictionaryKey(id), dictionary);
+		return id;
+	}
+
+	/** Writes a non-negative variable length integer. */
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * Reads a variable length integer starting at the position stored in the
+	 * array, which is advanced.
+	 */
+	private static int readVarInt(byte[] data, int[] position)
+			throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (position[0] >= data.length) {
+				throw new IOException("Compressed value is truncated");
+			}
+			byte b = data[position[0]++];
+			result |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Invalid length encoding");
+	}
+
+	/** Returns whether the key is used for storing a dictionary. */
+	private static boolean isDictionaryKey(byte[] key) {
+		return ByteArrayUtils.isPrefix(DICTIONARY_PREFIX, key);
+	}
+
+	/** Callback that hides the dictionary keys. */
+	private static class DictionaryHidingCallback implements IKeyValueCallback {
+
+		/** Delegate callback. */
+		private final IKeyValueCallback delegate;
+
+		/** Constructor. */
+		public DictionaryHidingCallback(IKeyValueCallback callback) {
+			delegate = callback;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void callback(byte[] key, byte[] value) {
+			if (!isDictionaryKey(key)) {
+				delegate.callback(key, value);
+			}
+		}
+	}
+
+	/**
+	 * Wrapper for a callback that collects the values in chunks and
+	 * decompresses the chunks in parallel. The original callback is only
+	 * called from the scanning thread and in scan order, so exceptions thrown
+	 * by it reach the caller of the scan and nested scans from within the
+	 * callback are possible. {@link #finish()} must be called after the scan.
+	 */
+	private class DecompressingCallback extends
+			ExceptionHandlingKeyValueCallbackBase {
+
+		/** Delegate callback. */
+		private final IKeyValueCallback delegate;
+
+		/**
+		 * The chunks submitted for decompression in scan order. The size is
+		 * limited to {@link #MAX_CHUNKS_IN_FLIGHT}.
+		 */
+		private final Queue<PendingChunk> pendingChunks = new LinkedList<PendingChunk>();
+
+		/** The chunk currently filled. */
+		private PairList<byte[], byte[]> chunk = new PairList<byte[], byte[]>();
+
+		/** Constructor. */
+		public DecompressingCallback(IKeyValueCallback callback) {
+			delegate = callback;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected synchronized void callbackWithException(byte[] key,
+				byte[] value) throws StorageException {
+			if (isDictionaryKey(key)) {
+				return;
+			}
+
+			chunk.add(key, value);
+			if (chunk.size() < SCAN_CHUNK_SIZE) {
+				return;
+			}
+
+			if (pendingChunks.size() >= MAX_CHUNKS_IN_FLIGHT) {
+				deliver(pendingChunks.poll());
+			}
+			pendingChunks.add(new PendingChunk(chunk));
+			chunk = new PairList<byte[], byte[]>();
+
+			while (!pendingChunks.isEmpty()
+					&& pendingChunks.peek().values.isDone()) {
+				deliver(pendingChunks.poll());
+			}
+		}
+
+		/**
+		 * Waits for the decompression of the chunk and forwards it to the
+		 * delegate.
+		 */
+		private void deliver(PendingChunk pendingChunk)
+				throws StorageException {
+			List<byte[]> values;
+			try {
+				values = pendingChunk.values.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new StorageException(
+						"Interrupted while waiting for decompression!", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof StorageException) {
+					throw (StorageException) e.getCause();
+				}
+				throw new StorageException("Decompression failed!",
+						e.getCause());
+			}
+
+			for (int i = 0; i < values.size(); ++i) {
+				delegate.callback(pendingChunk.keysValues.getFirst(i),
+						values.get(i));
+			}
+		}
+
+		/**
+		 * Processes the remaining values, waits for all chunks to complete and
+		 * throws any exception caught.
+		 */
+		public synchronized void finish() throws StorageException {
+			throwCaughtException();
+
+			if (!chunk.isEmpty()) {
+				pendingChunks.add(new PendingChunk(chunk));
+				chunk = new PairList<byte[], byte[]>();
+			}
+			while (!pendingChunks.isEmpty()) {
+				deliver(pendingChunks.poll());
+			}
+		}
+	}
+
+	/** A chunk of values submitted for parallel decompression. */
+	private class PendingChunk implements Callable<List<byte[]>> {
+
+		/** The keys and compressed values. */
+		private final PairList<byte[], byte[]> keysValues;
+
+		/** The decompressed values. */
+		private final Future<List<byte[]>> values;
+
+		/** Constructor. Submits the chunk for decompression. */
+		public PendingChunk(PairList<byte[], byte[]> keysValues) {
+			this.keysValues = keysValues;
+			values = DECOMPRESSION_EXECUTOR.submit(this);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public List<byte[]> call() throws StorageException {
+			List<byte[]> result = new ArrayList<byte[]>(keysValues.size());
+			for (int i = 0; i < keysValues.size(); ++i) {
+				result.add(decompress(keysValues.getSecond(i)));
+			}
+			return result;
+		}
+	}
+
+	/** Callback performing reservoir sampling of the values. */
+	private static class SamplingCallback implements IKeyValueCallback {
+
+		/** The samples. */
+		private final List<byte[]> samples = new ArrayList<byte[]>();
+
+		/** Random number generator used for sampling. */
+		private final Random random = new Random(42);
+
+		/** The number of values seen. */
+		private int count = 0;
+
+		/** {@inheritDoc} */
+		@Override
+		public synchronized void callback(byte[] key, byte[] value) {
+			count += 1;
+			byte[] sample = Arrays.copyOf(value,
+					Math.min(value.length, MAX_TRAINING_SAMPLE_LENGTH));
+			if (samples.size() < TRAINING_SAMPLES) {
+				samples.add(sample);
+			} else {
+				int index = random.nextInt(count);
+				if (index < TRAINING_SAMPLES) {
+					samples.set(index, sample);
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -21,14 +21,18 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.conqat.engine.persistence.store.IKeyValueCallback;
 import org.conqat.engine.persistence.store.IStorageSystem;
 import org.conqat.engine.persistence.store.IStore;
 import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.base.ByteArrayComparator;
 import org.conqat.lib.commons.collections.PairList;
 import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.io.ByteArrayUtils;
 import org.conqat.lib.commons.io.SerializationUtils;
 import org.conqat.lib.commons.string.StringUtils;
 
@@ -114,6 +118,54 @@ public class StorageUtils {
 		return result;
 	}
 
+	/**
+	 * Inserts a long value to the given position in the byte array. The
+	 * storage will require {@value ByteArrayUtils#LONG_BYTE_ARRAY_LENGTH} bytes
+	 * in big endian byte order, i.e. the same layout as produced by
+	 * {@link ByteArrayUtils#longToByteArray(long)}.
+	 * 
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             is the array is not large enough
+	 */
+	public static void insertLong(long l, byte[] bytes, int position) {
+		insertInt((int) (l >>> 32), bytes, position);
+		insertInt((int) l, bytes, position + 4);
+	}
+
+	/**
+	 * Extracts a long value from the given array position (8 bytes in big
+	 * endian). This is the counter part to
+	 * {@link #insertLong(long, byte[], int)}.
+	 * 
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             is the array is not large enough
+	 */
+	public static long extractLong(byte[] bytes, int position) {
+		return ((long) extractInt(bytes, position) << 32)
+				| (extractInt(bytes, position + 4) & 0xffffffffL);
+	}
+
+	/**
+	 * Returns the indexes of the given keys in the order of the keys (as
+	 * defined by {@link ByteArrayComparator}). Equal keys keep their relative
+	 * order. This is used by stores that process batch operations in key
+	 * order, but have to report results in the original order.
+	 */
+	public static List<Integer> sortedOrder(final List<byte[]> keys) {
+		List<Integer> order = new ArrayList<Integer>(keys.size());
+		for (int i = 0; i < keys.size(); ++i) {
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer index1, Integer index2) {
+				return ByteArrayComparator.INSTANCE.compare(keys.get(index1),
+						keys.get(index2));
+			}
+		});
+		return order;
+	}
+
 	/** Completely erases the contents of the given store */
 	public static void clearStore(IStore store) throws StorageException {
 		store.remove(listKeys(store));
@@ -0,0 +1,178 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+
+import org.conqat.engine.commons.node.ListNode;
+import org.conqat.engine.commons.statistics.DateValueSeries;
+import org.conqat.engine.commons.statistics.MultiDateValueSeries;
+import org.conqat.engine.core.core.ConQATException;
+import org.conqat.engine.core.logging.testutils.ProcessorInfoMock;
+import org.conqat.lib.commons.test.CCSMTestCaseBase;
+
+/**
+ * Tests the {@link ValueSeriesProcessor} and the
+ * {@link MultiValueSeriesProcessor} using an in-memory HSQL database.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class ValueSeriesProcessorTest extends CCSMTestCaseBase {
+
+	/** The name of the table used. */
+	private static final String TABLE = "metric";
+
+	/** The key used for storing the values at the nodes. */
+	private static final String KEY = "value";
+
+	/** The database connection. */
+	private Connection connection;
+
+	/** {@inheritDoc} */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		Class.forName("org.hsqldb.jdbcDriver");
+		connection = DriverManager.getConnection("jdbc:hsqldb:mem:"
+				+ getName(), "sa", "");
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void tearDown() throws Exception {
+		execute("SHUTDOWN");
+		connection.close();
+		super.tearDown();
+	}
+
+	/** Tests storing values and reading them back. */
+	public void testStoreAndReadBack() throws Exception {
+		assertSeries(storeValue(1000, 17), 1000, 17);
+		assertSeries(storeValue(2000, 42), 1000, 17, 2000, 42);
+	}
+
+	/** Tests that a table dropped after its creation is created again. */
+	public void testDroppedTable() throws Exception {
+		storeValue(1000, 17);
+		execute("DROP TABLE " + TABLE);
+		assertSeries(storeValue(2000, 42), 2000, 42);
+	}
+
+	/**
+	 * Tests that the batch of the {@link MultiValueSeriesProcessor} is
+	 * rolled back if one of the inserts fails, and that the values are
+	 * inserted individually in lenient mode.
+	 */
+	public void testLenientInsertion() throws Exception {
+		// provoke a primary key violation for series b
+		storeMultiValues(false, 1000);
+		execute("DELETE FROM " + TABLE + "_a");
+
+		try {
+			storeMultiValues(false, 1000);
+			fail("Expected exception!");
+		} catch (ConQATException e) {
+			// expected
+		}
+		assertEquals(0, countRows(TABLE + "_a"));
+
+		MultiDateValueSeries result = storeMultiValues(true, 1000);
+		assertEquals(1, countRows(TABLE + "_a"));
+		assertEquals(2, result.getSize());
+	}
+
+	/** Stores the value at the given time and returns the resulting series. */
+	private DateValueSeries storeValue(long time, double value)
+			throws ConQATException {
+		ListNode node = new ListNode("root");
+		node.setValue(KEY, value);
+
+		ValueSeriesProcessor processor = new ValueSeriesProcessor();
+		processor.init(new ProcessorInfoMock());
+		processor.setTable(connection, TABLE);
+		processor.setNodeAndKey(node, KEY);
+		processor.setTime(new Date(time));
+		return processor.process();
+	}
+
+	/**
+	 * Stores values for the series a and b using the
+	 * {@link MultiValueSeriesProcessor}.
+	 */
+	private MultiDateValueSeries storeMultiValues(boolean lenient, long time)
+			throws ConQATException {
+		ListNode root = new ListNode("root");
+		root.setValue(KEY, 3);
+		for (String id : new String[] { "a", "b" }) {
+			ListNode child = new ListNode(id);
+			child.setValue(KEY, 1);
+			root.addChild(child);
+		}
+
+		MultiValueSeriesProcessor processor = new MultiValueSeriesProcessor();
+		processor.init(new ProcessorInfoMock());
+		processor.setTable(connection, TABLE);
+		processor.setNodeAndKey(root, KEY);
+		processor.setTime(new Date(time));
+		processor.setLenientInsertionMode(lenient);
+		processor.addNode("a", "a");
+		processor.addNode("b", "b");
+		return processor.process();
+	}
+
+	/**
+	 * Asserts that the series contains exactly the given values, which are
+	 * given as pairs of time and value.
+	 */
+	private static void assertSeries(DateValueSeries series, double... values) {
+		assertEquals(values.length / 2, series.getValues().size());
+		for (int i = 0; i < values.length; i += 2) {
+			assertEquals(values[i + 1], series.getValues().get(
+					new Date((long) values[i])), 0.001);
+		}
+	}
+
+	/** Returns the number of rows in the given table. */
+	private int countRows(String table) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet result = statement
+					.executeQuery("SELECT COUNT(*) FROM " + table);
+			result.next();
+			return result.getInt(1);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/** Executes the given SQL statement. */
+	private void execute(String sql) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute(sql);
+		} finally {
+			statement.close();
+		}
+	}
+}
\ No newline at end of file
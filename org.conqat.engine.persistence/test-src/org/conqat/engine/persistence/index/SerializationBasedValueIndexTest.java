@@ -0,0 +1,106 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.index;
+
+import java.io.IOException;
+
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.mem.InMemoryStore;
+import org.conqat.lib.commons.assessment.Assessment;
+import org.conqat.lib.commons.assessment.ETrafficLightColor;
+import org.conqat.lib.commons.collections.CounterSet;
+import org.conqat.lib.commons.io.SerializationUtils;
+import org.conqat.lib.commons.test.CCSMTestCaseBase;
+
+/**
+ * Tests the {@link IValueCodec}s used by the
+ * {@link SerializationBasedValueIndexBase}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class SerializationBasedValueIndexTest extends CCSMTestCaseBase {
+
+	/** The store used for testing. */
+	private final IStore store = new InMemoryStore();
+
+	/** Tests storing assessments. */
+	public void testAssessment() throws StorageException {
+		Assessment assessment = new Assessment();
+		assessment.add(ETrafficLightColor.RED, 3);
+		assessment.add(ETrafficLightColor.GREEN, 1000);
+
+		AssessmentIndex index = new AssessmentIndex(store);
+		index.setValue("a", assessment);
+		index.setValue("empty", new Assessment());
+
+		assertEquals(assessment, index.getValue("a"));
+		assertEquals(new Assessment(), index.getValue("empty"));
+		assertEquals(12, store.get("a".getBytes()).length);
+	}
+
+	/** Tests storing counter sets. */
+	@SuppressWarnings("rawtypes")
+	public void testCounterSet() throws StorageException {
+		CounterSet<String> counterSet = new CounterSet<String>();
+		counterSet.inc("foo", 5);
+		counterSet.inc("bar", -2);
+		counterSet.inc("äöü");
+
+		CounterSet<Integer> integerCounterSet = new CounterSet<Integer>();
+		integerCounterSet.inc(17, 4);
+
+		CounterSetIndex index = new CounterSetIndex(store);
+		index.setValue("strings", counterSet);
+		index.setValue("integers", integerCounterSet);
+
+		CounterSet result = index.getValue("strings");
+		assertEquals(counterSet, result);
+		assertEquals(counterSet.getTotal(), result.getTotal());
+		assertEquals(integerCounterSet, index.getValue("integers"));
+
+		// integer keys fall back to Java serialization
+		assertEquals((byte) 0xAC, store.get("integers".getBytes())[0]);
+		assertEquals(1, store.get("strings".getBytes())[0]);
+	}
+
+	/** Tests that values written by Java serialization remain readable. */
+	public void testSerializedValuesReadable() throws StorageException,
+			IOException {
+		Assessment assessment = new Assessment(ETrafficLightColor.YELLOW);
+		byte[] serialized = SerializationUtils.serializeToByteArray(assessment);
+		store.put("legacy".getBytes(), serialized);
+
+		AssessmentIndex index = new AssessmentIndex(store);
+		assertEquals(assessment, index.getValue("legacy"));
+		index.setValue("new", assessment);
+		assertTrue(store.get("new".getBytes()).length < serialized.length / 10);
+	}
+
+	/** Tests that values of unknown codec versions are rejected. */
+	public void testUnknownCodecVersion() throws StorageException {
+		store.put("future".getBytes(), new byte[] { 2, 0 });
+		try {
+			new AssessmentIndex(store).getValue("future");
+			fail("Expected exception");
+		} catch (StorageException e) {
+			// expected
+		}
+	}
+}
\ No newline at end of file
@@ -16,6 +16,7 @@
 +-------------------------------------------------------------------------*/
 package org.conqat.engine.persistence.index.schema;
 
+import org.conqat.engine.persistence.index.AssessmentIndex;
 import org.conqat.engine.persistence.index.StringIndex;
 import org.conqat.engine.persistence.store.IStorageSystem;
 import org.conqat.engine.persistence.store.IStore;
@@ -121,4 +122,51 @@ public class IndexSchemaTest extends CCSMTestCaseBase {
 		schema.openIndex(INDEX_NAME, StringIndex.class, storageSystem, null);
 		assertEquals(1, callCount[0]);
 	}
+
+	/** Tests recording of codec versions. */
+	public void testCodecVersion() throws StorageException {
+		schema.updateEntry("assessments", new SchemaEntry(
+				AssessmentIndex.class));
+		assertEquals(0, schema.getEntry("assessments").getCodecVersion());
+
+		schema.openIndex("assessments", AssessmentIndex.class, storageSystem,
+				null);
+		assertEquals(1, schema.getEntry("assessments").getCodecVersion());
+
+		schema.save(storageSystem);
+		assertEquals(1, IndexSchema.load(storageSystem)
+				.getEntry("assessments").getCodecVersion());
+
+		schema.updateEntry("assessments", schema.getEntry("assessments")
+				.withCodecVersion(2));
+		try {
+			schema.openIndex("assessments", AssessmentIndex.class,
+					storageSystem, null);
+			fail("Expected exception");
+		} catch (StorageException e) {
+			// expected
+		}
+	}
+
+	/** Tests training and use of a compression dictionary. */
+	public void testCompressionDictionary() throws StorageException {
+		schema.updateEntry(INDEX_NAME, new SchemaEntry(StringIndex.class,
+				EStorageOption.DICTIONARY_COMPRESSED));
+		StringIndex index = schema.openIndex(INDEX_NAME, StringIndex.class,
+				storageSystem, null);
+		for (int i = 0; i < 100; ++i) {
+			index.setValue("key" + i, "some repetitive value " + i);
+		}
+
+		schema.trainCompressionDictionary(INDEX_NAME, storageSystem);
+		assertEquals(1, schema.getEntry(INDEX_NAME)
+				.getCompressionDictionaryId());
+
+		index = schema.openIndex(INDEX_NAME, StringIndex.class, storageSystem,
+				null);
+		index.setValue("new", "some repetitive value 42");
+		assertEquals("some repetitive value 42", index.getValue("new"));
+		assertEquals("some repetitive value 17", index.getValue("key17"));
+		assertEquals(101, index.getAllKeys().size());
+	}
 }
@@ -27,9 +27,11 @@ import org.conqat.engine.persistence.store.StorageException;
 import org.conqat.engine.persistence.store.StorageSystemTestBase.CollectingCallBack;
 import org.conqat.engine.persistence.store.mem.InMemoryStore;
 import org.conqat.engine.persistence.store.util.ConvenientStore;
+import org.conqat.engine.persistence.store.util.DictionaryCompressingStore;
 import org.conqat.engine.persistence.store.util.StorageUtils;
 import org.conqat.lib.commons.collections.CollectionUtils;
 import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.io.ByteArrayUtils;
 import org.conqat.lib.commons.string.StringUtils;
 import org.conqat.lib.commons.test.CCSMTestCaseBase;
 
@@ -158,12 +160,118 @@ public class HistorizingStoreTest extends CCSMTestCaseBase {
 	public void testRollbackToSpecificTimestamp() throws StorageException {
 		new RollbackableHistorizingStore(baseStore).performRollback(20);
 
-		// expect 3 head keys and 3 timestamp keys
-		assertEquals(6, StorageUtils.keyCount(baseStore));
+		// expect 3 head keys, 3 timestamp keys and the index entry of the
+		// unaffected key3
+		assertEquals(7, StorageUtils.keyCount(baseStore));
 		assertEquals(3, StorageUtils.keyCount(new HeadReadOnlyHistorizingStore(
 				baseStore)));
 	}
 
+	/**
+	 * Tests that rollback and index migration leave the compression
+	 * dictionaries of a dictionary compressed historized store untouched.
+	 */
+	public void testRollbackKeepsCompressionDictionaries()
+			throws StorageException {
+		IStore rawStore = new InMemoryStore();
+		PairList<String, byte[]> keysValues = new PairList<String, byte[]>();
+		for (int i = 0; i < 100; ++i) {
+			keysValues.add("key" + i,
+					StringUtils.stringToBytes("some repetitive value " + i));
+		}
+		new ConvenientStore(new HeadInsertingHistorizingStore(
+				new DictionaryCompressingStore(rawStore, 0), 10))
+				.putWithStrings(keysValues);
+
+		int dictionaryId = DictionaryCompressingStore.trainDictionary(rawStore);
+		new ConvenientStore(new HeadInsertingHistorizingStore(
+				new DictionaryCompressingStore(rawStore, dictionaryId), 20))
+				.putWithString("key0", StringUtils.stringToBytes("new value"));
+
+		int keyCount = StorageUtils.keyCount(rawStore);
+		new RollbackableHistorizingStore(rawStore).performRollback(20);
+		assertEquals(0, RevisionIndexMigration.migrate(rawStore));
+		assertEquals(keyCount, StorageUtils.keyCount(rawStore));
+
+		ConvenientStore headStore = new ConvenientStore(
+				new HeadReadOnlyHistorizingStore(new DictionaryCompressingStore(
+						rawStore, dictionaryId)));
+		assertEquals("new value",
+				StringUtils.bytesToString(headStore.getWithString("key0")));
+		assertEquals("some repetitive value 1",
+				StringUtils.bytesToString(headStore.getWithString("key1")));
+	}
+
+	/**
+	 * Tests that indexed lookups (single and batched) return the same results
+	 * as scanning and that the migration recreates the index.
+	 */
+	public void testIndexedLookupAndMigration() throws StorageException {
+		IStore legacyStore = new InMemoryStore();
+		PairList<byte[], byte[]> legacyData = new PairList<byte[], byte[]>();
+		for (byte[] key : StorageUtils.listKeys(baseStore)) {
+			if (!ByteArrayUtils.isPrefix(
+					HistorizingStoreBase.REVISION_INDEX_PREFIX, key)) {
+				legacyData.add(key, baseStore.get(key));
+			}
+		}
+		legacyStore.put(legacyData);
+
+		List<byte[]> keys = new ArrayList<byte[]>();
+		for (String key : Arrays.asList("key4", "key1", "key5", "key2",
+				"key3", "key1")) {
+			keys.add(StringUtils.stringToBytes(key));
+		}
+
+		for (long timestamp : new long[] { 1, 12, 20, 27, 30, 42, 100 }) {
+			String expected = serializeValues(new TimestampReadOnlyHistorizingStore(
+					legacyStore, timestamp).get(keys));
+			IStore indexedStore = new TimestampReadOnlyHistorizingStore(
+					baseStore, timestamp);
+			assertEquals(expected, serializeValues(indexedStore.get(keys)));
+
+			List<byte[]> singleValues = new ArrayList<byte[]>();
+			for (byte[] key : keys) {
+				singleValues.add(indexedStore.get(key));
+			}
+			assertEquals(expected, serializeValues(singleValues));
+		}
+
+		assertEquals(4, RevisionIndexMigration.migrate(legacyStore));
+		assertEquals(serializeStore(baseStore), serializeStore(legacyStore));
+		assertEquals(0, RevisionIndexMigration.migrate(legacyStore));
+	}
+
+	/** Tests that writing to keys without index entry creates a full index. */
+	public void testIndexCreationForLegacyKeys() throws StorageException {
+		byte[] key1IndexKey = HistorizingStoreBase.revisionIndexKey(StringUtils
+				.stringToBytes("key1"));
+		baseStore.remove(key1IndexKey);
+
+		new ConvenientStore(new HeadInsertingHistorizingStore(baseStore, 50))
+				.putWithString("key1", new byte[] { 8 });
+
+		byte[] index = baseStore.get(key1IndexKey);
+		assertEquals(12, RevisionIndex.findRevision(index, 20));
+		assertEquals(27, RevisionIndex.findRevision(index, 30));
+		assertEquals(42, RevisionIndex.findRevision(index, 49));
+		assertEquals(50, RevisionIndex.findRevision(index, 100));
+		assertEquals(-1, RevisionIndex.findRevision(index, 11));
+	}
+
+	/** Serializes a list of values to a readable/comparable string. */
+	private static String serializeValues(List<byte[]> values) {
+		List<String> result = new ArrayList<String>();
+		for (byte[] value : values) {
+			if (value == null) {
+				result.add("null");
+			} else {
+				result.add(StringUtils.encodeAsHex(value));
+			}
+		}
+		return result.toString();
+	}
+
 	/** Serializes the {@link #baseStore} to a readable/comparable string. */
 	private static String serializeStore(IStore store) throws StorageException {
 		final List<String> lines = new ArrayList<String>();
@@ -0,0 +1,236 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.lsm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.conqat.engine.persistence.store.IStorageSystem;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.StorageSystemTestBase;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.string.StringUtils;
+
+/**
+ * Tests the {@link LSMStorageSystem}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class LSMStorageSystemTest extends StorageSystemTestBase {
+
+	/** Number of keys used for the tests with small memtables. */
+	private static final int NUM_KEYS = 3000;
+
+	/** The maximal number of tables used for the tests with small memtables. */
+	private static final int MAX_TABLES = 3;
+
+	/** {@inheritDoc} */
+	@Override
+	protected IStorageSystem openStorage(File baseDir) throws StorageException {
+		return new LSMStorageSystem(baseDir);
+	}
+
+	/** Opens a storage system with a tiny memtable to enforce many tables. */
+	private LSMStorageSystem openSmallStorage() throws StorageException {
+		LSMStorageSystem lsmStorageSystem = new LSMStorageSystem(baseDir,
+				4096, MAX_TABLES, false);
+		storageSystem = lsmStorageSystem;
+		store = storageSystem.openStore("small");
+		return lsmStorageSystem;
+	}
+
+	/**
+	 * Tests flushing and compaction by writing, overwriting and deleting
+	 * many keys.
+	 */
+	public void testFlushAndCompaction() throws StorageException {
+		storageSystem.close();
+		LSMStorageSystem lsmStorageSystem = openSmallStorage();
+
+		fillStore();
+		lsmStorageSystem.awaitBackgroundWork();
+		assertTrue(lsmStorageSystem.getTableCount() > 0);
+		assertTrue(lsmStorageSystem.getTableCount() <= MAX_TABLES);
+		assertContent();
+
+		storageSystem.close();
+		openSmallStorage();
+		assertContent();
+	}
+
+	/** Tests recovery from the logs if the storage system was not closed. */
+	public void testLogRecovery() throws StorageException, IOException {
+		storageSystem.close();
+		LSMStorageSystem crashingStorageSystem = openSmallStorage();
+		fillStore();
+		// ensure the old storage system does not touch the files anymore
+		crashingStorageSystem.awaitBackgroundWork();
+
+		// simulate a crash during writing of the last log record
+		for (File file : FileSystemUtils.listFilesRecursively(baseDir)) {
+			if (file.getName().endsWith(".log")) {
+				FileOutputStream out = new FileOutputStream(file, true);
+				out.write(new byte[] { 0, 0, 1, 0, 17 });
+				out.close();
+			}
+		}
+
+		// the old storage system is deliberately not closed
+		openSmallStorage();
+		assertContent();
+
+		// only the log of the new memtable remains
+		int logCount = 0;
+		for (File file : FileSystemUtils.listFilesRecursively(baseDir)) {
+			if (file.getName().endsWith(".log")) {
+				logCount += 1;
+			}
+		}
+		assertEquals(1, logCount);
+	}
+
+	/** Tests that deleted keys are not reported by scans. */
+	public void testScanSkipsDeletedKeys() throws StorageException {
+		storageSystem.close();
+		LSMStorageSystem lsmStorageSystem = openSmallStorage();
+		fillStore();
+		lsmStorageSystem.awaitBackgroundWork();
+
+		CollectingCallBack callback = new CollectingCallBack();
+		store.scan(new byte[0], callback);
+		assertEquals(NUM_KEYS / 2, callback.keys.size());
+	}
+
+	/**
+	 * Tests batch lookups (in unsorted order and with duplicate and missing
+	 * keys) across memtables and multiple tables.
+	 */
+	public void testBatchGet() throws StorageException {
+		storageSystem.close();
+		LSMStorageSystem lsmStorageSystem = openSmallStorage();
+		fillStore();
+		lsmStorageSystem.awaitBackgroundWork();
+		assertTrue(lsmStorageSystem.getTableCount() > 1);
+
+		List<byte[]> keys = new ArrayList<byte[]>();
+		for (int i = NUM_KEYS + 10; i >= 0; i -= 3) {
+			keys.add(key(i));
+		}
+		keys.add(key(1));
+		keys.add(key(1));
+
+		List<byte[]> values = store.get(keys);
+		assertEquals(keys.size(), values.size());
+		for (int i = 0; i < keys.size(); ++i) {
+			assertTrue(Arrays.equals(store.get(keys.get(i)), values.get(i)));
+		}
+		assertTrue(Arrays.equals(value(1), values.get(values.size() - 1)));
+	}
+
+	/**
+	 * Tests that writes racing with {@link LSMStorageSystem#close()} are
+	 * either rejected or persisted.
+	 */
+	public void testWriteDuringClose() throws Exception {
+		storageSystem.close();
+		openSmallStorage();
+
+		final AtomicInteger written = new AtomicInteger();
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						store.put(key(written.get()), value(written.get()));
+						written.incrementAndGet();
+					}
+				} catch (StorageException e) {
+					// expected after close
+				}
+			}
+		};
+		writer.start();
+		while (written.get() < NUM_KEYS) {
+			Thread.sleep(1);
+		}
+		storageSystem.close();
+		writer.join();
+
+		try {
+			store.put(key(0), value(1));
+			fail("Expected exception!");
+		} catch (StorageException e) {
+			// expected
+		}
+
+		openSmallStorage();
+		for (int i = 0; i < written.get(); ++i) {
+			assertTrue(Arrays.equals(value(i), store.get(key(i))));
+		}
+	}
+
+	/**
+	 * Writes {@link #NUM_KEYS} keys, overwrites all of them and deletes every
+	 * second key.
+	 */
+	private void fillStore() throws StorageException {
+		for (int i = 0; i < NUM_KEYS; ++i) {
+			store.put(key(i), StringUtils.stringToBytes("first" + i));
+		}
+		PairList<byte[], byte[]> batch = new PairList<byte[], byte[]>();
+		for (int i = 0; i < NUM_KEYS; ++i) {
+			batch.add(key(i), value(i));
+			if (batch.size() == 100) {
+				store.put(batch);
+				batch.clear();
+			}
+		}
+		for (int i = 0; i < NUM_KEYS; i += 2) {
+			store.remove(key(i));
+		}
+	}
+
+	/** Asserts the content written by {@link #fillStore()}. */
+	private void assertContent() throws StorageException {
+		for (int i = 0; i < NUM_KEYS; ++i) {
+			if (i % 2 == 0) {
+				assertNull(store.get(key(i)));
+			} else {
+				assertTrue(Arrays.equals(value(i), store.get(key(i))));
+			}
+		}
+	}
+
+	/** Returns the key for the given index. */
+	private static byte[] key(int index) {
+		return StringUtils.stringToBytes("key" + index);
+	}
+
+	/** Returns the value for the given index. */
+	private static byte[] value(int index) {
+		return StringUtils.stringToBytes("value" + index);
+	}
+
+}
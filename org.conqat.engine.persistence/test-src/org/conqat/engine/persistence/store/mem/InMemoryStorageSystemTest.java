@@ -17,10 +17,18 @@
 package org.conqat.engine.persistence.store.mem;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
 
 import org.conqat.engine.persistence.store.IStorageSystem;
 import org.conqat.engine.persistence.store.StorageException;
 import org.conqat.engine.persistence.store.StorageSystemTestBase;
+import org.conqat.engine.persistence.store.base.ByteArrayComparator;
 
 /**
  * Tests the {@link InMemoryStorageSystem}.
@@ -37,4 +45,50 @@ public class InMemoryStorageSystemTest extends StorageSystemTestBase {
 	protected IStorageSystem openStorage(File baseDir) throws StorageException {
 		return new InMemoryStorageSystem(baseDir);
 	}
+
+	/** Tests that files written by Java serialization can still be loaded. */
+	public void testLoadSerializedMap() throws IOException, StorageException {
+		TreeMap<byte[], byte[]> map = new TreeMap<byte[], byte[]>(
+				ByteArrayComparator.INSTANCE);
+		map.put(KEY, VALUE);
+		File file = new File(baseDir, "legacy");
+		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(
+				file));
+		out.writeObject(map);
+		out.close();
+
+		InMemoryStore store = new InMemoryStore();
+		store.loadFromFile(file);
+		assertTrue(Arrays.equals(VALUE, store.get(KEY)));
+	}
+
+	/** Tests concurrent writes and reads from multiple threads. */
+	public void testConcurrentAccess() throws InterruptedException {
+		final InMemoryStore store = new InMemoryStore(false);
+		final int numKeys = 1000;
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; ++t) {
+			final byte threadId = (byte) t;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < numKeys; ++i) {
+						byte[] key = { threadId, (byte) (i >> 8), (byte) i };
+						store.put(key, key);
+						assertSame(key, store.get(key));
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		CollectingCallBack callback = new CollectingCallBack();
+		store.scanKeys(null, null, callback);
+		assertEquals(4 * numKeys, callback.keys.size());
+	}
 }
\ No newline at end of file
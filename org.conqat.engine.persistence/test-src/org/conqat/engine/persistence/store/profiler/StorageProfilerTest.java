@@ -0,0 +1,158 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.profiler;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.conqat.engine.persistence.store.IStorageSystem;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.mem.InMemoryStorageSystem;
+import org.conqat.engine.persistence.store.util.CachingStorageSystem;
+import org.conqat.engine.persistence.store.util.KeyCountingCallback;
+import org.conqat.lib.commons.string.StringUtils;
+import org.conqat.lib.commons.test.CCSMTestCaseBase;
+
+/**
+ * Tests the {@link StorageProfiler} and the {@link LatencyHistogram}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class StorageProfilerTest extends CCSMTestCaseBase {
+
+	/** Tests the bucket boundaries of the histogram. */
+	public void testHistogramBuckets() {
+		long previousUpperBound = -1;
+		for (int i = 0; i <= LatencyHistogram.bucketIndex(Long.MAX_VALUE); ++i) {
+			long upperBound = LatencyHistogram.bucketUpperBound(i);
+			assertTrue(upperBound > previousUpperBound);
+			assertEquals(i, LatencyHistogram.bucketIndex(upperBound));
+			assertEquals(i, LatencyHistogram.bucketIndex(previousUpperBound + 1));
+			previousUpperBound = upperBound;
+		}
+		assertEquals(Long.MAX_VALUE, previousUpperBound);
+	}
+
+	/** Tests the percentiles reported by the histogram. */
+	public void testHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(50));
+
+		for (int i = 1; i <= 10000; ++i) {
+			histogram.record(i);
+		}
+		assertEquals(10000, histogram.getTotalCount());
+		assertEquals(10000, histogram.getMaxValue());
+		assertEquals(10000, histogram.getValueAtPercentile(100));
+		assertWithinError(5000, histogram.getValueAtPercentile(50));
+		assertWithinError(9900, histogram.getValueAtPercentile(99));
+		assertEquals(1, histogram.getValueAtPercentile(0));
+	}
+
+	/** Asserts that the actual value has a relative error below 7%. */
+	private static void assertWithinError(long expected, long actual) {
+		assertTrue("Expected " + expected + " but was " + actual,
+				actual >= expected && actual < expected * 1.07);
+	}
+
+	/** Tests the statistics collected per store and operation. */
+	public void testStatistics() throws StorageException {
+		StorageProfiler profiler = new StorageProfiler();
+		IStorageSystem storageSystem = profiler
+				.decorate(new InMemoryStorageSystem(new File(".")));
+		IStore store = storageSystem.openStore("store");
+
+		byte[] key = StringUtils.stringToBytes("key");
+		byte[] value = StringUtils.stringToBytes("value");
+		store.put(key, value);
+		store.get(key);
+		store.get(Arrays.asList(key, value));
+		store.scan(key, new KeyCountingCallback());
+		storageSystem.openStore("other").get(key);
+
+		assertEquals(Arrays.asList("other", "store"), profiler.getStoreNames());
+		assertEquals(5, profiler.getNumberOfCalls());
+
+		OperationStatistics put = profiler.getStatistics("store",
+				EStorageOperation.PUT);
+		assertEquals(1, put.getCount());
+		assertEquals(8, put.getBytesWritten());
+		assertEquals(0, put.getBytesRead());
+
+		OperationStatistics getMultiple = profiler.getStatistics("store",
+				EStorageOperation.GET_MULTIPLE);
+		assertEquals(1, getMultiple.getResultCount());
+		assertEquals(5, getMultiple.getBytesRead());
+
+		OperationStatistics scan = profiler.getStatistics("store",
+				EStorageOperation.SCAN_PREFIX);
+		assertEquals(1, scan.getResultCount());
+		assertEquals(8, scan.getBytesRead());
+		assertTrue(scan.getMaxNanos() >= scan.getPercentileNanos(50));
+
+		assertEquals(0, profiler.getStatistics("other", EStorageOperation.GET)
+				.getResultCount());
+		assertNull(profiler.getStatistics("unknown", EStorageOperation.GET));
+
+		String[] lines = profiler.getCsvReport().split(StringUtils.CR);
+		assertEquals(6, lines.length);
+		assertTrue(lines[0].startsWith("store;operation;count"));
+		assertTrue(lines[1].startsWith("other;GET;1;"));
+		assertTrue(lines[5].endsWith(";8;0;1;0;0"));
+	}
+
+	/** Tests that cache hits and misses are reported per store. */
+	public void testCacheStatistics() throws StorageException {
+		StorageProfiler profiler = new StorageProfiler();
+		IStorageSystem storageSystem = new CachingStorageSystem(
+				profiler.decorate(new InMemoryStorageSystem(new File("."))),
+				1024, false, profiler);
+		IStore store = storageSystem.openStore("store");
+
+		byte[] key = StringUtils.stringToBytes("key");
+		store.put(key, StringUtils.stringToBytes("value"));
+		store.get(key);
+		store.get(key);
+		store.get(Arrays.asList(key, key));
+		storageSystem.openStore("other").get(key);
+
+		assertEquals(3, profiler.getCacheHits());
+		assertEquals(2, profiler.getCacheMisses());
+
+		OperationStatistics get = profiler.getStatistics("store",
+				EStorageOperation.GET);
+		assertEquals(1, get.getCount());
+		assertEquals(1, get.getCacheHits());
+		assertEquals(1, get.getCacheMisses());
+
+		OperationStatistics getMultiple = profiler.getStatistics("store",
+				EStorageOperation.GET_MULTIPLE);
+		assertEquals(0, getMultiple.getCount());
+		assertEquals(2, getMultiple.getCacheHits());
+
+		String[] lines = profiler.getCsvReport().split(StringUtils.CR);
+		assertEquals(5, lines.length);
+		assertTrue(lines[0].endsWith(";cache_hits;cache_misses"));
+		assertTrue(lines[1].startsWith("other;GET;1;"));
+		assertTrue(lines[1].endsWith(";0;1"));
+		assertTrue(lines[3].startsWith("store;GET_MULTIPLE;0;"));
+		assertTrue(lines[3].endsWith(";2;0"));
+	}
+}
@@ -0,0 +1,215 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.rmi;
+
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.conqat.engine.core.driver.runner.ConQATRunnableBase;
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.mem.InMemoryStorageSystem;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.net.LocalhostRMISocketFactory;
+
+/**
+ * Simple micro benchmark that compares the callback based scans of the
+ * {@link IRemoteStore} to the paged scans used by the {@link RmiStore}, and
+ * single to batched gets. The server is started in the same VM, but all
+ * calls go through RMI on localhost.
+ * 
+ * To avoid complicated commandline handling, all configuration is performed
+ * using constants.
+ * 
+ * This class is implemented as a {@link ConQATRunnableBase} but also has a main
+ * method to allow easy execution both from Eclipse and from a distribution.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class RmiStoreBenchmark extends ConQATRunnableBase {
+
+	/** The port used for the registry. */
+	private static final int PORT = RmiStorageServer.DEFAULT_PORT + 1;
+
+	/** The number of key/value pairs in the store. */
+	private static final int NUM_KEYS = 200000;
+
+	/** The size of the values. */
+	private static final int VALUE_SIZE = 100;
+
+	/** The batch sizes used for the get benchmark. */
+	private static final int[] BATCH_SIZES = { 1, 10, 100, 1000, 10000 };
+
+	/** The page sizes used for the scan benchmark. */
+	private static final int[] PAGE_BYTES = { 16 * 1024, 256 * 1024,
+			1024 * 1024 };
+
+	/** The name of the test store. */
+	private static final String TEST_STORE = "store";
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doRun() {
+		try {
+			RemoteStore remoteStore = new RemoteStore(
+					new InMemoryStorageSystem(null));
+			LocalhostRMISocketFactory factory = new LocalhostRMISocketFactory();
+			UnicastRemoteObject.exportObject(remoteStore, 0, factory, factory);
+			Registry registry = LocateRegistry.createRegistry(PORT);
+			registry.rebind(RmiStorageServer.STORAGE_SERVER_URL, remoteStore);
+
+			benchmark();
+
+			UnicastRemoteObject.unexportObject(remoteStore, true);
+			UnicastRemoteObject.unexportObject(registry, true);
+		} catch (Exception e) {
+			// as this is basically test-code, this is valid error handling
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Runs the benchmarks against the published server. */
+	private void benchmark() throws Exception {
+		RmiStorageSystem storageSystem = new RmiStorageSystem("localhost",
+				PORT);
+		IStore store = storageSystem.openStore(TEST_STORE);
+		List<byte[]> keys = fill(store);
+
+		IRemoteStore remoteStore = lookupRemoteStore();
+		CountingCallback callback = new CountingCallback();
+		long start = System.currentTimeMillis();
+		remoteStore.scan(TEST_STORE, new byte[0], new RemoteCallback(callback));
+		report("callback scan", start, callback.count);
+		storageSystem.close();
+
+		for (int pageBytes : PAGE_BYTES) {
+			storageSystem = new RmiStorageSystem("localhost", PORT,
+					RmiStorageSystem.DEFAULT_BATCH_SIZE, pageBytes);
+			store = storageSystem.openStore(TEST_STORE);
+			callback = new CountingCallback();
+			start = System.currentTimeMillis();
+			store.scan(new byte[0], callback);
+			report("paged scan, " + pageBytes + " bytes per page", start,
+					callback.count);
+			storageSystem.close();
+		}
+
+		for (int batchSize : BATCH_SIZES) {
+			storageSystem = new RmiStorageSystem("localhost", PORT, batchSize,
+					RmiStorageSystem.DEFAULT_SCAN_PAGE_BYTES);
+			store = storageSystem.openStore(TEST_STORE);
+			start = System.currentTimeMillis();
+			int found = 0;
+			if (batchSize == 1) {
+				for (byte[] key : keys) {
+					if (store.get(key) != null) {
+						found += 1;
+					}
+				}
+			} else {
+				for (byte[] value : store.get(keys)) {
+					if (value != null) {
+						found += 1;
+					}
+				}
+			}
+			report("get, batch size " + batchSize, start, found);
+			storageSystem.close();
+		}
+	}
+
+	/** Fills the store with random data and returns the keys. */
+	private List<byte[]> fill(IStore store) throws StorageException {
+		Random random = new Random(42);
+		List<byte[]> keys = new ArrayList<byte[]>();
+		PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>();
+		for (int i = 0; i < NUM_KEYS; ++i) {
+			byte[] key = new byte[16];
+			random.nextBytes(key);
+			byte[] value = new byte[VALUE_SIZE];
+			random.nextBytes(value);
+			keys.add(key);
+			keysValues.add(key, value);
+		}
+		store.put(keysValues);
+		return keys;
+	}
+
+	/** Looks up the remote store for direct access. */
+	private static IRemoteStore lookupRemoteStore() throws Exception {
+		LocalhostRMISocketFactory factory = new LocalhostRMISocketFactory();
+		return (IRemoteStore) LocateRegistry.getRegistry("localhost", PORT,
+				factory).lookup(RmiStorageServer.STORAGE_SERVER_URL);
+	}
+
+	/** Prints the time and throughput. */
+	private static void report(String name, long startTime, int count) {
+		long millis = Math.max(1, System.currentTimeMillis() - startTime);
+		System.out.println(name + ": " + count + " entries in " + millis
+				/ 1000. + " seconds, " + count * 1000L / millis
+				+ " entries per second");
+	}
+
+	/** Callback that counts the number of calls. */
+	private static class CountingCallback implements IKeyValueCallback {
+
+		/** The number of calls. */
+		private int count = 0;
+
+		/** {@inheritDoc} */
+		@Override
+		public synchronized void callback(byte[] key, byte[] value) {
+			count += 1;
+		}
+	}
+
+	/** Remote callback forwarding to a local one. */
+	private static class RemoteCallback extends UnicastRemoteObject implements
+			IRemoteKeyValueCallback {
+
+		/** Serial version UID. */
+		private static final long serialVersionUID = 1;
+
+		/** The callback to be called. */
+		private final IKeyValueCallback callback;
+
+		/** Constructor. */
+		private RemoteCallback(IKeyValueCallback callback)
+				throws RemoteException {
+			this.callback = callback;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void callback(byte[] key, byte[] value) {
+			callback.callback(key, value);
+		}
+	}
+
+	/** Main method. */
+	public static void main(String[] args) {
+		new RmiStoreBenchmark().doRun();
+	}
+}
@@ -0,0 +1,194 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.rmi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.StorageSystemTestBase.CollectingCallBack;
+import org.conqat.engine.persistence.store.mem.InMemoryStorageSystem;
+import org.conqat.engine.persistence.store.mem.InMemoryStore;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.string.StringUtils;
+import org.conqat.lib.commons.test.CCSMTestCaseBase;
+
+/**
+ * Tests the paged scans and the batching of the {@link RmiStore}. The remote
+ * store is used directly (without RMI), as the protocol does not depend on
+ * the transport.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class RmiStoreTest extends CCSMTestCaseBase {
+
+	/** The number of keys in the store. */
+	private static final int NUM_KEYS = 1000;
+
+	/** The remote store. */
+	private RemoteStore remoteStore;
+
+	/** The store under test. */
+	private RmiStorageSystem storageSystem;
+
+	/** The store under test. */
+	private IStore store;
+
+	/** {@inheritDoc} */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		remoteStore = new RemoteStore(new InMemoryStorageSystem(null));
+
+		// small batches and pages to enforce many remote calls
+		storageSystem = new RmiStorageSystem(remoteStore, 7, 100);
+		store = storageSystem.openStore("test");
+
+		PairList<byte[], byte[]> keysValues = new PairList<byte[], byte[]>();
+		for (int i = 0; i < NUM_KEYS; ++i) {
+			keysValues.add(key(i), value(i));
+		}
+		store.put(keysValues);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void tearDown() throws Exception {
+		storageSystem.close();
+		super.tearDown();
+	}
+
+	/** Tests batched get. */
+	public void testGet() throws StorageException {
+		List<byte[]> keys = new ArrayList<byte[]>();
+		for (int i = NUM_KEYS + 10; i >= 0; --i) {
+			keys.add(key(i));
+		}
+		List<byte[]> values = store.get(keys);
+		assertEquals(keys.size(), values.size());
+		for (int i = 0; i < keys.size(); ++i) {
+			int index = NUM_KEYS + 10 - i;
+			if (index >= NUM_KEYS) {
+				assertNull(values.get(i));
+			} else {
+				assertTrue(Arrays.equals(value(index), values.get(i)));
+			}
+		}
+	}
+
+	/** Tests batched removal. */
+	public void testRemove() throws StorageException {
+		List<byte[]> keys = new ArrayList<byte[]>();
+		for (int i = 0; i < NUM_KEYS; i += 2) {
+			keys.add(key(i));
+		}
+		store.remove(keys);
+		assertEquals(NUM_KEYS / 2, scanCount(new byte[0], false));
+	}
+
+	/** Tests scans spanning many pages. */
+	public void testScan() throws StorageException {
+		assertEquals(NUM_KEYS, scanCount(new byte[0], true));
+		assertEquals(NUM_KEYS, scanCount(new byte[0], false));
+		// key0 and key10 to key99
+		assertEquals(1 + 10 + 100,
+				scanCount(StringUtils.stringToBytes("key1"), true));
+
+		CollectingCallBack callback = new CollectingCallBack();
+		store.scan(key(100), key(200), callback);
+		// key100 to key199, key11 to key19, key2, and key20
+		assertEquals(100 + 9 + 2, callback.keys.size());
+	}
+
+	/** Tests that an aborted scan releases its cursor. */
+	public void testAbortedScan() throws StorageException {
+		final RuntimeException abort = new RuntimeException();
+		try {
+			store.scan(new byte[0], new IKeyValueCallback() {
+				@Override
+				public void callback(byte[] key, byte[] value) {
+					throw abort;
+				}
+			});
+			fail("Expected exception");
+		} catch (RuntimeException e) {
+			assertSame(abort, e);
+		}
+
+		// releasing the cursor unblocks the server side scan
+		assertEquals(NUM_KEYS, scanCount(new byte[0], true));
+	}
+
+	/**
+	 * Tests that a runtime exception during the server side scan is reported
+	 * to the client instead of letting it wait for the timeout.
+	 */
+	public void testFailingScan() throws StorageException {
+		RemoteStore failingRemoteStore = new RemoteStore(
+				new InMemoryStorageSystem(null) {
+					@Override
+					public synchronized IStore openStore(String name) {
+						return new InMemoryStore() {
+							@Override
+							public void scan(byte[] beginKey, byte[] endKey,
+									IKeyValueCallback callback) {
+								callback.callback(beginKey, beginKey);
+								throw new IllegalStateException("expected");
+							}
+						};
+					}
+				});
+		RmiStorageSystem failingStorageSystem = new RmiStorageSystem(
+				failingRemoteStore, 7, 100);
+		try {
+			failingStorageSystem.openStore("test").scan(key(1), key(2),
+					new CollectingCallBack());
+			fail("Expected exception");
+		} catch (StorageException e) {
+			assertTrue(e.getMessage().contains("expected"));
+		} finally {
+			failingStorageSystem.close();
+		}
+	}
+
+	/** Returns the number of keys found by a prefix scan. */
+	private int scanCount(byte[] prefix, boolean includeValues)
+			throws StorageException {
+		CollectingCallBack callback = new CollectingCallBack();
+		if (includeValues) {
+			store.scan(prefix, callback);
+		} else {
+			store.scanKeys(prefix, callback);
+		}
+		return callback.keys.size();
+	}
+
+	/** Returns the key for the given index. */
+	private static byte[] key(int index) {
+		return StringUtils.stringToBytes("key" + index);
+	}
+
+	/** Returns the value for the given index. */
+	private static byte[] value(int index) {
+		return StringUtils.stringToBytes("value" + index);
+	}
+}
@@ -0,0 +1,156 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.util;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.conqat.engine.persistence.store.IStorageSystem;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.StorageSystemTestBase;
+import org.conqat.engine.persistence.store.mem.InMemoryStorageSystem;
+import org.conqat.engine.persistence.store.mem.InMemoryStore;
+import org.conqat.engine.persistence.store.profiler.EStorageOperation;
+import org.conqat.engine.persistence.store.profiler.StorageProfiler;
+import org.conqat.lib.commons.string.StringUtils;
+
+/**
+ * Tests the {@link CachingStore} and the {@link CachingStorageSystem}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CachingStoreTest extends StorageSystemTestBase {
+
+	/** The profiler used. */
+	private final StorageProfiler profiler = new StorageProfiler();
+
+	/** {@inheritDoc} */
+	@Override
+	protected IStorageSystem openStorage(File baseDir) throws StorageException {
+		return new CachingStorageSystem(new InMemoryStorageSystem(baseDir),
+				1024, true, profiler);
+	}
+
+	/** Tests caching of values and misses and their invalidation. */
+	public void testValueCaching() throws StorageException {
+		IStore rawStore = new InMemoryStore();
+		IStore store = new CachingStore(rawStore, "store", 1024, false,
+				profiler);
+
+		assertNull(store.get(KEY));
+		assertNull(store.get(KEY));
+		assertCacheAccesses(1, 1);
+
+		store.put(KEY, VALUE);
+		assertTrue(Arrays.equals(VALUE, store.get(KEY)));
+		assertTrue(Arrays.equals(VALUE, store.get(KEY)));
+		assertCacheAccesses(2, 2);
+
+		// modifications bypassing the cache are not seen
+		rawStore.remove(KEY);
+		assertTrue(Arrays.equals(VALUE, store.get(KEY)));
+
+		store.remove(KEY);
+		assertNull(store.get(KEY));
+		assertEquals(Arrays.asList(null, null),
+				store.get(Arrays.asList(KEY, VALUE)));
+		assertCacheAccesses(4, 4);
+	}
+
+	/** Tests that the cache size is bounded. */
+	public void testEviction() throws StorageException {
+		IStore store = new CachingStore(new InMemoryStore(), "store", 1024,
+				false, profiler);
+		for (int i = 0; i < 100; ++i) {
+			store.put(StringUtils.stringToBytes("key" + i), VALUE);
+		}
+		for (int i = 0; i < 100; ++i) {
+			store.get(StringUtils.stringToBytes("key" + i));
+		}
+		assertCacheAccesses(0, 100);
+
+		// only the most recently used values are still cached
+		store.get(StringUtils.stringToBytes("key99"));
+		store.get(StringUtils.stringToBytes("key0"));
+		assertCacheAccesses(1, 101);
+	}
+
+	/** Tests caching of prefix scans and their invalidation. */
+	public void testScanCaching() throws StorageException {
+		IStore store = new CachingStore(new InMemoryStore(), "store", 1024,
+				true, profiler);
+		byte[] prefix = StringUtils.stringToBytes("pre");
+		store.put(StringUtils.stringToBytes("pre1"), VALUE);
+		store.put(StringUtils.stringToBytes("other"), VALUE);
+
+		assertEquals(1, scanCount(store, prefix));
+		assertCacheAccesses(0, 0);
+		assertEquals(1, scanCount(store, prefix));
+		assertCacheAccesses(1, 0);
+
+		store.put(StringUtils.stringToBytes("other2"), VALUE);
+		assertEquals(1, scanCount(store, prefix));
+		assertCacheAccesses(2, 0);
+
+		store.put(StringUtils.stringToBytes("pre2"), VALUE);
+		assertEquals(2, scanCount(store, prefix));
+		assertCacheAccesses(2, 0);
+
+		// key scans are answered from cached scans
+		assertEquals(4, StorageUtils.keyCount(store));
+		assertCacheAccesses(2, 0);
+		KeyCountingCallback callback = new KeyCountingCallback();
+		store.scanKeys(prefix, callback);
+		assertEquals(2, callback.getNumberOfKeys());
+		assertCacheAccesses(3, 0);
+
+		assertEquals(2,
+				profiler.getStatistics("store", EStorageOperation.SCAN_PREFIX)
+						.getCacheHits());
+		assertEquals(1,
+				profiler.getStatistics("store",
+						EStorageOperation.SCAN_KEYS_PREFIX).getCacheHits());
+	}
+
+	/** Tests that caching can be restricted to some stores. */
+	public void testCachedStoreNames() throws StorageException {
+		IStorageSystem storageSystem = new CachingStorageSystem(
+				new InMemoryStorageSystem(null), 1024, false, profiler,
+				Collections.singleton("cached"));
+		assertTrue(storageSystem.openStore("cached") instanceof CachingStore);
+		assertFalse(storageSystem.openStore("other") instanceof CachingStore);
+		storageSystem.close();
+	}
+
+	/** Returns the number of entries found by a scan for the given prefix. */
+	private static int scanCount(IStore store, byte[] prefix)
+			throws StorageException {
+		KeyCountingCallback callback = new KeyCountingCallback();
+		store.scan(prefix, callback);
+		return callback.getNumberOfKeys();
+	}
+
+	/** Asserts the number of cache hits and misses. */
+	private void assertCacheAccesses(int hits, int misses) {
+		assertEquals(hits, profiler.getCacheHits());
+		assertEquals(misses, profiler.getCacheMisses());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.util;
+
+import java.util.List;
+import java.util.Random;
+
+import org.conqat.engine.core.driver.runner.ConQATRunnableBase;
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.mem.InMemoryStore;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.string.StringUtils;
+
+/**
+ * Simple micro benchmark that compares the store size and throughput of the
+ * {@link CompressingStore} and the {@link DictionaryCompressingStore} (with and
+ * without trained dictionary) on synthetic index data consisting of uniform
+ * paths, finding messages, and metric maps.
+ * 
+ * To avoid complicated commandline handling, all configuration is performed
+ * using constants.
+ * 
+ * This class is implemented as a {@link ConQATRunnableBase} but also has a main
+ * method to allow easy execution both from Eclipse and from a distribution.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class CompressingStoreBenchmark extends ConQATRunnableBase {
+
+	/** The number of key/value pairs in the store. */
+	private static final int NUM_KEYS = 200000;
+
+	/** The number of repetitions for each measurement. */
+	private static final int REPETITIONS = 3;
+
+	/** Some names used for generating the sample data. */
+	private static final String[] NAMES = { "engine", "commons", "persistence",
+			"store", "index", "util", "clone", "detection", "analysis",
+			"report", "html", "model" };
+
+	/** {@inheritDoc} */
+	@Override
+	protected void doRun() {
+		try {
+			PairList<byte[], byte[]> keysValues = createSampleData();
+			int rawSize = 0;
+			for (byte[] value : keysValues.extractSecondList()) {
+				rawSize += value.length;
+			}
+			System.out.println("Uncompressed: " + rawSize + " bytes");
+
+			IStore rawStore = new InMemoryStore();
+			benchmark("CompressingStore", new CompressingStore(rawStore),
+					rawStore, keysValues);
+
+			rawStore = new InMemoryStore();
+			benchmark("DictionaryCompressingStore without dictionary",
+					new DictionaryCompressingStore(rawStore, 0), rawStore,
+					keysValues);
+
+			int dictionaryId = DictionaryCompressingStore
+					.trainDictionary(rawStore);
+			benchmark("DictionaryCompressingStore with dictionary",
+					new DictionaryCompressingStore(rawStore, dictionaryId),
+					rawStore, keysValues);
+		} catch (StorageException e) {
+			// as this is basically test-code, this is valid error handling
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Runs the benchmark for a single store. */
+	private static void benchmark(String name, IStore store, IStore rawStore,
+			PairList<byte[], byte[]> keysValues) throws StorageException {
+		System.out.println(name + ":");
+		List<byte[]> keys = keysValues.extractFirstList();
+
+		for (int i = 0; i < REPETITIONS; ++i) {
+			long start = System.currentTimeMillis();
+			store.put(keysValues);
+			report("put", start, keysValues.size());
+
+			start = System.currentTimeMillis();
+			int found = 0;
+			for (byte[] value : store.get(keys)) {
+				if (value != null) {
+					found += 1;
+				}
+			}
+			report("get", start, found);
+
+			CountingCallback callback = new CountingCallback();
+			start = System.currentTimeMillis();
+			store.scan(new byte[0], callback);
+			report("scan", start, callback.count);
+		}
+
+		SizeCallback sizeCallback = new SizeCallback();
+		rawStore.scan(new byte[0], sizeCallback);
+		System.out.println("  size: " + sizeCallback.size + " bytes");
+	}
+
+	/** Creates the sample data. */
+	private static PairList<byte[], byte[]> createSampleData() {
+		Random random = new Random(42);
+		PairList<byte[], byte[]> result = new PairList<byte[], byte[]>();
+		for (int i = 0; i < NUM_KEYS; ++i) {
+			String path = "src/org/conqat/" + randomName(random) + "/"
+					+ randomName(random) + "/" + randomName(random)
+					+ random.nextInt(100) + ".java";
+			String value;
+			switch (i % 3) {
+			case 0:
+				value = path;
+				break;
+			case 1:
+				value = path + ": Method '" + randomName(random)
+						+ random.nextInt(1000) + "' is too long ("
+						+ random.nextInt(500) + " lines, threshold is 60)";
+				break;
+			default:
+				value = "LoC=" + random.nextInt(10000) + ";SLoC="
+						+ random.nextInt(5000) + ";Clone Coverage=0."
+						+ random.nextInt(100) + ";Methods="
+						+ random.nextInt(200) + ";Path=" + path;
+			}
+			result.add(StringUtils.stringToBytes(path + "#" + i),
+					StringUtils.stringToBytes(value));
+		}
+		return result;
+	}
+
+	/** Returns a random name. */
+	private static String randomName(Random random) {
+		return NAMES[random.nextInt(NAMES.length)];
+	}
+
+	/** Prints the time and throughput. */
+	private static void report(String name, long startTime, int count) {
+		long millis = Math.max(1, System.currentTimeMillis() - startTime);
+		System.out.println("  " + name + ": " + count + " entries in "
+				+ millis / 1000. + " seconds, " + count * 1000L / millis
+				+ " entries per second");
+	}
+
+	/** Callback that counts the number of calls. */
+	private static class CountingCallback implements IKeyValueCallback {
+
+		/** The number of calls. */
+		private int count = 0;
+
+		/** {@inheritDoc} */
+		@Override
+		public synchronized void callback(byte[] key, byte[] value) {
+			count += 1;
+		}
+	}
+
+	/** Callback that sums the size of the values. */
+	private static class SizeCallback implements IKeyValueCallback {
+
+		/** The total size. */
+		private long size = 0;
+
+		/** {@inheritDoc} */
+		@Override
+		public synchronized void callback(byte[] key, byte[] value) {
+			size += value.length;
+		}
+	}
+
+	/** Main method. */
+	public static void main(String[] args) {
+		new CompressingStoreBenchmark().doRun();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.persistence.store.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.conqat.engine.persistence.store.IKeyValueCallback;
+import org.conqat.engine.persistence.store.IStorageSystem;
+import org.conqat.engine.persistence.store.IStore;
+import org.conqat.engine.persistence.store.StorageException;
+import org.conqat.engine.persistence.store.StorageSystemTestBase;
+import org.conqat.engine.persistence.store.mem.InMemoryStorageSystem;
+import org.conqat.engine.persistence.store.mem.InMemoryStore;
+import org.conqat.lib.commons.collections.PairList;
+import org.conqat.lib.commons.io.ByteArrayUtils;
+import org.conqat.lib.commons.string.StringUtils;
+
+/**
+ * Tests the {@link DictionaryCompressingStore}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class DictionaryCompressingStoreTest extends StorageSystemTestBase {
+
+	/** Number of sample values used. */
+	private static final int SAMPLE_COUNT = 5000;
+
+	/** Number of nested scans performed. */
+	private static final int NESTED_SCAN_COUNT = 100;
+
+	/** {@inheritDoc} */
+	@Override
+	protected IStorageSystem openStorage(File baseDir) throws StorageException {
+		return new InMemoryStorageSystem(baseDir) {
+			/** {@inheritDoc} */
+			@Override
+			public IStore openStore(String name) throws StorageException {
+				return new DictionaryCompressingStore(super.openStore(name), 0);
+			}
+		};
+	}
+
+	/**
+	 * Tests that a trained dictionary improves compression, that all values
+	 * remain readable, and that dictionary keys are hidden.
+	 */
+	public void testTrainedDictionary() throws StorageException {
+		IStore rawStore = new InMemoryStore();
+		PairList<byte[], byte[]> keysValues = createSampleData(0);
+		new DictionaryCompressingStore(rawStore, 0).put(keysValues);
+		int sizeWithoutDictionary = valueSize(rawStore);
+
+		int dictionaryId = DictionaryCompressingStore.trainDictionary(rawStore);
+		assertEquals(1, dictionaryId);
+		IStore store = new DictionaryCompressingStore(rawStore, dictionaryId);
+		store.put(keysValues);
+		assertTrue(valueSize(rawStore) < sizeWithoutDictionary / 2);
+
+		// values written with the old dictionary remain readable
+		PairList<byte[], byte[]> moreKeysValues = createSampleData(SAMPLE_COUNT);
+		store.put(moreKeysValues);
+		assertEquals(2, DictionaryCompressingStore.trainDictionary(rawStore));
+		store = new DictionaryCompressingStore(rawStore, 2);
+		assertValues(store, keysValues);
+		assertValues(store, moreKeysValues);
+
+		assertEquals(2 * SAMPLE_COUNT, StorageUtils.keyCount(store));
+		CollectingCallBack callback = new CollectingCallBack();
+		store.scan(new byte[0], callback);
+		assertEquals(2 * SAMPLE_COUNT, callback.keys.size());
+		for (int i = 0; i < callback.keys.size(); ++i) {
+			assertTrue(callback.keys.get(i).startsWith("key"));
+		}
+	}
+
+	/** Tests that values written by the {@link CompressingStore} are readable. */
+	public void testReadGzipValues() throws StorageException {
+		IStore rawStore = new InMemoryStore();
+		new CompressingStore(rawStore).put(KEY, VALUE);
+		assertEquals(StringUtils.bytesToString(VALUE),
+				StringUtils.bytesToString(new DictionaryCompressingStore(
+						rawStore, 0).get(KEY)));
+	}
+
+	/** Tests storing of incompressible and empty values. */
+	public void testIncompressibleValues() throws StorageException {
+		IStore rawStore = new InMemoryStore();
+		IStore store = new DictionaryCompressingStore(rawStore, 0);
+		store.put(KEY, new byte[] { 17 });
+		store.put(VALUE, new byte[0]);
+
+		assertEquals(2, rawStore.get(KEY).length);
+		assertEquals(17, store.get(KEY)[0]);
+		assertEquals(0, store.get(VALUE).length);
+	}
+
+	/**
+	 * Tests that exceptions thrown by the callback reach the caller of the
+	 * scan and that nested scans from within the callback are possible.
+	 */
+	public void testScanCallback() throws StorageException {
+		final IStore store = new DictionaryCompressingStore(new InMemoryStore(),
+				0);
+		store.put(createSampleData(0));
+
+		try {
+			store.scan(new byte[0], new IKeyValueCallback() {
+				private int count = 0;
+
+				@Override
+				public void callback(byte[] key, byte[] value) {
+					if (++count == SAMPLE_COUNT / 2) {
+						throw new IllegalStateException("expected");
+					}
+				}
+			});
+			fail("Expected exception!");
+		} catch (IllegalStateException e) {
+			assertEquals("expected", e.getMessage());
+		}
+
+		final List<String> nestedKeys = new ArrayList<String>();
+		store.scan(new byte[0], new ExceptionHandlingKeyValueCallbackBase() {
+			@Override
+			protected void callbackWithException(byte[] key, byte[] value)
+					throws StorageException {
+				if (nestedKeys.size() < NESTED_SCAN_COUNT) {
+					CollectingCallBack nested = new CollectingCallBack();
+					store.scan(key, nested);
+					assertTrue(nested.keys.contains(StringUtils
+							.bytesToString(key)));
+					nestedKeys.add(StringUtils.bytesToString(key));
+				}
+			}
+		});
+		assertEquals(NESTED_SCAN_COUNT, nestedKeys.size());
+	}
+
+	/** Asserts that the store contains the given values. */
+	private static void assertValues(IStore store,
+			PairList<byte[], byte[]> keysValues) throws StorageException {
+		List<byte[]> values = store.get(keysValues.extractFirstList());
+		for (int i = 0; i < keysValues.size(); ++i) {
+			assertEquals(StringUtils.bytesToString(keysValues.getSecond(i)),
+					StringUtils.bytesToString(values.get(i)));
+		}
+	}
+
+	/** Returns the total size of all values in the store. */
+	private static int valueSize(IStore store) throws StorageException {
+		int size = 0;
+		for (byte[] key : StorageUtils.listKeys(store)) {
+			if (!ByteArrayUtils.isPrefix(
+					DictionaryCompressingStore.DICTIONARY_PREFIX, key)) {
+				size += store.get(key).length;
+			}
+		}
+		return size;
+	}
+
+	/** Creates small and repetitive sample data similar to finding messages. */
+	private static PairList<byte[], byte[]> createSampleData(int offset) {
+		List<String> methods = new ArrayList<String>();
+		for (int i = 0; i < 50; ++i) {
+			methods.add("method" + i);
+		}
+
+		PairList<byte[], byte[]> result = new PairList<byte[], byte[]>();
+		for (int i = offset; i < offset + SAMPLE_COUNT; ++i) {
+			String value = "src/org/conqat/engine/module" + (i % 17)
+					+ "/Class" + (i % 101) + ".java: Method '"
+					+ methods.get(i % methods.size()) + "' is too long ("
+					+ (i % 300) + " lines, threshold is 60)";
+			result.add(StringUtils.stringToBytes("key" + i),
+					StringUtils.stringToBytes(value));
+		}
+		return result;
+	}
+}
\ No newline at end of file
@@ -24,6 +24,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -32,6 +34,7 @@ import org.conqat.engine.persistence.store.IStore;
 import org.conqat.engine.persistence.store.StorageException;
 import org.conqat.engine.persistence.store.mem.InMemoryStore;
 import org.conqat.lib.commons.collections.CollectionUtils;
+import org.conqat.lib.commons.io.ByteArrayUtils;
 
 /**
  * Tests for {@link StorageUtils}.
@@ -82,4 +85,34 @@ public class StorageUtilsTest extends TestCase {
 		assertEquals("DEF", bytesToString(newStore.get(stringToBytes("baz"))));
 	}
 
+	/**
+	 * Tests that the offset based long conversion is compatible with
+	 * {@link ByteArrayUtils}.
+	 */
+	public void testInsertExtractLong() throws IOException {
+		long[] values = { 0, 1, -1, 255, 256, Long.MIN_VALUE, Long.MAX_VALUE,
+				0x0123456789abcdefL, 0xfedcba9876543210L };
+		byte[] bytes = new byte[ByteArrayUtils.LONG_BYTE_ARRAY_LENGTH + 3];
+		for (long value : values) {
+			StorageUtils.insertLong(value, bytes, 3);
+			assertEquals(value, StorageUtils.extractLong(bytes, 3));
+
+			byte[] expected = ByteArrayUtils.longToByteArray(value);
+			assertEquals(value, StorageUtils.extractLong(expected, 0));
+			for (int i = 0; i < expected.length; ++i) {
+				assertEquals(expected[i], bytes[i + 3]);
+			}
+		}
+	}
+
+	/** Tests {@link StorageUtils#sortedOrder(List)}. */
+	public void testSortedOrder() {
+		List<byte[]> keys = new ArrayList<byte[]>();
+		for (String key : new String[] { "foo", "bar", "foo", "", "baz" }) {
+			keys.add(stringToBytes(key));
+		}
+		assertEquals(Arrays.asList(3, 1, 4, 0, 2),
+				StorageUtils.sortedOrder(keys));
+	}
+
 }
\ No newline at end of file
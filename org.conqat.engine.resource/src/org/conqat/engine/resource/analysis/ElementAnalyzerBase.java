@@ -24,6 +24,7 @@ import org.conqat.engine.commons.traversal.ETargetNodes;
 import org.conqat.engine.commons.traversal.NodeTraversingProcessorBase;
 import org.conqat.engine.core.core.AConQATAttribute;
 import org.conqat.engine.core.core.AConQATParameter;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.resource.IElement;
 import org.conqat.engine.resource.IResource;
@@ -32,6 +33,11 @@ import org.conqat.lib.commons.string.StringUtils;
 
 /**
  * Base class for processors that analyze elements.
+ * <p>
+ * If a concrete analyzer is annotated with {@link AThreadSafeProcessor},
+ * {@link #analyzeElement(IElement)} is called concurrently for different
+ * elements. Such analyzers may only modify the element passed and must not
+ * store element specific state in attributes.
  * 
  * @param <R>
  *            type of the resource
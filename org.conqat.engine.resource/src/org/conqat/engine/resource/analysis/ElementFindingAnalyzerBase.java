@@ -113,7 +113,7 @@ public abstract class ElementFindingAnalyzerBase<R extends ITextResource, E exte
 	}
 
 	/** Returns the findings group used. */
-	private FindingGroup getFindingsGroup() {
+	private synchronized FindingGroup getFindingsGroup() {
 		if (findingGroup == null) {
 			findingGroup = findingReport.getOrCreateCategory(
 					getFindingCategoryName()).getOrCreateFindingGroup(
@@ -18,6 +18,7 @@ package org.conqat.engine.resource.analysis;
 
 import org.conqat.engine.core.core.AConQATKey;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.resource.text.ITextElement;
 import org.conqat.engine.resource.text.TextElementUtils;
@@ -29,6 +30,7 @@ import org.conqat.engine.resource.text.TextElementUtils;
  * @version $Rev: 46044 $
  * @ConQAT.Rating GREEN Hash: 81E2EB11008784EF46784442CA8BD643
  */
+@AThreadSafeProcessor
 @AConQATProcessor(description = "Counts lines of code. Optionally can mark overly long files with findings.")
 public class LOCAnalyzer extends TextMetricAnalyzerBase {
 
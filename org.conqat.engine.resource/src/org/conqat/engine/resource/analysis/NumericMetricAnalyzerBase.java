@@ -30,6 +30,7 @@ import org.conqat.engine.commons.node.NodeUtils;
 import org.conqat.engine.core.core.AConQATAttribute;
 import org.conqat.engine.core.core.AConQATFieldParameter;
 import org.conqat.engine.core.core.AConQATParameter;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.resource.IElement;
 import org.conqat.engine.resource.IResource;
@@ -43,6 +44,12 @@ import org.conqat.lib.commons.string.StringUtils;
  * base class provides aggregation of this value if there are multiple
  * measurements and an optional parameter that allows the creation of findings
  * for violations of a metric threshold.
+ * <p>
+ * As elements may be analyzed in parallel (see {@link AThreadSafeProcessor}),
+ * the state of the current element (aggregated value, element) is managed per
+ * thread and the creation of findings is synchronized. Subclasses must access
+ * the current element via {@link #getCurrentElement()} and may not store
+ * element specific state in attributes.
  * 
  * 
  * @param <R>
@@ -78,18 +85,11 @@ public abstract class NumericMetricAnalyzerBase<R extends IResource, E extends I
 	/** The thresholds used for producing findings. */
 	private final List<ThresholdInfo> thresholds = new ArrayList<ThresholdInfo>();
 
-	/** Stores, whether any metric value was reported for the current element. */
-	private boolean hadValue = false;
-
-	/** The current aggregated value for the element. */
-	private double currentAggregate = 0;
-
 	/**
-	 * The current element from {@link #analyzeElement(IElement)}. This is
-	 * protected for the case that sub classes need to create specific
-	 * locations.
+	 * The state for the element currently analyzed by
+	 * {@link #analyzeElement(IElement)} in the current thread.
 	 */
-	protected E currentElement;
+	private final ThreadLocal<ElementState> currentState = new ThreadLocal<ElementState>();
 
 	/** The finding report. */
 	private FindingReport findingReport;
@@ -125,17 +125,27 @@ public abstract class NumericMetricAnalyzerBase<R extends IResource, E extends I
 	/** {@inheritDoc} */
 	@Override
 	protected final void analyzeElement(E element) throws ConQATException {
-		hadValue = false;
-		currentElement = element;
-		currentAggregate = 0;
-
-		calculateMetrics(element);
+		ElementState state = new ElementState(element);
+		currentState.set(state);
+		try {
+			calculateMetrics(element);
+		} finally {
+			currentState.remove();
+		}
 
 		if (!suppressMetricValue) {
-			element.setValue(getKey(), currentAggregate);
+			element.setValue(getKey(), state.aggregate);
 		}
 	}
 
+	/**
+	 * Returns the element currently analyzed in this thread. This is intended
+	 * for sub classes that need to create specific locations.
+	 */
+	protected E getCurrentElement() {
+		return currentState.get().element;
+	}
+
 	/**
 	 * Template method for calculating the actual metric values. These values
 	 * must be reported via one of the reportMetricValue callbacks.
@@ -145,13 +155,14 @@ public abstract class NumericMetricAnalyzerBase<R extends IResource, E extends I
 	/** Main method for reporting a metric value. */
 	protected final void reportMetricValue(double value,
 			ElementLocation location) {
-		aggregate(value);
+		ElementState state = currentState.get();
+		state.aggregate(value);
 
 		for (ThresholdInfo threshold : thresholds) {
 			if (threshold.isViolation(value)) {
 				Finding finding = FindingUtils.createAndAttachFinding(
 						getFindingGroup(), threshold.formatMessage(value),
-						currentElement, location, threshold.findingsKey);
+						state.element, location, threshold.findingsKey);
 				finding.setValue(EFindingKeys.ASSESSMENT.toString(),
 						threshold.color);
 				finding.getProperties().put(VALUE_FINDING_PROPERTY, value);
@@ -160,22 +171,8 @@ public abstract class NumericMetricAnalyzerBase<R extends IResource, E extends I
 		}
 	}
 
-	/** Aggregates the metric value. */
-	private void aggregate(double value) {
-		if (hadValue) {
-			if (aggregateMax()) {
-				currentAggregate = Math.max(value, currentAggregate);
-			} else {
-				currentAggregate = Math.min(value, currentAggregate);
-			}
-		} else {
-			hadValue = true;
-			currentAggregate = value;
-		}
-	}
-
 	/** Returns the finding group used. Lazy initialization. */
-	private FindingGroup getFindingGroup() {
+	private synchronized FindingGroup getFindingGroup() {
 		if (findingGroup == null) {
 			findingGroup = findingReport.getOrCreateCategory(findingCategory)
 					.getOrCreateFindingGroup(getMetricName());
@@ -203,9 +200,9 @@ public abstract class NumericMetricAnalyzerBase<R extends IResource, E extends I
 
 	/** Reports a metric value. The location is the entire file. */
 	protected void reportMetricValue(double value) {
-		reportMetricValue(value,
-				new ElementLocation(currentElement.getLocation(),
-						currentElement.getUniformPath()));
+		E element = getCurrentElement();
+		reportMetricValue(value, new ElementLocation(element.getLocation(),
+				element.getUniformPath()));
 	}
 
 	/**
@@ -248,6 +245,38 @@ public abstract class NumericMetricAnalyzerBase<R extends IResource, E extends I
 		return CollectionUtils.toArray(keys, String.class);
 	}
 
+	/** The state of the metric calculation for a single element. */
+	private class ElementState {
+
+		/** The element analyzed. */
+		private final E element;
+
+		/** Stores, whether any metric value was reported for the element. */
+		private boolean hadValue = false;
+
+		/** The current aggregated value for the element. */
+		private double aggregate = 0;
+
+		/** Constructor. */
+		public ElementState(E element) {
+			this.element = element;
+		}
+
+		/** Aggregates the metric value. */
+		private void aggregate(double value) {
+			if (hadValue) {
+				if (aggregateMax()) {
+					aggregate = Math.max(value, aggregate);
+				} else {
+					aggregate = Math.min(value, aggregate);
+				}
+			} else {
+				hadValue = true;
+				aggregate = value;
+			}
+		}
+	}
+
 	/** Class for holding threshold information. */
 	private class ThresholdInfo {
 
@@ -42,7 +42,7 @@ public abstract class TextMetricAnalyzerBase extends
 			int filteredLine) throws ConQATException {
 		reportMetricValue(value,
 				ResourceUtils.createTextRegionLocationForFilteredLines(
-						currentElement, filteredLine, filteredLine));
+						getCurrentElement(), filteredLine, filteredLine));
 	}
 
 	/** Reports a metric value. The location is a region of (filtered) lines. */
@@ -50,7 +50,8 @@ public abstract class TextMetricAnalyzerBase extends
 			int filteredStartLine, int filteredEndLine) throws ConQATException {
 		reportMetricValue(value,
 				ResourceUtils.createTextRegionLocationForFilteredLines(
-						currentElement, filteredStartLine, filteredEndLine));
+						getCurrentElement(), filteredStartLine,
+						filteredEndLine));
 	}
 
 	/**
@@ -62,6 +63,7 @@ public abstract class TextMetricAnalyzerBase extends
 			throws ConQATException {
 		reportMetricValue(value,
 				ResourceUtils.createTextRegionLocationForFilteredOffsets(
-						currentElement, filteredStartOffset, filteredEndOffset));
+						getCurrentElement(), filteredStartOffset,
+						filteredEndOffset));
 	}
 }
\ No newline at end of file
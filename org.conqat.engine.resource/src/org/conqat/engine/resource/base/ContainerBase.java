@@ -74,6 +74,7 @@ public abstract class ContainerBase<E extends IResource> extends ResourceBase
 	/** {@inheritDoc} */
 	@Override
 	public void removeChild(IResource resource) {
+		checkNotFrozen();
 		children.remove(resource.getName());
 	}
 
@@ -135,6 +136,7 @@ public abstract class ContainerBase<E extends IResource> extends ResourceBase
 	 *             is a child with the same name already exists.
 	 */
 	public void addChild(E childNode) {
+		checkNotFrozen();
 		String childName;
 		if (childNode instanceof IElement) {
 			childName = getElementName((IElement) childNode);
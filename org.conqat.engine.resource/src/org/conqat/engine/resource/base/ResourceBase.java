@@ -59,6 +59,7 @@ public abstract class ResourceBase extends ConQATNodeBase implements IResource {
 	/** {@inheritDoc} */
 	@Override
 	public void remove() {
+		checkNotFrozen();
 		if (parent != null) {
 			parent.removeChild(this);
 		}
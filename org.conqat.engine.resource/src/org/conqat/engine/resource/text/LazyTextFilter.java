@@ -40,8 +40,13 @@ import org.conqat.lib.commons.region.Region;
 	/** The filter used to initialize the transformer. */
 	/* package */final ITextFilter filter;
 
-	/** The offset transformer, which is initialized lazily. */
-	private StringOffsetTransformer transformer;
+	/**
+	 * The offset transformer, which is initialized lazily. This is volatile,
+	 * as the filter is shared between clones of an element, which may be
+	 * accessed from different threads. Concurrent initialization is harmless,
+	 * as it results in equivalent transformers.
+	 */
+	private volatile StringOffsetTransformer transformer;
 
 	/** Constructor. */
 	public LazyTextFilter(ITextFilter filter) {
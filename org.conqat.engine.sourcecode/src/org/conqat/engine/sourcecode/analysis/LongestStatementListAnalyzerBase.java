@@ -148,14 +148,14 @@ public abstract class LongestStatementListAnalyzerBase<R extends ITokenResource,
 	/** Reports a statement list found. Both line numbers are inclusive. */
 	protected void reportStatementListForOffsets(int startOffset,
 			int endOffset, Set<Integer> ignoredLines) throws ConQATException {
+		E element = getCurrentElement();
 		int length = computeLength(
-				currentElement.convertFilteredOffsetToLine(startOffset),
-				currentElement.convertFilteredOffsetToLine(endOffset),
-				ignoredLines);
+				element.convertFilteredOffsetToLine(startOffset),
+				element.convertFilteredOffsetToLine(endOffset), ignoredLines);
 
 		reportMetricValue(length,
 				ResourceUtils.createTextRegionLocationForFilteredOffsets(
-						currentElement, startOffset, endOffset));
+						element, startOffset, endOffset));
 	}
 
 	/** Compute length of code fragment */
@@ -20,6 +20,7 @@ import java.util.EnumSet;
 
 import org.conqat.engine.core.core.AConQATKey;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.sourcecode.resource.ITokenElement;
 import org.conqat.engine.sourcecode.resource.TokenElementUtils;
@@ -33,6 +34,7 @@ import org.conqat.lib.scanner.ETokenType.ETokenClass;
  * @version $Rev: 41751 $
  * @ConQAT.Rating GREEN Hash: 2CA04FA47AA1514FA3F060BAA1AD6D29
  */
+@AThreadSafeProcessor
 @AConQATProcessor(description = "This analyzer counts all lines of code except "
 		+ "empty lines and lines that contain only comments.")
 public class SLOCAnalyzer extends TokenMetricAnalyzerBase {
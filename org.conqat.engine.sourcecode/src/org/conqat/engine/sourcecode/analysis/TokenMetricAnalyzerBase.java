@@ -58,7 +58,7 @@ public abstract class TokenMetricAnalyzerBase extends
 			IToken firstToken, IToken lastToken) throws ConQATException {
 		reportMetricValue(value,
 				ResourceUtils.createTextRegionLocationForFilteredOffsets(
-						currentElement, firstToken.getOffset(),
+						getCurrentElement(), firstToken.getOffset(),
 						lastToken.getEndOffset()));
 	}
 }
\ No newline at end of file
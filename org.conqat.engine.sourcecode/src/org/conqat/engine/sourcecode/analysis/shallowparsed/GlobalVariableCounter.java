@@ -20,6 +20,7 @@ import java.util.List;
 
 import org.conqat.engine.core.core.AConQATKey;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.sourcecode.resource.ITokenElement;
 import org.conqat.engine.sourcecode.shallowparser.TokenStreamUtils;
 import org.conqat.engine.sourcecode.shallowparser.framework.EShallowEntityType;
@@ -33,6 +34,7 @@ import org.conqat.lib.scanner.ETokenType;
  * @version $Rev: 47063 $
  * @ConQAT.Rating GREEN Hash: E8122B1F8E11744E91FEF049316ED094
  */
+@AThreadSafeProcessor
 @AConQATProcessor(description = "Counts the number of global variables per element. "
 		+ "This does not include constants, even at global level.")
 public class GlobalVariableCounter extends ShallowParsedMetricAnalyzerBase {
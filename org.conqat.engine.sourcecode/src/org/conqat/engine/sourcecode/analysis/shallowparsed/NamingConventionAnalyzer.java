@@ -22,6 +22,7 @@ import java.util.regex.Pattern;
 import org.conqat.engine.commons.pattern.PatternList;
 import org.conqat.engine.core.core.AConQATFieldParameter;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.sourcecode.resource.ITokenElement;
 import org.conqat.engine.sourcecode.shallowparser.SubTypeNames;
@@ -39,6 +40,7 @@ import org.conqat.lib.scanner.IToken;
  * @version $Rev: 47154 $
  * @ConQAT.Rating GREEN Hash: 28D88E15CB6FDD1A406ED6A33385FA17
  */
+@AThreadSafeProcessor
 @AConQATProcessor(description = "Configurable naming convention check. Identifiers that violate the conventions are marked with findings.")
 public class NamingConventionAnalyzer extends ShallowParsedFindingAnalyzerBase {
 
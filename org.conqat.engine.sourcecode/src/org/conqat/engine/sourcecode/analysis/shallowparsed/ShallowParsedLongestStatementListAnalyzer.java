@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.sourcecode.analysis.LongestStatementListAnalyzerBase;
 import org.conqat.engine.sourcecode.resource.ITokenElement;
@@ -37,6 +38,7 @@ import org.conqat.lib.commons.collections.CollectionUtils;
  * @version $Rev: 46378 $
  * @ConQAT.Rating GREEN Hash: 848D9F537D9FA2A4DDFC5B14022D794E
  */
+@AThreadSafeProcessor
 @AConQATProcessor(description = "Annotates each element with the length of the longest statement list found.")
 public class ShallowParsedLongestStatementListAnalyzer extends
 		LongestStatementListAnalyzerBase<ITokenResource, ITokenElement> {
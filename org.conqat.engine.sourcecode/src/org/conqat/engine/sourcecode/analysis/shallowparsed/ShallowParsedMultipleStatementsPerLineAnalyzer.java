@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.sourcecode.resource.ITokenElement;
 import org.conqat.engine.sourcecode.shallowparser.framework.ShallowEntity;
@@ -32,6 +33,7 @@ import org.conqat.engine.sourcecode.shallowparser.framework.ShallowEntity;
  * @version $Rev: 45071 $
  * @ConQAT.Rating GREEN Hash: E97EEA7E7A55C41F1C689ECA41A6188D
  */
+@AThreadSafeProcessor
 @AConQATProcessor(description = "This processor produces findings if a line contains more than one statement.")
 public class ShallowParsedMultipleStatementsPerLineAnalyzer extends
 		ShallowParsedFindingAnalyzerBase {
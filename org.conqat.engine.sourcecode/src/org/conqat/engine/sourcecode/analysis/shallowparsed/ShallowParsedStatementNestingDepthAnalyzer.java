@@ -22,6 +22,7 @@ import java.util.Stack;
 
 import org.conqat.engine.core.core.AConQATKey;
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.resource.util.ResourceUtils;
 import org.conqat.engine.sourcecode.resource.ITokenElement;
@@ -38,6 +39,7 @@ import org.conqat.lib.commons.collections.IdentityHashSet;
  * @version $Rev: 46378 $
  * @ConQAT.Rating GREEN Hash: 75E710B5BEC2D5BAED623869F5CB5306
  */
+@AThreadSafeProcessor
 @AConQATProcessor(description = "Annotates each element with the deepest statement nesting found.")
 public class ShallowParsedStatementNestingDepthAnalyzer extends
 		ShallowParsedMetricAnalyzerBase {
@@ -160,7 +162,7 @@ public class ShallowParsedStatementNestingDepthAnalyzer extends
 								scopes.size(),
 								ResourceUtils
 										.createTextRegionLocationForFilteredLines(
-												currentElement, startLine,
+												getCurrentElement(), startLine,
 												endLine));
 						reportedScopes.addAll(scopes);
 					} catch (ConQATException e) {
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Stack;
 
 import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
 import org.conqat.engine.core.core.ConQATException;
 import org.conqat.engine.resource.text.TextElementUtils;
 import org.conqat.engine.sourcecode.resource.ITokenElement;
@@ -38,6 +39,7 @@ import org.conqat.lib.scanner.IToken;
  * @version $Rev: 47155 $
  * @ConQAT.Rating GREEN Hash: 518B6ACD0858440E4A60886ADE87C72D
  */
+@AThreadSafeProcessor
 @AConQATProcessor(description = "Created findings for variables that have the same name as a variable in an outer scope, i.e. shadow this value. "
 		+ "This does not handle shadowing of attributes by variables (can be separated using this) or shadowing of attributes in a super class.")
 public class VariableShadowingAnalyzer extends ShallowParsedFindingAnalyzerBase {
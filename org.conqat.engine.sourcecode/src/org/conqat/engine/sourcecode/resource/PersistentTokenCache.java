@@ -0,0 +1,370 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.sourcecode.resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.conqat.lib.commons.digest.Digester;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.string.StringUtils;
+import org.conqat.lib.scanner.ELanguage;
+import org.conqat.lib.scanner.ETokenType;
+import org.conqat.lib.scanner.IToken;
+import org.conqat.lib.scanner.ScannerFactory;
+import org.conqat.lib.scanner.ScannerUtils;
+
+/**
+ * A persistent cache for the tokens of {@link TokenElement}s, which stores
+ * {@link TokenBuffer}s in a local directory. The entries are keyed by the MD5
+ * digest of the (filtered) text that was scanned, the language, and a
+ * fingerprint of the scanner implementation, as these completely determine the
+ * tokens. Hence entries are invalidated automatically when a scanner changes.
+ * The origin of the tokens is not stored, but
+ * taken from the element when loading, so elements with the same content share
+ * an entry. As the entries are written to a temporary file first and then
+ * renamed, the cache may be used from multiple threads and processes.
+ * <p>
+ * The file format (all numbers big endian) is:
+ * <ul>
+ * <li>magic number ({@value #MAGIC}), version ({@value #VERSION}), and the
+ * number of tokens.</li>
+ * <li>the table of token types used as count and type names, as ordinals may
+ * change between versions of {@link ETokenType}.</li>
+ * <li>the columns for offsets, end offsets, line numbers and indexes into the
+ * token type table.</li>
+ * <li>the number of explicit texts (see {@link TokenBuffer}), followed by
+ * index and text for each.</li>
+ * </ul>
+ * All sizes and indexes are validated when reading, so corrupt entries are
+ * treated as missing.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class PersistentTokenCache {
+
+	/** Magic number of the cache files. */
+	private static final int MAGIC = 0x43515443;
+
+	/** Version of the file format. */
+	private static final int VERSION = 1;
+
+	/** Suffix of the cache files. */
+	private static final String FILE_SUFFIX = ".tokens";
+
+	/**
+	 * The minimal number of bytes stored per token (offset, end offset, line
+	 * number, and type index).
+	 */
+	private static final int MIN_BYTES_PER_TOKEN = 3 * 4 + 2;
+
+	/** Cache for the scanner fingerprints per language. */
+	private static final Map<ELanguage, String> SCANNER_FINGERPRINTS = new ConcurrentHashMap<ELanguage, String>();
+
+	/** The directory the entries are stored in. */
+	private final File directory;
+
+	/** Constructor. */
+	public PersistentTokenCache(File directory) throws IOException {
+		FileSystemUtils.ensureDirectoryExists(directory);
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the tokens for the given text and language from the cache or
+	 * <code>null</code> if no (valid) entry exists.
+	 * 
+	 * @param originId
+	 *            the origin used for the restored tokens.
+	 */
+	public TokenBuffer load(String text, ELanguage language, String originId) {
+		File file = getFile(text, language);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			return read(in, file.length(), text, language, originId);
+		} catch (IOException e) {
+			// treat broken entries as missing; they are overwritten later on
+			return null;
+		} catch (IllegalArgumentException e) {
+			// unknown token type
+			return null;
+		} finally {
+			FileSystemUtils.close(in);
+		}
+	}
+
+	/**
+	 * Reads a token buffer from the given stream. Returns <code>null</code> if
+	 * the data is not valid.
+	 * 
+	 * @param fileLength
+	 *            the length of the file, used for validating sizes before
+	 *            allocating arrays.
+	 */
+	private TokenBuffer read(DataInputStream in, long fileLength, String text,
+			ELanguage language, String originId) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			return null;
+		}
+		int size = in.readInt();
+		if (size <= 0 || (long) size * MIN_BYTES_PER_TOKEN > fileLength) {
+			return null;
+		}
+
+		int typeTableSize = in.readInt();
+		if (typeTableSize <= 0
+				|| typeTableSize > ETokenType.values().length) {
+			return null;
+		}
+		ETokenType[] typeTable = new ETokenType[typeTableSize];
+		for (int i = 0; i < typeTable.length; ++i) {
+			typeTable[i] = ETokenType.valueOf(in.readUTF());
+		}
+
+		int[] offsets = readInts(in, size);
+		int[] endOffsets = readInts(in, size);
+		int[] lineNumbers = readInts(in, size);
+		short[] types = new short[size];
+		for (int i = 0; i < size; ++i) {
+			int typeIndex = in.readShort();
+			if (typeIndex < 0 || typeIndex >= typeTable.length) {
+				return null;
+			}
+			types[i] = (short) typeTable[typeIndex].ordinal();
+		}
+
+		String[] explicitTexts = null;
+		int numExplicitTexts = in.readInt();
+		if (numExplicitTexts < 0 || numExplicitTexts > size) {
+			return null;
+		}
+		if (numExplicitTexts > 0) {
+			explicitTexts = new String[size];
+			for (int i = 0; i < numExplicitTexts; ++i) {
+				int index = in.readInt();
+				if (index < 0 || index >= size) {
+					return null;
+				}
+				explicitTexts[index] = in.readUTF();
+			}
+		}
+
+		for (int i = 0; i < size; ++i) {
+			if ((explicitTexts == null || explicitTexts[i] == null)
+					&& !isValidRegion(offsets[i], endOffsets[i], text)) {
+				return null;
+			}
+		}
+
+		IToken prototype = createPrototype(text, language, originId,
+				offsets[0], endOffsets[0], lineNumbers[0], types[0],
+				explicitTexts);
+		if (prototype == null) {
+			return null;
+		}
+		return new TokenBuffer(text, prototype, offsets, endOffsets,
+				lineNumbers, types, explicitTexts);
+	}
+
+	/**
+	 * Creates the prototype token required by the {@link TokenBuffer}. As the
+	 * token classes are specific to the language, this scans the text of the
+	 * first token in isolation and derives the prototype from the result.
+	 * Returns <code>null</code> if this fails.
+	 */
+	private static IToken createPrototype(String text, ELanguage language,
+			String originId, int offset, int endOffset, int lineNumber,
+			short type, String[] explicitTexts) {
+		String tokenText;
+		if (explicitTexts != null && explicitTexts[0] != null) {
+			tokenText = explicitTexts[0];
+		} else {
+			tokenText = text.substring(offset, endOffset + 1);
+		}
+
+		List<IToken> tokens = ScannerUtils.getTokens(tokenText, language,
+				originId);
+		if (tokens.isEmpty()) {
+			return null;
+		}
+		return tokens.get(0).newToken(ETokenType.values()[type], offset,
+				lineNumber, tokenText, originId);
+	}
+
+	/** Returns whether the given (inclusive) region lies within the text. */
+	private static boolean isValidRegion(int offset, int endOffset, String text) {
+		return offset >= 0 && endOffset >= offset - 1
+				&& endOffset < text.length();
+	}
+
+	/** Reads the given number of ints from the stream. */
+	private static int[] readInts(DataInputStream in, int size)
+			throws IOException {
+		int[] result = new int[size];
+		for (int i = 0; i < size; ++i) {
+			result[i] = in.readInt();
+		}
+		return result;
+	}
+
+	/** Stores the tokens for the given text and language in the cache. */
+	public void store(String text, ELanguage language, TokenBuffer buffer)
+			throws IOException {
+		File file = getFile(text, language);
+		FileSystemUtils.ensureDirectoryExists(file.getParentFile());
+		File tempFile = File.createTempFile("tokens", ".tmp",
+				file.getParentFile());
+
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tempFile)));
+			write(out, buffer);
+		} catch (IOException e) {
+			FileSystemUtils.close(out);
+			out = null;
+			FileSystemUtils.deleteFile(tempFile);
+			throw e;
+		} finally {
+			FileSystemUtils.close(out);
+		}
+
+		// if renaming fails, a concurrent writer stored the same entry
+		if (!tempFile.renameTo(file)) {
+			FileSystemUtils.deleteFile(tempFile);
+		}
+	}
+
+	/** Writes the given buffer to the stream. */
+	private static void write(DataOutputStream out, TokenBuffer buffer)
+			throws IOException {
+		int size = buffer.size();
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(size);
+
+		Map<ETokenType, Integer> typeIndexes = new HashMap<ETokenType, Integer>();
+		for (int i = 0; i < size; ++i) {
+			if (!typeIndexes.containsKey(buffer.getType(i))) {
+				typeIndexes.put(buffer.getType(i), typeIndexes.size());
+			}
+		}
+		ETokenType[] typeTable = new ETokenType[typeIndexes.size()];
+		for (Map.Entry<ETokenType, Integer> entry : typeIndexes.entrySet()) {
+			typeTable[entry.getValue()] = entry.getKey();
+		}
+		out.writeInt(typeTable.length);
+		for (ETokenType type : typeTable) {
+			out.writeUTF(type.name());
+		}
+
+		for (int i = 0; i < size; ++i) {
+			out.writeInt(buffer.getOffset(i));
+		}
+		for (int i = 0; i < size; ++i) {
+			out.writeInt(buffer.getEndOffset(i));
+		}
+		for (int i = 0; i < size; ++i) {
+			out.writeInt(buffer.getLineNumber(i));
+		}
+		for (int i = 0; i < size; ++i) {
+			out.writeShort(typeIndexes.get(buffer.getType(i)));
+		}
+
+		int numExplicitTexts = 0;
+		for (int i = 0; i < size; ++i) {
+			if (buffer.getExplicitText(i) != null) {
+				numExplicitTexts += 1;
+			}
+		}
+		out.writeInt(numExplicitTexts);
+		for (int i = 0; i < size; ++i) {
+			if (buffer.getExplicitText(i) != null) {
+				out.writeInt(i);
+				out.writeUTF(buffer.getExplicitText(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns the file for the entry of the given text and language. Entries
+	 * are distributed over subdirectories by the first two characters of the
+	 * digest to keep the directories small.
+	 */
+	private File getFile(String text, ELanguage language) {
+		String digest = Digester.createMD5Digest(StringUtils
+				.stringToBytes(text));
+		return new File(new File(directory, digest.substring(0, 2)),
+				language.name() + "-" + getScannerFingerprint(language) + "-"
+						+ digest + FILE_SUFFIX);
+	}
+
+	/**
+	 * Returns a fingerprint of the scanner used for the given language. This
+	 * is the MD5 digest of the scanner's class file (which includes the
+	 * generated scanner tables), or of its class name if the class file is
+	 * not available.
+	 */
+	/* package */static String getScannerFingerprint(ELanguage language) {
+		String fingerprint = SCANNER_FINGERPRINTS.get(language);
+		if (fingerprint != null) {
+			return fingerprint;
+		}
+
+		Class<?> scannerClass = ScannerFactory.newLenientScanner(language,
+				StringUtils.EMPTY_STRING, null).getClass();
+		InputStream in = scannerClass.getResourceAsStream(scannerClass
+				.getSimpleName() + ".class");
+		try {
+			if (in != null) {
+				fingerprint = Digester.createMD5Digest(FileSystemUtils
+						.readStreamBinary(in));
+			}
+		} catch (IOException e) {
+			// fall back to class name below
+		} finally {
+			FileSystemUtils.close(in);
+		}
+		if (fingerprint == null) {
+			fingerprint = Digester.createMD5Digest(scannerClass.getName());
+		}
+
+		// a shortened digest suffices for distinguishing scanner versions
+		fingerprint = fingerprint.substring(0, 8);
+		SCANNER_FINGERPRINTS.put(language, fingerprint);
+		return fingerprint;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.sourcecode.resource;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.conqat.engine.core.core.AConQATAttribute;
+import org.conqat.engine.core.core.AConQATParameter;
+import org.conqat.engine.core.core.AConQATProcessor;
+import org.conqat.engine.core.core.ConQATException;
+
+/**
+ * {@ConQAT.Doc}
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+@AConQATProcessor(description = "Attaches a persistent token cache to all token elements. "
+		+ "The tokens of the elements are then stored in the given directory, keyed by the "
+		+ "MD5 digest of the filtered text, the language, and a fingerprint of the scanner, "
+		+ "so that later runs can skip scanning for unchanged content. Entries of older "
+		+ "scanner versions are not used anymore, but are not deleted automatically.")
+public class PersistentTokenCacheConfigurator extends
+		TokenElementProcessorBase {
+
+	/** The cache attached to the elements. */
+	private PersistentTokenCache cache;
+
+	/** {@ConQAT.Doc} */
+	@AConQATParameter(name = "cache", minOccurrences = 1, maxOccurrences = 1, description = ""
+			+ "The directory used for storing the tokens.")
+	public void setCacheDirectory(
+			@AConQATAttribute(name = "dir", description = "The directory is created if it does not exist.") String directory)
+			throws ConQATException {
+		try {
+			cache = new PersistentTokenCache(new File(directory));
+		} catch (IOException e) {
+			throw new ConQATException("Could not create token cache directory "
+					+ directory + ": " + e.getMessage(), e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void processElement(ITokenElement element) {
+		if (element instanceof TokenElement) {
+			((TokenElement) element).setPersistentTokenCache(cache);
+		}
+	}
+}
\ No newline at end of file
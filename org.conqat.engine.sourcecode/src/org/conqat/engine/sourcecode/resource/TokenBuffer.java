@@ -0,0 +1,378 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.sourcecode.resource;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import org.conqat.lib.commons.collections.UnmodifiableList;
+import org.conqat.lib.scanner.ELanguage;
+import org.conqat.lib.scanner.ETokenType;
+import org.conqat.lib.scanner.IToken;
+
+/**
+ * A compact, columnar representation of the tokens of a single element.
+ * Instead of one object per token, this stores offsets, end offsets and line
+ * numbers in <code>int</code> arrays and the token types as ordinals in a
+ * <code>short</code> array. The text of a token is not stored explicitly, but
+ * obtained as slice of the text the tokens were scanned from.
+ * <p>
+ * Existing code can work on the list returned by {@link #asList()}, which
+ * provides a lightweight (flyweight) {@link IToken} view for each token.
+ * Performance critical code may instead use the index based accessors (e.g.
+ * {@link #getType(int)}), which do not allocate any objects.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class TokenBuffer {
+
+	/** Cached token types by ordinal. */
+	private static final ETokenType[] TOKEN_TYPES = ETokenType.values();
+
+	/** The text the tokens were scanned from. */
+	private final String text;
+
+	/**
+	 * A token used as prototype for {@link IToken#newToken}. This also
+	 * determines the origin and language of all tokens.
+	 */
+	private final IToken prototype;
+
+	/** The offsets of the tokens. */
+	private final int[] offsets;
+
+	/** The end offsets (inclusive) of the tokens. */
+	private final int[] endOffsets;
+
+	/** The line numbers of the tokens. */
+	private final int[] lineNumbers;
+
+	/** The ordinals of the token types. */
+	private final short[] types;
+
+	/**
+	 * The texts of tokens which are not a slice of {@link #text}. This is
+	 * <code>null</code> if all tokens are slices (which is the usual case),
+	 * otherwise it contains null entries for the tokens that are slices.
+	 */
+	private String[] explicitTexts;
+
+	/** The list view on this buffer. */
+	private final UnmodifiableList<IToken> listView = new BufferList(
+			new TokenList());
+
+	/**
+	 * Constructor. The tokens must all have been scanned from the given text
+	 * and be non-empty. Use {@link #canRepresent(List)} to check whether this
+	 * is possible.
+	 */
+	public TokenBuffer(String text, List<IToken> tokens) {
+		this.text = text;
+		prototype = tokens.get(0);
+
+		int size = tokens.size();
+		offsets = new int[size];
+		endOffsets = new int[size];
+		lineNumbers = new int[size];
+		types = new short[size];
+
+		for (int i = 0; i < size; ++i) {
+			IToken token = tokens.get(i);
+			offsets[i] = token.getOffset();
+			endOffsets[i] = token.getEndOffset();
+			lineNumbers[i] = token.getLineNumber();
+			types[i] = (short) token.getType().ordinal();
+
+			if (!isSlice(token)) {
+				if (explicitTexts == null) {
+					explicitTexts = new String[size];
+				}
+				explicitTexts[i] = token.getText();
+			}
+		}
+	}
+
+	/**
+	 * Constructor for restoring a buffer from its columns (see
+	 * {@link PersistentTokenCache}). The arrays are used directly.
+	 */
+	/* package */TokenBuffer(String text, IToken prototype, int[] offsets,
+			int[] endOffsets, int[] lineNumbers, short[] types,
+			String[] explicitTexts) {
+		this.text = text;
+		this.prototype = prototype;
+		this.offsets = offsets;
+		this.endOffsets = endOffsets;
+		this.lineNumbers = lineNumbers;
+		this.types = types;
+		this.explicitTexts = explicitTexts;
+	}
+
+	/** Returns whether the text of the given token is a slice of the text. */
+	private boolean isSlice(IToken token) {
+		String tokenText = token.getText();
+		return token.getOffset() >= 0
+				&& token.getEndOffset() == token.getOffset()
+						+ tokenText.length() - 1
+				&& text.regionMatches(token.getOffset(), tokenText, 0,
+						tokenText.length());
+	}
+
+	/**
+	 * Returns whether the given list of tokens can be represented by a
+	 * {@link TokenBuffer}. This is the case if it is not empty and all tokens
+	 * share the same origin, language and token class as the first one.
+	 */
+	public static boolean canRepresent(List<IToken> tokens) {
+		if (tokens.isEmpty()) {
+			return false;
+		}
+		IToken first = tokens.get(0);
+		if (first.getOriginId() == null) {
+			return false;
+		}
+		for (IToken token : tokens) {
+			if (token.getClass() != first.getClass()
+					|| token.getLanguage() != first.getLanguage()
+					|| !first.getOriginId().equals(token.getOriginId())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the buffer backing the given list of tokens, or
+	 * <code>null</code> if the list is not backed by a buffer.
+	 */
+	public static TokenBuffer getBuffer(List<IToken> tokens) {
+		if (tokens instanceof BufferList) {
+			return ((BufferList) tokens).getBuffer();
+		}
+		return null;
+	}
+
+	/** Returns an unmodifiable list view with one flyweight per token. */
+	public UnmodifiableList<IToken> asList() {
+		return listView;
+	}
+
+	/** Returns the number of tokens. */
+	public int size() {
+		return offsets.length;
+	}
+
+	/** Returns the text of the token at the given index. */
+	public String getText(int index) {
+		if (explicitTexts != null && explicitTexts[index] != null) {
+			return explicitTexts[index];
+		}
+		return text.substring(offsets[index], endOffsets[index] + 1);
+	}
+
+	/**
+	 * Returns the text of the token at the given index if it is not a slice of
+	 * the text, otherwise <code>null</code>.
+	 */
+	/* package */String getExplicitText(int index) {
+		if (explicitTexts == null) {
+			return null;
+		}
+		return explicitTexts[index];
+	}
+
+	/**
+	 * Returns whether the text of the token at the given index equals the
+	 * given string. In contrast to {@link #getText(int)}, this does not
+	 * allocate a new string.
+	 */
+	public boolean textEquals(int index, String other) {
+		if (explicitTexts != null && explicitTexts[index] != null) {
+			return explicitTexts[index].equals(other);
+		}
+		int length = endOffsets[index] + 1 - offsets[index];
+		return length == other.length()
+				&& text.regionMatches(offsets[index], other, 0, length);
+	}
+
+	/** Returns the offset of the token at the given index. */
+	public int getOffset(int index) {
+		return offsets[index];
+	}
+
+	/** Returns the end offset (inclusive) of the token at the given index. */
+	public int getEndOffset(int index) {
+		return endOffsets[index];
+	}
+
+	/** Returns the line number of the token at the given index. */
+	public int getLineNumber(int index) {
+		return lineNumbers[index];
+	}
+
+	/** Returns the type of the token at the given index. */
+	public ETokenType getType(int index) {
+		return TOKEN_TYPES[types[index]];
+	}
+
+	/** Returns the origin of all tokens. */
+	public String getOriginId() {
+		return prototype.getOriginId();
+	}
+
+	/** Returns the language of all tokens. */
+	public ELanguage getLanguage() {
+		return prototype.getLanguage();
+	}
+
+	/** The unmodifiable list view, which provides access to the buffer. */
+	private final class BufferList extends UnmodifiableList<IToken> {
+
+		/** Version used for serialization. */
+		private static final long serialVersionUID = 1;
+
+		/** Constructor. */
+		private BufferList(List<IToken> list) {
+			super(list);
+		}
+
+		/** Returns the buffer. */
+		private TokenBuffer getBuffer() {
+			return TokenBuffer.this;
+		}
+	}
+
+	/** The list of flyweight tokens wrapped by the {@link BufferList}. */
+	private final class TokenList extends AbstractList<IToken> {
+
+		/** {@inheritDoc} */
+		@Override
+		public IToken get(int index) {
+			if (index < 0 || index >= offsets.length) {
+				throw new IndexOutOfBoundsException("Index: " + index
+						+ ", size: " + offsets.length);
+			}
+			return new TokenView(index);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return offsets.length;
+		}
+	}
+
+	/**
+	 * Flyweight token view on a single entry of the buffer. Two views are
+	 * equal if they refer to the same entry of the same buffer, so views can
+	 * be used as keys in hash maps just as the original tokens.
+	 */
+	private final class TokenView implements IToken {
+
+		/** The index of the token in the buffer. */
+		private final int index;
+
+		/** Constructor. */
+		private TokenView(int index) {
+			this.index = index;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public String getText() {
+			return TokenBuffer.this.getText(index);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int getOffset() {
+			return offsets[index];
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int getEndOffset() {
+			return endOffsets[index];
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int getLineNumber() {
+			return lineNumbers[index];
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public String getOriginId() {
+			return prototype.getOriginId();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public ETokenType getType() {
+			return TOKEN_TYPES[types[index]];
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public ELanguage getLanguage() {
+			return prototype.getLanguage();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public IToken newToken(ETokenType type, int offset, int lineNumber,
+				String text, String originId) {
+			return prototype.newToken(type, offset, lineNumber, text,
+					originId);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TokenView)) {
+				return false;
+			}
+			TokenView other = (TokenView) obj;
+			return other.index == index && other.getBuffer() == getBuffer();
+		}
+
+		/** Returns the buffer of this view. */
+		private TokenBuffer getBuffer() {
+			return TokenBuffer.this;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(TokenBuffer.this) * 31 + index;
+		}
+
+		/**
+		 * Obtain string representation of this token. This is meant for
+		 * debugging purposes and uses the same format as the scanner tokens.
+		 */
+		@Override
+		public String toString() {
+			return "TOKEN (" + getType() + ") Text: >>" + getText()
+					+ "<< Origin: '" + getOriginId() + "' line#: "
+					+ getLineNumber();
+		}
+	}
+}
\ No newline at end of file
@@ -68,6 +68,12 @@ public class TokenElement extends TextElement implements ITokenElement {
 	/** The language. */
 	private final ELanguage language;
 
+	/**
+	 * The persistent cache used for the tokens or <code>null</code> if no such
+	 * cache is used.
+	 */
+	private PersistentTokenCache persistentTokenCache;
+
 	/** Constructor. */
 	public TokenElement(IContentAccessor accessor, Charset encoding,
 			ELanguage language) {
@@ -85,6 +91,7 @@ public class TokenElement extends TextElement implements ITokenElement {
 	protected TokenElement(TokenElement other) throws DeepCloneException {
 		super(other);
 		language = other.language;
+		persistentTokenCache = other.persistentTokenCache;
 	}
 
 	/** {@inheritDoc} */
@@ -106,14 +113,31 @@ public class TokenElement extends TextElement implements ITokenElement {
 		return tokenCache.obtain(new ObtainTokensKey(this, logger));
 	}
 
+	/**
+	 * Sets the persistent cache used for storing the tokens between runs. Use
+	 * <code>null</code> to disable persistent caching.
+	 */
+	public void setPersistentTokenCache(PersistentTokenCache cache) {
+		persistentTokenCache = cache;
+	}
+
 	/**
 	 * This is the same as {@link #getTokens(IConQATLogger)}, but doas not
-	 * perform caching.
+	 * perform (in-memory) caching.
 	 */
 	protected UnmodifiableList<IToken> getTokensUncached(IConQATLogger logger)
 			throws ConQATException {
 
-		List<IToken> allTokens = obtainAllTokens();
+		String text = getTextContent();
+		if (persistentTokenCache != null) {
+			TokenBuffer buffer = persistentTokenCache.load(text, language,
+					getUniformPath());
+			if (buffer != null) {
+				return buffer.asList();
+			}
+		}
+
+		List<IToken> allTokens = obtainAllTokens(text);
 		List<IToken> validTokens = obtainValidTokens(allTokens, logger);
 
 		if (tooManyErrorTokens(allTokens.size(), validTokens.size())) {
@@ -123,13 +147,47 @@ public class TokenElement extends TextElement implements ITokenElement {
 			return CollectionUtils.emptyList();
 		}
 
-		return CollectionUtils.asUnmodifiable(validTokens);
+		if (!TokenBuffer.canRepresent(validTokens)) {
+			return CollectionUtils.asUnmodifiable(validTokens);
+		}
+
+		TokenBuffer buffer = new TokenBuffer(text, validTokens);
+
+		// elements with error tokens are not stored, as a cache hit would
+		// suppress the warnings about the ignored tokens
+		if (persistentTokenCache != null
+				&& validTokens.size() == allTokens.size()) {
+			try {
+				persistentTokenCache.store(text, language, buffer);
+			} catch (IOException e) {
+				logger.warn("Could not store tokens of element '"
+						+ getLocation() + "' in persistent cache: "
+						+ e.getMessage());
+			}
+		}
+		return buffer.asList();
+	}
+
+	/**
+	 * Returns the tokens of this element as compact {@link TokenBuffer}, which
+	 * allows iterating the tokens without allocating objects. This uses the
+	 * same cache as {@link #getTokens(IConQATLogger)}. Returns
+	 * <code>null</code> if the element has no tokens.
+	 */
+	public TokenBuffer getTokenBuffer(IConQATLogger logger)
+			throws ConQATException {
+		UnmodifiableList<IToken> tokens = getTokens(logger);
+		TokenBuffer buffer = TokenBuffer.getBuffer(tokens);
+		if (buffer == null && TokenBuffer.canRepresent(tokens)) {
+			buffer = new TokenBuffer(getTextContent(), tokens);
+		}
+		return buffer;
 	}
 
-	/** Obtain all tokens. */
-	private List<IToken> obtainAllTokens() throws ConQATException {
+	/** Obtain all tokens for the given (filtered) text. */
+	private List<IToken> obtainAllTokens(String text) throws ConQATException {
 		ILenientScanner scanner = ScannerFactory.newLenientScanner(language,
-				getTextContent(), getUniformPath());
+				text, getUniformPath());
 
 		try {
 			return ScannerUtils.readTokens(scanner);
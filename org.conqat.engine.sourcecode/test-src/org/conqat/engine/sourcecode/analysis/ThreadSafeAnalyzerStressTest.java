@@ -0,0 +1,204 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.sourcecode.analysis;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.conqat.engine.commons.findings.Finding;
+import org.conqat.engine.commons.findings.FindingsList;
+import org.conqat.engine.commons.node.ConQATNodeBase;
+import org.conqat.engine.core.core.AThreadSafeProcessor;
+import org.conqat.engine.core.core.IConQATProcessor;
+import org.conqat.engine.core.logging.testutils.LoggerMock;
+import org.conqat.engine.core.logging.testutils.ProcessorInfoMock;
+import org.conqat.engine.resource.IElement;
+import org.conqat.engine.resource.analysis.LOCAnalyzer;
+import org.conqat.engine.resource.util.ResourceTraversalUtils;
+import org.conqat.engine.sourcecode.analysis.shallowparsed.GlobalVariableCounter;
+import org.conqat.engine.sourcecode.analysis.shallowparsed.NamingConventionAnalyzer;
+import org.conqat.engine.sourcecode.analysis.shallowparsed.ShallowParsedLongestStatementListAnalyzer;
+import org.conqat.engine.sourcecode.analysis.shallowparsed.ShallowParsedMultipleStatementsPerLineAnalyzer;
+import org.conqat.engine.sourcecode.analysis.shallowparsed.ShallowParsedStatementNestingDepthAnalyzer;
+import org.conqat.engine.sourcecode.analysis.shallowparsed.VariableShadowingAnalyzer;
+import org.conqat.engine.sourcecode.resource.ITokenResource;
+import org.conqat.engine.sourcecode.resource.TokenTestCaseBase;
+import org.conqat.lib.commons.collections.CollectionUtils;
+import org.conqat.lib.commons.concurrent.InThreadExecutorService;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.string.StringUtils;
+import org.conqat.lib.scanner.ELanguage;
+
+/**
+ * Stress test for the analyzers annotated with {@link AThreadSafeProcessor}.
+ * Each analyzer is executed with multiple threads on many elements and the
+ * result is compared to that of the sequential execution.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class ThreadSafeAnalyzerStressTest extends TokenTestCaseBase {
+
+	/** The number of threads used. */
+	private static final int NUMBER_OF_THREADS = 8;
+
+	/** The number of multi-threaded runs compared to the sequential one. */
+	private static final int NUMBER_OF_RUNS = 3;
+
+	/** The number of copies created for each test file. */
+	private static final int NUMBER_OF_COPIES = 10;
+
+	/** The executor used for the multi-threaded runs. */
+	private ExecutorService executor;
+
+	/** {@inheritDoc} */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		ensureEmptyTmpDir();
+		for (File file : useTestFile(".").listFiles()) {
+			if (!file.getName().endsWith(".java")) {
+				continue;
+			}
+			String content = FileSystemUtils.readFile(file);
+			for (int i = 0; i < NUMBER_OF_COPIES; ++i) {
+				createTmpFile("copy" + i + "/" + file.getName(), content);
+			}
+		}
+		executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+		deleteTmpDirectory();
+		super.tearDown();
+	}
+
+	/** Tests the {@link LOCAnalyzer}. */
+	public void testLOCAnalyzer() throws Exception {
+		assertThreadSafe(LOCAnalyzer.class, ",findings=(threshold=50.0,key=f))");
+	}
+
+	/** Tests the {@link SLOCAnalyzer}. */
+	public void testSLOCAnalyzer() throws Exception {
+		assertThreadSafe(SLOCAnalyzer.class, ",findings=(threshold=20.0,key=f))");
+	}
+
+	/** Tests the {@link ShallowParsedStatementNestingDepthAnalyzer}. */
+	public void testStatementNestingDepthAnalyzer() throws Exception {
+		assertThreadSafe(ShallowParsedStatementNestingDepthAnalyzer.class,
+				",findings=(threshold=2.0,key=f))");
+	}
+
+	/** Tests the {@link ShallowParsedLongestStatementListAnalyzer}. */
+	public void testLongestStatementListAnalyzer() throws Exception {
+		assertThreadSafe(ShallowParsedLongestStatementListAnalyzer.class,
+				",findings=(threshold=5.0,key=f))");
+	}
+
+	/** Tests the {@link GlobalVariableCounter}. */
+	public void testGlobalVariableCounter() throws Exception {
+		assertThreadSafe(GlobalVariableCounter.class, ")");
+	}
+
+	/** Tests the {@link NamingConventionAnalyzer}. */
+	public void testNamingConventionAnalyzer() throws Exception {
+		assertThreadSafe(NamingConventionAnalyzer.class,
+				",'local-variables'=(pattern='[a-z]'))");
+	}
+
+	/** Tests the {@link VariableShadowingAnalyzer}. */
+	public void testVariableShadowingAnalyzer() throws Exception {
+		assertThreadSafe(VariableShadowingAnalyzer.class, ")");
+	}
+
+	/** Tests the {@link ShallowParsedMultipleStatementsPerLineAnalyzer}. */
+	public void testMultipleStatementsPerLineAnalyzer() throws Exception {
+		assertThreadSafe(ShallowParsedMultipleStatementsPerLineAnalyzer.class,
+				")");
+	}
+
+	/**
+	 * Asserts that the given analyzer is annotated as thread-safe and that the
+	 * results of multi-threaded runs equal the result of the sequential run.
+	 * 
+	 * @param parameters
+	 *            CQDDL for additional parameters, which is appended to the
+	 *            input parameter. This must close the parameter list.
+	 */
+	private void assertThreadSafe(
+			Class<? extends IConQATProcessor> analyzerClass, String parameters)
+			throws Exception {
+		assertTrue(analyzerClass.isAnnotationPresent(AThreadSafeProcessor.class));
+
+		String expected = analyze(analyzerClass, parameters,
+				new InThreadExecutorService());
+		assertTrue("Analyzer should produce results",
+				expected.contains(": "));
+		for (int i = 0; i < NUMBER_OF_RUNS; ++i) {
+			assertEquals(expected, analyze(analyzerClass, parameters, executor));
+		}
+	}
+
+	/**
+	 * Runs the analyzer on a fresh resource tree and returns a normalized
+	 * description of the values stored at the elements.
+	 */
+	private String analyze(Class<? extends IConQATProcessor> analyzerClass,
+			String parameters, ExecutorService executorService)
+			throws Exception {
+		ITokenResource root = createTokenScope(getTmpDirectory(),
+				ELanguage.JAVA, new String[] { "**/*.java" }, null);
+		executeProcessor(new ProcessorInfoMock(new LoggerMock(),
+				executorService), analyzerClass, "(input=(ref=", root,
+				")" + parameters);
+
+		List<String> lines = new ArrayList<String>();
+		for (IElement element : ResourceTraversalUtils.listElements(root)) {
+			for (String key : ((ConQATNodeBase) element).getKeys()) {
+				lines.add(element.getUniformPath() + " " + key + ": "
+						+ describe(element.getValue(key)));
+			}
+		}
+		Collections.sort(lines);
+		return StringUtils.concat(lines, StringUtils.CR);
+	}
+
+	/**
+	 * Returns a description of a value. For findings, this is independent of
+	 * the finding IDs (which depend on the order of creation).
+	 */
+	private static String describe(Object value) {
+		if (!(value instanceof FindingsList)) {
+			return String.valueOf(value);
+		}
+
+		List<String> findings = new ArrayList<String>();
+		for (Finding finding : (FindingsList) value) {
+			findings.add(finding.getMessage() + "@"
+					+ finding.getLocationString());
+		}
+		return StringUtils.concat(CollectionUtils.sort(findings), ", ");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.sourcecode.resource;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import org.conqat.engine.core.logging.testutils.LoggerMock;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.scanner.ELanguage;
+import org.conqat.lib.scanner.IToken;
+
+/**
+ * Tests the {@link PersistentTokenCache}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class PersistentTokenCacheTest extends TokenTestCaseBase {
+
+	/** Java code used for testing. */
+	private static final String CODE = "package foo;\n\n"
+			+ "public class A {\n\tint x = 42; // comment\n}\n";
+
+	/** {@inheritDoc} */
+	@Override
+	protected void tearDown() throws Exception {
+		deleteTmpDirectory();
+		super.tearDown();
+	}
+
+	/** Tests that stored tokens are restored correctly. */
+	public void testStoreAndLoad() throws Exception {
+		PersistentTokenCache cache = new PersistentTokenCache(
+				getTmpDirectory());
+		assertNull(cache.load(CODE, ELanguage.JAVA, "foo"));
+
+		TokenElement element = (TokenElement) createTokenElement(CODE);
+		element.setPersistentTokenCache(cache);
+		List<IToken> expected = element.getTokens(new LoggerMock());
+
+		TokenBuffer loaded = cache.load(CODE, ELanguage.JAVA, "bar");
+		assertNotNull(loaded);
+		assertNull(cache.load(CODE, ELanguage.CPP, "bar"));
+		assertNull(cache.load(CODE + " ", ELanguage.JAVA, "bar"));
+
+		List<IToken> actual = loaded.asList();
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); ++i) {
+			assertEquals(expected.get(i).getText(), actual.get(i).getText());
+			assertEquals(expected.get(i).getType(), actual.get(i).getType());
+			assertEquals(expected.get(i).getOffset(), actual.get(i)
+					.getOffset());
+			assertEquals(expected.get(i).getLineNumber(), actual.get(i)
+					.getLineNumber());
+			assertEquals("bar", actual.get(i).getOriginId());
+			assertEquals(ELanguage.JAVA, actual.get(i).getLanguage());
+			assertEquals(expected.get(i).newToken(null, 0, 0, "x", "bar")
+					.getClass(), actual.get(i).newToken(null, 0, 0, "x", "bar")
+					.getClass());
+		}
+	}
+
+	/** Tests that broken entries are treated as missing. */
+	public void testBrokenEntry() throws Exception {
+		PersistentTokenCache cache = new PersistentTokenCache(
+				getTmpDirectory());
+		TokenElement element = (TokenElement) createTokenElement(CODE);
+		element.setPersistentTokenCache(cache);
+		element.getTokens(new LoggerMock());
+
+		for (File file : FileSystemUtils.listFilesRecursively(
+				getTmpDirectory())) {
+			if (file.isFile()) {
+				FileSystemUtils.writeFile(file, "broken");
+			}
+		}
+		assertNull(cache.load(CODE, ELanguage.JAVA, "foo"));
+	}
+
+	/** Tests that corrupt entries are treated as missing. */
+	public void testCorruptEntries() throws Exception {
+		PersistentTokenCache cache = new PersistentTokenCache(
+				getTmpDirectory());
+		TokenElement element = (TokenElement) createTokenElement(CODE);
+		element.setPersistentTokenCache(cache);
+		element.getTokens(new LoggerMock());
+
+		File entry = getEntryFile();
+		byte[] content = FileSystemUtils.readFileBinary(entry);
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; ++i) {
+			byte[] corrupt = content.clone();
+			for (int j = 0; j < 4; ++j) {
+				// keep magic number and version intact
+				corrupt[8 + random.nextInt(corrupt.length - 8)] = (byte) random
+						.nextInt();
+			}
+			FileSystemUtils.writeFileBinary(entry, corrupt);
+
+			// must not throw an exception
+			cache.load(CODE, ELanguage.JAVA, "foo");
+		}
+	}
+
+	/** Tests that elements with error tokens are not stored. */
+	public void testErrorTokensNotStored() throws Exception {
+		PersistentTokenCache cache = new PersistentTokenCache(
+				getTmpDirectory());
+		String code = CODE + "#";
+		TokenElement element = (TokenElement) createTokenElement(code);
+		element.setPersistentTokenCache(cache);
+		element.getTokens(new LoggerMock());
+		assertNull(cache.load(code, ELanguage.JAVA, "foo"));
+	}
+
+	/** Returns the single entry file in the cache directory. */
+	private File getEntryFile() {
+		for (File file : FileSystemUtils.listFilesRecursively(
+				getTmpDirectory())) {
+			if (file.isFile()) {
+				return file;
+			}
+		}
+		fail("No cache entry found!");
+		return null;
+	}
+}
\ No newline at end of file
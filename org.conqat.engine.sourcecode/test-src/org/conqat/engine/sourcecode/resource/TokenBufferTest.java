@@ -0,0 +1,106 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.engine.sourcecode.resource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.engine.core.logging.testutils.LoggerMock;
+import org.conqat.lib.scanner.ELanguage;
+import org.conqat.lib.scanner.IToken;
+import org.conqat.lib.scanner.ScannerFactory;
+import org.conqat.lib.scanner.ScannerUtils;
+
+/**
+ * Tests the {@link TokenBuffer}.
+ * 
+ * @author $Author: hummelb $
+ * @version $Rev: 47181 $
+ * @ConQAT.Rating RED Hash:
+ */
+public class TokenBufferTest extends TokenTestCaseBase {
+
+	/** Java code used for testing. */
+	private static final String CODE = "package foo;\n\n"
+			+ "/** Doc. */\npublic class A {\n"
+			+ "\tprivate String s = \"text\";\n"
+			+ "\tpublic int foo(int x) { return x * 42; } // comment\n}\n";
+
+	/** Tests that the buffer returns the same tokens as the scanner. */
+	public void testSameTokens() throws Exception {
+		TokenElement element = (TokenElement) createTokenElement(CODE);
+		List<IToken> expected = ScannerUtils.readTokens(ScannerFactory
+				.newLenientScanner(ELanguage.JAVA, CODE,
+						element.getUniformPath()));
+
+		List<IToken> actual = element.getTokens(new LoggerMock());
+		TokenBuffer buffer = TokenBuffer.getBuffer(actual);
+		assertNotNull(buffer);
+		assertEquals(buffer.size(), element.getTokenBuffer(new LoggerMock())
+				.size());
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.size(), buffer.size());
+
+		for (int i = 0; i < expected.size(); ++i) {
+			IToken expectedToken = expected.get(i);
+			IToken token = actual.get(i);
+			assertEquals(expectedToken.toString(), token.toString());
+			assertEquals(expectedToken.getText(), token.getText());
+			assertEquals(expectedToken.getOffset(), token.getOffset());
+			assertEquals(expectedToken.getEndOffset(), token.getEndOffset());
+			assertEquals(expectedToken.getLineNumber(),
+					token.getLineNumber());
+			assertEquals(expectedToken.getType(), token.getType());
+			assertEquals(expectedToken.getOriginId(), token.getOriginId());
+			assertEquals(expectedToken.getLanguage(), token.getLanguage());
+
+			assertEquals(expectedToken.getType(), buffer.getType(i));
+			assertTrue(buffer.textEquals(i, expectedToken.getText()));
+			assertFalse(buffer.textEquals(i, expectedToken.getText() + "x"));
+		}
+	}
+
+	/** Tests that flyweight views can be used as keys in hash maps. */
+	public void testViewsAsKeys() throws Exception {
+		List<IToken> tokens = createTokenElement(CODE).getTokens(
+				new LoggerMock());
+		Map<IToken, Integer> indexes = new HashMap<IToken, Integer>();
+		for (int i = 0; i < tokens.size(); ++i) {
+			indexes.put(tokens.get(i), i);
+		}
+		assertEquals(tokens.size(), indexes.size());
+		for (int i = 0; i < tokens.size(); ++i) {
+			assertEquals(i, (int) indexes.get(tokens.get(i)));
+			assertEquals(i, tokens.indexOf(tokens.get(i)));
+		}
+	}
+
+	/** Tests the fallback for tokens whose text is not a slice. */
+	public void testExplicitTexts() throws Exception {
+		List<IToken> scanned = ScannerUtils.readTokens(ScannerFactory
+				.newLenientScanner(ELanguage.JAVA, CODE, "foo"));
+		IToken first = scanned.get(0);
+		scanned.set(0, first.newToken(first.getType(), first.getOffset(),
+				first.getLineNumber(), "other", first.getOriginId()));
+
+		TokenBuffer buffer = new TokenBuffer(CODE, scanned);
+		assertEquals("other", buffer.getText(0));
+		assertTrue(buffer.textEquals(0, "other"));
+		assertEquals(scanned.get(1).getText(), buffer.getText(1));
+	}
+}
\ No newline at end of file